@@ -29,8 +29,10 @@ import com.shc.androidopenal.ALC;
 import com.shc.androidopenal.ALCcontext;
 import com.shc.androidopenal.ALCdevice;
 import com.shc.silenceengine.audio.AudioDevice;
+import com.shc.silenceengine.audio.IAudioStream;
 import com.shc.silenceengine.audio.openal.ALBuffer;
 import com.shc.silenceengine.backend.android.soundreaders.OggReader;
+import com.shc.silenceengine.backend.android.soundreaders.OggStreamReader;
 import com.shc.silenceengine.backend.android.soundreaders.WavReader;
 import com.shc.silenceengine.core.SilenceException;
 import com.shc.silenceengine.io.DirectBuffer;
@@ -183,6 +185,20 @@ class AndroidAudioDevice extends AudioDevice
             AndroidAudioDevice.sources.remove((Integer) i);
     }
 
+    @Override
+    public void alSourceQueueBuffer(int id, int buffer)
+    {
+        temp.put(0, buffer);
+        AL.alSourceQueueBuffers(id, 1, temp);
+    }
+
+    @Override
+    public int alSourceUnqueueBuffer(int id)
+    {
+        AL.alSourceUnqueueBuffers(id, 1, temp);
+        return temp.get(0);
+    }
+
     @Override
     public void readToALBuffer(AudioFormat format, DirectBuffer data, UniCallback<ALBuffer> onDecoded, UniCallback<Throwable> onError)
     {
@@ -191,31 +207,34 @@ class AndroidAudioDevice extends AudioDevice
             if (!isSupported(format))
                 throw new SilenceException("Cannot parse sound. The format is unsupported: " + format);
 
-            if (format == AudioFormat.WAV)
-                AsyncRunner.runAsync(() ->
+            AsyncRunner.runAsync(() ->
+            {
+                try
                 {
-                    WavReader reader = new WavReader(data);
-
                     ALBuffer alBuffer = new ALBuffer();
-                    alBuffer.uploadData(new AndroidDirectBuffer(reader.data), reader.alFormat, reader.sampleRate);
 
-                    return () -> TaskManager.runOnUpdate(() -> onDecoded.invoke(alBuffer));
-                });
-
-            else if (format == AudioFormat.OGG)
-                AsyncRunner.runAsync(() ->
-                {
-                    OggReader reader = new OggReader(data);
-
-                    ALBuffer alBuffer = new ALBuffer();
-                    alBuffer.uploadData(new AndroidDirectBuffer(reader.getData()), reader.getFormat(), reader.getSampleRate());
+                    if (format == AudioFormat.WAV)
+                    {
+                        WavReader reader = new WavReader(data);
+                        alBuffer.uploadData(new AndroidDirectBuffer(reader.data), reader.alFormat, reader.sampleRate);
+                    }
+                    else
+                    {
+                        OggReader reader = new OggReader(data);
+                        alBuffer.uploadData(new AndroidDirectBuffer(reader.getData()), reader.getFormat(), reader.getSampleRate());
+                    }
 
                     return () -> TaskManager.runOnUpdate(() -> onDecoded.invoke(alBuffer));
-                });
+                }
+                catch (Throwable e)
+                {
+                    return () -> TaskManager.runOnUpdate(() -> onError.invoke(e));
+                }
+            });
         }
         catch (Throwable e)
         {
-            onError.invoke(e);
+            TaskManager.runOnUpdate(() -> onError.invoke(e));
         }
     }
 
@@ -234,6 +253,62 @@ class AndroidAudioDevice extends AudioDevice
         return false;
     }
 
+    @Override
+    public boolean isStreamingSupported(AudioFormat format)
+    {
+        return format == AudioFormat.OGG;
+    }
+
+    @Override
+    public IAudioStream openStream(AudioFormat format, DirectBuffer data)
+    {
+        if (!isStreamingSupported(format))
+            return super.openStream(format, data);
+
+        return new OggStreamReader(data);
+    }
+
+    @Override
+    public boolean isPCMDecodingSupported(AudioFormat format)
+    {
+        return isSupported(format);
+    }
+
+    @Override
+    public void decodeToPCM(AudioFormat format, DirectBuffer data, UniCallback<DirectBuffer> onDecoded, UniCallback<Throwable> onError)
+    {
+        if (!isPCMDecodingSupported(format))
+        {
+            onError.invoke(new SilenceException("Cannot decode sound. The format is unsupported: " + format));
+            return;
+        }
+
+        AsyncRunner.runAsync(() ->
+        {
+            try
+            {
+                DirectBuffer payload;
+
+                if (format == AudioFormat.WAV)
+                {
+                    WavReader reader = new WavReader(data);
+                    payload = createPCMPayload(new AndroidDirectBuffer(reader.data), reader.alFormat, reader.sampleRate);
+                }
+                else
+                {
+                    OggReader reader = new OggReader(data);
+                    payload = createPCMPayload(new AndroidDirectBuffer(reader.getData()), reader.getFormat(), reader.getSampleRate());
+                }
+
+                return () -> TaskManager.runOnUpdate(() -> onDecoded.invoke(payload));
+            }
+            catch (Throwable e)
+            {
+                return () -> TaskManager.runOnUpdate(() -> onError.invoke(e));
+            }
+        });
+    }
+
     void onFocusLost()
     {
         pausedSources.clear();
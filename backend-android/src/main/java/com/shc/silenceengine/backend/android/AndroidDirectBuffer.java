@@ -139,6 +139,98 @@ class AndroidDirectBuffer extends DirectBuffer
         return this;
     }
 
+    @Override
+    public DirectBuffer put(int byteIndex, byte[] src, int offset, int length)
+    {
+        at(byteIndex).put(src, offset, length);
+        return this;
+    }
+
+    @Override
+    public DirectBuffer put(int byteIndex, short[] src, int offset, int length)
+    {
+        at(byteIndex).asShortBuffer().put(src, offset, length);
+        return this;
+    }
+
+    @Override
+    public DirectBuffer put(int byteIndex, int[] src, int offset, int length)
+    {
+        at(byteIndex).asIntBuffer().put(src, offset, length);
+        return this;
+    }
+
+    @Override
+    public DirectBuffer put(int byteIndex, float[] src, int offset, int length)
+    {
+        at(byteIndex).asFloatBuffer().put(src, offset, length);
+        return this;
+    }
+
+    @Override
+    public DirectBuffer get(int byteIndex, byte[] dst, int offset, int length)
+    {
+        at(byteIndex).get(dst, offset, length);
+        return this;
+    }
+
+    @Override
+    public DirectBuffer get(int byteIndex, short[] dst, int offset, int length)
+    {
+        at(byteIndex).asShortBuffer().get(dst, offset, length);
+        return this;
+    }
+
+    @Override
+    public DirectBuffer get(int byteIndex, int[] dst, int offset, int length)
+    {
+        at(byteIndex).asIntBuffer().get(dst, offset, length);
+        return this;
+    }
+
+    @Override
+    public DirectBuffer get(int byteIndex, float[] dst, int offset, int length)
+    {
+        at(byteIndex).asFloatBuffer().get(dst, offset, length);
+        return this;
+    }
+
+    @Override
+    public DirectBuffer copyFrom(int byteIndex, DirectBuffer src, int srcByteIndex, int length)
+    {
+        if (!(src instanceof AndroidDirectBuffer))
+            return super.copyFrom(byteIndex, src, srcByteIndex, length);
+
+        ByteBuffer source = ((AndroidDirectBuffer) src).nativeBuffer.duplicate();
+        source.clear();
+        source.position(srcByteIndex);
+        source.limit(srcByteIndex + length);
+
+        at(byteIndex).put(source);
+        return this;
+    }
+
+    // A duplicate positioned at the byte index, for the bulk operations. The duplicate does not keep the byte order
+    private ByteBuffer at(int byteIndex)
+    {
+        ByteBuffer view = nativeBuffer.duplicate().order(nativeBuffer.order());
+        view.clear();
+        view.position(byteIndex);
+
+        return view;
+    }
+
+    @Override
+    public DirectBuffer slice(int byteOffset, int length)
+    {
+        ByteBuffer view = nativeBuffer.duplicate();
+        view.clear();
+        view.position(byteOffset);
+        view.limit(byteOffset + length);
+
+        return new AndroidDirectBuffer(view.slice().order(nativeBuffer.order()));
+    }
+
     public void free()
     {
     }
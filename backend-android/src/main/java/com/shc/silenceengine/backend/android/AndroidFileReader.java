@@ -43,6 +43,9 @@ class AndroidFileReader extends FileReader
     @Override
     public void readBinaryFile(FilePath file, UniCallback<DirectBuffer> onComplete, UniCallback<Throwable> onError)
     {
+        if (readBinaryFromPack(file, onComplete, onError))
+            return;
+
         AsyncRunner.runAsync(() ->
         {
             try
@@ -66,16 +69,13 @@ class AndroidFileReader extends FileReader
 
                 byte[] bytes = outputStream.toByteArray();
 
-                DirectBuffer directBuffer = new AndroidDirectBuffer(bytes.length);
-
-                for (int i = 0; i < bytes.length; i++)
-                    directBuffer.writeByte(i, bytes[i]);
+                DirectBuffer directBuffer = new AndroidDirectBuffer(bytes.length).put(0, bytes, 0, bytes.length);
 
                 return () -> TaskManager.runOnUpdate(() -> onComplete.invoke(directBuffer));
             }
             catch (Throwable e)
             {
-                return () -> onError.invoke(e);
+                return () -> TaskManager.runOnUpdate(() -> onError.invoke(e));
             }
         });
     }
@@ -83,6 +83,9 @@ class AndroidFileReader extends FileReader
     @Override
     public void readTextFile(FilePath file, UniCallback<String> onComplete, UniCallback<Throwable> onError)
     {
+        if (readTextFromPack(file, onComplete, onError))
+            return;
+
         AsyncRunner.runAsync(() ->
         {
             try (
@@ -101,7 +104,7 @@ class AndroidFileReader extends FileReader
             }
             catch (Throwable e)
             {
-                return () -> onError.invoke(e);
+                return () -> TaskManager.runOnUpdate(() -> onError.invoke(e));
             }
         });
     }
@@ -64,7 +64,7 @@ class AndroidFileWriter extends FileWriter
             }
             catch (IOException e)
             {
-                return () -> onError.invoke(e);
+                return () -> TaskManager.runOnUpdate(() -> onError.invoke(e));
             }
         });
     }
@@ -79,22 +79,26 @@ class AndroidFileWriter extends FileWriter
                 if (file.getType() == FilePath.Type.RESOURCE)
                     throw new IOException("Cannot write to resource files");
 
-                try (
-                        OutputStream outputStream = ((AndroidFilePath) file).getOutputStream(append);
-                        OutputStreamWriter writer = new OutputStreamWriter(outputStream)
-                )
+                try (OutputStream outputStream = ((AndroidFilePath) file).getOutputStream(append))
                 {
-                    for (int i = 0; i < buffer.sizeBytes(); i++)
-                        writer.write(buffer.readByte(i));
+                    // Write the raw bytes in chunks, a Writer would encode them as characters
+                    byte[] chunk = new byte[4096];
+                    int size = buffer.sizeBytes();
 
-                    writer.flush();
+                    for (int i = 0; i < size; i += chunk.length)
+                    {
+                        int length = Math.min(chunk.length, size - i);
+
+                        buffer.get(i, chunk, 0, length);
+                        outputStream.write(chunk, 0, length);
+                    }
                 }
 
                 return () -> TaskManager.runOnUpdate(onSuccess);
             }
             catch (IOException e)
             {
-                return () -> onError.invoke(e);
+                return () -> TaskManager.runOnUpdate(() -> onError.invoke(e));
             }
         });
     }
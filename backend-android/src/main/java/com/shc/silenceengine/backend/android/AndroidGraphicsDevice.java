@@ -69,6 +69,12 @@ class AndroidGraphicsDevice implements IGraphicsDevice
         GLES30.glBindBuffer(target, buffer);
     }
 
+    @Override
+    public void glBindBufferBase(int target, int index, int buffer)
+    {
+        GLES30.glBindBufferBase(target, index, buffer);
+    }
+
     @Override
     public void glBufferData(int target, int capacity, int usage)
     {
@@ -260,6 +266,24 @@ class AndroidGraphicsDevice implements IGraphicsDevice
         return GLES30.glGetUniformLocation(program, name);
     }
 
+    @Override
+    public String glGetActiveUniform(int program, int index, int[] size, int[] type)
+    {
+        return GLES30.glGetActiveUniform(program, index, size, 0, type, 0);
+    }
+
+    @Override
+    public int glGetUniformBlockIndex(int program, String name)
+    {
+        return GLES30.glGetUniformBlockIndex(program, name);
+    }
+
+    @Override
+    public void glUniformBlockBinding(int program, int blockIndex, int blockBinding)
+    {
+        GLES30.glUniformBlockBinding(program, blockIndex, blockBinding);
+    }
+
     @Override
     public void glUniform1i(int location, int value)
     {
@@ -32,9 +32,11 @@ import com.shc.easyjson.ParseException;
 import com.shc.silenceengine.io.DirectBuffer;
 import com.shc.silenceengine.io.FilePath;
 import com.shc.silenceengine.io.FileReader;
+import com.shc.silenceengine.io.FileWatcher;
 import com.shc.silenceengine.io.FileWriter;
 import com.shc.silenceengine.io.IODevice;
 import com.shc.silenceengine.io.ImageReader;
+import com.shc.silenceengine.utils.AsyncExecutor;
 
 /**
  * @author Sri Harsha Chilakapati
@@ -44,6 +46,12 @@ class AndroidIODevice implements IODevice
     private FileReader  fileReader  = new AndroidFileReader();
     private FileWriter  fileWriter  = new AndroidFileWriter();
     private ImageReader imageReader = new AndroidImageReader();
+    private FileWatcher fileWatcher = new FileWatcher();
+
+    AndroidIODevice()
+    {
+        AsyncExecutor.setShared(AsyncRunner.getExecutor());
+    }
 
     @Override
     public DirectBuffer create(int sizeInBytes)
@@ -87,6 +95,12 @@ class AndroidIODevice implements IODevice
         return fileWriter;
     }
 
+    @Override
+    public FileWatcher getFileWatcher()
+    {
+        return fileWatcher;
+    }
+
     @Override
     public JSONObject getPreferences(String name)
     {
@@ -119,7 +119,7 @@ class AndroidImageReader extends ImageReader
             }
             catch (Throwable e)
             {
-                return () -> onError.invoke(e);
+                return () -> TaskManager.runOnUpdate(() -> onError.invoke(e));
             }
         });
     }
@@ -38,23 +38,21 @@ class AndroidLogger extends Logger
     }
 
     @Override
-    public void info(Object... messages)
+    protected void write(Level level, String message)
     {
-        for (Object msg : messages)
-            Log.i(name, String.valueOf(msg));
-    }
+        switch (level)
+        {
+            case INFO:
+                Log.i(name, message);
+                break;
 
-    @Override
-    public void warn(Object... messages)
-    {
-        for (Object msg : messages)
-            Log.w(name, String.valueOf(msg));
-    }
+            case WARNING:
+                Log.w(name, message);
+                break;
 
-    @Override
-    public void error(Object... messages)
-    {
-        for (Object msg : messages)
-            Log.e(name, String.valueOf(msg));
+            case ERROR:
+                Log.e(name, message);
+                break;
+        }
     }
 }
@@ -24,46 +24,51 @@
 
 package com.shc.silenceengine.backend.android;
 
-import android.os.AsyncTask;
+import com.shc.silenceengine.utils.AsyncExecutor;
+import com.shc.silenceengine.utils.ThreadPoolAsyncExecutor;
 import com.shc.silenceengine.utils.functional.Provider;
 import com.shc.silenceengine.utils.functional.SimpleCallback;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-
 /**
+ * Runs the loads of the Android backend on a shared pool of workers, in the order of the priority set with
+ * {@link AsyncExecutor#runWithPriority(int, SimpleCallback)}. Finished tasks are not kept around, and the result of a
+ * task that is still running when {@link #cancelAll()} is called is ignored.
+ *
  * @author Sri Harsha Chilakapati
  */
-class AsyncRunner extends AsyncTask<Provider<SimpleCallback>, Void, SimpleCallback>
+final class AsyncRunner
 {
-    private static List<AsyncRunner> runners = Collections.synchronizedList(new ArrayList<>());
+    private static final ThreadPoolAsyncExecutor executor = new ThreadPoolAsyncExecutor("SilenceEngine Worker",
+            ThreadPoolAsyncExecutor.getDefaultThreadCount());
 
-    @SuppressWarnings({"unchecked"})
-    static void runAsync(Provider<SimpleCallback> callback)
+    // Incremented when all the tasks are cancelled, a task only delivers its result if this is unchanged
+    private static volatile int generation;
+
+    private AsyncRunner()
     {
-        runners.add((AsyncRunner) new AsyncRunner().execute(callback));
     }
 
-    static void cancelAll()
+    static void runAsync(Provider<SimpleCallback> callback)
     {
-        for (AsyncRunner runner : runners)
-            runner.cancel(true);
+        int submitted = generation;
 
-        runners.clear();
+        executor.execute(() ->
+        {
+            SimpleCallback result = callback.provide();
+
+            if (submitted == generation)
+                result.invoke();
+        });
     }
 
-    @SafeVarargs
-    @Override
-    protected final SimpleCallback doInBackground(Provider<SimpleCallback>... params)
+    static AsyncExecutor getExecutor()
     {
-        return params[0].provide();
+        return executor;
     }
 
-    @Override
-    protected void onPostExecute(SimpleCallback result)
+    static void cancelAll()
     {
-        if (!isCancelled())
-            result.invoke();
+        generation++;
+        executor.cancelAll();
     }
 }
@@ -51,4 +51,22 @@ public class DirectBufferInputStream extends InputStream
 
         return directBuffer.readByte(index++) & 0xFF;
     }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        int remaining = directBuffer.sizeBytes() - index;
+
+        if (len == 0)
+            return 0;
+
+        if (remaining <= 0)
+            return -1;
+
+        len = Math.min(len, remaining);
+        directBuffer.get(index, b, off, len);
+        index += len;
+
+        return len;
+    }
 }
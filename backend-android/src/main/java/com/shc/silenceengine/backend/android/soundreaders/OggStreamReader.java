@@ -0,0 +1,159 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.backend.android.soundreaders;
+
+import com.shc.androidopenal.AL;
+import com.shc.androidopenal.STB_Vorbis;
+import com.shc.androidopenal.STB_VorbisInfo;
+import com.shc.silenceengine.audio.IAudioStream;
+import com.shc.silenceengine.audio.openal.ALBuffer;
+import com.shc.silenceengine.audio.openal.ALError;
+import com.shc.silenceengine.audio.openal.ALFormat;
+import com.shc.silenceengine.core.SilenceException;
+import com.shc.silenceengine.io.DirectBuffer;
+import com.shc.silenceengine.io.PrimitiveSize;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+import static com.shc.androidopenal.STBVorbis.*;
+
+/**
+ * <p> A streaming sound reader based on the STB vorbis libraries. Unlike the {@link OggReader}, this class keeps the
+ * OGG data compressed in memory and decodes a block of samples at a time whenever a buffer needs to be filled. </p>
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public class OggStreamReader implements IAudioStream
+{
+    /**
+     * The number of sample frames that are decoded into a buffer at once.
+     */
+    private static final int FRAMES_PER_BLOCK = 8192;
+
+    // Keep a reference to the compressed data, stb_vorbis reads from it lazily
+    private DirectBuffer input;
+
+    private ByteBuffer  pcm;
+    private ShortBuffer pcmShorts;
+    private int         decodedBytes;
+
+    private STB_Vorbis handle;
+    private int        channels;
+    private int        sampleRate;
+
+    private ALFormat format;
+
+    /**
+     * Constructs an OGG stream reader to decode from a DirectBuffer. The reader takes over the buffer, and frees it when
+     * it is disposed.
+     *
+     * @param directBuffer Direct buffer to read the data from
+     */
+    public OggStreamReader(DirectBuffer directBuffer)
+    {
+        input = directBuffer;
+        open();
+
+        // Get the information about the OGG header
+        STB_VorbisInfo info = stb_vorbis_get_info(handle);
+
+        channels = info.getChannels();
+        sampleRate = (int) info.getSample_rate();
+
+        info.free();
+
+        format = channels == 1 ? ALFormat.MONO_16 : ALFormat.STEREO_16;
+
+        pcm = ByteBuffer.allocateDirect(FRAMES_PER_BLOCK * channels * PrimitiveSize.SHORT).order(ByteOrder.nativeOrder());
+        pcmShorts = pcm.asShortBuffer();
+    }
+
+    private void open()
+    {
+        // Open the vorbis file to get stb_vorbis*
+        IntBuffer error = ByteBuffer.allocateDirect(PrimitiveSize.INT).order(ByteOrder.nativeOrder()).asIntBuffer();
+        handle = stb_vorbis_open_memory((ByteBuffer) input.nativeBuffer(), input.sizeBytes(), error, null);
+
+        if (handle == null || STB_Vorbis.getPointer(handle) == 0)
+            throw new SilenceException("Error " + error.get(0) + ": decoding the OGG data");
+    }
+
+    @Override
+    public boolean decode()
+    {
+        if (handle == null)
+            throw new SilenceException("Cannot decode from a disposed stream");
+
+        pcmShorts.clear();
+        int frames = (int) stb_vorbis_get_samples_short_interleaved(handle, channels, pcmShorts, pcmShorts.remaining());
+
+        decodedBytes = frames * channels * PrimitiveSize.SHORT;
+        return frames > 0;
+    }
+
+    @Override
+    public void upload(ALBuffer buffer)
+    {
+        pcm.clear();
+        AL.alBufferData(buffer.getID(), format.getAlFormat(), pcm, decodedBytes, sampleRate);
+        ALError.check();
+    }
+
+    @Override
+    public void rewind()
+    {
+        // Reopening the decoder is cheap, since it only parses the headers from memory
+        stb_vorbis_close(handle);
+        open();
+    }
+
+    @Override
+    public ALFormat getFormat()
+    {
+        return format;
+    }
+
+    @Override
+    public int getSampleRate()
+    {
+        return sampleRate;
+    }
+
+    @Override
+    public void dispose()
+    {
+        if (handle == null)
+            return;
+
+        stb_vorbis_close(handle);
+        handle = null;
+
+        DirectBuffer.free(input);
+        input = null;
+    }
+}
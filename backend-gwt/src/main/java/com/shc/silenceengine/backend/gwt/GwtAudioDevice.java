@@ -139,6 +139,19 @@ class GwtAudioDevice extends AudioDevice
         AL10.alDeleteSources(sources);
     }
 
+    @Override
+    public void alSourceQueueBuffer(int id, int buffer)
+    {
+        // WebAudio decodes complete files, so music is never streamed through a buffer queue here
+        throw new SilenceException("Buffer queues are not supported by the GWT backend");
+    }
+
+    @Override
+    public int alSourceUnqueueBuffer(int id)
+    {
+        throw new SilenceException("Buffer queues are not supported by the GWT backend");
+    }
+
     @Override
     public void readToALBuffer(AudioFormat format, DirectBuffer data, UniCallback<ALBuffer> onDecoded, UniCallback<Throwable> onError)
     {
@@ -26,7 +26,13 @@ package com.shc.silenceengine.backend.gwt;
 
 import com.google.gwt.typedarrays.client.ArrayBufferNative;
 import com.google.gwt.typedarrays.client.DataViewNative;
+import com.google.gwt.typedarrays.client.Float32ArrayNative;
+import com.google.gwt.typedarrays.client.Int16ArrayNative;
+import com.google.gwt.typedarrays.client.Int32ArrayNative;
+import com.google.gwt.typedarrays.client.Int8ArrayNative;
+import com.google.gwt.typedarrays.client.Uint8ArrayNative;
 import com.google.gwt.typedarrays.shared.ArrayBuffer;
+import com.google.gwt.typedarrays.shared.ArrayBufferView;
 import com.google.gwt.typedarrays.shared.DataView;
 import com.shc.silenceengine.io.DirectBuffer;
 
@@ -155,6 +161,103 @@ class GwtDirectBuffer extends DirectBuffer
         return view.getInt8(byteIndex);
     }
 
+    @Override
+    public DirectBuffer put(int byteIndex, byte[] src, int offset, int length)
+    {
+        set(Int8ArrayNative.create(buffer, byteIndex, length), src, offset, length);
+        return this;
+    }
+
+    @Override
+    public DirectBuffer put(int byteIndex, short[] src, int offset, int length)
+    {
+        // Typed arrays can only start at a multiple of their element size
+        if (byteIndex % 2 != 0)
+            return super.put(byteIndex, src, offset, length);
+
+        set(Int16ArrayNative.create(buffer, byteIndex, length), src, offset, length);
+        return this;
+    }
+
+    @Override
+    public DirectBuffer put(int byteIndex, int[] src, int offset, int length)
+    {
+        if (byteIndex % 4 != 0)
+            return super.put(byteIndex, src, offset, length);
+
+        set(Int32ArrayNative.create(buffer, byteIndex, length), src, offset, length);
+        return this;
+    }
+
+    @Override
+    public DirectBuffer put(int byteIndex, float[] src, int offset, int length)
+    {
+        if (byteIndex % 4 != 0)
+            return super.put(byteIndex, src, offset, length);
+
+        set(Float32ArrayNative.create(buffer, byteIndex, length), src, offset, length);
+        return this;
+    }
+
+    @Override
+    public DirectBuffer get(int byteIndex, byte[] dst, int offset, int length)
+    {
+        get(Int8ArrayNative.create(buffer, byteIndex, length), dst, offset, length);
+        return this;
+    }
+
+    @Override
+    public DirectBuffer get(int byteIndex, short[] dst, int offset, int length)
+    {
+        if (byteIndex % 2 != 0)
+            return super.get(byteIndex, dst, offset, length);
+
+        get(Int16ArrayNative.create(buffer, byteIndex, length), dst, offset, length);
+        return this;
+    }
+
+    @Override
+    public DirectBuffer get(int byteIndex, int[] dst, int offset, int length)
+    {
+        if (byteIndex % 4 != 0)
+            return super.get(byteIndex, dst, offset, length);
+
+        get(Int32ArrayNative.create(buffer, byteIndex, length), dst, offset, length);
+        return this;
+    }
+
+    @Override
+    public DirectBuffer get(int byteIndex, float[] dst, int offset, int length)
+    {
+        if (byteIndex % 4 != 0)
+            return super.get(byteIndex, dst, offset, length);
+
+        get(Float32ArrayNative.create(buffer, byteIndex, length), dst, offset, length);
+        return this;
+    }
+
+    @Override
+    public DirectBuffer copyFrom(int byteIndex, DirectBuffer src, int srcByteIndex, int length)
+    {
+        if (!(src instanceof GwtDirectBuffer))
+            return super.copyFrom(byteIndex, src, srcByteIndex, length);
+
+        Uint8ArrayNative.create(buffer, byteIndex, length)
+                .set(Uint8ArrayNative.create(((GwtDirectBuffer) src).buffer, srcByteIndex, length));
+
+        return this;
+    }
+
+    // Java arrays are plain JavaScript arrays once compiled, so a typed array can take them in a single set call
+    private static native void set(ArrayBufferView view, Object src, int offset, int length) /*-{
+        view.set(offset === 0 && length === src.length ? src : src.slice(offset, offset + length));
+    }-*/;
+
+    private static native void get(ArrayBufferView view, Object dst, int offset, int length) /*-{
+        for (var i = 0; i < length; i++)
+            dst[offset + i] = view[i];
+    }-*/;
+
     @Override
     public Object nativeBuffer()
     {
@@ -39,6 +39,9 @@ class GwtFileReader extends FileReader
     @Override
     public void readBinaryFile(FilePath file, UniCallback<DirectBuffer> onComplete, UniCallback<Throwable> onError)
     {
+        if (readBinaryFromPack(file, onComplete, onError))
+            return;
+
         // Create a XMLHttpRequest to load the file into a direct buffer
         XMLHttpRequest request = XMLHttpRequest.create();
         request.open("GET", file.getAbsolutePath());
@@ -64,6 +67,9 @@ class GwtFileReader extends FileReader
     @Override
     public void readTextFile(FilePath file, UniCallback<String> onComplete, UniCallback<Throwable> onError)
     {
+        if (readTextFromPack(file, onComplete, onError))
+            return;
+
         // Create a XMLHttpRequest to load the file into a direct buffer
         XMLHttpRequest request = XMLHttpRequest.create();
         request.open("GET", file.getAbsolutePath());
@@ -31,6 +31,7 @@ import com.shc.silenceengine.graphics.IGraphicsDevice;
 import com.shc.silenceengine.io.DirectBuffer;
 import com.shc.silenceengine.io.DirectFloatBuffer;
 import com.shc.webgl4j.client.WebGL10;
+import com.shc.webgl4j.client.WebGL20;
 
 import static com.shc.silenceengine.graphics.IGraphicsDevice.Constants.*;
 
@@ -69,6 +70,12 @@ class GwtGraphicsDevice implements IGraphicsDevice
         WebGL10.glBindBuffer(target, buffer);
     }
 
+    @Override
+    public void glBindBufferBase(int target, int index, int buffer)
+    {
+        WebGL20.glBindBufferBase(target, index, buffer);
+    }
+
     @Override
     public void glBufferData(int target, int capacity, int usage)
     {
@@ -259,6 +266,29 @@ class GwtGraphicsDevice implements IGraphicsDevice
         return WebGL10.glGetUniformLocation(program, name);
     }
 
+    @Override
+    public String glGetActiveUniform(int program, int index, int[] size, int[] type)
+    {
+        WebGL10.ActiveInfo info = WebGL10.glGetActiveUniform(program, index);
+
+        size[0] = info.getSize();
+        type[0] = info.getType();
+
+        return info.getName();
+    }
+
+    @Override
+    public int glGetUniformBlockIndex(int program, String name)
+    {
+        return WebGL20.glGetUniformBlockIndex(program, name);
+    }
+
+    @Override
+    public void glUniformBlockBinding(int program, int blockIndex, int blockBinding)
+    {
+        WebGL20.glUniformBlockBinding(program, blockIndex, blockBinding);
+    }
+
     @Override
     public void glUniform1i(int location, int value)
     {
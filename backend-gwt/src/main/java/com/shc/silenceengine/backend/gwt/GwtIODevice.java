@@ -31,6 +31,7 @@ import com.shc.easyjson.ParseException;
 import com.shc.silenceengine.io.DirectBuffer;
 import com.shc.silenceengine.io.FilePath;
 import com.shc.silenceengine.io.FileReader;
+import com.shc.silenceengine.io.FileWatcher;
 import com.shc.silenceengine.io.FileWriter;
 import com.shc.silenceengine.io.IODevice;
 import com.shc.silenceengine.io.ImageReader;
@@ -42,6 +43,7 @@ class GwtIODevice implements IODevice
 {
     private FileReader  fileReader  = new GwtFileReader();
     private ImageReader imageReader = new GwtImageReader();
+    private FileWatcher fileWatcher = new FileWatcher();
 
     @Override
     public DirectBuffer create(int sizeInBytes)
@@ -85,6 +87,12 @@ class GwtIODevice implements IODevice
         return null;
     }
 
+    @Override
+    public FileWatcher getFileWatcher()
+    {
+        return fileWatcher;
+    }
+
     @Override
     public JSONObject getPreferences(String name)
     {
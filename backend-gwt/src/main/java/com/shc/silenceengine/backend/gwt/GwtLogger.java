@@ -49,23 +49,21 @@ class GwtLogger extends Logger
     }-*/;
 
     @Override
-    public void info(Object... messages)
+    protected void write(Level level, String message)
     {
-        for (Object message : messages)
-            nInfo(name, message.toString());
-    }
+        switch (level)
+        {
+            case INFO:
+                nInfo(name, message);
+                break;
 
-    @Override
-    public void warn(Object... messages)
-    {
-        for (Object message : messages)
-            nWarn(name, message.toString());
-    }
+            case WARNING:
+                nWarn(name, message);
+                break;
 
-    @Override
-    public void error(Object... messages)
-    {
-        for (Object message : messages)
-            nError(name, message.toString());
+            case ERROR:
+                nError(name, message);
+                break;
+        }
     }
 }
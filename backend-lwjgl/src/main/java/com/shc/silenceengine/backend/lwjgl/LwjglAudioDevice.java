@@ -25,8 +25,10 @@
 package com.shc.silenceengine.backend.lwjgl;
 
 import com.shc.silenceengine.audio.AudioDevice;
+import com.shc.silenceengine.audio.IAudioStream;
 import com.shc.silenceengine.audio.openal.ALBuffer;
 import com.shc.silenceengine.backend.lwjgl.soundreaders.OggReader;
+import com.shc.silenceengine.backend.lwjgl.soundreaders.OggStreamReader;
 import com.shc.silenceengine.backend.lwjgl.soundreaders.WaveReader;
 import com.shc.silenceengine.core.SilenceEngine;
 import com.shc.silenceengine.core.SilenceException;
@@ -149,6 +151,18 @@ class LwjglAudioDevice extends AudioDevice
             AL10.alDeleteSources(source);
     }
 
+    @Override
+    public void alSourceQueueBuffer(int id, int buffer)
+    {
+        AL10.alSourceQueueBuffers(id, buffer);
+    }
+
+    @Override
+    public int alSourceUnqueueBuffer(int id)
+    {
+        return AL10.alSourceUnqueueBuffers(id);
+    }
+
     @Override
     public void readToALBuffer(AudioFormat format, DirectBuffer data, UniCallback<ALBuffer> onDecoded, UniCallback<Throwable> onError)
     {
@@ -214,6 +228,56 @@ class LwjglAudioDevice extends AudioDevice
         return false;
     }
 
+    @Override
+    public boolean isStreamingSupported(AudioFormat format)
+    {
+        return format == AudioFormat.OGG;
+    }
+
+    @Override
+    public IAudioStream openStream(AudioFormat format, DirectBuffer data)
+    {
+        if (!isStreamingSupported(format))
+            return super.openStream(format, data);
+
+        return new OggStreamReader(data);
+    }
+
+    @Override
+    public boolean isPCMDecodingSupported(AudioFormat format)
+    {
+        return isSupported(format);
+    }
+
+    @Override
+    public void decodeToPCM(AudioFormat format, DirectBuffer data, UniCallback<DirectBuffer> onDecoded, UniCallback<Throwable> onError)
+    {
+        try
+        {
+            if (!isPCMDecodingSupported(format))
+                throw new SilenceException("Error, cannot decode unsupported format");
+
+            DirectBuffer payload;
+
+            if (format == AudioFormat.OGG)
+            {
+                OggReader reader = new OggReader(data);
+                payload = createPCMPayload(new LwjglDirectBuffer(reader.getData()), reader.getFormat(), reader.getSampleRate());
+            }
+            else
+            {
+                WaveReader reader = new WaveReader(data);
+                payload = createPCMPayload(new LwjglDirectBuffer(reader.getData()), reader.getFormat(), reader.getSampleRate());
+            }
+
+            TaskManager.runOnUpdate(() -> onDecoded.invoke(payload));
+        }
+        catch (Throwable e)
+        {
+            onError.invoke(e);
+        }
+    }
+
     private void cleanUp()
     {
         alcCloseDevice(device);
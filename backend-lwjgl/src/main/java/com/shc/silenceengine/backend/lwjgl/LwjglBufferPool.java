@@ -0,0 +1,224 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.backend.lwjgl;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * <p>A pool of native memory blocks for the direct buffers. The requested sizes are rounded up to power of two size
+ * classes, from 64 bytes up to 1 MB, and the freed blocks are kept to be reused for the next requests of the same size
+ * class instead of being returned to the system. Larger requests are not pooled.</p>
+ *
+ * <p>Every thread has a small cache of blocks for each size class, so allocating and freeing on the same thread (which
+ * is the common case) does not touch any shared state. The blocks that do not fit in the cache of the freeing thread go
+ * to a shared lock-free depot, from where any thread can take them. Both allocating and freeing are O(1).</p>
+ *
+ * <p>Threads come and go, like the I/O workers that are stopped once they are idle for a while. When an allocation
+ * misses both the cache and the depot, the caches of the threads that have exited are drained into the depots and
+ * forgotten, so their blocks are reused instead of being stranded until the pool is disposed.</p>
+ *
+ * @author Sri Harsha Chilakapati
+ */
+final class LwjglBufferPool
+{
+    private static final int MIN_SHIFT   = 6;
+    private static final int MAX_SHIFT   = 20;
+    private static final int NUM_CLASSES = MAX_SHIFT - MIN_SHIFT + 1;
+
+    private static final int THREAD_CACHE_SIZE = 8;
+
+    private final Queue<ByteBuffer>[] depots;
+    private final Queue<ThreadCache>  threadCaches = new ConcurrentLinkedQueue<>();
+
+    private final ThreadLocal<ThreadCache> threadCache = ThreadLocal.withInitial(() ->
+    {
+        ThreadCache cache = new ThreadCache(Thread.currentThread());
+        threadCaches.add(cache);
+        return cache;
+    });
+
+    @SuppressWarnings("unchecked")
+    LwjglBufferPool()
+    {
+        depots = new Queue[NUM_CLASSES];
+
+        for (int i = 0; i < NUM_CLASSES; i++)
+            depots[i] = new ConcurrentLinkedQueue<>();
+    }
+
+    private static int sizeClass(int sizeInBytes)
+    {
+        int shift = 32 - Integer.numberOfLeadingZeros(Math.max(sizeInBytes, 1) - 1);
+        return Math.max(shift, MIN_SHIFT) - MIN_SHIFT;
+    }
+
+    /**
+     * Allocates a block that can hold at least the requested number of bytes. The capacity of the block is the size of
+     * its size class, which is how it is identified when it is freed.
+     *
+     * @param sizeInBytes The number of bytes requested.
+     *
+     * @return The block of native memory, in the native byte order.
+     */
+    ByteBuffer allocate(int sizeInBytes)
+    {
+        int sizeClass = sizeClass(sizeInBytes);
+
+        if (sizeClass >= NUM_CLASSES)
+            return MemoryUtil.memAlloc(sizeInBytes);
+
+        ByteBuffer block = threadCache.get().pop(sizeClass);
+
+        if (block == null)
+            block = depots[sizeClass].poll();
+
+        if (block == null && reclaimDeadCaches())
+            block = depots[sizeClass].poll();
+
+        if (block == null)
+            block = MemoryUtil.memAlloc(1 << (sizeClass + MIN_SHIFT));
+
+        block.clear();
+        return block;
+    }
+
+    void free(ByteBuffer block)
+    {
+        int capacity = block.capacity();
+        int sizeClass = sizeClass(capacity);
+
+        // Unpooled blocks are the ones that are too large, or whose size is not exactly a size class
+        if (sizeClass >= NUM_CLASSES || capacity != 1 << (sizeClass + MIN_SHIFT))
+        {
+            MemoryUtil.memFree(block);
+            return;
+        }
+
+        if (!threadCache.get().push(sizeClass, block))
+            depots[sizeClass].offer(block);
+    }
+
+    /**
+     * Moves the blocks in the caches of the threads that have exited to the depots, and forgets those caches.
+     *
+     * @return True if any cache was reclaimed, else false.
+     */
+    private boolean reclaimDeadCaches()
+    {
+        boolean reclaimed = false;
+
+        for (ThreadCache cache : threadCaches)
+        {
+            // Seeing the thread dead makes all its writes to the cache visible here, and only the thread that manages
+            // to remove the cache gets to drain it
+            if (!cache.owner.isAlive() && threadCaches.remove(cache))
+            {
+                cache.drainTo(depots);
+                reclaimed = true;
+            }
+        }
+
+        return reclaimed;
+    }
+
+    /**
+     * Frees all the blocks that are kept in the pool. The pool should not be used after this.
+     */
+    void dispose()
+    {
+        for (Queue<ByteBuffer> depot : depots)
+        {
+            ByteBuffer block;
+
+            while ((block = depot.poll()) != null)
+                MemoryUtil.memFree(block);
+        }
+
+        for (ThreadCache cache : threadCaches)
+            cache.dispose();
+
+        threadCaches.clear();
+    }
+
+    private static class ThreadCache
+    {
+        final ByteBuffer[][] blocks = new ByteBuffer[NUM_CLASSES][THREAD_CACHE_SIZE];
+        final int[]          counts = new int[NUM_CLASSES];
+
+        final Thread owner;
+
+        ThreadCache(Thread owner)
+        {
+            this.owner = owner;
+        }
+
+        ByteBuffer pop(int sizeClass)
+        {
+            if (counts[sizeClass] == 0)
+                return null;
+
+            ByteBuffer block = blocks[sizeClass][--counts[sizeClass]];
+            blocks[sizeClass][counts[sizeClass]] = null;
+
+            return block;
+        }
+
+        boolean push(int sizeClass, ByteBuffer block)
+        {
+            if (counts[sizeClass] == THREAD_CACHE_SIZE)
+                return false;
+
+            blocks[sizeClass][counts[sizeClass]++] = block;
+            return true;
+        }
+
+        // Only called once the owner has exited
+        void drainTo(Queue<ByteBuffer>[] depots)
+        {
+            for (int i = 0; i < NUM_CLASSES; i++)
+            {
+                while (counts[i] > 0)
+                {
+                    depots[i].offer(blocks[i][--counts[i]]);
+                    blocks[i][counts[i]] = null;
+                }
+            }
+        }
+
+        // Only called at the end, when the other threads are done with the buffers
+        void dispose()
+        {
+            for (int i = 0; i < NUM_CLASSES; i++)
+            {
+                while (counts[i] > 0)
+                    MemoryUtil.memFree(blocks[i][--counts[i]]);
+            }
+        }
+    }
+}
@@ -28,6 +28,7 @@ import com.shc.silenceengine.io.DirectBuffer;
 import org.lwjgl.system.MemoryUtil;
 
 import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
 
 /**
  * @author Sri Harsha Chilakapati
@@ -36,16 +37,27 @@ class LwjglDirectBuffer extends DirectBuffer
 {
     private ByteBuffer nativeBuffer;
 
+    // The pooled block of this buffer. The wrapped, sliced or mapped buffers do not have one, and are never freed
+    private ByteBuffer block;
+
+    // Where this buffer is allocated, only recorded in the development mode to report leaks
+    Throwable allocationSite;
+
     LwjglDirectBuffer(ByteBuffer buffer)
     {
         super(buffer.capacity());
         nativeBuffer = buffer;
     }
 
-    LwjglDirectBuffer(int sizeInBytes)
+    LwjglDirectBuffer(ByteBuffer block, int sizeInBytes)
     {
         super(sizeInBytes);
-        nativeBuffer = MemoryUtil.memAlloc(sizeInBytes);
+        this.block = block;
+
+        // The block can be larger than the requested size, so the buffer is a view of just the requested bytes
+        ByteBuffer view = block.duplicate();
+        view.limit(sizeInBytes);
+        nativeBuffer = view.slice().order(block.order());
     }
 
     @Override
@@ -139,8 +151,109 @@ class LwjglDirectBuffer extends DirectBuffer
         return this;
     }
 
-    public void free()
+    @Override
+    public DirectBuffer put(int byteIndex, byte[] src, int offset, int length)
+    {
+        at(byteIndex).put(src, offset, length);
+        return this;
+    }
+
+    @Override
+    public DirectBuffer put(int byteIndex, short[] src, int offset, int length)
+    {
+        at(byteIndex).asShortBuffer().put(src, offset, length);
+        return this;
+    }
+
+    @Override
+    public DirectBuffer put(int byteIndex, int[] src, int offset, int length)
+    {
+        at(byteIndex).asIntBuffer().put(src, offset, length);
+        return this;
+    }
+
+    @Override
+    public DirectBuffer put(int byteIndex, float[] src, int offset, int length)
+    {
+        at(byteIndex).asFloatBuffer().put(src, offset, length);
+        return this;
+    }
+
+    @Override
+    public DirectBuffer get(int byteIndex, byte[] dst, int offset, int length)
+    {
+        at(byteIndex).get(dst, offset, length);
+        return this;
+    }
+
+    @Override
+    public DirectBuffer get(int byteIndex, short[] dst, int offset, int length)
     {
-        MemoryUtil.memFree(nativeBuffer);
+        at(byteIndex).asShortBuffer().get(dst, offset, length);
+        return this;
+    }
+
+    @Override
+    public DirectBuffer get(int byteIndex, int[] dst, int offset, int length)
+    {
+        at(byteIndex).asIntBuffer().get(dst, offset, length);
+        return this;
+    }
+
+    @Override
+    public DirectBuffer get(int byteIndex, float[] dst, int offset, int length)
+    {
+        at(byteIndex).asFloatBuffer().get(dst, offset, length);
+        return this;
+    }
+
+    @Override
+    public DirectBuffer copyFrom(int byteIndex, DirectBuffer src, int srcByteIndex, int length)
+    {
+        if (!(src instanceof LwjglDirectBuffer))
+            return super.copyFrom(byteIndex, src, srcByteIndex, length);
+
+        ByteBuffer source = ((LwjglDirectBuffer) src).nativeBuffer;
+
+        if (byteIndex < 0 || length < 0 || byteIndex + length > nativeBuffer.capacity()
+            || srcByteIndex < 0 || srcByteIndex + length > source.capacity())
+            throw new IndexOutOfBoundsException();
+
+        if (nativeBuffer.isReadOnly())
+            throw new ReadOnlyBufferException();
+
+        MemoryUtil.memCopy(MemoryUtil.memAddress0(source) + srcByteIndex,
+                MemoryUtil.memAddress0(nativeBuffer) + byteIndex, length);
+
+        return this;
+    }
+
+    // A duplicate positioned at the byte index, for the bulk operations. The duplicate does not keep the byte order
+    private ByteBuffer at(int byteIndex)
+    {
+        ByteBuffer view = nativeBuffer.duplicate().order(nativeBuffer.order());
+        view.clear();
+        view.position(byteIndex);
+
+        return view;
+    }
+
+    @Override
+    public DirectBuffer slice(int byteOffset, int length)
+    {
+        ByteBuffer view = nativeBuffer.duplicate();
+        view.clear();
+        view.position(byteOffset);
+        view.limit(byteOffset + length);
+
+        return new LwjglDirectBuffer(view.slice().order(nativeBuffer.order()));
+    }
+
+    ByteBuffer release()
+    {
+        ByteBuffer released = block;
+        block = null;
+
+        return released;
     }
 }
@@ -33,8 +33,12 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -68,7 +72,19 @@ class LwjglExternalFilePath extends LwjglFilePath
         {
             try
             {
-                Files.move(Paths.get(this.path), Paths.get(path.getPath()));
+                Path source = Paths.get(this.path);
+                Path target = Paths.get(path.getPath());
+
+                // Replace the destination atomically where the file system can, so readers never see a partial file
+                try
+                {
+                    Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+                catch (AtomicMoveNotSupportedException e)
+                {
+                    Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+
                 resolve.invoke(null);
             }
             catch (IOException e)
@@ -215,6 +231,15 @@ class LwjglExternalFilePath extends LwjglFilePath
     @Override
     public OutputStream getOutputStream(boolean append) throws IOException
     {
+        if (append)
+            return Files.newOutputStream(Paths.get(getPath()), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+
         return Files.newOutputStream(Paths.get(getPath()));
     }
+
+    @Override
+    public Path getLocalPath()
+    {
+        return Paths.get(getPath());
+    }
 }
@@ -32,6 +32,7 @@ import com.shc.silenceengine.utils.functional.TriCallback;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Path;
 
 /**
  * @author Sri Harsha Chilakapati
@@ -53,6 +54,11 @@ abstract class LwjglFilePath extends FilePath
 
     public abstract OutputStream getOutputStream(boolean append) throws IOException;
 
+    /**
+     * @return The path of this file on the local filesystem, or null if it is not a plain file (like a JAR entry).
+     */
+    public abstract Path getLocalPath();
+
     @Override
     public Promise<Boolean> isFile()
     {
@@ -34,6 +34,11 @@ import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 /**
  * @author Sri Harsha Chilakapati
@@ -43,7 +48,10 @@ class LwjglFileReader extends FileReader
     @Override
     public void readBinaryFile(FilePath file, UniCallback<DirectBuffer> onComplete, UniCallback<Throwable> onError)
     {
-        new Thread(() ->
+        if (readBinaryFromPack(file, onComplete, onError))
+            return;
+
+        LwjglIODevice.executor.execute(() ->
         {
             try
             {
@@ -66,24 +74,24 @@ class LwjglFileReader extends FileReader
 
                 byte[] bytes = outputStream.toByteArray();
 
-                DirectBuffer directBuffer = new LwjglDirectBuffer(bytes.length);
-
-                for (int i = 0; i < bytes.length; i++)
-                    directBuffer.writeByte(i, bytes[i]);
+                DirectBuffer directBuffer = DirectBuffer.create(bytes.length).put(0, bytes, 0, bytes.length);
 
                 TaskManager.runOnUpdate(() -> onComplete.invoke(directBuffer));
             }
             catch (Throwable e)
             {
-                onError.invoke(e);
+                TaskManager.runOnUpdate(() -> onError.invoke(e));
             }
-        }).start();
+        });
     }
 
     @Override
     public void readTextFile(FilePath file, UniCallback<String> onComplete, UniCallback<Throwable> onError)
     {
-        new Thread(() ->
+        if (readTextFromPack(file, onComplete, onError))
+            return;
+
+        LwjglIODevice.executor.execute(() ->
         {
             try (
                     InputStream inputStream = ((LwjglFilePath) file).getInputStream();
@@ -100,9 +108,35 @@ class LwjglFileReader extends FileReader
             }
             catch (Throwable e)
             {
-                onError.invoke(e);
+                TaskManager.runOnUpdate(() -> onError.invoke(e));
             }
 
-        }).start();
+        });
+    }
+
+    @Override
+    public void mapBinaryFile(FilePath file, UniCallback<DirectBuffer> onComplete, UniCallback<Throwable> onError)
+    {
+        Path localPath = file instanceof LwjglFilePath ? ((LwjglFilePath) file).getLocalPath() : null;
+
+        // Files inside JARs cannot be mapped, read them instead
+        if (localPath == null)
+        {
+            readBinaryFile(file, onComplete, onError);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(localPath, StandardOpenOption.READ))
+        {
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.nativeOrder());
+
+            DirectBuffer directBuffer = new LwjglDirectBuffer(mapped);
+            TaskManager.runOnUpdate(() -> onComplete.invoke(directBuffer));
+        }
+        catch (Throwable e)
+        {
+            TaskManager.runOnUpdate(() -> onError.invoke(e));
+        }
     }
 }
@@ -0,0 +1,205 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.backend.lwjgl;
+
+import com.shc.silenceengine.core.SilenceEngine;
+import com.shc.silenceengine.io.FilePath;
+import com.shc.silenceengine.io.FileWatcher;
+import com.shc.silenceengine.utils.TaskManager;
+import com.shc.silenceengine.utils.TimeUtils;
+import com.shc.silenceengine.utils.functional.SimpleCallback;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * A file watcher that uses a {@link WatchService} to watch the directories of the files. Both the external files and
+ * the resources that are plain files on the disk (when running from an IDE) can be watched, but not the resources in a
+ * JAR file. A single daemon thread polls the service and debounces the changes.
+ *
+ * @author Sri Harsha Chilakapati
+ */
+class LwjglFileWatcher extends FileWatcher
+{
+    private final Map<Path, List<SimpleCallback>> callbacks   = new HashMap<>();
+    private final Map<Path, Double>               pending     = new HashMap<>();
+    private final Set<Path>                       directories = new HashSet<>();
+
+    private WatchService service;
+    private Thread       thread;
+
+    @Override
+    public boolean isSupported(FilePath file)
+    {
+        return file instanceof LwjglFilePath && ((LwjglFilePath) file).getLocalPath() != null;
+    }
+
+    @Override
+    public synchronized boolean watch(FilePath file, SimpleCallback onChanged)
+    {
+        if (!isSupported(file))
+            return false;
+
+        Path path = ((LwjglFilePath) file).getLocalPath().toAbsolutePath().normalize();
+        Path directory = path.getParent();
+
+        try
+        {
+            if (service == null)
+                start();
+
+            if (!directories.contains(directory))
+            {
+                directory.register(service, ENTRY_CREATE, ENTRY_MODIFY);
+                directories.add(directory);
+            }
+        }
+        catch (IOException e)
+        {
+            SilenceEngine.log.getRootLogger().warn("Unable to watch " + file.getPath() + ": " + e);
+            return false;
+        }
+
+        callbacks.computeIfAbsent(path, p -> new ArrayList<>()).add(onChanged);
+        return true;
+    }
+
+    @Override
+    public synchronized void unwatch(FilePath file, SimpleCallback onChanged)
+    {
+        if (!isSupported(file))
+            return;
+
+        Path path = ((LwjglFilePath) file).getLocalPath().toAbsolutePath().normalize();
+        List<SimpleCallback> list = callbacks.get(path);
+
+        if (list != null && list.remove(onChanged) && list.isEmpty())
+        {
+            callbacks.remove(path);
+            pending.remove(path);
+        }
+    }
+
+    private void start() throws IOException
+    {
+        service = FileSystems.getDefault().newWatchService();
+
+        thread = new Thread(this::run, "SilenceEngine File Watcher");
+        thread.setDaemon(true);
+        thread.start();
+
+        SilenceEngine.eventManager.addDisposeHandler(this::stop);
+    }
+
+    private synchronized void stop()
+    {
+        thread.interrupt();
+
+        try
+        {
+            service.close();
+        }
+        catch (IOException e)
+        {
+            SilenceEngine.log.getRootLogger().error(e);
+        }
+
+        callbacks.clear();
+        pending.clear();
+    }
+
+    private void run()
+    {
+        try
+        {
+            while (!Thread.currentThread().isInterrupted())
+            {
+                WatchKey key = service.poll(50, TimeUnit.MILLISECONDS);
+
+                if (key != null)
+                {
+                    Path directory = (Path) key.watchable();
+
+                    for (WatchEvent<?> event : key.pollEvents())
+                    {
+                        if (event.kind() == OVERFLOW)
+                            continue;
+
+                        changed(directory.resolve((Path) event.context()));
+                    }
+
+                    key.reset();
+                }
+
+                notifyQuietFiles();
+            }
+        }
+        catch (InterruptedException | ClosedWatchServiceException e)
+        {
+            // The engine is being disposed
+        }
+    }
+
+    private synchronized void changed(Path path)
+    {
+        // Every write restarts the debounce time, so the file is only reloaded once the editor is done saving it
+        if (callbacks.containsKey(path))
+            pending.put(path, TimeUtils.currentTime());
+    }
+
+    private synchronized void notifyQuietFiles()
+    {
+        double now = TimeUtils.currentTime();
+        Iterator<Map.Entry<Path, Double>> iterator = pending.entrySet().iterator();
+
+        while (iterator.hasNext())
+        {
+            Map.Entry<Path, Double> entry = iterator.next();
+
+            if (now - entry.getValue() < debounceTime)
+                continue;
+
+            iterator.remove();
+
+            for (SimpleCallback callback : callbacks.get(entry.getKey()))
+                TaskManager.runOnUpdate(callback);
+        }
+    }
+}
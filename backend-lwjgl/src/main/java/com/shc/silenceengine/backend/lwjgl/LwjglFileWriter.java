@@ -35,16 +35,41 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * @author Sri Harsha Chilakapati
  */
 class LwjglFileWriter extends FileWriter
 {
+    // The queued writes by the absolute path of the file. A newer write to a file is merged into its queued write, as
+    // long as the drain has not picked it up yet.
+    private final Map<Path, PendingWrite> pending = new LinkedHashMap<>();
+
+    // Whether a drain is queued or running on the I/O executor. There is at most one, so the writes are done serially
+    // and in order, without a thread of their own.
+    private boolean draining;
+
     @Override
     public void write(String text, FilePath file, boolean append, SimpleCallback onSuccess, UniCallback<Throwable> onError)
     {
-        new Thread(() ->
+        if (isWriteBehind())
+        {
+            enqueue(file, text.getBytes(), append, onSuccess, onError);
+            return;
+        }
+
+        LwjglIODevice.executor.execute(() ->
         {
             try
             {
@@ -57,9 +82,9 @@ class LwjglFileWriter extends FileWriter
             }
             catch (IOException e)
             {
-                onError.invoke(e);
+                TaskManager.runOnUpdate(() -> onError.invoke(e));
             }
-        }).start();
+        });
     }
 
     void writeSync(String text, FilePath file, boolean append) throws IOException
@@ -77,30 +102,221 @@ class LwjglFileWriter extends FileWriter
     @Override
     public void write(DirectBuffer buffer, FilePath file, boolean append, SimpleCallback onSuccess, UniCallback<Throwable> onError)
     {
-        new Thread(() ->
+        if (isWriteBehind())
+        {
+            // Copied now, the buffer can be changed or freed before the write is done
+            byte[] bytes = new byte[buffer.sizeBytes()];
+            buffer.get(0, bytes, 0, bytes.length);
+
+            enqueue(file, bytes, append, onSuccess, onError);
+            return;
+        }
+
+        LwjglIODevice.executor.execute(() ->
         {
             try
             {
                 if (file.getType() == FilePath.Type.RESOURCE)
                     throw new IOException("Cannot write to resource files");
 
-                try (
-                        OutputStream outputStream = ((LwjglFilePath) file).getOutputStream(append);
-                        OutputStreamWriter writer = new OutputStreamWriter(outputStream)
-                )
+                try (OutputStream outputStream = ((LwjglFilePath) file).getOutputStream(append))
                 {
-                    for (int i = 0; i < buffer.sizeBytes(); i++)
-                        writer.write(buffer.readByte(i));
+                    // Write the raw bytes in chunks, a Writer would encode them as characters
+                    byte[] chunk = new byte[4096];
+                    int size = buffer.sizeBytes();
+
+                    for (int i = 0; i < size; i += chunk.length)
+                    {
+                        int length = Math.min(chunk.length, size - i);
 
-                    writer.flush();
+                        buffer.get(i, chunk, 0, length);
+                        outputStream.write(chunk, 0, length);
+                    }
                 }
 
                 TaskManager.runOnUpdate(onSuccess);
             }
             catch (IOException e)
             {
-                onError.invoke(e);
+                TaskManager.runOnUpdate(() -> onError.invoke(e));
             }
-        }).start();
+        });
+    }
+
+    private void enqueue(FilePath file, byte[] data, boolean append, SimpleCallback onSuccess,
+                         UniCallback<Throwable> onError)
+    {
+        if (file.getType() == FilePath.Type.RESOURCE)
+        {
+            TaskManager.runOnUpdate(() -> onError.invoke(new IOException("Cannot write to resource files")));
+            return;
+        }
+
+        enqueue(((LwjglFilePath) file).getLocalPath(), data, append, onSuccess, onError);
+    }
+
+    void enqueue(Path file, byte[] data, boolean append, SimpleCallback onSuccess, UniCallback<Throwable> onError)
+    {
+        Path target = file.toAbsolutePath().normalize();
+
+        synchronized (pending)
+        {
+            PendingWrite write = pending.get(target);
+
+            if (write == null)
+            {
+                write = new PendingWrite(data, append);
+                pending.put(target, write);
+
+                if (!draining)
+                {
+                    draining = true;
+                    LwjglIODevice.executor.execute(this::drain);
+                }
+            }
+            else
+                write.merge(data, append);
+
+            write.onSuccess.add(onSuccess);
+            write.onError.add(onError);
+        }
+    }
+
+    @Override
+    public void flush()
+    {
+        synchronized (pending)
+        {
+            try
+            {
+                // The drain only stops once the queue is empty, so this waits for every write queued before it
+                while (draining)
+                    pending.wait();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    void dispose()
+    {
+        flush();
+    }
+
+    private void drain()
+    {
+        while (true)
+        {
+            List<Map.Entry<Path, PendingWrite>> batch;
+
+            synchronized (pending)
+            {
+                if (pending.isEmpty())
+                {
+                    draining = false;
+                    pending.notifyAll();
+                    return;
+                }
+
+                batch = new ArrayList<>(pending.entrySet());
+                pending.clear();
+            }
+
+            for (Map.Entry<Path, PendingWrite> entry : batch)
+                write(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static void write(Path file, PendingWrite write)
+    {
+        try
+        {
+            if (write.append)
+                Files.write(file, write.data, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            else
+                replace(file, write.data);
+
+            for (SimpleCallback onSuccess : write.onSuccess)
+                TaskManager.runOnUpdate(onSuccess);
+        }
+        catch (Throwable e)
+        {
+            // Anything that escapes would leave the queue marked as draining, and flush waiting forever
+            for (UniCallback<Throwable> onError : write.onError)
+                TaskManager.runOnUpdate(() -> onError.invoke(e));
+        }
+    }
+
+    /**
+     * Replaces the contents of a file by writing them to a temporary file next to it, and moving that over the file.
+     * A crash in the middle of the write leaves the old file intact, instead of a partially written one.
+     */
+    private static void replace(Path target, byte[] data) throws IOException
+    {
+        Path directory = target.getParent();
+        Files.createDirectories(directory);
+
+        Path temp = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+
+        try
+        {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE))
+            {
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+
+                // The contents should be on the disk before the move makes them visible
+                channel.force(true);
+            }
+
+            try
+            {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (AtomicMoveNotSupportedException e)
+            {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static class PendingWrite
+    {
+        private byte[]  data;
+        private boolean append;
+
+        private List<SimpleCallback>         onSuccess = new ArrayList<>();
+        private List<UniCallback<Throwable>> onError   = new ArrayList<>();
+
+        PendingWrite(byte[] data, boolean append)
+        {
+            this.data = data;
+            this.append = append;
+        }
+
+        void merge(byte[] data, boolean append)
+        {
+            if (!append)
+            {
+                // The newer contents replace whatever is queued
+                this.data = data;
+                this.append = false;
+                return;
+            }
+
+            byte[] merged = new byte[this.data.length + data.length];
+            System.arraycopy(this.data, 0, merged, 0, this.data.length);
+            System.arraycopy(data, 0, merged, this.data.length, data.length);
+
+            this.data = merged;
+        }
     }
 }
@@ -27,14 +27,17 @@ package com.shc.silenceengine.backend.lwjgl;
 import com.shc.silenceengine.graphics.IGraphicsDevice;
 import com.shc.silenceengine.io.DirectBuffer;
 import com.shc.silenceengine.io.DirectFloatBuffer;
+import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL13;
 import org.lwjgl.opengl.GL15;
 import org.lwjgl.opengl.GL20;
 import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
 import org.lwjgl.system.MemoryUtil;
 
 import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 
 /**
  * An implementation of {@link IGraphicsDevice}
@@ -73,6 +76,12 @@ class LwjglGraphicsDevice implements IGraphicsDevice
         GL15.glBindBuffer(target, buffer);
     }
 
+    @Override
+    public void glBindBufferBase(int target, int index, int buffer)
+    {
+        GL30.glBindBufferBase(target, index, buffer);
+    }
+
     @Override
     public void glBufferData(int target, int capacity, int usage)
     {
@@ -258,6 +267,32 @@ class LwjglGraphicsDevice implements IGraphicsDevice
         return GL20.glGetUniformLocation(program, name);
     }
 
+    @Override
+    public String glGetActiveUniform(int program, int index, int[] size, int[] type)
+    {
+        IntBuffer sizeBuffer = BufferUtils.createIntBuffer(1);
+        IntBuffer typeBuffer = BufferUtils.createIntBuffer(1);
+
+        String name = GL20.glGetActiveUniform(program, index, sizeBuffer, typeBuffer);
+
+        size[0] = sizeBuffer.get(0);
+        type[0] = typeBuffer.get(0);
+
+        return name;
+    }
+
+    @Override
+    public int glGetUniformBlockIndex(int program, String name)
+    {
+        return GL31.glGetUniformBlockIndex(program, name);
+    }
+
+    @Override
+    public void glUniformBlockBinding(int program, int blockIndex, int blockBinding)
+    {
+        GL31.glUniformBlockBinding(program, blockIndex, blockBinding);
+    }
+
     @Override
     public void glUniform1i(int location, int value)
     {
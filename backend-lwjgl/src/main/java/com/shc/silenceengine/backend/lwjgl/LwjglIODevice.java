@@ -25,56 +25,117 @@
 package com.shc.silenceengine.backend.lwjgl;
 
 import com.shc.easyjson.JSON;
+import com.shc.easyjson.JSONArray;
 import com.shc.easyjson.JSONObject;
+import com.shc.easyjson.JSONValue;
+import com.shc.silenceengine.core.Game;
 import com.shc.silenceengine.core.SilenceEngine;
-import com.shc.silenceengine.core.SilenceException;
 import com.shc.silenceengine.io.DirectBuffer;
 import com.shc.silenceengine.io.FilePath;
 import com.shc.silenceengine.io.FileReader;
+import com.shc.silenceengine.io.FileWatcher;
 import com.shc.silenceengine.io.FileWriter;
 import com.shc.silenceengine.io.IODevice;
 import com.shc.silenceengine.io.ImageReader;
+import com.shc.silenceengine.logging.Logger;
+import com.shc.silenceengine.utils.AsyncExecutor;
+import com.shc.silenceengine.utils.ThreadPoolAsyncExecutor;
 
-import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author Sri Harsha Chilakapati
  */
 class LwjglIODevice implements IODevice
 {
+    // The workers of the file, image and writer reads, in the order of the priority set by the ResourceLoader
+    static final ThreadPoolAsyncExecutor executor = new ThreadPoolAsyncExecutor("SilenceEngine Worker",
+            ThreadPoolAsyncExecutor.getDefaultThreadCount());
+
     private FileReader  fileReader  = new LwjglFileReader();
     private FileWriter  fileWriter  = new LwjglFileWriter();
     private ImageReader imageReader = new LwjglImageReader();
+    private FileWatcher fileWatcher = new LwjglFileWatcher();
+
+    private LwjglBufferPool bufferPool = new LwjglBufferPool();
 
-    private List<DirectBuffer> directBuffers = new ArrayList<>();
+    // The buffers that are allocated and not yet freed, in a concurrent set so that freeing is O(1) and never blocks
+    private Set<LwjglDirectBuffer> directBuffers = ConcurrentHashMap.newKeySet();
+
+    // The last saved preferences by name, so that the file is only read and parsed the first time. The cached objects
+    // are never changed, every get returns a deep copy so the edits that are not saved never leak to the other callers.
+    private Map<String, JSONObject> preferences = new ConcurrentHashMap<>();
 
     LwjglIODevice()
     {
-        // Free all the direct buffers at the end
+        AsyncExecutor.setShared(executor);
+
+        // Finish the queued writes and free all the direct buffers at the end
         SilenceEngine.eventManager.addDisposeHandler(() ->
         {
-            directBuffers.forEach(directBuffer -> ((LwjglDirectBuffer) directBuffer).free());
+            ((LwjglFileWriter) fileWriter).dispose();
+            reportLeaks();
+
+            for (LwjglDirectBuffer directBuffer : directBuffers)
+                bufferPool.free(directBuffer.release());
+
             directBuffers.clear();
+            bufferPool.dispose();
         });
     }
 
     @Override
-    public synchronized DirectBuffer create(int sizeInBytes)
+    public DirectBuffer create(int sizeInBytes)
     {
-        DirectBuffer directBuffer = new LwjglDirectBuffer(sizeInBytes);
+        LwjglDirectBuffer directBuffer = new LwjglDirectBuffer(bufferPool.allocate(sizeInBytes), sizeInBytes);
+
+        if (Game.DEVELOPMENT)
+            directBuffer.allocationSite = new Throwable("DirectBuffer of " + sizeInBytes + " bytes allocated here");
+
         directBuffers.add(directBuffer);
         return directBuffer;
     }
 
     @Override
-    public synchronized void free(DirectBuffer directBuffer)
+    public void free(DirectBuffer directBuffer)
     {
-        ((LwjglDirectBuffer) directBuffer).free();
-        directBuffers.remove(directBuffer);
+        LwjglDirectBuffer buffer = (LwjglDirectBuffer) directBuffer;
+
+        // Wrapped, sliced and mapped buffers are not allocated here, and their memory is not owned by them
+        if (directBuffers.remove(buffer))
+            bufferPool.free(buffer.release());
+    }
+
+    private void reportLeaks()
+    {
+        if (directBuffers.isEmpty())
+            return;
+
+        long bytes = 0;
+
+        for (LwjglDirectBuffer directBuffer : directBuffers)
+            bytes += directBuffer.sizeBytes();
+
+        Logger logger = SilenceEngine.log.getRootLogger();
+        logger.warn(directBuffers.size() + " DirectBuffers (" + bytes + " bytes) are not freed before exit");
+
+        if (!Game.DEVELOPMENT)
+            return;
+
+        for (LwjglDirectBuffer directBuffer : directBuffers)
+        {
+            StringWriter trace = new StringWriter();
+            directBuffer.allocationSite.printStackTrace(new PrintWriter(trace));
+
+            logger.warn(trace.toString());
+        }
     }
 
     @Override
@@ -107,31 +168,76 @@ class LwjglIODevice implements IODevice
         return fileWriter;
     }
 
+    @Override
+    public FileWatcher getFileWatcher()
+    {
+        return fileWatcher;
+    }
+
     @Override
     public JSONObject getPreferences(String name)
+    {
+        return copy(preferences.computeIfAbsent(name, LwjglIODevice::readPreferences));
+    }
+
+    private static JSONObject readPreferences(String name)
     {
         try
         {
-            String json = new String(Files.readAllBytes(Paths.get(System.getProperty("user.home"), name)));
-            return JSON.parse(json);
+            return JSON.parse(new String(Files.readAllBytes(getPreferencesFile(name))));
         }
         catch (Exception e)
         {
+            // A missing or corrupt file is cached as empty preferences
             return new JSONObject();
         }
     }
 
-    @Override
-    public void savePreferences(String name, JSONObject preferences)
+    private static JSONObject copy(JSONObject object)
     {
-        try
+        JSONObject copy = new JSONObject();
+
+        for (String key : object.keySet())
+            copy.put(key, copy(object.get(key)));
+
+        return copy;
+    }
+
+    private static JSONValue copy(JSONValue value)
+    {
+        Object contents = value.getValue();
+
+        if (contents instanceof JSONObject)
+            return new JSONValue(copy((JSONObject) contents));
+
+        if (contents instanceof JSONArray)
         {
-            FilePath file = FilePath.getExternalFile(System.getProperty("user.home") + "\\" + name);
-            ((LwjglFileWriter) fileWriter).writeSync(JSON.write(preferences), file, false);
+            JSONArray copy = new JSONArray();
+
+            for (JSONValue element : (JSONArray) contents)
+                copy.add(copy(element));
+
+            return new JSONValue(copy);
         }
-        catch (IOException e)
+
+        // Strings, numbers, booleans and null are immutable, only the value that holds them is copied
+        return new JSONValue(contents);
+    }
+
+    @Override
+    public void savePreferences(String name, JSONObject preferences)
+    {
+        // Serialized right away, since the game can change the object while the write is still queued
+        String json = JSON.write(preferences);
+        this.preferences.put(name, copy(preferences));
+
+        ((LwjglFileWriter) fileWriter).enqueue(getPreferencesFile(name), json.getBytes(), false, () ->
         {
-            SilenceException.reThrow(e);
-        }
+        }, e -> SilenceEngine.log.getRootLogger().error("Unable to save the preferences " + name + ": " + e));
+    }
+
+    private static Path getPreferencesFile(String name)
+    {
+        return Paths.get(System.getProperty("user.home"), name);
     }
 }
@@ -46,7 +46,7 @@ class LwjglImageReader extends ImageReader
     @Override
     public void readImage(DirectBuffer memory, UniCallback<Image> onComplete, UniCallback<Throwable> onError)
     {
-        new Thread(() ->
+        LwjglIODevice.executor.execute(() ->
         {
             try
             {
@@ -82,8 +82,8 @@ class LwjglImageReader extends ImageReader
             }
             catch (Throwable e)
             {
-                onError.invoke(e);
+                TaskManager.runOnUpdate(() -> onError.invoke(e));
             }
-        }).start();
+        });
     }
 }
@@ -0,0 +1,470 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.backend.lwjgl;
+
+import com.shc.silenceengine.logging.Logger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes the log messages of the LWJGL backend on a background thread. The loggers only put their messages into a
+ * bounded lock-free ring buffer, and the writer thread prints them to the console, and optionally to a log file that is
+ * rolled over when it grows too large. When the buffer is full, the messages are dropped or the logging thread waits,
+ * as decided by the {@link OverflowPolicy}.
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public final class LwjglLogAppender
+{
+    private static final int CAPACITY = 8192;
+    private static final int MASK     = CAPACITY - 1;
+
+    private static final Record[] records = new Record[CAPACITY];
+
+    // The next sequence to be claimed by a logging thread
+    private static final AtomicLong tail = new AtomicLong();
+
+    // The next sequence to be written, only advanced by the writer thread
+    private static volatile long head;
+
+    private static final AtomicLong dropped = new AtomicLong();
+
+    private static volatile OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+    private static volatile LogFile        logFile;
+
+    private static volatile Thread  writer;
+    private static volatile boolean sleeping;
+    private static volatile boolean stopped;
+
+    static
+    {
+        for (int i = 0; i < CAPACITY; i++)
+            records[i] = new Record(i);
+    }
+
+    private LwjglLogAppender()
+    {
+    }
+
+    /**
+     * Sets what happens to a message that is logged while the buffer is full. Dropping is the default, so that the
+     * game never waits for the console. The number of dropped messages is reported in the log.
+     *
+     * @param policy The policy to use when the buffer is full.
+     */
+    public static void setOverflowPolicy(OverflowPolicy policy)
+    {
+        overflowPolicy = policy;
+    }
+
+    public static OverflowPolicy getOverflowPolicy()
+    {
+        return overflowPolicy;
+    }
+
+    /**
+     * Writes the log to a file in addition to the console. When the file exceeds the maximum size, it is renamed to
+     * {@code name.1}, the older files are shifted to {@code name.2} and so on, and the oldest beyond the limit is
+     * deleted.
+     *
+     * @param file        The log file, or null to only log to the console.
+     * @param maxFileSize The size in bytes at which the file is rolled over.
+     * @param maxFiles    The number of rolled over files to keep.
+     */
+    public static void setLogFile(Path file, long maxFileSize, int maxFiles)
+    {
+        logFile = file == null ? null : new LogFile(file.toAbsolutePath(), maxFileSize, maxFiles);
+    }
+
+    public static long getDroppedCount()
+    {
+        return dropped.get();
+    }
+
+    static void append(String name, Logger.Level level, String message)
+    {
+        if (stopped)
+        {
+            // The writer is gone once the JVM shuts down, so the late messages are printed directly
+            synchronized (LwjglLogAppender.class)
+            {
+                streamOf(level).println(format(new StringBuilder(), name, level, message));
+            }
+            return;
+        }
+
+        if (writer == null)
+            start();
+
+        long sequence = tail.get();
+        Record record;
+
+        while (true)
+        {
+            record = records[(int) (sequence & MASK)];
+            long difference = record.sequence - sequence;
+
+            if (difference == 0)
+            {
+                if (tail.compareAndSet(sequence, sequence + 1))
+                    break;
+
+                sequence = tail.get();
+            }
+            else if (difference < 0)
+            {
+                // The buffer is full, the writer has not yet written the record that was in this slot
+                if (overflowPolicy == OverflowPolicy.DROP || Thread.currentThread() == writer)
+                {
+                    dropped.incrementAndGet();
+                    return;
+                }
+
+                wakeWriter();
+                LockSupport.parkNanos(50_000);
+                sequence = tail.get();
+            }
+            else
+                sequence = tail.get();
+        }
+
+        record.name = name;
+        record.level = level;
+        record.message = message;
+
+        // Publishes the record to the writer
+        record.sequence = sequence + 1;
+
+        if (sleeping)
+            wakeWriter();
+    }
+
+    /**
+     * Blocks until the messages that are logged before this call are written.
+     */
+    public static void flush()
+    {
+        long target = tail.get();
+
+        while (head < target && writer != null && writer.isAlive())
+        {
+            wakeWriter();
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+    private static synchronized void start()
+    {
+        if (writer != null)
+            return;
+
+        Thread thread = new Thread(LwjglLogAppender::run, "SilenceEngine Logger");
+        thread.setDaemon(true);
+
+        // The writer is a daemon, so the pending messages are written by the hook before the JVM exits
+        Runtime.getRuntime().addShutdownHook(new Thread(() ->
+        {
+            stopped = true;
+            wakeWriter();
+
+            try
+            {
+                thread.join(TimeUnit.SECONDS.toMillis(2));
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }, "SilenceEngine Logger Shutdown"));
+
+        writer = thread;
+        thread.start();
+    }
+
+    private static void wakeWriter()
+    {
+        sleeping = false;
+        LockSupport.unpark(writer);
+    }
+
+    private static void run()
+    {
+        StringBuilder line = new StringBuilder(256);
+        FileOutput fileOutput = new FileOutput();
+
+        while (true)
+        {
+            int written = 0;
+
+            Record record;
+
+            while ((record = records[(int) (head & MASK)]).sequence == head + 1)
+            {
+                format(line, record.name, record.level, record.message);
+
+                streamOf(record.level).println(line);
+                fileOutput.write(line);
+
+                record.name = null;
+                record.message = null;
+
+                // Hands the slot back to the logging threads for the next round
+                record.sequence = head + CAPACITY;
+                head++;
+
+                written++;
+            }
+
+            long lost = dropped.getAndSet(0);
+
+            if (lost > 0)
+            {
+                format(line, "SilenceEngine", Logger.Level.WARNING, lost + " log messages are dropped, the log buffer is full");
+
+                System.err.println(line);
+                fileOutput.write(line);
+            }
+
+            if (written > 0 || lost > 0)
+                continue;
+
+            System.out.flush();
+            fileOutput.flush();
+
+            if (stopped)
+                break;
+
+            // Park until a new message is published, with a timeout in case the wake up is missed
+            sleeping = true;
+
+            if (records[(int) (head & MASK)].sequence != head + 1)
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+
+            sleeping = false;
+        }
+
+        fileOutput.close();
+    }
+
+    private static StringBuilder format(StringBuilder line, String name, Logger.Level level, String message)
+    {
+        line.setLength(0);
+
+        return line.append('[').append(name).append("] ")
+                .append(level == Logger.Level.WARNING ? "WARN" : level.name())
+                .append(": ").append(message);
+    }
+
+    private static PrintStream streamOf(Logger.Level level)
+    {
+        return level == Logger.Level.INFO ? System.out : System.err;
+    }
+
+    public enum OverflowPolicy
+    {
+        /**
+         * Discards the message, the logging thread never waits.
+         */
+        DROP,
+
+        /**
+         * Waits for the writer to make room in the buffer, no message is lost.
+         */
+        BLOCK
+    }
+
+    private static class Record
+    {
+        private volatile long sequence;
+
+        private String       name;
+        private Logger.Level level;
+        private String       message;
+
+        Record(long sequence)
+        {
+            this.sequence = sequence;
+        }
+    }
+
+    private static class LogFile
+    {
+        private final Path path;
+        private final long maxFileSize;
+        private final int  maxFiles;
+
+        LogFile(Path path, long maxFileSize, int maxFiles)
+        {
+            this.path = path;
+            this.maxFileSize = maxFileSize;
+            this.maxFiles = maxFiles;
+        }
+    }
+
+    /**
+     * The log file as seen by the writer thread. It is only touched by the writer, and follows the changes made with
+     * {@link #setLogFile(Path, long, int)}.
+     */
+    private static class FileOutput
+    {
+        private LogFile        current;
+        private BufferedWriter out;
+        private long           size;
+
+        void write(CharSequence line)
+        {
+            if (current != logFile)
+                open(logFile);
+
+            if (out == null)
+                return;
+
+            try
+            {
+                // Counted as characters, which is exact for ASCII and close enough for a roll over limit otherwise
+                if (size + line.length() + 1 > current.maxFileSize && size > 0)
+                    roll();
+
+                out.append(line).append(System.lineSeparator());
+                size += line.length() + 1;
+            }
+            catch (IOException e)
+            {
+                failed(e);
+            }
+        }
+
+        void flush()
+        {
+            if (out == null)
+                return;
+
+            try
+            {
+                out.flush();
+            }
+            catch (IOException e)
+            {
+                failed(e);
+            }
+        }
+
+        void close()
+        {
+            if (out == null)
+                return;
+
+            // Forgotten first, so that the failure does not try to close it again
+            BufferedWriter writer = out;
+            out = null;
+
+            try
+            {
+                writer.close();
+            }
+            catch (IOException e)
+            {
+                failed(e);
+            }
+        }
+
+        private void open(LogFile file)
+        {
+            close();
+            current = file;
+
+            if (file == null)
+                return;
+
+            try
+            {
+                Path directory = file.path.getParent();
+
+                if (directory != null)
+                    Files.createDirectories(directory);
+
+                size = Files.exists(file.path) ? Files.size(file.path) : 0;
+                out = Files.newBufferedWriter(file.path, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            catch (IOException e)
+            {
+                failed(e);
+            }
+        }
+
+        private void roll() throws IOException
+        {
+            out.close();
+            out = null;
+
+            Path path = current.path;
+
+            if (current.maxFiles > 0)
+            {
+                Files.deleteIfExists(rolled(path, current.maxFiles));
+
+                for (int i = current.maxFiles - 1; i >= 1; i--)
+                {
+                    Path older = rolled(path, i);
+
+                    if (Files.exists(older))
+                        Files.move(older, rolled(path, i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+
+                Files.move(path, rolled(path, 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+            else
+                Files.deleteIfExists(path);
+
+            size = 0;
+            out = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+
+        private static Path rolled(Path path, int index)
+        {
+            return path.resolveSibling(path.getFileName() + "." + index);
+        }
+
+        private void failed(IOException e)
+        {
+            // Logging the failure would only go back into this file, so it is printed and the file is given up
+            System.err.println("[SilenceEngine] ERROR: Unable to write the log file: " + e);
+
+            close();
+        }
+    }
+}
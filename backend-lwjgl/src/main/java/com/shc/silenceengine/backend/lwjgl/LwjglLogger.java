@@ -37,23 +37,8 @@ class LwjglLogger extends Logger
     }
 
     @Override
-    public void info(Object... messages)
+    protected void write(Level level, String message)
     {
-        for (Object message : messages)
-            System.out.println("[" + name + "] INFO: " + message);
-    }
-
-    @Override
-    public void warn(Object... messages)
-    {
-        for (Object message : messages)
-            System.err.println("[" + name + "] WARN: " + message);
-    }
-
-    @Override
-    public void error(Object... messages)
-    {
-        for (Object message : messages)
-            System.err.println("[" + name + "] ERROR: " + message);
+        LwjglLogAppender.append(name, level, message);
     }
 }
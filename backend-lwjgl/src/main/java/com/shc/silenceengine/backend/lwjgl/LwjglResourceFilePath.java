@@ -34,9 +34,11 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLDecoder;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -238,6 +240,24 @@ class LwjglResourceFilePath extends LwjglFilePath
         throw new IOException("Cannot open an OutputStream for in-jar resources.");
     }
 
+    @Override
+    public Path getLocalPath()
+    {
+        URL url = LwjglResourceFilePath.class.getClassLoader().getResource(getPath());
+
+        try
+        {
+            if (url != null && "file".equals(url.getProtocol()))
+                return Paths.get(url.toURI());
+        }
+        catch (URISyntaxException e)
+        {
+            SilenceEngine.log.getRootLogger().error(e);
+        }
+
+        return null;
+    }
+
     private String getIDEPath() throws IOException
     {
         URL url = LwjglResourceFilePath.class.getClassLoader().getResource(getPath());
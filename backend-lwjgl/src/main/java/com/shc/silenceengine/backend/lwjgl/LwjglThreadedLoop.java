@@ -0,0 +1,288 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.backend.lwjgl;
+
+import com.shc.silenceengine.core.IGameLoop;
+import com.shc.silenceengine.core.SilenceEngine;
+import com.shc.silenceengine.core.SilenceException;
+import com.shc.silenceengine.io.FrameArena;
+import com.shc.silenceengine.utils.TaskManager;
+import com.shc.silenceengine.utils.TimeUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>A fixed time stepped game loop that runs the simulation (the update events) on its own thread, while the render
+ * events are raised on the main thread as fast as possible. The render handlers are passed the interpolation alpha, and
+ * only read the transform snapshots of the last two completed update ticks, so a game simulated at 30 Hz can still
+ * render smoothly at 144 Hz.</p>
+ *
+ * <p>Since the update handlers run on a different thread, they should not make any OpenGL calls directly. The tasks
+ * posted to the {@link TaskManager}, with either {@code runOnUpdate} or {@code runOnRender}, are run on the main thread
+ * which has the OpenGL context, between two simulation ticks. So the loaders can still upload their results from the
+ * update tasks, and tasks that add or remove entities never run while the simulation is iterating over them. The update
+ * handlers can post any OpenGL work as such a task.</p>
+ *
+ * <pre>
+ *     SilenceEngine.gameLoop = new LwjglThreadedLoop(30);
+ * </pre>
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public class LwjglThreadedLoop implements IGameLoop
+{
+    private final float frameTime;
+
+    private Thread simulationThread;
+
+    // Held while a tick is simulated, and by the main thread while it runs the posted tasks. Fair, so that a lagging
+    // simulation cannot keep the main thread waiting for more than one tick.
+    private final ReentrantLock tickLock = new ReentrantLock(true);
+
+    private volatile boolean   running;
+    private volatile Throwable failure;
+
+    // The tick being simulated, the last completed tick, and the tick that the render is reading (-1 if not rendering)
+    private volatile long updateTick;
+    private volatile long completedTick;
+    private volatile long renderingTick = -1;
+
+    // The time at which the last completed tick is due, used to compute the interpolation alpha
+    private volatile double completedTickTime;
+
+    private long  renderTick;
+    private float alpha = 1;
+
+    private final AtomicInteger updates = new AtomicInteger();
+
+    private int updatesPerSecond;
+    private int frames;
+    private int framesPerSecond;
+
+    private double lastStatsTime;
+
+    public LwjglThreadedLoop()
+    {
+        this(60);
+    }
+
+    public LwjglThreadedLoop(int targetUpdatesPerSecond)
+    {
+        this.frameTime = (float) (TimeUtils.convert(1, TimeUtils.Unit.SECONDS) / targetUpdatesPerSecond);
+    }
+
+    @Override
+    public void performLoopFrame()
+    {
+        if (failure != null)
+            SilenceException.reThrow(failure);
+
+        if (simulationThread == null)
+            start();
+
+        // Lock the last completed tick for this frame. The simulation thread waits before it overwrites the snapshots
+        // of this tick, and the re-check makes sure that it didn't complete another tick before seeing our lock.
+        long tick = completedTick;
+
+        while (true)
+        {
+            renderingTick = tick;
+            long latest = completedTick;
+
+            if (latest == tick)
+                break;
+
+            tick = latest;
+        }
+
+        double now = TimeUtils.currentTime();
+
+        renderTick = tick;
+        alpha = (float) Math.max(0, Math.min(1, (now - completedTickTime) / frameTime));
+
+        // The render tasks get the alpha of this frame, so it is computed before they are run
+        tickLock.lock();
+
+        try
+        {
+            TaskManager.forceUpdateTasks(frameTime);
+            TaskManager.forceRenderTasks(alpha);
+        }
+        finally
+        {
+            tickLock.unlock();
+        }
+
+        frames++;
+        SilenceEngine.eventManager.raiseRenderEvent(alpha);
+
+        renderingTick = -1;
+
+        if (now - lastStatsTime >= TimeUtils.convert(1, TimeUtils.Unit.SECONDS))
+        {
+            updatesPerSecond = updates.getAndSet(0);
+            framesPerSecond = frames;
+
+            frames = 0;
+            lastStatsTime = now;
+        }
+    }
+
+    private void start()
+    {
+        running = true;
+        completedTickTime = TimeUtils.currentTime();
+
+        TaskManager.setDrainedByGameLoop(true);
+
+        Thread renderThread = Thread.currentThread();
+        FrameArena.setRenderThreadCheck(() -> Thread.currentThread() == renderThread);
+
+        simulationThread = new Thread(this::simulate, "SilenceEngine Simulation");
+        simulationThread.setDaemon(true);
+        simulationThread.start();
+
+        // Stop the simulation before any other dispose handler is run
+        SilenceEngine.eventManager.addDisposeHandler(this::stop, Integer.MIN_VALUE);
+    }
+
+    private void stop()
+    {
+        running = false;
+        TaskManager.setDrainedByGameLoop(false);
+        FrameArena.setRenderThreadCheck(null);
+
+        try
+        {
+            simulationThread.join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void simulate()
+    {
+        try
+        {
+            double previous = TimeUtils.currentTime();
+            double lag = 0;
+
+            while (running)
+            {
+                double now = TimeUtils.currentTime();
+                double delta = now - previous;
+
+                if (delta >= TimeUtils.convert(1, TimeUtils.Unit.SECONDS))
+                    delta = frameTime;
+
+                lag += delta;
+                previous = now;
+
+                while (lag >= frameTime && running)
+                {
+                    long next = completedTick + 1;
+
+                    // Wait while the render is reading the snapshots of the slot that this tick is going to write
+                    long reading;
+
+                    while ((reading = renderingTick) >= 0 && reading <= next - 2 && running)
+                        Thread.yield();
+
+                    updateTick = next;
+
+                    tickLock.lock();
+
+                    try
+                    {
+                        SilenceEngine.eventManager.raiseUpdateEvent(frameTime);
+                    }
+                    finally
+                    {
+                        tickLock.unlock();
+                    }
+
+                    updates.incrementAndGet();
+
+                    lag -= frameTime;
+
+                    completedTickTime = TimeUtils.currentTime() - lag;
+                    completedTick = next;
+                }
+
+                long sleepMillis = (long) TimeUtils.convert(frameTime - lag, TimeUtils.getDefaultTimeUnit(),
+                        TimeUtils.Unit.MILLIS);
+
+                if (sleepMillis > 1)
+                    Thread.sleep(sleepMillis - 1);
+                else
+                    Thread.yield();
+            }
+        }
+        catch (Throwable e)
+        {
+            failure = e;
+            running = false;
+        }
+    }
+
+    @Override
+    public int getFPS()
+    {
+        return framesPerSecond;
+    }
+
+    @Override
+    public int getUPS()
+    {
+        return updatesPerSecond;
+    }
+
+    @Override
+    public boolean isInterpolating()
+    {
+        return true;
+    }
+
+    @Override
+    public long getUpdateTick()
+    {
+        return updateTick;
+    }
+
+    @Override
+    public long getRenderTick()
+    {
+        return renderTick;
+    }
+
+    @Override
+    public float getInterpolationAlpha()
+    {
+        return alpha;
+    }
+}
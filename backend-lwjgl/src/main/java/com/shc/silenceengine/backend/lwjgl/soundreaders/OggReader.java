@@ -88,7 +88,7 @@ public class OggReader
 
         // Read all the samples once for all
         int numSamples = stb_vorbis_stream_length_in_samples(handle);
-        ByteBuffer pcm = BufferUtils.createByteBuffer(numSamples * Short.BYTES);
+        ByteBuffer pcm = BufferUtils.createByteBuffer(numSamples * channels * Short.BYTES);
         stb_vorbis_get_samples_short_interleaved(handle, channels, pcm.asShortBuffer());
 
         // Convert the audio bytes and store the data buffer
@@ -0,0 +1,151 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.backend.lwjgl.soundreaders;
+
+import com.shc.silenceengine.audio.IAudioStream;
+import com.shc.silenceengine.audio.openal.ALBuffer;
+import com.shc.silenceengine.audio.openal.ALError;
+import com.shc.silenceengine.audio.openal.ALFormat;
+import com.shc.silenceengine.core.SilenceException;
+import com.shc.silenceengine.io.DirectBuffer;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.openal.AL10;
+import org.lwjgl.stb.STBVorbisInfo;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+import static org.lwjgl.stb.STBVorbis.*;
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * <p> A streaming sound reader based on the STB vorbis libraries. Unlike the {@link OggReader}, this class keeps the
+ * OGG data compressed in memory and decodes a block of samples at a time whenever a buffer needs to be filled. </p>
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public class OggStreamReader implements IAudioStream
+{
+    /**
+     * The number of sample frames that are decoded into a buffer at once.
+     */
+    private static final int FRAMES_PER_BLOCK = 8192;
+
+    // Keep a reference to the compressed data, stb_vorbis reads from it lazily
+    private DirectBuffer input;
+
+    private ByteBuffer  pcm;
+    private ShortBuffer pcmShorts;
+
+    private long handle;
+    private int  channels;
+    private int  sampleRate;
+
+    private ALFormat format;
+
+    /**
+     * Constructs an OGG stream reader to decode from a DirectBuffer. The reader takes over the buffer, and frees it when
+     * it is disposed.
+     *
+     * @param directBuffer Direct buffer to read the data from
+     */
+    public OggStreamReader(DirectBuffer directBuffer)
+    {
+        input = directBuffer;
+
+        // Open the vorbis file to get stb_vorbis*
+        IntBuffer error = BufferUtils.createIntBuffer(1);
+        handle = stb_vorbis_open_memory((ByteBuffer) input.nativeBuffer(), error, null);
+
+        if (handle == NULL)
+            throw new SilenceException("Error " + error.get(0) + ": decoding the OGG data");
+
+        // Get the information about the OGG header
+        STBVorbisInfo info = STBVorbisInfo.malloc();
+        stb_vorbis_get_info(handle, info);
+
+        channels = info.channels();
+        sampleRate = info.sample_rate();
+
+        info.free();
+
+        format = channels == 1 ? ALFormat.MONO_16 : ALFormat.STEREO_16;
+
+        pcm = BufferUtils.createByteBuffer(FRAMES_PER_BLOCK * channels * Short.BYTES);
+        pcmShorts = pcm.asShortBuffer();
+    }
+
+    @Override
+    public boolean decode()
+    {
+        if (handle == NULL)
+            throw new SilenceException("Cannot decode from a disposed stream");
+
+        pcmShorts.clear();
+        int frames = stb_vorbis_get_samples_short_interleaved(handle, channels, pcmShorts);
+
+        pcm.clear().limit(frames * channels * Short.BYTES);
+        return frames > 0;
+    }
+
+    @Override
+    public void upload(ALBuffer buffer)
+    {
+        AL10.alBufferData(buffer.getID(), format.getAlFormat(), pcm, sampleRate);
+        ALError.check();
+    }
+
+    @Override
+    public void rewind()
+    {
+        stb_vorbis_seek_start(handle);
+    }
+
+    @Override
+    public ALFormat getFormat()
+    {
+        return format;
+    }
+
+    @Override
+    public int getSampleRate()
+    {
+        return sampleRate;
+    }
+
+    @Override
+    public void dispose()
+    {
+        if (handle == NULL)
+            return;
+
+        stb_vorbis_close(handle);
+        handle = NULL;
+
+        DirectBuffer.free(input);
+        input = null;
+    }
+}
@@ -25,7 +25,9 @@
 package com.shc.silenceengine.audio;
 
 import com.shc.silenceengine.audio.openal.ALBuffer;
+import com.shc.silenceengine.audio.openal.ALFormat;
 import com.shc.silenceengine.core.SilenceEngine;
+import com.shc.silenceengine.core.SilenceException;
 import com.shc.silenceengine.io.DirectBuffer;
 import com.shc.silenceengine.utils.functional.Promise;
 import com.shc.silenceengine.utils.functional.UniCallback;
@@ -43,6 +45,11 @@ public abstract class AudioDevice
      */
     public final AudioScene scene = new AudioScene();
 
+    /**
+     * The size of the header of a PCM payload, which holds the OpenAL format and the sample rate as native integers.
+     */
+    public static final int PCM_HEADER_SIZE = 8;
+
     public abstract int alGenBuffers();
 
     public abstract void alBufferData(int id, int format, DirectBuffer data, int frequency);
@@ -71,6 +78,10 @@ public abstract class AudioDevice
 
     public abstract void alDeleteSources(int... sources);
 
+    public abstract void alSourceQueueBuffer(int id, int buffer);
+
+    public abstract int alSourceUnqueueBuffer(int id);
+
     public Promise<ALBuffer> readToALBuffer(AudioFormat format, DirectBuffer data)
     {
         return new Promise<>((resolve, reject) -> readToALBuffer(format, data, resolve, reject));
@@ -85,6 +96,158 @@ public abstract class AudioDevice
 
     public abstract boolean isSupported(AudioFormat format);
 
+    /**
+     * Checks whether the backend is able to decode a format incrementally with an {@link IAudioStream}.
+     *
+     * @param format The format of the audio file.
+     *
+     * @return True if audio in this format can be streamed, else false.
+     */
+    public boolean isStreamingSupported(AudioFormat format)
+    {
+        return false;
+    }
+
+    /**
+     * Opens a stream that decodes the audio in the given data a block at a time. The stream takes over the data, since
+     * it is decoded lazily, and frees it when the stream is disposed.
+     *
+     * @param format The format of the audio file.
+     * @param data   The DirectBuffer containing the compressed audio file.
+     *
+     * @return The opened audio stream.
+     *
+     * @throws SilenceException If the format cannot be streamed, or the data cannot be decoded.
+     */
+    public IAudioStream openStream(AudioFormat format, DirectBuffer data)
+    {
+        throw new SilenceException("Streaming is not supported for the format " + format);
+    }
+
+    public Promise<Music> readToMusic(AudioFormat format, DirectBuffer data)
+    {
+        return new Promise<>((resolve, reject) -> readToMusic(format, data, resolve, reject));
+    }
+
+    public void readToMusic(AudioFormat format, DirectBuffer data, UniCallback<Music> onLoaded)
+    {
+        readToMusic(format, data, onLoaded, SilenceEngine.log.getRootLogger()::error);
+    }
+
+    /**
+     * Reads a music from the data of an audio file. The music is streamed if the backend supports streaming the format,
+     * otherwise it is decoded completely into a single OpenAL buffer. Either way, the data is taken over and freed by
+     * the engine, when the music is disposed or as soon as it is decoded.
+     *
+     * @param format   The format of the audio file.
+     * @param data     The DirectBuffer containing the audio file. Do not free it yourself.
+     * @param onLoaded The callback to receive the loaded music.
+     * @param onError  The callback to be invoked when there is an error.
+     */
+    public void readToMusic(AudioFormat format, DirectBuffer data, UniCallback<Music> onLoaded, UniCallback<Throwable> onError)
+    {
+        if (!isStreamingSupported(format))
+        {
+            readToALBuffer(format, data, buffer ->
+            {
+                DirectBuffer.free(data);
+                onLoaded.invoke(new Music(buffer));
+            }, error ->
+            {
+                DirectBuffer.free(data);
+                onError.invoke(error);
+            });
+            return;
+        }
+
+        Music music;
+
+        try
+        {
+            music = new Music(openStream(format, data));
+        }
+        catch (Throwable e)
+        {
+            DirectBuffer.free(data);
+            onError.invoke(e);
+            return;
+        }
+
+        onLoaded.invoke(music);
+    }
+
+    /**
+     * Checks whether the backend is able to decode a format into raw PCM samples with the
+     * {@link #decodeToPCM(AudioFormat, DirectBuffer, UniCallback, UniCallback)} method.
+     *
+     * @param format The format of the audio file.
+     *
+     * @return True if the audio in this format can be decoded into PCM, else false.
+     */
+    public boolean isPCMDecodingSupported(AudioFormat format)
+    {
+        return false;
+    }
+
+    /**
+     * Decodes the data of an audio file into a PCM payload, which is a header of {@link #PCM_HEADER_SIZE} bytes
+     * containing the OpenAL format and the sample rate followed by the samples in native order. The payload can be
+     * stored as is and uploaded later with {@link #uploadPCM(DirectBuffer)} without decoding the file again.
+     *
+     * @param format    The format of the audio file.
+     * @param data      The DirectBuffer containing the audio file.
+     * @param onDecoded The callback to receive the PCM payload. The payload is owned by the callback.
+     * @param onError   The callback to be invoked when there is an error.
+     */
+    public void decodeToPCM(AudioFormat format, DirectBuffer data, UniCallback<DirectBuffer> onDecoded, UniCallback<Throwable> onError)
+    {
+        onError.invoke(new SilenceException("Decoding to PCM is not supported for the format " + format));
+    }
+
+    /**
+     * Creates a PCM payload by prefixing the decoded samples with the header expected by {@link #uploadPCM(DirectBuffer)}.
+     *
+     * @param samples    The decoded samples in native order.
+     * @param format     The OpenAL format of the samples.
+     * @param sampleRate The sample rate of the samples (in Hz).
+     *
+     * @return The newly created PCM payload.
+     */
+    protected static DirectBuffer createPCMPayload(DirectBuffer samples, ALFormat format, int sampleRate)
+    {
+        int size = samples.sizeBytes();
+        DirectBuffer payload = DirectBuffer.create(PCM_HEADER_SIZE + size);
+
+        payload.writeInt(0, format.getAlFormat());
+        payload.writeInt(4, sampleRate);
+        payload.copyFrom(PCM_HEADER_SIZE, samples, 0, size);
+
+        return payload;
+    }
+
+    /**
+     * Uploads a PCM payload created by {@link #decodeToPCM(AudioFormat, DirectBuffer, UniCallback, UniCallback)} into
+     * a new OpenAL buffer. This has to be called on the thread that owns the audio context.
+     *
+     * @param payload The PCM payload. It is not freed by this method.
+     *
+     * @return The OpenAL buffer containing the samples.
+     */
+    public static ALBuffer uploadPCM(DirectBuffer payload)
+    {
+        ALFormat format = ALFormat.getEnum(payload.readInt(0));
+        int sampleRate = payload.readInt(4);
+
+        DirectBuffer samples = payload.slice(PCM_HEADER_SIZE, payload.sizeBytes() - PCM_HEADER_SIZE);
+
+        ALBuffer buffer = new ALBuffer();
+        buffer.uploadData(samples, format, sampleRate);
+
+        DirectBuffer.free(samples);
+
+        return buffer;
+    }
+
     /**
      * The format of the audio. This represents the File Format, and not the format used to store the sound in memory.
      */
@@ -28,8 +28,9 @@ import com.shc.silenceengine.audio.openal.ALSource;
 import com.shc.silenceengine.core.SilenceEngine;
 import com.shc.silenceengine.utils.ReusableStack;
 
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import static com.shc.silenceengine.audio.AudioDevice.Constants.*;
@@ -39,26 +40,53 @@ import static com.shc.silenceengine.audio.AudioDevice.Constants.*;
  * and also updates the position, direction and velocity of the updated sources. It acts like a master of all sounds.
  * </p>
  *
+ * <p>Every sound that is played is a voice. Only a limited number of voices, specified by the max voices of the scene,
+ * are given an OpenAL source and are actually heard. When there are more voices, or when a sound is farther from the
+ * listener than the cull distance of its AudioSource, the voices with the lowest priority are virtualized. A virtual
+ * voice is tracked by the scene without consuming an OpenAL source. Looping voices keep living while virtual, and are
+ * restarted once they become audible and a voice is available. One shot voices are simply dropped, since they would
+ * be over by the time a voice could be given to them.</p>
+ *
  * @author Sri Harsha Chilakapati
  */
 public final class AudioScene
 {
-    private ReusableStack<ALSource>      sourcesPool;
-    private ReusableStack<PlayingSource> playingSourcesPool;
+    /**
+     * The default number of voices that can be heard at the same time.
+     */
+    public static final int DEFAULT_MAX_VOICES = 32;
 
-    private Map<PlayingSource, AudioSource> playingSources;
+    /**
+     * The interval in seconds between the polls for the state of the playing sources.
+     */
+    private static final float STATE_POLL_INTERVAL = 1 / 20f;
+
+    private ReusableStack<ALSource> sourcesPool;
+    private ReusableStack<Voice>    voicesPool;
+
+    // All the voices, and the voices indexed by the buffer ID of the sound and by the source
+    private List<Voice>                   voices;
+    private Map<Integer, List<Voice>>     voicesBySound;
+    private Map<AudioSource, List<Voice>> voicesBySource;
 
     private AudioSource defaultAudioSource;
 
+    private int   maxVoices = DEFAULT_MAX_VOICES;
+    private int   realVoices;
+    private float pollTimer;
+
     /**
      * Prevent instantiation by users. Should only be used via {@code SilenceEngine.audio.scene}
      */
     AudioScene()
     {
         sourcesPool = new ReusableStack<>(ALSource::new);
-        playingSourcesPool = new ReusableStack<>(PlayingSource::new);
+        voicesPool = new ReusableStack<>(Voice::new);
+
+        voices = new ArrayList<>();
+        voicesBySound = new HashMap<>();
+        voicesBySource = new HashMap<>();
 
-        playingSources = new HashMap<>();
         defaultAudioSource = new AudioSource();
 
         SilenceEngine.eventManager.addDisposeHandler(this::cleanUp);
@@ -71,13 +99,8 @@ public final class AudioScene
      */
     public void stopAllSources()
     {
-        for (PlayingSource source : playingSources.keySet())
-        {
-            source.alSource.stop();
-            sourcesPool.push(source.alSource);
-        }
-
-        playingSources.clear();
+        while (voices.size() > 0)
+            removeVoice(voices.get(voices.size() - 1));
     }
 
     private void cleanUp()
@@ -89,39 +112,66 @@ public final class AudioScene
 
     private void updateSources(float deltaTime)
     {
-        Iterator<PlayingSource> iterator = playingSources.keySet().iterator();
-
-        while (iterator.hasNext())
+        // Apply the moved sources to their voices, without interrupting the playback
+        for (int i = voices.size() - 1; i >= 0; i--)
         {
-            PlayingSource playingSource = iterator.next();
-            ALSource source = playingSource.alSource;
-            AudioSource audioSource = playingSources.get(playingSource);
+            Voice voice = voices.get(i);
 
-            ALSource.State state = source.getState();
+            if (!voice.source.updated)
+                continue;
 
-            if (state != ALSource.State.PLAYING &&
-                state != ALSource.State.LOOPING)
-            {
-                source.attachBuffer(null);
+            if (!isAudible(voice))
+                virtualize(voice);
+
+            else if (voice.alSource != null)
+                applySpatialProperties(voice.alSource, voice.source);
+        }
+
+        for (Voice voice : voices)
+            voice.source.updated = false;
 
-                iterator.remove();
-                sourcesPool.push(source);
-                playingSourcesPool.push(playingSource);
+        pollTimer += deltaTime;
 
+        if (pollTimer < STATE_POLL_INTERVAL)
+            return;
+
+        pollTimer = 0;
+        reclaimFinishedVoices();
+        realizeVirtualVoices();
+    }
+
+    /**
+     * Polls the state of all the one shot voices at once, and removes the ones that are done playing. Looping voices
+     * never stop on their own, so they are not polled.
+     */
+    private void reclaimFinishedVoices()
+    {
+        for (int i = voices.size() - 1; i >= 0; i--)
+        {
+            Voice voice = voices.get(i);
+
+            if (voice.loop || voice.alSource == null)
                 continue;
-            }
 
-            if (audioSource.updated)
-            {
-                source.pause();
+            int state = voice.alSource.getParameter(AL_SOURCE_STATE);
 
-                source.setParameter(AL_POSITION, audioSource.position);
-                source.setParameter(AL_VELOCITY, audioSource.velocity);
-                source.setParameter(AL_DIRECTION, audioSource.direction);
+            if (state != AL_PLAYING && state != AL_PAUSED)
+                removeVoice(voice);
+        }
+    }
 
-                audioSource.updated = false;
-                source.play();
-            }
+    private void realizeVirtualVoices()
+    {
+        for (int i = voices.size() - 1; i >= 0; i--)
+        {
+            // Realizing a voice can reclaim or steal others, which shrinks the list
+            if (i >= voices.size())
+                continue;
+
+            Voice voice = voices.get(i);
+
+            if (voice.alSource == null && isAudible(voice))
+                tryRealize(voice);
         }
     }
 
@@ -160,7 +210,8 @@ public final class AudioScene
 
     /**
      * Plays a sound through a specified AudioSource, optionally allowing you to loop the sound. The AudioSource
-     * instance specifies the spatial properties of the sound to be played.
+     * instance specifies the spatial properties of the sound to be played. If the sound cannot be heard, or there is
+     * no voice available for its priority, a looping sound is virtualized and a one shot sound is not played at all.
      *
      * @param sound  The Sound object to be played.
      * @param source The AudioSource object which describes the spatial properties.
@@ -168,24 +219,20 @@ public final class AudioScene
      */
     public void play(Sound sound, AudioSource source, boolean loop)
     {
-        ALSource alSource = sourcesPool.pop();
+        Voice voice = voicesPool.pop();
+        voice.sound = sound;
+        voice.source = source;
+        voice.loop = loop;
+        voice.alSource = null;
 
-        source.update();
+        if (isAudible(voice) && tryRealize(voice))
+            addVoice(voice);
 
-        alSource.attachBuffer(sound.buffer);
-        alSource.setParameter(AL_POSITION, source.position);
-        alSource.setParameter(AL_VELOCITY, source.velocity);
-        alSource.setParameter(AL_DIRECTION, source.direction);
-        alSource.setParameter(AL_LOOPING, loop);
+        else if (loop)
+            addVoice(voice);
 
-        source.updated = false;
-        alSource.play();
-
-        PlayingSource playingSource = playingSourcesPool.pop();
-        playingSource.sound = sound;
-        playingSource.alSource = alSource;
-
-        playingSources.put(playingSource, source);
+        else
+            voicesPool.push(voice);
     }
 
     /**
@@ -195,11 +242,10 @@ public final class AudioScene
      */
     public void stopFromAllSources(Sound sound)
     {
-        for (PlayingSource source : playingSources.keySet())
-        {
-            if (source.sound.buffer.getID() == sound.buffer.getID())
-                source.alSource.stop();
-        }
+        List<Voice> soundVoices = voicesBySound.get(sound.buffer.getID());
+
+        while (soundVoices != null && soundVoices.size() > 0)
+            removeVoice(soundVoices.get(soundVoices.size() - 1));
     }
 
     /**
@@ -209,11 +255,10 @@ public final class AudioScene
      */
     public void stopAllFromSource(AudioSource source)
     {
-        for (PlayingSource playingSource : playingSources.keySet())
-        {
-            if (playingSources.get(playingSource) == source)
-                playingSource.alSource.stop();
-        }
+        List<Voice> sourceVoices = voicesBySource.get(source);
+
+        while (sourceVoices != null && sourceVoices.size() > 0)
+            removeVoice(sourceVoices.get(sourceVoices.size() - 1));
     }
 
     /**
@@ -234,17 +279,205 @@ public final class AudioScene
      */
     public void stop(Sound sound, AudioSource source)
     {
-        for (PlayingSource playingSource : playingSources.keySet())
+        List<Voice> soundVoices = voicesBySound.get(sound.buffer.getID());
+
+        if (soundVoices == null)
+            return;
+
+        for (int i = soundVoices.size() - 1; i >= 0; i--)
         {
-            if (playingSource.sound.buffer.getID() == sound.buffer.getID())
-                if (playingSources.get(playingSource) == source)
-                    playingSource.alSource.stop();
+            Voice voice = soundVoices.get(i);
+
+            if (voice.source == source)
+                removeVoice(voice);
         }
     }
 
-    private static class PlayingSource
+    /**
+     * @return The maximum number of voices that can be heard at the same time.
+     */
+    public int getMaxVoices()
+    {
+        return maxVoices;
+    }
+
+    /**
+     * Sets the maximum number of voices that can be heard at the same time. If there are more voices playing than the
+     * new limit, the voices with the lowest priority are virtualized immediately.
+     *
+     * @param maxVoices The new maximum number of voices.
+     */
+    public void setMaxVoices(int maxVoices)
+    {
+        this.maxVoices = maxVoices;
+
+        while (realVoices > maxVoices)
+            virtualize(findLowestRealVoice());
+    }
+
+    /**
+     * @return The number of voices that are given an OpenAL source and are being heard.
+     */
+    public int getRealVoiceCount()
+    {
+        return realVoices;
+    }
+
+    /**
+     * @return The number of voices that are tracked without an OpenAL source.
+     */
+    public int getVirtualVoiceCount()
+    {
+        return voices.size() - realVoices;
+    }
+
+    private boolean isAudible(Voice voice)
+    {
+        // The listener is at the origin, which is where the positions of the sources are relative to
+        float cullDistance = voice.source.getCullDistance();
+        return voice.source.position.lengthSquared() <= cullDistance * cullDistance;
+    }
+
+    /**
+     * Gives an OpenAL source to a voice and starts it, stealing the source of a voice with a lower priority if there
+     * are no free voices left.
+     *
+     * @return True if the voice is now playing, false if it stays virtual.
+     */
+    private boolean tryRealize(Voice voice)
+    {
+        if (realVoices >= maxVoices)
+        {
+            // Sources of the finished voices are reclaimed lazily, so poll them before stealing from others
+            reclaimFinishedVoices();
+
+            if (realVoices >= maxVoices)
+            {
+                Voice victim = findLowestRealVoice();
+
+                if (victim == null || victim.sound.getPriority() >= voice.sound.getPriority())
+                    return false;
+
+                virtualize(victim);
+            }
+        }
+
+        ALSource alSource = sourcesPool.pop();
+
+        alSource.attachBuffer(voice.sound.buffer);
+        alSource.setParameter(AL_LOOPING, voice.loop);
+        applySpatialProperties(alSource, voice.source);
+        alSource.play();
+
+        voice.alSource = alSource;
+        realVoices++;
+
+        return true;
+    }
+
+    private Voice findLowestRealVoice()
+    {
+        Voice lowest = null;
+
+        for (Voice voice : voices)
+        {
+            if (voice.alSource == null)
+                continue;
+
+            if (lowest == null || voice.sound.getPriority() < lowest.sound.getPriority())
+                lowest = voice;
+        }
+
+        return lowest;
+    }
+
+    private void virtualize(Voice voice)
+    {
+        if (!voice.loop)
+        {
+            removeVoice(voice);
+            return;
+        }
+
+        releaseSource(voice);
+    }
+
+    private void releaseSource(Voice voice)
+    {
+        if (voice.alSource == null)
+            return;
+
+        voice.alSource.stop();
+        voice.alSource.attachBuffer(null);
+
+        sourcesPool.push(voice.alSource);
+        voice.alSource = null;
+        realVoices--;
+    }
+
+    private void applySpatialProperties(ALSource alSource, AudioSource source)
+    {
+        alSource.setParameter(AL_POSITION, source.position);
+        alSource.setParameter(AL_VELOCITY, source.velocity);
+        alSource.setParameter(AL_DIRECTION, source.direction);
+    }
+
+    private void addVoice(Voice voice)
+    {
+        voice.index = voices.size();
+        voices.add(voice);
+
+        List<Voice> soundVoices = voicesBySound.get(voice.sound.buffer.getID());
+
+        if (soundVoices == null)
+            voicesBySound.put(voice.sound.buffer.getID(), soundVoices = new ArrayList<>());
+
+        soundVoices.add(voice);
+
+        List<Voice> sourceVoices = voicesBySource.get(voice.source);
+
+        if (sourceVoices == null)
+            voicesBySource.put(voice.source, sourceVoices = new ArrayList<>());
+
+        sourceVoices.add(voice);
+    }
+
+    private void removeVoice(Voice voice)
+    {
+        releaseSource(voice);
+
+        // Swap the last voice into the place of the removed one to avoid shifting the list
+        Voice last = voices.remove(voices.size() - 1);
+
+        if (last != voice)
+        {
+            voices.set(voice.index, last);
+            last.index = voice.index;
+        }
+
+        List<Voice> soundVoices = voicesBySound.get(voice.sound.buffer.getID());
+        soundVoices.remove(voice);
+
+        if (soundVoices.isEmpty())
+            voicesBySound.remove(voice.sound.buffer.getID());
+
+        List<Voice> sourceVoices = voicesBySource.get(voice.source);
+        sourceVoices.remove(voice);
+
+        if (sourceVoices.isEmpty())
+            voicesBySource.remove(voice.source);
+
+        voice.sound = null;
+        voice.source = null;
+        voicesPool.push(voice);
+    }
+
+    private static class Voice
     {
-        private ALSource alSource;
-        private Sound    sound;
+        private ALSource    alSource;
+        private Sound       sound;
+        private AudioSource source;
+        private boolean     loop;
+        private int         index;
     }
 }
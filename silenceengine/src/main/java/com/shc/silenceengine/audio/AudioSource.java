@@ -53,6 +53,8 @@ public class AudioSource
 
     boolean updated = true;
 
+    private float cullDistance = Float.POSITIVE_INFINITY;
+
     /**
      * Marks this source for updating. This causes the AudioScene to apply these properties to all the playing sounds.
      */
@@ -61,4 +63,24 @@ public class AudioSource
         // The updating to ALSource will happen in AudioScene
         updated = true;
     }
+
+    /**
+     * @return The distance from the listener beyond which the sounds of this source are virtualized.
+     */
+    public float getCullDistance()
+    {
+        return cullDistance;
+    }
+
+    /**
+     * Sets the distance from the listener beyond which the sounds of this source are not heard. Such sounds are
+     * virtualized by the AudioScene, so that they do not consume any OpenAL sources.
+     *
+     * @param cullDistance The new cull distance. Defaults to infinity, so sounds are never culled.
+     */
+    public void setCullDistance(float cullDistance)
+    {
+        this.cullDistance = cullDistance;
+        update();
+    }
 }
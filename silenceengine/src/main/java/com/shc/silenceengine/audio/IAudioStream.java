@@ -0,0 +1,89 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.audio;
+
+import com.shc.silenceengine.audio.openal.ALBuffer;
+import com.shc.silenceengine.audio.openal.ALFormat;
+import com.shc.silenceengine.core.IResource;
+
+/**
+ * <p>An audio stream decodes compressed audio incrementally, one block of PCM samples at a time, instead of decoding
+ * the whole file up front. The compressed data stays in memory for as long as the stream is alive, and the decoded
+ * samples never exceed the size of a single block. Streams are created by the backend through
+ * {@link AudioDevice#openStream(AudioDevice.AudioFormat, com.shc.silenceengine.io.DirectBuffer)} and are consumed by
+ * the {@link Music} class.</p>
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public interface IAudioStream extends IResource
+{
+    /**
+     * Decodes the next block of samples from the stream into the memory of the stream, replacing the previous block.
+     * This does not touch OpenAL, so it can be called on a background thread, as long as the calls to the stream are
+     * not made at the same time.
+     *
+     * @return True if a block was decoded, or false if the end of the stream is reached.
+     */
+    boolean decode();
+
+    /**
+     * Uploads the block decoded by the last call to {@link #decode()} into an OpenAL buffer.
+     *
+     * @param buffer The ALBuffer to upload the decoded samples into.
+     */
+    void upload(ALBuffer buffer);
+
+    /**
+     * Decodes the next block of samples from the stream, and uploads them into the given OpenAL buffer.
+     *
+     * @param buffer The ALBuffer to upload the decoded samples into.
+     *
+     * @return True if samples were uploaded, or false if the end of the stream is reached.
+     */
+    default boolean fill(ALBuffer buffer)
+    {
+        if (!decode())
+            return false;
+
+        upload(buffer);
+        return true;
+    }
+
+    /**
+     * Seeks the stream back to the first sample, so that the next call to {@link #fill(ALBuffer)} starts decoding from
+     * the beginning again.
+     */
+    void rewind();
+
+    /**
+     * @return The OpenAL format of the decoded samples.
+     */
+    ALFormat getFormat();
+
+    /**
+     * @return The sample rate of the decoded samples, in Hz.
+     */
+    int getSampleRate();
+}
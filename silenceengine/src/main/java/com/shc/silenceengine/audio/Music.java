@@ -0,0 +1,454 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.audio;
+
+import com.shc.silenceengine.audio.openal.ALBuffer;
+import com.shc.silenceengine.audio.openal.ALSource;
+import com.shc.silenceengine.core.EventManager;
+import com.shc.silenceengine.core.IResource;
+import com.shc.silenceengine.core.SilenceEngine;
+import com.shc.silenceengine.utils.AsyncExecutor;
+import com.shc.silenceengine.utils.TaskManager;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+
+import static com.shc.silenceengine.audio.AudioDevice.Constants.*;
+
+/**
+ * <p>Music is a long audio track, like a background score, that is streamed instead of being decoded completely into
+ * memory. Only the compressed data is kept in memory, and it is decoded a block at a time into a small ring of OpenAL
+ * buffers that are queued on a dedicated source. Every update, the buffers that the source has finished playing are
+ * unqueued, refilled with the next block and queued again.</p>
+ *
+ * <p>When the backend has a {@link AsyncExecutor#getShared() shared executor}, the blocks are decoded on it one at a
+ * time, ahead of the buffers that need them, and the update thread only uploads the decoded block into a free buffer
+ * and queues it. Without one (like on GWT), the blocks are decoded on the update thread.</p>
+ *
+ * <p>On platforms where the backend cannot stream a format, the music is decoded completely into a single buffer and
+ * played from the same dedicated source, so the API behaves the same everywhere. Use {@link
+ * AudioDevice#readToMusic(AudioDevice.AudioFormat, com.shc.silenceengine.io.DirectBuffer)} to load music.</p>
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public class Music implements IResource
+{
+    /**
+     * The number of OpenAL buffers in the ring of a streaming music.
+     */
+    public static final int BUFFER_COUNT = 4;
+
+    private IAudioStream stream;
+    private ALBuffer     staticBuffer;
+    private ALBuffer[]   buffers;
+    private ALSource     source;
+
+    private ArrayDeque<ALBuffer> freeBuffers;
+
+    private EventManager.Registration updateRegistration;
+
+    private boolean playing;
+    private boolean paused;
+    private boolean endOfStream;
+
+    // Read by the decode task, which looks at the generation first to see the rest
+    private volatile boolean looping;
+    private volatile int     generation;
+
+    private boolean decoding;
+    private boolean decoded;
+
+    private float volume = 1;
+
+    /**
+     * Constructs a streaming music that decodes its samples from an audio stream.
+     *
+     * @param stream The stream to decode the samples from. It is disposed along with this music.
+     */
+    public Music(IAudioStream stream)
+    {
+        this.stream = stream;
+
+        buffers = new ALBuffer[BUFFER_COUNT];
+        freeBuffers = new ArrayDeque<>(BUFFER_COUNT);
+
+        for (int i = 0; i < BUFFER_COUNT; i++)
+            buffers[i] = new ALBuffer();
+
+        createSource();
+        updateRegistration = SilenceEngine.eventManager.addUpdateHandler(this::update);
+    }
+
+    /**
+     * Constructs a music that plays from a completely decoded OpenAL buffer. This is used as a fallback on platforms
+     * that cannot stream the audio format.
+     *
+     * @param buffer The OpenAL buffer with all the samples of the music. It is disposed along with this music.
+     */
+    public Music(ALBuffer buffer)
+    {
+        staticBuffer = buffer;
+
+        createSource();
+        source.attachBuffer(buffer);
+
+        // Nothing has to be refilled, but the source is still watched to know when the music ends
+        updateRegistration = SilenceEngine.eventManager.addUpdateHandler(this::update);
+    }
+
+    private void createSource()
+    {
+        source = new ALSource();
+        source.setParameter(AL_SOURCE_RELATIVE, true);
+        source.setParameter(AL_POSITION, 0, 0, 0);
+    }
+
+    /**
+     * Plays this music without looping. If the music is paused, it is resumed from where it was paused, otherwise it
+     * starts from the beginning.
+     */
+    public void play()
+    {
+        play(false);
+    }
+
+    /**
+     * Plays this music, optionally looping it. If the music is paused, it is resumed from where it was paused,
+     * otherwise it starts from the beginning.
+     *
+     * @param loop Whether to loop the music.
+     */
+    public void play(boolean loop)
+    {
+        looping = loop;
+
+        if (staticBuffer != null)
+            source.setParameter(AL_LOOPING, loop);
+
+        if (playing)
+        {
+            if (paused)
+            {
+                paused = false;
+                source.play();
+            }
+
+            return;
+        }
+
+        if (stream != null)
+        {
+            restart();
+
+            // The first block is decoded right away so that the music starts now, the rest are decoded as usual
+            if (fillBuffer(freeBuffers.peek()))
+                source.queueBuffer(freeBuffers.poll());
+
+            refill();
+        }
+
+        playing = true;
+        paused = false;
+        source.play();
+    }
+
+    /**
+     * Pauses this music. The next call to play will resume it from the same position.
+     */
+    public void pause()
+    {
+        if (!playing || paused)
+            return;
+
+        paused = true;
+        source.pause();
+    }
+
+    /**
+     * Stops this music. The next call to play will start it from the beginning.
+     */
+    public void stop()
+    {
+        playing = false;
+        paused = false;
+
+        source.stop();
+
+        // Setting the buffer on a stopped source releases all the queued buffers at once
+        if (stream != null)
+        {
+            source.attachBuffer(null);
+
+            // Drop the block that is being decoded, if any
+            generation++;
+            decoding = decoded = false;
+        }
+    }
+
+    private void restart()
+    {
+        // The lock waits for a block that is being decoded, and a new generation stops the queued decodes from
+        // reading the stream after it is rewound
+        synchronized (stream)
+        {
+            generation++;
+            stream.rewind();
+        }
+
+        endOfStream = false;
+        decoding = decoded = false;
+
+        freeBuffers.clear();
+        Collections.addAll(freeBuffers, buffers);
+    }
+
+    private void update(float deltaTime)
+    {
+        if (!playing || paused)
+            return;
+
+        if (stream == null)
+        {
+            if (source.getState() == ALSource.State.STOPPED)
+                playing = false;
+
+            return;
+        }
+
+        int processed = source.getParameter(AL_BUFFERS_PROCESSED);
+
+        while (processed-- > 0)
+        {
+            ALBuffer buffer = findBuffer(source.unqueueBuffer());
+
+            if (buffer != null)
+                freeBuffers.add(buffer);
+        }
+
+        refill();
+
+        if (source.getState() == ALSource.State.STOPPED)
+        {
+            // Either all the queued buffers are played, or the source starved before we could refill it
+            if (source.getParameter(AL_BUFFERS_QUEUED) > 0)
+                source.play();
+            else if (endOfStream && !decoded)
+                stop();
+        }
+    }
+
+    private void refill()
+    {
+        AsyncExecutor executor = AsyncExecutor.getShared();
+
+        if (executor == null)
+        {
+            while (!freeBuffers.isEmpty() && fillBuffer(freeBuffers.peek()))
+                source.queueBuffer(freeBuffers.poll());
+
+            return;
+        }
+
+        if (decoded && !freeBuffers.isEmpty())
+        {
+            ALBuffer buffer = freeBuffers.poll();
+
+            synchronized (stream)
+            {
+                stream.upload(buffer);
+            }
+
+            source.queueBuffer(buffer);
+            decoded = false;
+        }
+
+        // Only one block is decoded at a time, since the stream can only be read by one thread at a time
+        if (!decoding && !decoded && !endOfStream)
+            decodeAsync(executor);
+    }
+
+    private void decodeAsync(AsyncExecutor executor)
+    {
+        final int generation = this.generation;
+        decoding = true;
+
+        executor.execute(() ->
+        {
+            boolean hasBlock;
+
+            synchronized (stream)
+            {
+                // The music was stopped, rewound or disposed after this decode was queued
+                if (generation != this.generation)
+                    return;
+
+                try
+                {
+                    hasBlock = decodeBlock();
+                }
+                catch (Throwable e)
+                {
+                    TaskManager.runOnUpdate(() -> SilenceEngine.log.getRootLogger().error(e));
+                    hasBlock = false;
+                }
+            }
+
+            final boolean result = hasBlock;
+            TaskManager.runOnUpdate(() -> blockDecoded(generation, result));
+        });
+    }
+
+    private void blockDecoded(int generation, boolean hasBlock)
+    {
+        if (generation != this.generation)
+            return;
+
+        decoding = false;
+
+        if (hasBlock)
+            decoded = true;
+        else
+            endOfStream = true;
+
+        if (playing && !paused)
+            refill();
+    }
+
+    private boolean decodeBlock()
+    {
+        if (stream.decode())
+            return true;
+
+        if (looping)
+        {
+            stream.rewind();
+            return stream.decode();
+        }
+
+        return false;
+    }
+
+    private boolean fillBuffer(ALBuffer buffer)
+    {
+        if (endOfStream)
+            return false;
+
+        if (decodeBlock())
+        {
+            stream.upload(buffer);
+            return true;
+        }
+
+        endOfStream = true;
+        return false;
+    }
+
+    private ALBuffer findBuffer(int id)
+    {
+        for (ALBuffer buffer : buffers)
+            if (buffer.getID() == id)
+                return buffer;
+
+        return null;
+    }
+
+    /**
+     * @return True if this music is playing and not paused, else false.
+     */
+    public boolean isPlaying()
+    {
+        return playing && !paused;
+    }
+
+    /**
+     * @return True if this music is paused, else false.
+     */
+    public boolean isPaused()
+    {
+        return paused;
+    }
+
+    /**
+     * @return True if this music loops when it reaches the end, else false.
+     */
+    public boolean isLooping()
+    {
+        return looping;
+    }
+
+    /**
+     * @return True if this music is streamed from compressed data, or false if it was decoded completely.
+     */
+    public boolean isStreaming()
+    {
+        return stream != null;
+    }
+
+    /**
+     * @return The volume of this music, from 0 to 1.
+     */
+    public float getVolume()
+    {
+        return volume;
+    }
+
+    /**
+     * Sets the volume of this music.
+     *
+     * @param volume The new volume of this music, from 0 to 1.
+     */
+    public void setVolume(float volume)
+    {
+        this.volume = volume;
+        source.setParameter(AL_GAIN, volume);
+    }
+
+    @Override
+    public void dispose()
+    {
+        if (updateRegistration != null)
+            updateRegistration.remove();
+
+        source.stop();
+        source.attachBuffer(null);
+        source.dispose();
+
+        if (stream != null)
+        {
+            for (ALBuffer buffer : buffers)
+                buffer.dispose();
+
+            synchronized (stream)
+            {
+                generation++;
+                stream.dispose();
+            }
+        }
+        else
+            staticBuffer.dispose();
+
+        playing = paused = false;
+    }
+}
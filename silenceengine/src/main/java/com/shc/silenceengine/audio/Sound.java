@@ -40,6 +40,8 @@ public class Sound implements IResource
      */
     public ALBuffer buffer;
 
+    private int priority;
+
     /**
      * Construct a new Sound object with a OpenAL Buffer.
      *
@@ -77,6 +79,25 @@ public class Sound implements IResource
         SilenceEngine.audio.scene.stopStatic(this);
     }
 
+    /**
+     * @return The priority of this sound when competing for voices in the AudioScene.
+     */
+    public int getPriority()
+    {
+        return priority;
+    }
+
+    /**
+     * Sets the priority of this sound. When all the voices of the AudioScene are in use, a sound can take the voice of
+     * a playing sound with a lower priority. The default priority is zero.
+     *
+     * @param priority The new priority of this sound.
+     */
+    public void setPriority(int priority)
+    {
+        this.priority = priority;
+    }
+
     @Override
     public void dispose()
     {
@@ -38,6 +38,7 @@ import com.shc.silenceengine.io.DirectBuffer;
 public class ALBuffer implements IResource
 {
     private int     id;
+    private int     size;
     private boolean disposed;
 
     /**
@@ -79,6 +80,7 @@ public class ALBuffer implements IResource
         SilenceEngine.audio.alBufferData(id, format.getAlFormat(), data, frequency);
 
         ALError.check();
+        size = data.sizeBytes();
     }
 
     /**
@@ -106,6 +108,14 @@ public class ALBuffer implements IResource
         return id;
     }
 
+    /**
+     * @return The size of the sample data last uploaded to this buffer, in bytes
+     */
+    public int getSize()
+    {
+        return size;
+    }
+
     /**
      * @return True if disposed, else false
      */
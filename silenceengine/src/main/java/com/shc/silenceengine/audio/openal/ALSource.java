@@ -61,6 +61,44 @@ public class ALSource
         setParameter(AL_BUFFER, buffer == null ? 0 : buffer.getID());
     }
 
+    /**
+     * Appends an ALBuffer to the queue of buffers of this source. Queued buffers are played one after the other, which
+     * allows streaming audio through a small set of buffers that are refilled once they are played.
+     *
+     * @param buffer The ALBuffer to be appended to the queue.
+     *
+     * @throws ALException.InvalidValue If the format of the buffer does not match the other queued buffers.
+     * @throws ALException              If this source is already disposed.
+     */
+    public void queueBuffer(ALBuffer buffer)
+    {
+        if (isDisposed())
+            throw new ALException("Cannot queue a buffer on a disposed ALSource");
+
+        SilenceEngine.audio.alSourceQueueBuffer(id, buffer.getID());
+        ALError.check();
+    }
+
+    /**
+     * Removes the oldest processed buffer from the queue of buffers of this source. Use the {@code
+     * AL_BUFFERS_PROCESSED} parameter to know how many buffers can be unqueued.
+     *
+     * @return The OpenAL ID of the buffer that was removed from the queue.
+     *
+     * @throws ALException.InvalidValue If there are no processed buffers in the queue.
+     * @throws ALException              If this source is already disposed.
+     */
+    public int unqueueBuffer()
+    {
+        if (isDisposed())
+            throw new ALException("Cannot unqueue a buffer from a disposed ALSource");
+
+        int buffer = SilenceEngine.audio.alSourceUnqueueBuffer(id);
+        ALError.check();
+
+        return buffer;
+    }
+
     /**
      * Sets the value of a property in this source object.
      *
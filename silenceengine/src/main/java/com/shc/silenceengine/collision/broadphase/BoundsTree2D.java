@@ -0,0 +1,148 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.collision.broadphase;
+
+import com.shc.silenceengine.math.geom2d.Rectangle;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A spatial index of objects by their 2D bounds, backed by a {@link DynamicTree}. Unlike the {@link DynamicTree2D},
+ * this is not tied to the collision components, and can be used to index any object, like the entities of a scene for
+ * view culling. The bounds are copied on insertion and on update.
+ *
+ * @param <T> The type of the objects that are indexed.
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public class BoundsTree2D<T>
+{
+    private DynamicTree<AABB, T> dynamicTree;
+    private Map<T, Integer>      proxyMap;
+
+    private AABB queryAABB;
+
+    public BoundsTree2D()
+    {
+        dynamicTree = new DynamicTree<>(AABB::new);
+        proxyMap = new HashMap<>();
+
+        queryAABB = new AABB();
+    }
+
+    public void clear()
+    {
+        for (int proxy : proxyMap.values())
+            dynamicTree.destroyProxy(proxy);
+
+        proxyMap.clear();
+    }
+
+    public void insert(T object, Rectangle bounds)
+    {
+        AABB aabb = new AABB();
+        aabb.rect.set(bounds);
+
+        proxyMap.put(object, dynamicTree.createProxy(aabb, object));
+    }
+
+    public void update(T object, Rectangle bounds)
+    {
+        Integer proxy = proxyMap.get(object);
+
+        if (proxy == null)
+        {
+            insert(object, bounds);
+            return;
+        }
+
+        dynamicTree.getAABB(proxy).rect.set(bounds);
+        dynamicTree.updateProxy(proxy);
+    }
+
+    public void remove(T object)
+    {
+        Integer proxy = proxyMap.remove(object);
+
+        if (proxy != null)
+            dynamicTree.destroyProxy(proxy);
+    }
+
+    public boolean contains(T object)
+    {
+        return proxyMap.containsKey(object);
+    }
+
+    public int size()
+    {
+        return proxyMap.size();
+    }
+
+    /**
+     * Retrieves the objects whose bounds intersect the given rectangle. The returned list is reused by the next query,
+     * so do not hold on to it.
+     *
+     * @param rect The rectangle to query.
+     *
+     * @return The list of the objects that intersect the rectangle.
+     */
+    public List<T> retrieve(Rectangle rect)
+    {
+        queryAABB.rect.set(rect);
+        return dynamicTree.query(queryAABB, AABB::intersects);
+    }
+
+    private static class AABB implements DynamicTree.AABB
+    {
+        final Rectangle rect = new Rectangle();
+
+        static boolean intersects(AABB aabb1, AABB aabb2)
+        {
+            return aabb1.rect.intersects(aabb2.rect);
+        }
+
+        @Override
+        public float getPerimeter()
+        {
+            return 2f * (rect.width + rect.height);
+        }
+
+        @Override
+        public void setToCombine(DynamicTree.AABB aabb1, DynamicTree.AABB aabb2)
+        {
+            Rectangle rect1 = ((AABB) aabb1).rect;
+            Rectangle rect2 = ((AABB) aabb2).rect;
+
+            final float minX = Math.min(rect1.x, rect2.x);
+            final float minY = Math.min(rect1.y, rect2.y);
+            final float maxX = Math.max(rect1.x + rect1.width, rect2.x + rect2.width);
+            final float maxY = Math.max(rect1.y + rect1.height, rect2.y + rect2.height);
+
+            rect.set(minX, minY, maxX - minX, maxY - minY);
+        }
+    }
+}
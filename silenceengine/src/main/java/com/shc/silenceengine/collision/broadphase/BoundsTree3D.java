@@ -0,0 +1,182 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.collision.broadphase;
+
+import com.shc.silenceengine.math.Frustum;
+import com.shc.silenceengine.math.geom3d.Cuboid;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A spatial index of objects by their 3D bounds, backed by a {@link DynamicTree}. Unlike the {@link DynamicTree3D},
+ * this is not tied to the collision components, and can be used to index any object, like the entities of a scene for
+ * frustum culling. The bounds are copied on insertion and on update.
+ *
+ * @param <T> The type of the objects that are indexed.
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public class BoundsTree3D<T>
+{
+    private DynamicTree<AABB, T> dynamicTree;
+    private Map<T, Integer>      proxyMap;
+
+    private AABB queryAABB;
+
+    public BoundsTree3D()
+    {
+        dynamicTree = new DynamicTree<>(AABB::new);
+        proxyMap = new HashMap<>();
+
+        queryAABB = new AABB();
+    }
+
+    public void clear()
+    {
+        for (int proxy : proxyMap.values())
+            dynamicTree.destroyProxy(proxy);
+
+        proxyMap.clear();
+    }
+
+    public void insert(T object, Cuboid bounds)
+    {
+        AABB aabb = new AABB();
+        aabb.cuboid.set(bounds);
+
+        proxyMap.put(object, dynamicTree.createProxy(aabb, object));
+    }
+
+    public void update(T object, Cuboid bounds)
+    {
+        Integer proxy = proxyMap.get(object);
+
+        if (proxy == null)
+        {
+            insert(object, bounds);
+            return;
+        }
+
+        dynamicTree.getAABB(proxy).cuboid.set(bounds);
+        dynamicTree.updateProxy(proxy);
+    }
+
+    public void remove(T object)
+    {
+        Integer proxy = proxyMap.remove(object);
+
+        if (proxy != null)
+            dynamicTree.destroyProxy(proxy);
+    }
+
+    public boolean contains(T object)
+    {
+        return proxyMap.containsKey(object);
+    }
+
+    public int size()
+    {
+        return proxyMap.size();
+    }
+
+    /**
+     * Retrieves the objects whose bounds intersect the given cuboid. The returned list is reused by the next query, so
+     * do not hold on to it.
+     *
+     * @param cuboid The cuboid to query.
+     *
+     * @return The list of the objects that intersect the cuboid.
+     */
+    public List<T> retrieve(Cuboid cuboid)
+    {
+        queryAABB.cuboid.set(cuboid);
+        return dynamicTree.query(queryAABB, AABB::intersects);
+    }
+
+    /**
+     * Retrieves the objects whose bounds intersect the given frustum. Whole sub trees are skipped as soon as their
+     * combined bounds are found to be outside the frustum. The returned list is reused by the next query, so do not
+     * hold on to it.
+     *
+     * @param frustum The frustum to query.
+     *
+     * @return The list of the objects that intersect the frustum.
+     */
+    public List<T> retrieve(Frustum frustum)
+    {
+        return dynamicTree.query(frustum, AABB::intersects);
+    }
+
+    private static class AABB implements DynamicTree.AABB
+    {
+        final Cuboid cuboid = new Cuboid();
+
+        static boolean intersects(AABB aabb1, AABB aabb2)
+        {
+            return aabb1.cuboid.intersects(aabb2.cuboid);
+        }
+
+        static boolean intersects(AABB aabb, Frustum frustum)
+        {
+            Cuboid c = aabb.cuboid;
+            return frustum.intersects(c.position, c.width, c.height, c.thickness);
+        }
+
+        @Override
+        public float getPerimeter()
+        {
+            final float HW = cuboid.height * cuboid.width;
+            final float HT = cuboid.height * cuboid.thickness;
+            final float WT = cuboid.width * cuboid.thickness;
+
+            return 2f * (HW + HT + WT);
+        }
+
+        @Override
+        public void setToCombine(DynamicTree.AABB aabb1, DynamicTree.AABB aabb2)
+        {
+            Cuboid c1 = ((AABB) aabb1).cuboid;
+            Cuboid c2 = ((AABB) aabb2).cuboid;
+
+            final float minX = Math.min(c1.position.x - c1.width / 2f, c2.position.x - c2.width / 2f);
+            final float minY = Math.min(c1.position.y - c1.height / 2f, c2.position.y - c2.height / 2f);
+            final float minZ = Math.min(c1.position.z - c1.thickness / 2f, c2.position.z - c2.thickness / 2f);
+            final float maxX = Math.max(c1.position.x + c1.width / 2f, c2.position.x + c2.width / 2f);
+            final float maxY = Math.max(c1.position.y + c1.height / 2f, c2.position.y + c2.height / 2f);
+            final float maxZ = Math.max(c1.position.z + c1.thickness / 2f, c2.position.z + c2.thickness / 2f);
+
+            final float width = maxX - minX;
+            final float height = maxY - minY;
+            final float thickness = maxZ - minZ;
+
+            cuboid.position.set(minX + width / 2, minY + height / 2, minZ + thickness / 2);
+            cuboid.width = width;
+            cuboid.height = height;
+            cuboid.thickness = thickness;
+        }
+    }
+}
@@ -0,0 +1,476 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.core;
+
+import com.shc.silenceengine.audio.Sound;
+import com.shc.silenceengine.audio.openal.ALBuffer;
+import com.shc.silenceengine.graphics.Image;
+import com.shc.silenceengine.graphics.opengl.Texture;
+import com.shc.silenceengine.io.FilePath;
+import com.shc.silenceengine.utils.TaskManager;
+import com.shc.silenceengine.utils.functional.UniCallback;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>A global cache of the resources, keyed by the type and the path of the file. Acquiring a resource returns a
+ * {@link Handle} to it, and loads it with the load helper of the {@link ResourceLoader} if it is not already in the
+ * cache, so the same file is never loaded twice for the same type. Every handle counts as a reference to the resource,
+ * and the resource is kept in the cache as long as there are references to it.</p>
+ *
+ * <p>When all the handles to a resource are released, the resource is not disposed at once, but is kept in the cache
+ * so that it can be acquired again without loading it. The approximate memory used by the cached resources is tracked,
+ * and when it exceeds the budget, the resources which are not referenced are disposed in the least recently released
+ * order until the memory is back under the budget. Resources that are referenced are never evicted.</p>
+ *
+ * <p>The cache is meant to be used from the update thread. The memory used by a resource is estimated by a sizer for
+ * its type, and there are default sizers for textures, images, sounds and OpenAL buffers. Resources of other types
+ * count as zero bytes, unless a sizer is set for them with {@link #setSizer(Class, ISizer)}.</p>
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public final class AssetCache
+{
+    private static final Map<Class<? extends IResource>, ISizer<?>> sizers = new HashMap<>();
+
+    private static final Map<Key, Asset> assets = new HashMap<>();
+
+    // The assets without any references, in the order they are released, least recently released first
+    private static final Map<Key, Asset> unused = new LinkedHashMap<>();
+
+    private static long budget = Long.MAX_VALUE;
+    private static long usedBytes;
+
+    private static int hits;
+    private static int misses;
+    private static int evictions;
+
+    private AssetCache()
+    {
+    }
+
+    /**
+     * Acquires a reference to a resource. If the resource is already in the cache, or is being loaded, the handle
+     * shares it. Otherwise the resource is loaded using the load helper of the {@link ResourceLoader} for the type.
+     *
+     * @param type The type of the resource.
+     * @param path The path of the file of the resource.
+     * @param <T>  The type of the resource.
+     *
+     * @return A handle to the resource, which should be released once the resource is no longer needed.
+     *
+     * @throws SilenceException If there is no load helper for the type.
+     */
+    public static <T extends IResource> Handle<T> acquire(Class<T> type, FilePath path)
+    {
+        Key key = new Key(type, path);
+        Asset asset = assets.get(key);
+
+        if (asset == null)
+        {
+            ResourceLoader.ILoadHelper<IResource> loadHelper = ResourceLoader.getHelper(type);
+
+            if (loadHelper == null)
+                throw new SilenceException("There is no load helper for the resource type " + type.getName());
+
+            misses++;
+
+            asset = new Asset(key);
+            assets.put(key, asset);
+
+            load(asset, loadHelper);
+        }
+        else
+        {
+            hits++;
+            unused.remove(key);
+        }
+
+        asset.references++;
+        return new Handle<>(asset);
+    }
+
+    /**
+     * Disposes all the resources which are not referenced, irrespective of the budget.
+     */
+    public static void evictUnused()
+    {
+        evict(0);
+    }
+
+    /**
+     * Disposes all the resources in the cache, even the referenced ones. The existing handles will no longer have their
+     * resources. This is meant to be used when the game is being disposed.
+     */
+    public static void disposeAll()
+    {
+        for (Asset asset : assets.values())
+            if (asset.resource != null)
+            {
+                asset.watch.remove();
+                asset.resource.dispose();
+            }
+
+        assets.clear();
+        unused.clear();
+        usedBytes = 0;
+    }
+
+    /**
+     * Sets the sizer which estimates the memory used by the resources of a type.
+     *
+     * @param type  The type of the resources.
+     * @param sizer The sizer for the type.
+     * @param <T>   The type of the resources.
+     */
+    public static <T extends IResource> void setSizer(Class<T> type, ISizer<T> sizer)
+    {
+        sizers.put(type, sizer);
+    }
+
+    public static long sizeOf(IResource resource)
+    {
+        ISizer<IResource> sizer = getSizer(resource.getClass());
+        return sizer == null ? 0 : sizer.sizeOf(resource);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends IResource> ISizer<T> getSizer(Class<? extends T> type)
+    {
+        // The sizers are only ever put with the type they size, in setSizer
+        return (ISizer<T>) sizers.get(type);
+    }
+
+    public static long getBudget()
+    {
+        return budget;
+    }
+
+    /**
+     * Sets the maximum memory that the cached resources can use before the resources which are not referenced are
+     * evicted. The default is no limit.
+     *
+     * @param budget The budget, in bytes.
+     */
+    public static void setBudget(long budget)
+    {
+        AssetCache.budget = budget;
+        evict(budget);
+    }
+
+    public static long getUsedBytes()
+    {
+        return usedBytes;
+    }
+
+    public static int getAssetCount()
+    {
+        return assets.size();
+    }
+
+    public static int getUnusedCount()
+    {
+        return unused.size();
+    }
+
+    public static int getHits()
+    {
+        return hits;
+    }
+
+    public static int getMisses()
+    {
+        return misses;
+    }
+
+    public static int getEvictions()
+    {
+        return evictions;
+    }
+
+    public static void resetStats()
+    {
+        hits = misses = evictions = 0;
+    }
+
+    private static void load(Asset asset, ResourceLoader.ILoadHelper<IResource> loadHelper)
+    {
+        loadHelper.load(asset.key.path, new ResourceLoader.ISubmitter<IResource>()
+        {
+            @Override
+            public void submit(IResource resource, FilePath path)
+            {
+                TaskManager.runOnUpdate(() -> loaded(asset, resource));
+            }
+
+            @Override
+            public void fail(Throwable error, FilePath path)
+            {
+                TaskManager.runOnUpdate(() -> failed(asset, error));
+            }
+        });
+    }
+
+    private static void loaded(Asset asset, IResource resource)
+    {
+        // The cache was cleared while the resource was being loaded
+        if (assets.get(asset.key) != asset)
+        {
+            resource.dispose();
+            return;
+        }
+
+        asset.resource = resource;
+        asset.size = sizeOf(resource);
+        asset.watch = HotReloader.watch(asset.key.type, asset.key.path, resource);
+        usedBytes += asset.size;
+
+        if (asset.references == 0)
+            unused.put(asset.key, asset);
+
+        for (Handle<?> handle : asset.waiting)
+            handle.notifyLoaded();
+
+        asset.waiting.clear();
+
+        evict(budget);
+    }
+
+    private static void failed(Asset asset, Throwable error)
+    {
+        // Forget the asset, so that acquiring it again retries loading it
+        if (assets.get(asset.key) == asset)
+            assets.remove(asset.key);
+
+        asset.error = error;
+
+        for (Handle<?> handle : asset.waiting)
+            handle.notifyFailed();
+
+        asset.waiting.clear();
+    }
+
+    private static void release(Asset asset)
+    {
+        if (--asset.references > 0 || assets.get(asset.key) != asset)
+            return;
+
+        // Assets which are still loading are added to the unused ones when they arrive
+        if (asset.resource != null)
+        {
+            unused.put(asset.key, asset);
+            evict(budget);
+        }
+    }
+
+    private static void evict(long limit)
+    {
+        Iterator<Asset> iterator = unused.values().iterator();
+
+        while (usedBytes > limit && iterator.hasNext())
+        {
+            Asset asset = iterator.next();
+            iterator.remove();
+            assets.remove(asset.key);
+
+            asset.watch.remove();
+            asset.resource.dispose();
+            asset.resource = null;
+
+            usedBytes -= asset.size;
+            evictions++;
+        }
+    }
+
+    /**
+     * A sizer estimates the memory used by a resource, in both the native and the GPU memory.
+     *
+     * @param <T> The type of the resource.
+     */
+    @FunctionalInterface
+    public interface ISizer<T extends IResource>
+    {
+        long sizeOf(T resource);
+    }
+
+    /**
+     * A handle is a reference to a resource in the cache. The resource may not be loaded yet when the handle is
+     * acquired, so use {@link #whenLoaded(UniCallback, UniCallback)} to get it once it is available.
+     *
+     * @param <T> The type of the resource.
+     */
+    public static final class Handle<T extends IResource>
+    {
+        private final Asset asset;
+
+        private UniCallback<T>         onLoaded;
+        private UniCallback<Throwable> onError;
+
+        private boolean released;
+
+        private Handle(Asset asset)
+        {
+            this.asset = asset;
+        }
+
+        /**
+         * @return The resource, or null if it is not yet loaded, if loading it failed, or this handle is released.
+         */
+        @SuppressWarnings("unchecked")
+        public T get()
+        {
+            return released ? null : (T) asset.resource;
+        }
+
+        public boolean isLoaded()
+        {
+            return get() != null;
+        }
+
+        public boolean isReleased()
+        {
+            return released;
+        }
+
+        public FilePath getPath()
+        {
+            return asset.key.path;
+        }
+
+        public void whenLoaded(UniCallback<T> onLoaded)
+        {
+            whenLoaded(onLoaded, SilenceEngine.log.getRootLogger()::error);
+        }
+
+        /**
+         * Invokes a callback with the resource once it is loaded, or immediately if it is already loaded. Only one pair
+         * of callbacks can be waiting on a handle at a time.
+         *
+         * @param onLoaded The callback to receive the resource.
+         * @param onError  The callback to receive the error, if loading the resource failed.
+         */
+        public void whenLoaded(UniCallback<T> onLoaded, UniCallback<Throwable> onError)
+        {
+            this.onLoaded = onLoaded;
+            this.onError = onError;
+
+            if (asset.resource != null)
+                notifyLoaded();
+            else if (asset.error != null)
+                notifyFailed();
+            else
+                asset.waiting.add(this);
+        }
+
+        /**
+         * Releases the reference to the resource. The resource is kept in the cache until it is evicted. Releasing a
+         * handle more than once has no effect.
+         */
+        public void release()
+        {
+            if (released)
+                return;
+
+            released = true;
+            asset.waiting.remove(this);
+            AssetCache.release(asset);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void notifyLoaded()
+        {
+            if (!released && onLoaded != null)
+                onLoaded.invoke((T) asset.resource);
+        }
+
+        private void notifyFailed()
+        {
+            if (!released && onError != null)
+                onError.invoke(asset.error);
+        }
+    }
+
+    private static class Asset
+    {
+        final Key             key;
+        final List<Handle<?>> waiting = new ArrayList<>();
+
+        IResource         resource;
+        Throwable         error;
+        HotReloader.Watch watch;
+
+        int  references;
+        long size;
+
+        Asset(Key key)
+        {
+            this.key = key;
+        }
+    }
+
+    private static class Key
+    {
+        final Class<? extends IResource> type;
+        final FilePath                   path;
+
+        Key(Class<? extends IResource> type, FilePath path)
+        {
+            this.type = type;
+            this.path = path;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * type.hashCode() + path.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+                return true;
+
+            if (!(o instanceof Key))
+                return false;
+
+            Key key = (Key) o;
+            return type == key.type && path.equals(key.path);
+        }
+    }
+
+    static
+    {
+        setSizer(Texture.class, texture -> 4L * (long) texture.getWidth() * (long) texture.getHeight());
+        setSizer(Image.class, image -> (long) image.getImageData().sizeBytes());
+        setSizer(ALBuffer.class, buffer -> (long) buffer.getSize());
+        setSizer(Sound.class, sound -> (long) sound.buffer.getSize());
+    }
+}
@@ -32,24 +32,35 @@ import com.shc.silenceengine.graphics.opengl.GLContext;
 import com.shc.silenceengine.utils.GameTimer;
 import com.shc.silenceengine.utils.functional.Provider;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static com.shc.silenceengine.graphics.IGraphicsDevice.Constants.*;
 
 /**
+ * <p>The EventManager dispatches the game events to the registered handlers. The handlers are kept in copy-on-write
+ * arrays that are swapped atomically when a handler is added or removed, so raising an event is a plain loop over an
+ * array without any locking, and handlers can be added or removed from any thread, even while an event is being
+ * raised. A handler added while an event is being raised is first invoked on the next event, as the event in progress
+ * iterates over the array it started with. A removed handler is skipped right away, even by the event in progress.</p>
+ *
+ * <p>Every handler has a priority, and handlers with a lower priority are invoked first. Handlers with the same
+ * priority are invoked in the order they are added. Adding a handler returns a {@link Registration} which can be used
+ * to remove that handler in constant time.</p>
+ *
  * @author Sri Harsha Chilakapati
  */
 public final class EventManager
 {
-    private List<IUpdateEventHandler>  updateEventHandlers  = new ArrayList<>();
-    private List<IRenderEventHandler>  renderEventHandlers  = new ArrayList<>();
-    private List<IResizeEventHandler>  resizeEventHandlers  = new ArrayList<>();
-    private List<IDisposeEventHandler> disposeEventHandlers = new ArrayList<>();
+    /**
+     * The priority of the handlers that are added without specifying a priority.
+     */
+    public static final int DEFAULT_PRIORITY = 0;
 
-    private Queue<EventHandlerQueueObject> eventHandlersQueue = new LinkedList<>();
+    private final HandlerList updateEventHandlers  = new HandlerList();
+    private final HandlerList renderEventHandlers  = new HandlerList();
+    private final HandlerList resizeEventHandlers  = new HandlerList();
+    private final HandlerList disposeEventHandlers = new HandlerList();
 
     private boolean           waiting;
     private Provider<Boolean> waitCondition;
@@ -61,84 +72,64 @@ public final class EventManager
     {
     }
 
-    public synchronized void addUpdateHandler(IUpdateEventHandler handler)
+    public Registration addUpdateHandler(IUpdateEventHandler handler)
     {
-        EventHandlerQueueObject<IUpdateEventHandler> eventHandlersQueueObject = new EventHandlerQueueObject<>();
-        eventHandlersQueueObject.handler = handler;
-        eventHandlersQueueObject.action = EventQueueAction.ADD_HANDLER;
-        eventHandlersQueueObject.eventType = EventType.UPDATE;
-
-        eventHandlersQueue.add(eventHandlersQueueObject);
+        return addUpdateHandler(handler, DEFAULT_PRIORITY);
     }
 
-    public synchronized void addRenderHandler(IRenderEventHandler handler)
+    public Registration addUpdateHandler(IUpdateEventHandler handler, int priority)
     {
-        EventHandlerQueueObject<IRenderEventHandler> eventHandlersQueueObject = new EventHandlerQueueObject<>();
-        eventHandlersQueueObject.handler = handler;
-        eventHandlersQueueObject.action = EventQueueAction.ADD_HANDLER;
-        eventHandlersQueueObject.eventType = EventType.RENDER;
-
-        eventHandlersQueue.add(eventHandlersQueueObject);
+        return updateEventHandlers.add(handler, priority);
     }
 
-    public synchronized void addResizeHandler(IResizeEventHandler handler)
+    public Registration addRenderHandler(IRenderEventHandler handler)
     {
-        EventHandlerQueueObject<IResizeEventHandler> eventHandlersQueueObject = new EventHandlerQueueObject<>();
-        eventHandlersQueueObject.handler = handler;
-        eventHandlersQueueObject.action = EventQueueAction.ADD_HANDLER;
-        eventHandlersQueueObject.eventType = EventType.RESIZE;
-
-        eventHandlersQueue.add(eventHandlersQueueObject);
+        return addRenderHandler(handler, DEFAULT_PRIORITY);
     }
 
-    public synchronized void addDisposeHandler(IDisposeEventHandler handler)
+    public Registration addRenderHandler(IRenderEventHandler handler, int priority)
     {
-        EventHandlerQueueObject<IDisposeEventHandler> eventHandlersQueueObject = new EventHandlerQueueObject<>();
-        eventHandlersQueueObject.handler = handler;
-        eventHandlersQueueObject.action = EventQueueAction.ADD_HANDLER;
-        eventHandlersQueueObject.eventType = EventType.DISPOSE;
-
-        eventHandlersQueue.add(eventHandlersQueueObject);
+        return renderEventHandlers.add(handler, priority);
     }
 
-    public synchronized void removeUpdateHandler(IUpdateEventHandler handler)
+    public Registration addResizeHandler(IResizeEventHandler handler)
     {
-        EventHandlerQueueObject<IUpdateEventHandler> eventHandlersQueueObject = new EventHandlerQueueObject<>();
-        eventHandlersQueueObject.handler = handler;
-        eventHandlersQueueObject.action = EventQueueAction.REMOVE_HANDLER;
-        eventHandlersQueueObject.eventType = EventType.UPDATE;
+        return addResizeHandler(handler, DEFAULT_PRIORITY);
+    }
 
-        eventHandlersQueue.add(eventHandlersQueueObject);
+    public Registration addResizeHandler(IResizeEventHandler handler, int priority)
+    {
+        return resizeEventHandlers.add(handler, priority);
     }
 
-    public synchronized void removeRenderHandler(IRenderEventHandler handler)
+    public Registration addDisposeHandler(IDisposeEventHandler handler)
     {
-        EventHandlerQueueObject<IRenderEventHandler> eventHandlersQueueObject = new EventHandlerQueueObject<>();
-        eventHandlersQueueObject.handler = handler;
-        eventHandlersQueueObject.action = EventQueueAction.REMOVE_HANDLER;
-        eventHandlersQueueObject.eventType = EventType.RENDER;
+        return addDisposeHandler(handler, DEFAULT_PRIORITY);
+    }
 
-        eventHandlersQueue.add(eventHandlersQueueObject);
+    public Registration addDisposeHandler(IDisposeEventHandler handler, int priority)
+    {
+        return disposeEventHandlers.add(handler, priority);
     }
 
-    public synchronized void removeResizeHandler(IResizeEventHandler handler)
+    public void removeUpdateHandler(IUpdateEventHandler handler)
     {
-        EventHandlerQueueObject<IResizeEventHandler> eventHandlersQueueObject = new EventHandlerQueueObject<>();
-        eventHandlersQueueObject.handler = handler;
-        eventHandlersQueueObject.action = EventQueueAction.REMOVE_HANDLER;
-        eventHandlersQueueObject.eventType = EventType.RESIZE;
+        updateEventHandlers.remove(handler);
+    }
 
-        eventHandlersQueue.add(eventHandlersQueueObject);
+    public void removeRenderHandler(IRenderEventHandler handler)
+    {
+        renderEventHandlers.remove(handler);
     }
 
-    public synchronized void removeDisposeHandler(IDisposeEventHandler handler)
+    public void removeResizeHandler(IResizeEventHandler handler)
     {
-        EventHandlerQueueObject<IDisposeEventHandler> eventHandlersQueueObject = new EventHandlerQueueObject<>();
-        eventHandlersQueueObject.handler = handler;
-        eventHandlersQueueObject.action = EventQueueAction.REMOVE_HANDLER;
-        eventHandlersQueueObject.eventType = EventType.DISPOSE;
+        resizeEventHandlers.remove(handler);
+    }
 
-        eventHandlersQueue.add(eventHandlersQueueObject);
+    public void removeDisposeHandler(IDisposeEventHandler handler)
+    {
+        disposeEventHandlers.remove(handler);
     }
 
     /**
@@ -160,47 +151,52 @@ public final class EventManager
 
     public void raiseUpdateEvent(float deltaTime)
     {
-        processHandlers();
-
         if (waiting)
         {
             if (waiting = !waitCondition.provide())
                 return;
         }
 
-        for (IUpdateEventHandler handler : updateEventHandlers)
-            handler.update(deltaTime);
+        Registration[] handlers = updateEventHandlers.snapshot();
+
+        for (Registration registration : handlers)
+            if (!registration.removed)
+                ((IUpdateEventHandler) registration.handler).update(deltaTime);
     }
 
     public void raiseRenderEvent(float delta)
     {
         GLContext.clear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
-        processHandlers();
 
         if (waiting)
             return;
 
-        for (IRenderEventHandler handler : renderEventHandlers)
-            handler.render(delta);
+        Registration[] handlers = renderEventHandlers.snapshot();
+
+        for (Registration registration : handlers)
+            if (!registration.removed)
+                ((IRenderEventHandler) registration.handler).render(delta);
     }
 
     public void raiseResizeEvent()
     {
-        processHandlers();
-
         if (waiting)
             return;
 
-        for (IResizeEventHandler handler : resizeEventHandlers)
-            handler.resized();
+        Registration[] handlers = resizeEventHandlers.snapshot();
+
+        for (Registration registration : handlers)
+            if (!registration.removed)
+                ((IResizeEventHandler) registration.handler).resized();
     }
 
     public void raiseDisposeEvent()
     {
-        processHandlers();
+        Registration[] handlers = disposeEventHandlers.snapshot();
 
-        for (IDisposeEventHandler handler : disposeEventHandlers)
-            handler.dispose();
+        for (Registration registration : handlers)
+            if (!registration.removed)
+                ((IDisposeEventHandler) registration.handler).dispose();
 
         // No updates happen after dispose, it's the end of the game
         clearAllHandlers();
@@ -208,76 +204,145 @@ public final class EventManager
 
     public void clearAllHandlers()
     {
-        processHandlers();
-
         updateEventHandlers.clear();
         renderEventHandlers.clear();
         resizeEventHandlers.clear();
         disposeEventHandlers.clear();
     }
 
-    @SuppressWarnings({ "suspicious", "SuspiciousMethodCalls" })
-    private synchronized void processHandlers()
+    /**
+     * A registration of a handler with the EventManager. Removing a handler using its registration takes constant time,
+     * the handler is marked as removed immediately and is never invoked again, not even by an event that is being
+     * raised at the time. The handler arrays are compacted lazily, on the next event.
+     */
+    public static final class Registration
+    {
+        private final HandlerList list;
+        private final Object      handler;
+        private final int         priority;
+
+        private volatile boolean removed;
+
+        private Registration(HandlerList list, Object handler, int priority)
+        {
+            this.list = list;
+            this.handler = handler;
+            this.priority = priority;
+        }
+
+        /**
+         * Removes the handler of this registration from the EventManager. Calling this more than once has no effect.
+         */
+        public void remove()
+        {
+            if (!removed)
+            {
+                removed = true;
+                list.dirty.set(true);
+            }
+        }
+
+        public boolean isRemoved()
+        {
+            return removed;
+        }
+
+        public int getPriority()
+        {
+            return priority;
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * A copy-on-write list of handlers, sorted by priority. All the writes replace the array atomically, and the readers
+     * just iterate over the array that they got, which never changes once published.
+     */
+    private static final class HandlerList
     {
-        while (!eventHandlersQueue.isEmpty())
+        private static final Registration[] EMPTY = new Registration[0];
+
+        private final AtomicReference<Registration[]> handlers = new AtomicReference<>(EMPTY);
+        private final AtomicBoolean                   dirty    = new AtomicBoolean();
+
+        Registration add(Object handler, int priority)
         {
-            EventHandlerQueueObject object = eventHandlersQueue.poll();
+            Registration registration = new Registration(this, handler, priority);
 
-            if (object == null)
-                break;
+            Registration[] current;
+            Registration[] updated;
 
-            switch (object.eventType)
+            do
             {
-                case UPDATE:
-                    if (object.action == EventQueueAction.ADD_HANDLER)
-                        updateEventHandlers.add((IUpdateEventHandler) object.handler);
-                    else
-                        updateEventHandlers.remove(object.handler);
-                    break;
+                current = handlers.get();
+                updated = new Registration[current.length + 1];
 
-                case RENDER:
-                    if (object.action == EventQueueAction.ADD_HANDLER)
-                        renderEventHandlers.add((IRenderEventHandler) object.handler);
-                    else
-                        renderEventHandlers.remove(object.handler);
-                    break;
+                // Insert after all the handlers with the same or lower priority, so that the insertion order is kept
+                int index = current.length;
 
-                case RESIZE:
-                    if (object.action == EventQueueAction.ADD_HANDLER)
-                        resizeEventHandlers.add((IResizeEventHandler) object.handler);
-                    else
-                        resizeEventHandlers.remove(object.handler);
-                    break;
+                while (index > 0 && current[index - 1].priority > priority)
+                    index--;
+
+                System.arraycopy(current, 0, updated, 0, index);
+                System.arraycopy(current, index, updated, index + 1, current.length - index);
+                updated[index] = registration;
+            }
+            while (!handlers.compareAndSet(current, updated));
+
+            return registration;
+        }
 
-                case DISPOSE:
-                    if (object.action == EventQueueAction.ADD_HANDLER)
-                        disposeEventHandlers.add((IDisposeEventHandler) object.handler);
-                    else
-                        disposeEventHandlers.remove(object.handler);
+        void remove(Object handler)
+        {
+            for (Registration registration : handlers.get())
+            {
+                if (!registration.removed && registration.handler.equals(handler))
+                {
+                    registration.remove();
                     break;
+                }
             }
         }
-    }
 
-    private enum EventType
-    {
-        UPDATE,
-        RENDER,
-        RESIZE,
-        DISPOSE
-    }
+        Registration[] snapshot()
+        {
+            if (dirty.get() && dirty.compareAndSet(true, false))
+                compact();
 
-    private enum EventQueueAction
-    {
-        ADD_HANDLER,
-        REMOVE_HANDLER
-    }
+            return handlers.get();
+        }
 
-    private static class EventHandlerQueueObject<T>
-    {
-        EventType        eventType;
-        EventQueueAction action;
+        void clear()
+        {
+            for (Registration registration : handlers.getAndSet(EMPTY))
+                registration.removed = true;
+        }
+
+        private void compact()
+        {
+            Registration[] current;
+            Registration[] updated;
+
+            do
+            {
+                current = handlers.get();
+
+                int count = 0;
+
+                for (Registration registration : current)
+                    if (!registration.removed)
+                        count++;
 
-        T handler;
+                if (count == current.length)
+                    return;
+
+                updated = new Registration[count];
+
+                for (int i = 0, j = 0; i < current.length; i++)
+                    if (!current[i].removed)
+                        updated[j++] = current[i];
+            }
+            while (!handlers.compareAndSet(current, updated));
+        }
     }
 }
@@ -0,0 +1,347 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.core;
+
+import com.shc.silenceengine.graphics.fonts.BitmapFont;
+import com.shc.silenceengine.graphics.opengl.Program;
+import com.shc.silenceengine.graphics.opengl.Shader;
+import com.shc.silenceengine.graphics.opengl.Texture;
+import com.shc.silenceengine.io.FilePath;
+import com.shc.silenceengine.io.FileReader;
+import com.shc.silenceengine.utils.TaskManager;
+import com.shc.silenceengine.utils.functional.SimpleCallback;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>Reloads the assets while the game is running when their files change, so that the changes can be seen without
+ * restarting the game. The resources loaded by the {@link ResourceLoader} and the {@link AssetCache}, and the engine
+ * programs are registered automatically in the {@link Game#DEVELOPMENT} mode, and the other files (like maps) can be
+ * watched with {@link #watch(FilePath, SimpleCallback)}.</p>
+ *
+ * <p>The reloader is disabled until it is enabled with {@link #setEnabled(boolean)}, and it is never enabled outside the
+ * development mode. A changed resource is loaded again with its load helper, and the new GPU objects are then swapped
+ * into the existing resource in place on the render thread, so the references held by the game stay valid. Only the
+ * types with a swapper are reloaded, which are textures and bitmap fonts by default.</p>
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public final class HotReloader
+{
+    private static final Map<Class<? extends IResource>, ISwapper<?>> swappers = new HashMap<>();
+
+    private static final Set<Watch> watches = new LinkedHashSet<>();
+
+    private static boolean enabled;
+
+    private HotReloader()
+    {
+    }
+
+    public static boolean isEnabled()
+    {
+        return enabled && Game.DEVELOPMENT;
+    }
+
+    /**
+     * Enables or disables the reloader. When enabled, the files of all the assets registered so far are watched, and the
+     * assets registered later are watched as soon as they are registered.
+     *
+     * @param enabled Whether to reload the assets when their files change.
+     */
+    public static void setEnabled(boolean enabled)
+    {
+        boolean wasEnabled = isEnabled();
+        HotReloader.enabled = enabled;
+
+        if (wasEnabled == isEnabled())
+            return;
+
+        for (Watch watch : watches)
+            if (isEnabled())
+                watch.start();
+            else
+                watch.stop();
+    }
+
+    /**
+     * Sets the swapper that replaces the contents of a resource with the contents of a newly loaded one.
+     *
+     * @param type    The type of the resources.
+     * @param swapper The swapper for the type.
+     * @param <T>     The type of the resources.
+     */
+    public static <T extends IResource> void setSwapper(Class<T> type, ISwapper<T> swapper)
+    {
+        swappers.put(type, swapper);
+    }
+
+    /**
+     * Reloads a resource whenever its file changes. The resource is loaded again with the load helper of its type, and
+     * the new resource is swapped into the existing one. Nothing is done if there is no swapper for the type, or if the
+     * game is not in the development mode. The watch has to be removed when the resource is disposed.
+     *
+     * @param type     The type of the resource.
+     * @param path     The file the resource is loaded from.
+     * @param resource The resource to reload.
+     *
+     * @return The watch of the resource, which is already removed if the resource is not watched.
+     */
+    public static Watch watch(Class<? extends IResource> type, FilePath path, IResource resource)
+    {
+        ISwapper<IResource> swapper = getSwapper(type);
+
+        if (swapper == null || !Game.DEVELOPMENT)
+            return Watch.NONE;
+
+        Watch watch = new Watch(path);
+        watch.onChanged = () ->
+        {
+            ResourceLoader.ILoadHelper<IResource> loadHelper = ResourceLoader.getHelper(type);
+            loadHelper.load(path, new ResourceLoader.ISubmitter<IResource>()
+            {
+                @Override
+                public void submit(IResource fresh, FilePath filePath)
+                {
+                    TaskManager.runOnRender(() -> swap(watch, swapper, resource, fresh));
+                }
+
+                @Override
+                public void fail(Throwable error, FilePath filePath)
+                {
+                    // The file could still be half written, keep the old resource until the next change
+                    SilenceEngine.log.getRootLogger().error("Unable to reload " + path.getPath() + ": " + error);
+                }
+            });
+        };
+
+        add(watch);
+        return watch;
+    }
+
+    /**
+     * Links the shaders of a program again whenever one of their files change. A shader that fails to compile is
+     * reported, and the program keeps working with the old shaders. The watches are set on the program, which removes
+     * them when it is disposed.
+     *
+     * @param program  The program to reload.
+     * @param vertex   The file of the vertex shader.
+     * @param fragment The file of the fragment shader.
+     *
+     * @return The watches of the vertex and the fragment shader files.
+     */
+    public static Watch[] watchProgram(Program program, FilePath vertex, FilePath fragment)
+    {
+        SimpleCallback reload = () ->
+        {
+            FileReader fileReader = SilenceEngine.io.getFileReader();
+
+            fileReader.readTextFile(vertex, vSource ->
+                    fileReader.readTextFile(fragment, fSource ->
+                            TaskManager.runOnRender(() -> relink(program, vSource, fSource, vertex, fragment))));
+        };
+
+        Watch[] programWatches = { watch(vertex, reload), watch(fragment, reload) };
+        program.setWatches(programWatches);
+
+        return programWatches;
+    }
+
+    /**
+     * Invokes a callback on the update thread whenever a file changes. This is used to reload the assets which are not
+     * resources, like the maps. Nothing is done if the game is not in the development mode.
+     *
+     * @param file      The file to watch.
+     * @param onChanged The callback to be invoked when the file changes.
+     *
+     * @return The watch of the file, which can be removed to stop watching the file.
+     */
+    public static Watch watch(FilePath file, SimpleCallback onChanged)
+    {
+        if (!Game.DEVELOPMENT)
+            return Watch.NONE;
+
+        Watch watch = new Watch(file);
+        watch.onChanged = onChanged;
+
+        add(watch);
+        return watch;
+    }
+
+    /**
+     * Stops watching all the files, and forgets all the registered assets.
+     */
+    public static void clear()
+    {
+        for (Watch watch : watches)
+        {
+            watch.removed = true;
+            watch.stop();
+        }
+
+        watches.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends IResource> ISwapper<T> getSwapper(Class<? extends T> type)
+    {
+        // The swappers are only ever put with the type they swap, in setSwapper
+        return (ISwapper<T>) swappers.get(type);
+    }
+
+    private static void add(Watch watch)
+    {
+        watches.add(watch);
+
+        if (isEnabled())
+            watch.start();
+    }
+
+    private static void swap(Watch watch, ISwapper<IResource> swapper, IResource resource, IResource fresh)
+    {
+        // The resource was disposed while the new one was being loaded
+        if (watch.isRemoved())
+        {
+            fresh.dispose();
+            return;
+        }
+
+        try
+        {
+            swapper.swap(resource, fresh);
+            SilenceEngine.log.getRootLogger().info("Reloaded " + watch.file.getPath());
+        }
+        catch (Throwable e)
+        {
+            fresh.dispose();
+            SilenceEngine.log.getRootLogger().warn("Unable to reload " + watch.file.getPath() + ": " + e);
+        }
+    }
+
+    private static void relink(Program program, String vSource, String fSource, FilePath vertex, FilePath fragment)
+    {
+        if (program.isDisposed())
+            return;
+
+        Shader vShader = new Shader(Shader.Type.VERTEX_SHADER);
+        Shader fShader = new Shader(Shader.Type.FRAGMENT_SHADER);
+
+        try
+        {
+            vShader.source(vSource);
+            vShader.compile();
+
+            fShader.source(fSource);
+            fShader.compile();
+
+            program.relink(vShader, fShader);
+            SilenceEngine.log.getRootLogger().info("Reloaded " + vertex.getPath() + " and " + fragment.getPath());
+        }
+        catch (Throwable e)
+        {
+            SilenceEngine.log.getRootLogger().error("Unable to reload " + vertex.getPath() + " and "
+                                                    + fragment.getPath() + ": " + e);
+        }
+        finally
+        {
+            vShader.dispose();
+            fShader.dispose();
+        }
+    }
+
+    /**
+     * A swapper replaces the contents of a resource with the contents of another resource of the same type, which is
+     * consumed in the process.
+     *
+     * @param <T> The type of the resources.
+     */
+    @FunctionalInterface
+    public interface ISwapper<T extends IResource>
+    {
+        void swap(T resource, T fresh);
+    }
+
+    /**
+     * A watch is the registration of a file with the reloader. Removing it stops watching the file, and is required
+     * once the asset of the file is disposed, so that the reloader does not keep it alive or reload it.
+     */
+    public static final class Watch
+    {
+        // Returned when nothing is watched, so that the callers need not check for null
+        private static final Watch NONE = new Watch(null);
+
+        private final FilePath file;
+
+        private SimpleCallback onChanged;
+
+        private volatile boolean removed;
+
+        private Watch(FilePath file)
+        {
+            this.file = file;
+            removed = file == null;
+        }
+
+        /**
+         * Stops watching the file. A reload which is already in progress is discarded. Calling this more than once has
+         * no effect.
+         */
+        public void remove()
+        {
+            if (removed)
+                return;
+
+            removed = true;
+            watches.remove(this);
+
+            if (isEnabled())
+                stop();
+        }
+
+        public boolean isRemoved()
+        {
+            return removed;
+        }
+
+        private void start()
+        {
+            SilenceEngine.io.getFileWatcher().watch(file, onChanged);
+        }
+
+        private void stop()
+        {
+            SilenceEngine.io.getFileWatcher().unwatch(file, onChanged);
+        }
+    }
+
+    static
+    {
+        setSwapper(Texture.class, Texture::swap);
+        setSwapper(BitmapFont.class, BitmapFont::swap);
+    }
+}
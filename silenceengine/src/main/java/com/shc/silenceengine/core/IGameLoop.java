@@ -35,6 +35,42 @@ public interface IGameLoop
 
     int getUPS();
 
+    /**
+     * @return Whether this loop passes the interpolation alpha to the render handlers instead of the frame time. When
+     * this is true, the transform components keep snapshots of their transforms per update tick so that they can be
+     * interpolated while rendering.
+     */
+    default boolean isInterpolating()
+    {
+        return false;
+    }
+
+    /**
+     * @return The number of the update tick that is currently being simulated. Only used when interpolating.
+     */
+    default long getUpdateTick()
+    {
+        return 0;
+    }
+
+    /**
+     * @return The number of the last completed update tick that the current render frame is drawing. Only used when
+     * interpolating.
+     */
+    default long getRenderTick()
+    {
+        return 0;
+    }
+
+    /**
+     * @return The fraction of the update step that has elapsed since the last completed update tick, in the range of
+     * zero to one. Renderers interpolate between the previous and the last completed tick with this value.
+     */
+    default float getInterpolationAlpha()
+    {
+        return 1;
+    }
+
     default void onFocusLost()
     {
     }
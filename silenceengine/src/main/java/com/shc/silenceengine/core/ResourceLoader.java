@@ -24,6 +24,7 @@
 
 package com.shc.silenceengine.core;
 
+import com.shc.silenceengine.audio.AudioDevice;
 import com.shc.silenceengine.audio.AudioDevice.AudioFormat;
 import com.shc.silenceengine.audio.Sound;
 import com.shc.silenceengine.audio.openal.ALBuffer;
@@ -31,40 +32,109 @@ import com.shc.silenceengine.graphics.Image;
 import com.shc.silenceengine.graphics.fonts.BitmapFont;
 import com.shc.silenceengine.graphics.opengl.Texture;
 import com.shc.silenceengine.io.FilePath;
+import com.shc.silenceengine.io.ProcessedAssetCache;
+import com.shc.silenceengine.utils.AsyncExecutor;
 import com.shc.silenceengine.utils.IDGenerator;
+import com.shc.silenceengine.utils.TaskQueue;
+import com.shc.silenceengine.utils.TimeUtils;
+import com.shc.silenceengine.utils.functional.SimpleCallback;
+import com.shc.silenceengine.utils.functional.UniCallback;
 
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * <p>A ResourceLoader loads a set of resources in the background, and keeps track of the progress. Every resource is
+ * defined with a type, which selects the load helper used to load it, and optionally a priority and the resources it
+ * depends on. A resource is only started once all its dependencies are loaded, and it fails if any of them fails. The
+ * dependencies only order the loads, the load helpers are not given them, so the game has to get every resource from
+ * the loader itself. Among the resources that are ready, the ones with a higher priority are started first, and no
+ * more than {@link #getMaxConcurrentLoads()} resources are loaded at the same time.</p>
+ *
+ * <p>The load helpers can submit their resources from any thread. The submissions are queued, and are processed in a
+ * batch on the update thread once every frame, which is also when the batch callback is invoked. The progress counters
+ * are atomic, so the progress can be queried from any thread. The progress is weighted by the size of the files once
+ * the sizes of all of them are known, and by the number of resources until then.</p>
+ *
+ * <p>A resource that fails to load, times out or is cancelled fails all the resources that depend on it. Failed
+ * resources still count towards the progress, so the loader is done when every resource is either loaded or failed.
+ * Use {@link #getFailedCount()} and {@link #getError(long)} to check for failures.</p>
+ *
  * @author Sri Harsha Chilakapati
  * @author Gamefreak0
  */
 public class ResourceLoader
 {
-    private static Map<Class<? extends IResource>, ILoadHelper> loadHelpers = new HashMap<>();
+    /**
+     * The priority of the resources that are defined without specifying a priority.
+     */
+    public static final int DEFAULT_PRIORITY = 0;
+
+    /**
+     * The number of resources that are loaded concurrently unless specified otherwise.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_LOADS = 4;
+
+    private static final int TEXTURE_CACHE_VERSION = 1;
+    private static final int PCM_CACHE_VERSION     = 1;
+
+    private static Map<Class<? extends IResource>, ILoadHelper<?>> loadHelpers = new HashMap<>();
+
+    private final Map<Long, Entry> entries = new HashMap<>();
 
-    private Map<FilePath, Class<? extends IResource>> toBeLoaded;
+    private final List<Entry>          scheduled = new ArrayList<>();
+    private final PriorityQueue<Entry> ready     = new PriorityQueue<>(16, ResourceLoader::compareEntries);
+    private final List<Entry>          loading   = new ArrayList<>();
+    private final List<Long>           batch     = new ArrayList<>();
 
-    private Map<Long, FilePath>      idMap;
-    private Map<FilePath, IResource> loaded;
+    // The submissions from the load helpers, which can come from any thread
+    private final TaskQueue submissions = new TaskQueue();
 
-    private int done  = 0;
-    private int count = 0;
+    private final AtomicInteger count   = new AtomicInteger();
+    private final AtomicInteger settled = new AtomicInteger();
+    private final AtomicInteger failed  = new AtomicInteger();
+    private final AtomicInteger sized   = new AtomicInteger();
+
+    private final AtomicLong totalBytes   = new AtomicLong();
+    private final AtomicLong settledBytes = new AtomicLong();
+
+    // The number of load helpers that are yet to submit, only touched on the update thread
+    private int outstanding;
+
+    private int    maxConcurrentLoads = DEFAULT_MAX_CONCURRENT_LOADS;
+    private double timeout;
+    private long   order;
+
+    private UniCallback<List<Long>> batchCallback;
+    private EventManager.Registration registration;
 
     private boolean active;
+    private boolean cancelled;
+    private boolean useAssetCache;
+
+    public static <T extends IResource> void setHelper(Class<T> clazz, ILoadHelper<T> loadHelper)
+    {
+        loadHelpers.put(clazz, loadHelper);
+    }
 
-    public ResourceLoader()
+    @SuppressWarnings("unchecked")
+    static <T extends IResource> ILoadHelper<T> getHelper(Class<? extends T> clazz)
     {
-        toBeLoaded = new HashMap<>();
-        idMap = new HashMap<>();
-        loaded = new HashMap<>();
+        // The helpers are only put by setHelper, which keeps the type of the helper the same as its key
+        return (ILoadHelper<T>) loadHelpers.get(clazz);
     }
 
-    public static void setHelper(Class<? extends IResource> clazz, ILoadHelper loadHelper)
+    private static int compareEntries(Entry a, Entry b)
     {
-        loadHelpers.put(clazz, loadHelper);
+        if (a.priority != b.priority)
+            return Integer.compare(b.priority, a.priority);
+
+        return Long.compare(a.order, b.order);
     }
 
     private static void imageLoadHelper(FilePath path, ISubmitter<Image> submitter)
@@ -72,11 +142,26 @@ public class ResourceLoader
         SilenceEngine.io.getImageReader()
                 .readImage(path)
                 .then(img -> submitter.submit(img, path))
-                .whenThrown(SilenceException::reThrow);
+                .whenThrown(e -> submitter.fail(e, path));
     }
 
     private static void textureLoadHelper(FilePath path, ISubmitter<Texture> submitter)
     {
+        if (ProcessedAssetCache.isEnabled())
+        {
+            ProcessedAssetCache.process(path, "texture", TEXTURE_CACHE_VERSION,
+                    (source, onProcessed, onError) ->
+                            SilenceEngine.io.getImageReader().readImage(source, img ->
+                            {
+                                onProcessed.invoke(Texture.toMipChain(img));
+                                img.dispose();
+                            }, onError),
+                    chain -> submitter.submit(Texture.fromMipChain(chain), path),
+                    e -> submitter.fail(e, path));
+
+            return;
+        }
+
         SilenceEngine.io.getImageReader()
                 .readImage(path)
                 .then(img ->
@@ -84,7 +169,7 @@ public class ResourceLoader
                     submitter.submit(Texture.fromImage(img), path);
                     img.dispose();
                 })
-                .whenThrown(SilenceException::reThrow);
+                .whenThrown(e -> submitter.fail(e, path));
     }
 
     private static void alBufferLoadHelper(FilePath path, ISubmitter<ALBuffer> submitter)
@@ -118,79 +203,255 @@ public class ResourceLoader
 
         AudioFormat finalFormat = format;
 
+        if (ProcessedAssetCache.isEnabled() && SilenceEngine.audio.isPCMDecodingSupported(format))
+        {
+            ProcessedAssetCache.process(path, "pcm", PCM_CACHE_VERSION,
+                    (source, onProcessed, onError) ->
+                            SilenceEngine.audio.decodeToPCM(finalFormat, source, onProcessed, onError),
+                    payload -> submitter.submit(AudioDevice.uploadPCM(payload), path),
+                    e -> submitter.fail(e, path));
+
+            return;
+        }
+
         SilenceEngine.io.getFileReader()
                 .readBinaryFile(path)
                 .then(data ->
                         SilenceEngine.audio.readToALBuffer(finalFormat, data)
                                 .then(buffer -> submitter.submit(buffer, path))
-                                .whenThrown(SilenceException::reThrow))
-                .whenThrown(SilenceException::reThrow);
+                                .whenThrown(e -> submitter.fail(e, path)))
+                .whenThrown(e -> submitter.fail(e, path));
     }
 
     private static void soundLoadHelper(FilePath path, ISubmitter<Sound> submitter)
     {
-        alBufferLoadHelper(path, (resource, filePath) -> submitter.submit(new Sound(resource), path));
+        alBufferLoadHelper(path, new ISubmitter<ALBuffer>()
+        {
+            @Override
+            public void submit(ALBuffer resource, FilePath filePath)
+            {
+                submitter.submit(new Sound(resource), path);
+            }
+
+            @Override
+            public void fail(Throwable error, FilePath filePath)
+            {
+                submitter.fail(error, path);
+            }
+        });
     }
 
     private static void bitmapFontLoadHelper(FilePath path, ISubmitter<BitmapFont> submitter)
     {
-        BitmapFont.load(path, bitmapFont -> submitter.submit(bitmapFont, path));
+        BitmapFont.load(path, bitmapFont -> submitter.submit(bitmapFont, path), e -> submitter.fail(e, path));
     }
 
     public long define(Class<? extends IResource> klass, FilePath path)
     {
-        toBeLoaded.put(path, klass);
-        count++;
+        return define(klass, path, DEFAULT_PRIORITY);
+    }
+
+    /**
+     * Defines a resource to be loaded by this loader. Resources with a higher priority are started before the ones with
+     * a lower priority, and a resource is only started after all of its dependencies are loaded. Resources can also be
+     * defined after the loader is started, in which case they are started on the next frame.
+     *
+     * @param klass        The type of the resource, which selects the load helper.
+     * @param path         The path of the file to load the resource from.
+     * @param priority     The priority of the resource.
+     * @param dependencies The IDs of the resources that have to be loaded before this one.
+     *
+     * @return The ID of the resource, which is used to get the resource once loaded.
+     *
+     * @throws SilenceException If there is no load helper for the type, or a dependency is not defined in this loader.
+     */
+    public long define(Class<? extends IResource> klass, FilePath path, int priority, long... dependencies)
+    {
+        if (!loadHelpers.containsKey(klass))
+            throw new SilenceException("There is no load helper for the resource type " + klass.getName());
+
+        Entry entry = new Entry(IDGenerator.generate(), klass, path, priority, order++);
+
+        // Dependencies have to be defined before, so the graph can never have cycles
+        for (long dependencyID : dependencies)
+        {
+            Entry dependency = entries.get(dependencyID);
+
+            if (dependency == null)
+                throw new SilenceException("The dependency " + dependencyID + " is not defined in this loader");
+
+            entry.dependencies.add(dependency);
+        }
+
+        entries.put(entry.id, entry);
+        scheduled.add(entry);
+        count.incrementAndGet();
 
-        long id = IDGenerator.generate();
-        idMap.put(id, path);
+        if (active)
+            schedule();
 
-        return id;
+        return entry.id;
     }
 
     @SuppressWarnings("unchecked")
     public <T extends IResource> T get(long id)
     {
-        return (T) loaded.get(idMap.get(id));
+        Entry entry = entries.get(id);
+        return entry == null ? null : (T) entry.resource;
+    }
+
+    public boolean isLoaded(long id)
+    {
+        Entry entry = entries.get(id);
+        return entry != null && entry.state == State.LOADED;
+    }
+
+    /**
+     * @param id The ID of the resource.
+     *
+     * @return The error that failed the resource, or null if it did not fail.
+     */
+    public Throwable getError(long id)
+    {
+        Entry entry = entries.get(id);
+        return entry == null ? null : entry.error;
     }
 
     public void start()
     {
-        Iterator<FilePath> iterator = toBeLoaded.keySet().iterator();
+        if (active)
+            return;
 
-        while (iterator.hasNext())
-        {
-            FilePath path = iterator.next();
+        active = true;
+        schedule();
+    }
 
-            Class<? extends IResource> type = toBeLoaded.get(path);
+    /**
+     * Cancels all the resources that are not yet loaded. The resources which are already being loaded are disposed when
+     * they arrive. The resources which are already loaded are kept.
+     */
+    public void cancel()
+    {
+        cancelled = true;
 
-            ILoadHelper<?> loadHelper = loadHelpers.get(type);
-            loadHelper.load(path, (resource, path1) ->
-            {
-                done++;
-                loaded.put(path1, resource);
-            });
+        for (Entry entry : entries.values())
+            fail(entry, new SilenceException("Loading of " + entry.path.getPath() + " is cancelled"));
 
-            iterator.remove();
-        }
+        flushBatch();
+    }
 
-        active = true;
+    /**
+     * Cancels a single resource, and all the resources that depend on it, if they are not yet loaded.
+     *
+     * @param id The ID of the resource.
+     */
+    public void cancel(long id)
+    {
+        Entry entry = entries.get(id);
+
+        if (entry != null)
+            fail(entry, new SilenceException("Loading of " + entry.path.getPath() + " is cancelled"));
+    }
+
+    public boolean isCancelled()
+    {
+        return cancelled;
     }
 
     public float getPercentage()
     {
-        return (float) done / (float) count * 100f;
+        int total = count.get();
+
+        if (total == 0)
+            return active ? 100 : 0;
+
+        long bytes = totalBytes.get();
+
+        // Weigh by the file sizes only when all of them are known, otherwise the progress could go backwards
+        if (sized.get() == total && bytes > 0)
+            return (float) settledBytes.get() / (float) bytes * 100f;
+
+        return (float) settled.get() / (float) total * 100f;
     }
 
     public boolean isDone()
     {
-        return getPercentage() == 100;
+        return active && settled.get() == count.get();
+    }
+
+    public int getLoadedCount()
+    {
+        return settled.get() - failed.get();
+    }
+
+    public int getFailedCount()
+    {
+        return failed.get();
+    }
+
+    public int getCount()
+    {
+        return count.get();
+    }
+
+    public int getMaxConcurrentLoads()
+    {
+        return maxConcurrentLoads;
+    }
+
+    public void setMaxConcurrentLoads(int maxConcurrentLoads)
+    {
+        this.maxConcurrentLoads = Math.max(1, maxConcurrentLoads);
+    }
+
+    /**
+     * Sets the maximum time a resource is allowed to take to load, after which it is failed. A time of zero means that
+     * there is no limit, which is the default.
+     *
+     * @param time The maximum time to load a single resource.
+     * @param unit The unit of the time specified.
+     */
+    public void setTimeout(double time, TimeUtils.Unit unit)
+    {
+        timeout = TimeUtils.convert(time, unit, TimeUtils.getDefaultTimeUnit());
+    }
+
+    /**
+     * Sets the callback that receives the IDs of the resources that are loaded, once every frame in which some of them
+     * are loaded. The callback is always invoked on the update thread.
+     *
+     * @param batchCallback The callback to receive the IDs of the loaded resources, or null to remove it.
+     */
+    public void setBatchCallback(UniCallback<List<Long>> batchCallback)
+    {
+        this.batchCallback = batchCallback;
+    }
+
+    public boolean isUsingAssetCache()
+    {
+        return useAssetCache;
+    }
+
+    /**
+     * Sets whether the resources are acquired from the {@link AssetCache} instead of being loaded directly. Cached
+     * resources are shared with the other loaders, and {@link #disposeAll()} releases them to the cache instead of
+     * disposing them. This has to be set before the loader is started.
+     *
+     * @param useAssetCache Whether to use the asset cache.
+     */
+    public void setUseAssetCache(boolean useAssetCache)
+    {
+        this.useAssetCache = useAssetCache;
     }
 
     public void disposeAll()
     {
-        for (IResource resource : loaded.values())
-            resource.dispose();
+        for (Entry entry : entries.values())
+            if (entry.resource != null)
+            {
+                discard(entry, entry.resource);
+                entry.resource = null;
+            }
     }
 
     public boolean isActive()
@@ -198,10 +459,272 @@ public class ResourceLoader
         return active;
     }
 
+    private void schedule()
+    {
+        for (Entry entry : scheduled)
+        {
+            requestSize(entry);
+
+            // Already failed, because it is cancelled or one of its dependencies failed
+            if (entry.state != State.WAITING)
+                continue;
+
+            for (Entry dependency : entry.dependencies)
+            {
+                if (dependency.state == State.FAILED)
+                {
+                    fail(entry, new SilenceException("The dependency " + dependency.path.getPath() + " of " + entry.path.getPath() + " failed"));
+                    break;
+                }
+
+                if (dependency.state != State.LOADED)
+                {
+                    dependency.dependents.add(entry);
+                    entry.pendingDependencies++;
+                }
+            }
+
+            if (entry.state == State.WAITING && entry.pendingDependencies == 0)
+                makeReady(entry);
+        }
+
+        scheduled.clear();
+
+        if (registration == null)
+            registration = SilenceEngine.eventManager.addUpdateHandler(this::update);
+    }
+
+    private void requestSize(Entry entry)
+    {
+        SimpleCallback request = () -> entry.path.sizeInBytes().then(
+                size -> submissions.add(() -> addSize(entry, size)),
+                error -> submissions.add(() -> addSize(entry, 0)));
+
+        // Finding the size of a resource can mean scanning a jar file, so it is kept off the update thread when the
+        // backend has workers
+        AsyncExecutor executor = AsyncExecutor.getShared();
+
+        if (executor == null)
+            request.invoke();
+        else
+            executor.execute(request, entry.priority);
+    }
+
+    private void addSize(Entry entry, long size)
+    {
+        entry.size = size;
+        totalBytes.addAndGet(size);
+
+        if (entry.isSettled())
+            settledBytes.addAndGet(size);
+
+        sized.incrementAndGet();
+    }
+
+    private void update(float deltaTime)
+    {
+        submissions.drain();
+
+        if (timeout > 0)
+        {
+            double now = TimeUtils.currentTime();
+
+            for (int i = loading.size() - 1; i >= 0; i--)
+            {
+                Entry entry = loading.get(i);
+
+                if (now - entry.startTime > timeout)
+                    error(entry, new SilenceException("Loading of " + entry.path.getPath() + " timed out"));
+            }
+        }
+
+        while (loading.size() < maxConcurrentLoads && !ready.isEmpty())
+            load(ready.poll());
+
+        flushBatch();
+
+        // Keep draining until the late submissions of the cancelled resources are disposed
+        if (isDone() && sized.get() == count.get() && outstanding == 0 && registration != null)
+        {
+            registration.remove();
+            registration = null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void load(Entry entry)
+    {
+        entry.state = State.LOADING;
+        entry.startTime = TimeUtils.currentTime();
+        loading.add(entry);
+        outstanding++;
+
+        try
+        {
+            ISubmitter<IResource> submitter = new ISubmitter<IResource>()
+            {
+                @Override
+                public void submit(IResource resource, FilePath path)
+                {
+                    submissions.add(() ->
+                    {
+                        outstanding--;
+                        loaded(entry, resource);
+                    });
+                }
+
+                @Override
+                public void fail(Throwable error, FilePath path)
+                {
+                    submissions.add(() ->
+                    {
+                        outstanding--;
+                        error(entry, error);
+                    });
+                }
+            };
+
+            // The backend runs the reads started by the helper with the priority of this resource
+            AsyncExecutor.runWithPriority(entry.priority, () ->
+            {
+                if (useAssetCache)
+                {
+                    entry.handle = AssetCache.acquire((Class<IResource>) entry.type, entry.path);
+                    entry.handle.whenLoaded(resource -> submitter.submit(resource, entry.path),
+                            error -> submitter.fail(error, entry.path));
+                }
+                else
+                {
+                    ILoadHelper<IResource> loadHelper = getHelper(entry.type);
+                    loadHelper.load(entry.path, submitter);
+                }
+            });
+        }
+        catch (Throwable e)
+        {
+            outstanding--;
+            error(entry, e);
+        }
+    }
+
+    private void loaded(Entry entry, IResource resource)
+    {
+        // The resource arrived after it was cancelled or timed out
+        if (entry.state != State.LOADING)
+        {
+            discard(entry, resource);
+            return;
+        }
+
+        loading.remove(entry);
+
+        // Cached resources are watched by the cache, since they can outlive this loader
+        if (entry.handle == null)
+            entry.watch = HotReloader.watch(entry.type, entry.path, resource);
+
+        entry.resource = resource;
+        entry.state = State.LOADED;
+        settle(entry);
+
+        batch.add(entry.id);
+
+        for (Entry dependent : entry.dependents)
+            if (dependent.state == State.WAITING && --dependent.pendingDependencies == 0)
+                makeReady(dependent);
+
+        entry.dependents.clear();
+    }
+
+    private void discard(Entry entry, IResource resource)
+    {
+        if (entry.handle != null)
+            entry.handle.release();
+        else
+        {
+            if (entry.watch != null)
+                entry.watch.remove();
+
+            resource.dispose();
+        }
+    }
+
+    private void error(Entry entry, Throwable error)
+    {
+        if (entry.handle != null)
+            entry.handle.release();
+
+        if (entry.isSettled())
+            return;
+
+        SilenceEngine.log.getRootLogger().error(error);
+        fail(entry, error);
+    }
+
+    private void fail(Entry entry, Throwable error)
+    {
+        if (entry.isSettled())
+            return;
+
+        if (entry.state == State.LOADING)
+            loading.remove(entry);
+        else if (entry.state == State.READY)
+            ready.remove(entry);
+
+        entry.error = error;
+        entry.state = State.FAILED;
+        failed.incrementAndGet();
+        settle(entry);
+
+        for (Entry dependent : entry.dependents)
+            fail(dependent, new SilenceException("The dependency " + entry.path.getPath() + " of " + dependent.path.getPath() + " failed"));
+
+        entry.dependents.clear();
+    }
+
+    private void makeReady(Entry entry)
+    {
+        entry.state = State.READY;
+        ready.add(entry);
+    }
+
+    private void settle(Entry entry)
+    {
+        settledBytes.addAndGet(entry.size);
+        settled.incrementAndGet();
+    }
+
+    private void flushBatch()
+    {
+        if (batch.isEmpty())
+            return;
+
+        List<Long> ids = new ArrayList<>(batch);
+        batch.clear();
+
+        if (batchCallback != null)
+            batchCallback.invoke(ids);
+    }
+
+    private enum State
+    {
+        WAITING, READY, LOADING, LOADED, FAILED
+    }
+
     @FunctionalInterface
     public interface ISubmitter<T extends IResource>
     {
         void submit(T resource, FilePath path);
+
+        /**
+         * Reports that the resource could not be loaded. The default implementation just re-throws the error.
+         *
+         * @param error The error that caused the failure.
+         * @param path  The path of the resource.
+         */
+        default void fail(Throwable error, FilePath path)
+        {
+            SilenceException.reThrow(error);
+        }
     }
 
     @FunctionalInterface
@@ -210,6 +733,43 @@ public class ResourceLoader
         void load(FilePath path, ISubmitter<T> submitter);
     }
 
+    private static class Entry
+    {
+        final long                       id;
+        final Class<? extends IResource> type;
+        final FilePath                   path;
+        final int                        priority;
+        final long                       order;
+
+        final List<Entry> dependencies = new ArrayList<>();
+        final List<Entry> dependents   = new ArrayList<>();
+
+        State     state = State.WAITING;
+        IResource resource;
+        Throwable error;
+
+        AssetCache.Handle<IResource> handle;
+        HotReloader.Watch            watch;
+
+        int    pendingDependencies;
+        long   size;
+        double startTime;
+
+        Entry(long id, Class<? extends IResource> type, FilePath path, int priority, long order)
+        {
+            this.id = id;
+            this.type = type;
+            this.path = path;
+            this.priority = priority;
+            this.order = order;
+        }
+
+        boolean isSettled()
+        {
+            return state == State.LOADED || state == State.FAILED;
+        }
+    }
+
     static
     {
         setHelper(Image.class, ResourceLoader::imageLoadHelper);
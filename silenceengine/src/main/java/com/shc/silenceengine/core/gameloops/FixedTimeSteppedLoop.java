@@ -29,11 +29,17 @@ import com.shc.silenceengine.core.SilenceEngine;
 import com.shc.silenceengine.utils.TimeUtils;
 
 /**
+ * A game loop that updates the game at a fixed rate, and renders as fast as possible. When created in the interpolating
+ * mode, the render handlers are passed the interpolation alpha (the fraction of the update step elapsed since the last
+ * update) instead of the frame time, and the transform components interpolate between the last two update ticks, so
+ * that the entities move smoothly even when the render rate differs from the update rate.
+ *
  * @author Sri Harsha Chilakapati
  */
 public class FixedTimeSteppedLoop implements IGameLoop
 {
-    private final float frameTime;
+    private final float   frameTime;
+    private final boolean interpolating;
 
     private int frames;
     private int framesPerSecond;
@@ -44,14 +50,23 @@ public class FixedTimeSteppedLoop implements IGameLoop
     private double lastStatsTime;
     private double lag;
 
+    private long  tick;
+    private float alpha = 1;
+
     public FixedTimeSteppedLoop()
     {
         this(60);
     }
 
     public FixedTimeSteppedLoop(int targetUpdatesPerSecond)
+    {
+        this(targetUpdatesPerSecond, false);
+    }
+
+    public FixedTimeSteppedLoop(int targetUpdatesPerSecond, boolean interpolating)
     {
         this.frameTime = (float) (TimeUtils.convert(1, TimeUtils.Unit.SECONDS) / targetUpdatesPerSecond);
+        this.interpolating = interpolating;
     }
 
     @Override
@@ -72,13 +87,21 @@ public class FixedTimeSteppedLoop implements IGameLoop
         while (lag >= frameTime)
         {
             updates++;
+            tick++;
             SilenceEngine.eventManager.raiseUpdateEvent(frameTime);
 
             lag -= frameTime;
         }
 
         frames++;
-        SilenceEngine.eventManager.raiseRenderEvent(frameTime);
+
+        if (interpolating)
+        {
+            alpha = (float) (lag / frameTime);
+            SilenceEngine.eventManager.raiseRenderEvent(alpha);
+        }
+        else
+            SilenceEngine.eventManager.raiseRenderEvent(frameTime);
 
         if (now - lastStatsTime >= TimeUtils.convert(1, TimeUtils.Unit.SECONDS))
         {
@@ -104,6 +127,30 @@ public class FixedTimeSteppedLoop implements IGameLoop
         return updatesPerSecond;
     }
 
+    @Override
+    public boolean isInterpolating()
+    {
+        return interpolating;
+    }
+
+    @Override
+    public long getUpdateTick()
+    {
+        return tick;
+    }
+
+    @Override
+    public long getRenderTick()
+    {
+        return tick;
+    }
+
+    @Override
+    public float getInterpolationAlpha()
+    {
+        return alpha;
+    }
+
     @Override
     public void onFocusGain()
     {
@@ -185,21 +185,33 @@ public class DynamicRenderer implements IResource
         // Don't increase past the max batch size
         batchSize = Math.min(batchSize, maxBatchSize);
 
-        // Free old buffers
-        SilenceEngine.io.free(vBuffer);
-        SilenceEngine.io.free(nBuffer);
-        SilenceEngine.io.free(cBuffer);
-        SilenceEngine.io.free(tBuffer);
+        // Replace the buffers, keeping the vertices of the current batch
+        int count = Math.min(vertexCount, batchSize);
 
-        // Create new buffers
-        vBuffer = SilenceEngine.io.create(batchSize * SIZE_OF_VERTEX);
-        nBuffer = SilenceEngine.io.create(batchSize * SIZE_OF_NORMAL);
-        cBuffer = SilenceEngine.io.create(batchSize * SIZE_OF_COLOR);
-        tBuffer = SilenceEngine.io.create(batchSize * SIZE_OF_TEXCOORD);
+        vBuffer = resize(vBuffer, batchSize * SIZE_OF_VERTEX, count * SIZE_OF_VERTEX);
+        nBuffer = resize(nBuffer, batchSize * SIZE_OF_NORMAL, count * SIZE_OF_NORMAL);
+        cBuffer = resize(cBuffer, batchSize * SIZE_OF_COLOR, count * SIZE_OF_COLOR);
+        tBuffer = resize(tBuffer, batchSize * SIZE_OF_TEXCOORD, count * SIZE_OF_TEXCOORD);
 
         this.batchSize = batchSize;
     }
 
+    private static DirectBuffer resize(DirectBuffer buffer, int size, int used)
+    {
+        DirectBuffer resized = SilenceEngine.io.create(size);
+
+        if (buffer != null)
+        {
+            // All the attributes are made of floats, so the data can be copied an int at a time
+            for (int i = 0; i < used; i += 4)
+                resized.writeInt(i, buffer.readInt(i));
+
+            SilenceEngine.io.free(buffer);
+        }
+
+        return resized;
+    }
+
     /**
      * Initialises VAOs and VBOs and creates the data store to store the entire batch.
      */
@@ -287,10 +299,13 @@ public class DynamicRenderer implements IResource
         // Bind the VAO
         vao.bind();
 
-        vao.enableAttributeArray(vertexLocation);
-        if (colorLocation != -1) vao.enableAttributeArray(colorLocation);
-        if (texCoordLocation != -1) vao.enableAttributeArray(texCoordLocation);
-        if (normalLocation != -1) vao.enableAttributeArray(normalLocation);
+        // Enable only the arrays used by the current program, the VAO remembers them across flushes
+        int attributes = 1 << vertexLocation;
+        if (colorLocation != -1) attributes |= 1 << colorLocation;
+        if (texCoordLocation != -1) attributes |= 1 << texCoordLocation;
+        if (normalLocation != -1) attributes |= 1 << normalLocation;
+
+        vao.setEnabledAttributeArrays(attributes);
 
         // Setup the buffers
         setupBuffers();
@@ -298,14 +313,6 @@ public class DynamicRenderer implements IResource
         // Do a rendering
         GLContext.drawArrays(vao, beginMode, 0, vertexCount);
 
-        // Unbind the VAO
-        vao.disableAttributeArray(vertexLocation);
-        if (colorLocation != -1) vao.disableAttributeArray(colorLocation);
-        if (texCoordLocation != -1) vao.disableAttributeArray(texCoordLocation);
-        if (normalLocation != -1) vao.disableAttributeArray(normalLocation);
-
-        GLContext.bindVertexArray(null);
-
         // Clear the vertex count
         vertexCount = 0;
         colorCount = 0;
@@ -377,8 +384,8 @@ public class DynamicRenderer implements IResource
                 // Don't resized more than the max batch size
                 flush();
             else
-                // Resize the batch by adding a block of vertices at the end
-                setBatchSize(batchSize + Math.min(4096, maxBatchSize - batchSize));
+                // Double the batch, so that a large batch needs only a few resizes
+                setBatchSize(Math.min(Math.max(batchSize * 2, 64), maxBatchSize));
         }
 
         fillBuffers();
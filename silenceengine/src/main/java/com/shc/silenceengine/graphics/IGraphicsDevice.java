@@ -29,6 +29,7 @@ import com.shc.silenceengine.graphics.cameras.Camera;
 import com.shc.silenceengine.graphics.cameras.NullCamera;
 import com.shc.silenceengine.graphics.fonts.BitmapFontRenderer;
 import com.shc.silenceengine.graphics.opengl.GLContext;
+import com.shc.silenceengine.graphics.opengl.GLStateCache;
 import com.shc.silenceengine.graphics.opengl.Texture;
 import com.shc.silenceengine.graphics.programs.DynamicProgram;
 import com.shc.silenceengine.graphics.programs.FontProgram;
@@ -61,6 +62,9 @@ public interface IGraphicsDevice
         // Create the Null camera
         Camera.CURRENT = new NullCamera();
 
+        // Roll over the state cache counters before anything is rendered in a frame
+        SilenceEngine.eventManager.addRenderHandler(delta -> GLStateCache.newFrame(), Integer.MIN_VALUE);
+
         // Set the context to blend
         GLContext.enable(GL_BLEND);
         GLContext.blendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
@@ -111,6 +115,8 @@ public interface IGraphicsDevice
 
     void glBindBuffer(int target, int buffer);
 
+    void glBindBufferBase(int target, int index, int buffer);
+
     void glBufferData(int target, int capacity, int usage);
 
     void glBufferSubData(int target, int offset, DirectBuffer data);
@@ -182,6 +188,12 @@ public interface IGraphicsDevice
 
     int glGetUniformLocation(int program, String name);
 
+    String glGetActiveUniform(int program, int index, int[] size, int[] type);
+
+    int glGetUniformBlockIndex(int program, String name);
+
+    void glUniformBlockBinding(int program, int blockIndex, int blockBinding);
+
     void glUniform1i(int location, int value);
 
     void glUniform2i(int location, int v1, int v2);
@@ -360,6 +372,7 @@ public interface IGraphicsDevice
         public static final int GL_INT_VEC4                                     = 0x8B55;
         public static final int GL_INVALID_ENUM                                 = 0x0500;
         public static final int GL_INVALID_FRAMEBUFFER_OPERATION                = 0x0506;
+        public static final int GL_INVALID_INDEX                                = 0xFFFFFFFF;
         public static final int GL_INVALID_OPERATION                            = 0x0502;
         public static final int GL_INVALID_VALUE                                = 0x0501;
         public static final int GL_INVERT                                       = 0x150A;
@@ -524,6 +537,7 @@ public interface IGraphicsDevice
         public static final int GL_TRIANGLE_FAN                                 = 0x0006;
         public static final int GL_TRIANGLE_STRIP                               = 0x0005;
         public static final int GL_TRUE                                         = 0x0001;
+        public static final int GL_UNIFORM_BUFFER                               = 0x8A11;
         public static final int GL_UNPACK_ALIGNMENT                             = 0x0CF5;
         public static final int GL_UNPACK_COLORSPACE_CONVERSION_WEBGL           = 0x9243;
         public static final int GL_UNPACK_FLIP_Y_WEBGL                          = 0x9240;
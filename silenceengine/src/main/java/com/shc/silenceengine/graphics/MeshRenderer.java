@@ -30,6 +30,7 @@ import com.shc.silenceengine.graphics.opengl.GLContext;
 import com.shc.silenceengine.graphics.opengl.Primitive;
 import com.shc.silenceengine.graphics.opengl.VertexArray;
 import com.shc.silenceengine.io.DirectBuffer;
+import com.shc.silenceengine.io.FrameArena;
 import com.shc.silenceengine.io.PrimitiveSize;
 import com.shc.silenceengine.math.Vector2;
 import com.shc.silenceengine.math.Vector3;
@@ -133,7 +134,7 @@ public class MeshRenderer implements IResource
         if (hasNormals) uploadTo4Layout(mesh.normals, normalBuffer, 0);
         if (hasTangents) uploadTo4Layout(mesh.tangents, tangentBuffer, 0);
         if (hasBiTangents) uploadTo4Layout(mesh.biTangents, biTangentBuffer, 0);
-        if (hasTexCoords) uploadTo2Layout(mesh.uvs, tangentBuffer);
+        if (hasTexCoords) uploadTo2Layout(mesh.uvs, texCoordBuffer);
         if (hasColors) uploadTo4Layout(mesh.colors, colorBuffer);
 
         vertexCount = mesh.vertices.size();
@@ -143,51 +144,58 @@ public class MeshRenderer implements IResource
 
     private void uploadTo4Layout(List<Vector3> data, BufferObject bufferObject, int w)
     {
-        DirectBuffer buffer = DirectBuffer.create(data.size() * 4 * PrimitiveSize.FLOAT);
+        float[] floats = new float[data.size() * 4];
 
-        int i = 0;
+        int index = 0;
 
         for (Vector3 v : data)
-            buffer.writeFloat(i++, v.x)
-                    .writeFloat(i++, v.y)
-                    .writeFloat(i++, v.z)
-                    .writeFloat(i++, w);
-
-        bufferObject.uploadData(buffer, BufferObject.Usage.STATIC_DRAW);
+        {
+            floats[index++] = v.x;
+            floats[index++] = v.y;
+            floats[index++] = v.z;
+            floats[index++] = w;
+        }
 
-        DirectBuffer.free(buffer);
+        upload(floats, bufferObject);
     }
 
     private void uploadTo4Layout(List<Color> data, BufferObject bufferObject)
     {
-        DirectBuffer buffer = DirectBuffer.create(data.size() * 4 * PrimitiveSize.FLOAT);
+        float[] floats = new float[data.size() * 4];
 
-        int i = 0;
+        int index = 0;
 
         for (Color c : data)
-            buffer.writeFloat(i++, c.r)
-                    .writeFloat(i++, c.g)
-                    .writeFloat(i++, c.b)
-                    .writeFloat(i++, c.a);
-
-        bufferObject.uploadData(buffer, BufferObject.Usage.STATIC_DRAW);
+        {
+            floats[index++] = c.r;
+            floats[index++] = c.g;
+            floats[index++] = c.b;
+            floats[index++] = c.a;
+        }
 
-        DirectBuffer.free(buffer);
+        upload(floats, bufferObject);
     }
 
     private void uploadTo2Layout(List<Vector2> data, BufferObject bufferObject)
     {
-        DirectBuffer buffer = DirectBuffer.create(data.size() * 2 * PrimitiveSize.FLOAT);
+        float[] floats = new float[data.size() * 2];
 
-        int i = 0;
+        int index = 0;
 
         for (Vector2 v : data)
-            buffer.writeFloat(i++, v.x)
-                    .writeFloat(i++, v.y);
+        {
+            floats[index++] = v.x;
+            floats[index++] = v.y;
+        }
 
-        bufferObject.uploadData(buffer, BufferObject.Usage.STATIC_DRAW);
+        upload(floats, bufferObject);
+    }
 
-        DirectBuffer.free(buffer);
+    private void upload(float[] data, BufferObject bufferObject)
+    {
+        // Gathered into an array first, so that the buffer is filled with one bulk copy
+        DirectBuffer buffer = FrameArena.allocate(data.length * PrimitiveSize.FLOAT).put(0, data, 0, data.length);
+        bufferObject.uploadData(buffer, BufferObject.Usage.STATIC_DRAW);
     }
 
     public void render(Material material)
@@ -202,21 +210,16 @@ public class MeshRenderer implements IResource
         if (tangentLocation != -1) vertexArray.pointAttribute(tangentLocation, 4, GL_FLOAT, tangentBuffer);
         if (biTangentLocation != -1) vertexArray.pointAttribute(biTangentLocation, 4, GL_FLOAT, biTangentBuffer);
 
-        if (vertexLocation != -1) vertexArray.enableAttributeArray(vertexLocation);
-        if (normalLocation != -1) vertexArray.enableAttributeArray(normalLocation);
-        if (uvLocation != -1) vertexArray.enableAttributeArray(uvLocation);
-        if (tangentLocation != -1) vertexArray.enableAttributeArray(tangentLocation);
-        if (biTangentLocation != -1) vertexArray.enableAttributeArray(biTangentLocation);
-
-        GLContext.drawArrays(vertexArray, renderMode, 0, vertexCount);
+        int attributes = 0;
+        if (vertexLocation != -1) attributes |= 1 << vertexLocation;
+        if (normalLocation != -1) attributes |= 1 << normalLocation;
+        if (uvLocation != -1) attributes |= 1 << uvLocation;
+        if (tangentLocation != -1) attributes |= 1 << tangentLocation;
+        if (biTangentLocation != -1) attributes |= 1 << biTangentLocation;
 
-        if (vertexLocation != -1) vertexArray.disableAttributeArray(vertexLocation);
-        if (normalLocation != -1) vertexArray.disableAttributeArray(normalLocation);
-        if (uvLocation != -1) vertexArray.disableAttributeArray(uvLocation);
-        if (tangentLocation != -1) vertexArray.disableAttributeArray(tangentLocation);
-        if (biTangentLocation != -1) vertexArray.disableAttributeArray(biTangentLocation);
+        vertexArray.setEnabledAttributeArrays(attributes);
 
-        GLContext.bindVertexArray(null);
+        GLContext.drawArrays(vertexArray, renderMode, 0, vertexCount);
     }
 
     public void dispose()
@@ -37,9 +37,60 @@ public abstract class Camera
 {
     public static Camera CURRENT;
 
+    private static int versionCounter;
+
+    private final float[] lastProjection = new float[16];
+    private final float[] lastView       = new float[16];
+
+    private int version;
+
     public void apply()
     {
         CURRENT = this;
+        CameraUniformBuffer.update(this);
+    }
+
+    /**
+     * Returns the version stamp of this camera. The stamp changes whenever the projection or the view matrix is found
+     * to be different from the last time it was queried, and no two cameras ever share a stamp. Programs can compare
+     * it with the stamp of the last upload, and skip uploading the camera matrices when nothing has moved.
+     *
+     * @return The current version stamp of this camera.
+     */
+    public int getVersion()
+    {
+        // Both the matrices should be checked, so that their shadow copies stay in sync
+        boolean projectionChanged = update(getProjection(), lastProjection);
+        boolean viewChanged = update(getView(), lastView);
+
+        if (projectionChanged || viewChanged || version == 0)
+            version = ++versionCounter;
+
+        return version;
+    }
+
+    private static boolean update(Matrix4 matrix, float[] shadow)
+    {
+        boolean changed = false;
+        int index = 0;
+
+        for (int i = 0; i < 4; i++)
+        {
+            for (int j = 0; j < 4; j++)
+            {
+                float value = matrix.m[i][j];
+
+                if (shadow[index] != value)
+                {
+                    shadow[index] = value;
+                    changed = true;
+                }
+
+                index++;
+            }
+        }
+
+        return changed;
     }
 
     public abstract Matrix4 getProjection();
@@ -0,0 +1,134 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.graphics.cameras;
+
+import com.shc.silenceengine.core.SilenceEngine;
+import com.shc.silenceengine.graphics.opengl.BufferObject;
+import com.shc.silenceengine.graphics.opengl.Program;
+import com.shc.silenceengine.io.DirectFloatBuffer;
+
+/**
+ * A uniform buffer that holds the matrices of the current camera, shared by all the programs that declare the camera
+ * uniform block. The buffer is laid out in std140, and it is bound to a fixed binding point, so switching programs
+ * no longer needs the matrices to be uploaded again. Shaders declare the block like this:
+ *
+ * <pre>
+ * layout(std140) uniform Camera
+ * {
+ *     mat4 proj;
+ *     mat4 view;
+ * };
+ * </pre>
+ *
+ * <p>Uniform buffers need GLSL 330, so they are only used on the desktop platforms. On the other platforms, the
+ * {@link #SUPPORTED_DEFINE} is not defined in the shaders, and programs fall back to plain {@code proj} and {@code
+ * view} uniforms.</p>
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public final class CameraUniformBuffer
+{
+    /**
+     * The name of the uniform block in the shaders.
+     */
+    public static final String BLOCK_NAME = "Camera";
+
+    /**
+     * The uniform buffer binding point that the camera block is bound to.
+     */
+    public static final int BINDING_POINT = 0;
+
+    /**
+     * The preprocessor symbol that is defined in the shaders when the camera block is supported.
+     */
+    public static final String SUPPORTED_DEFINE = "SE_CAMERA_UBO";
+
+    private static final int MATRIX_SIZE = 16 * 4;
+
+    private static BufferObject      buffer;
+    private static DirectFloatBuffer matrixBuffer;
+
+    private static Camera lastCamera;
+    private static int    lastVersion;
+
+    private CameraUniformBuffer()
+    {
+    }
+
+    /**
+     * @return Whether uniform buffers can be used on the current platform.
+     */
+    public static boolean isSupported()
+    {
+        SilenceEngine.Platform platform = SilenceEngine.display.getPlatform();
+        return platform != SilenceEngine.Platform.HTML5 && platform != SilenceEngine.Platform.ANDROID;
+    }
+
+    /**
+     * Connects the camera block of a program to the camera buffer.
+     *
+     * @param program The program, which should already be linked.
+     *
+     * @return True if the program reads the camera from the buffer, false if it has to be given the {@code proj} and
+     * {@code view} uniforms itself.
+     */
+    public static boolean bind(Program program)
+    {
+        return isSupported() && program.bindUniformBlock(BLOCK_NAME, BINDING_POINT);
+    }
+
+    /**
+     * Uploads the matrices of a camera into the buffer. Nothing is uploaded when the camera and its version are the
+     * same as that of the last upload, so this is cheap to call as often as needed.
+     *
+     * @param camera The camera whose matrices are to be uploaded.
+     */
+    public static void update(Camera camera)
+    {
+        if (!isSupported())
+            return;
+
+        if (buffer == null)
+        {
+            buffer = new BufferObject(BufferObject.Target.UNIFORM_BUFFER);
+            buffer.uploadData(2 * MATRIX_SIZE, BufferObject.Usage.DYNAMIC_DRAW);
+            buffer.bindBase(BINDING_POINT);
+
+            matrixBuffer = new DirectFloatBuffer(16);
+        }
+
+        int version = camera.getVersion();
+
+        if (camera == lastCamera && version == lastVersion)
+            return;
+
+        lastCamera = camera;
+        lastVersion = version;
+
+        // A mat4 in std140 is four vec4 columns, which is exactly how the matrices store themselves
+        buffer.uploadSubData(camera.getProjection().storeInto(matrixBuffer).getDirectBuffer(), 0, MATRIX_SIZE);
+        buffer.uploadSubData(camera.getView().storeInto(matrixBuffer).getDirectBuffer(), MATRIX_SIZE, MATRIX_SIZE);
+    }
+}
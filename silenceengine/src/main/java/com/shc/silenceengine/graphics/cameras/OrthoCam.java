@@ -30,6 +30,7 @@ import com.shc.silenceengine.math.Matrix4;
 import com.shc.silenceengine.math.Transforms;
 import com.shc.silenceengine.math.Vector2;
 import com.shc.silenceengine.math.Vector3;
+import com.shc.silenceengine.math.geom2d.Rectangle;
 
 import static com.shc.silenceengine.graphics.IGraphicsDevice.Constants.*;
 
@@ -147,6 +148,45 @@ public class OrthoCam extends Camera
         return this;
     }
 
+    /**
+     * Computes the rectangle of the world that is visible through this camera, that is the axis aligned bounds of the
+     * view volume projected onto the XY plane.
+     *
+     * @param dest The rectangle to store the result in.
+     *
+     * @return The destination rectangle.
+     */
+    public Rectangle getViewRectangle(Rectangle dest)
+    {
+        if (dest == null)
+            dest = new Rectangle();
+
+        Matrix4 inverse = Matrix4.REUSABLE_STACK.pop().set(mProj).multiply(mView).invert();
+
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+
+        // Un-project the corners of the normalized device coordinates back into the world space
+        for (int i = 0; i < 4; i++)
+        {
+            float x = (i & 1) == 0 ? -1 : 1;
+            float y = (i & 2) == 0 ? -1 : 1;
+
+            float wx = inverse.m[0][0] * x + inverse.m[1][0] * y + inverse.m[3][0];
+            float wy = inverse.m[0][1] * x + inverse.m[1][1] * y + inverse.m[3][1];
+
+            minX = Math.min(minX, wx);
+            minY = Math.min(minY, wy);
+            maxX = Math.max(maxX, wx);
+            maxY = Math.max(maxY, wy);
+        }
+
+        Matrix4.REUSABLE_STACK.push(inverse);
+
+        dest.set(minX, minY, maxX - minX, maxY - minY);
+        return dest;
+    }
+
     public void apply()
     {
         super.apply();
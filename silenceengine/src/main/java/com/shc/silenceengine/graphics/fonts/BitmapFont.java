@@ -27,8 +27,10 @@ package com.shc.silenceengine.graphics.fonts;
 import com.shc.easyxml.Xml;
 import com.shc.easyxml.XmlTag;
 import com.shc.silenceengine.core.SilenceEngine;
+import com.shc.silenceengine.graphics.Image;
 import com.shc.silenceengine.graphics.opengl.Texture;
 import com.shc.silenceengine.io.FilePath;
+import com.shc.silenceengine.io.ProcessedAssetCache;
 import com.shc.silenceengine.math.Vector2;
 import com.shc.silenceengine.math.Vector4;
 import com.shc.silenceengine.utils.functional.SimpleCallback;
@@ -49,10 +51,25 @@ public class BitmapFont implements IFont
     public final Info   info;
     public final Common common;
 
-    private final Map<Char, Map<Char, Integer>> kerningPairs = new HashMap<>();
+    private static final long EMPTY_KERNING_KEY = -1;
+    private static final int  PAGE_CACHE_VERSION = 1;
+
+    // Chars in the basic multilingual plane are looked up by indexing, the rest fall back to the map
+    private Char[] charTable = new Char[0];
+    private Char   defaultChar;
+
+    // Kerning pairs in an open addressing hash table, keyed by both the char ids packed into a long
+    private long[] kerningKeys;
+    private int[]  kerningAmounts;
+    private int    kerningMask;
 
     private boolean hadKerning = false;
 
+    private float distanceFieldSpread;
+
+    // Incremented whenever the font is reloaded, so that the layouts can notice it
+    private int version;
+
     private BitmapFont(Info info, Common common)
     {
         this.info = info;
@@ -60,138 +77,360 @@ public class BitmapFont implements IFont
     }
 
     public static void load(FilePath fontDesc, UniCallback<BitmapFont> callback)
+    {
+        load(fontDesc, callback, SilenceEngine.log.getRootLogger()::error);
+    }
+
+    /**
+     * Loads a bitmap font, reporting the errors in reading or parsing the descriptor or its pages to a callback.
+     *
+     * @param fontDesc The AngelCode font descriptor, in the XML format.
+     * @param callback The callback to invoke with the loaded font.
+     * @param onError  The callback to invoke if the font could not be loaded.
+     */
+    public static void load(FilePath fontDesc, UniCallback<BitmapFont> callback, UniCallback<Throwable> onError)
+    {
+        load(fontDesc, 0, 1, callback, onError);
+    }
+
+    /**
+     * Loads a bitmap font, and converts its pages into signed distance field atlases while loading. The font is then
+     * rendered with the {@link com.shc.silenceengine.graphics.programs.SdfFontProgram}, and stays sharp when it is
+     * scaled. The atlases can be a fraction of the size of the pages, so it is best to load a font that is rasterised
+     * at a large size and downscale it.
+     *
+     * @param fontDesc  The AngelCode font descriptor, in the XML format.
+     * @param spread    The distance in pixels of the pages that the field covers on either side of the glyph edges.
+     * @param downscale The factor to shrink the atlases by, compared to the pages.
+     * @param callback  The callback to invoke with the loaded font.
+     */
+    public static void loadDistanceField(FilePath fontDesc, float spread, int downscale, UniCallback<BitmapFont> callback)
+    {
+        loadDistanceField(fontDesc, spread, downscale, callback, SilenceEngine.log.getRootLogger()::error);
+    }
+
+    /**
+     * Loads a bitmap font with distance field atlases, reporting the errors to a callback.
+     *
+     * @param fontDesc  The AngelCode font descriptor, in the XML format.
+     * @param spread    The distance in pixels of the pages that the field covers on either side of the glyph edges.
+     * @param downscale The factor to shrink the atlases by, compared to the pages.
+     * @param callback  The callback to invoke with the loaded font.
+     * @param onError   The callback to invoke if the font could not be loaded.
+     */
+    public static void loadDistanceField(FilePath fontDesc, float spread, int downscale, UniCallback<BitmapFont> callback,
+                                         UniCallback<Throwable> onError)
+    {
+        load(fontDesc, spread, downscale, callback, onError);
+    }
+
+    private static void load(FilePath fontDesc, float spread, int downscale, UniCallback<BitmapFont> callback,
+                             UniCallback<Throwable> onError)
     {
         SilenceEngine.io.getFileReader().readTextFile(fontDesc, xmlString ->
         {
-            XmlTag font = Xml.parse(xmlString);
-
-            Info info = new Info();
-            XmlTag infoTag = font.getTagsByName("info").get(0);
-
-            info.face = infoTag.getAttribute("face").value;
-            info.size = Integer.parseInt(infoTag.getAttribute("size").value);
-            info.bold = Boolean.parseBoolean(infoTag.getAttribute("bold").value);
-            info.italic = Boolean.parseBoolean(infoTag.getAttribute("italic").value);
-            info.charset = infoTag.getAttribute("charset").value;
-            info.unicode = Boolean.parseBoolean(infoTag.getAttribute("unicode").value);
-            info.stretchH = Double.parseDouble(infoTag.getAttribute("stretchH").value);
-            info.smooth = Boolean.parseBoolean(infoTag.getAttribute("smooth").value);
-            info.aa = Integer.parseInt(infoTag.getAttribute("aa").value);
-
-            String[] padding = infoTag.getAttribute("padding").value.split(",");
-            String[] spacing = infoTag.getAttribute("spacing").value.split(",");
-
-            info.padding.set(
-                    Float.parseFloat(padding[0]),
-                    Float.parseFloat(padding[1]),
-                    Float.parseFloat(padding[2]),
-                    Float.parseFloat(padding[3])
-            );
-
-            info.spacing.set(
-                    Float.parseFloat(spacing[0]),
-                    Float.parseFloat(spacing[1])
-            );
-
-            info.outline = Integer.parseInt(infoTag.getAttribute("outline").value);
-
-            Common common = new Common();
-            XmlTag commonTag = font.getTagsByName("common").get(0);
-
-            common.lineHeight = Integer.parseInt(commonTag.getAttribute("lineHeight").value);
-            common.base = Integer.parseInt(commonTag.getAttribute("base").value);
-            common.scaleW = Integer.parseInt(commonTag.getAttribute("scaleW").value);
-            common.scaleH = Integer.parseInt(commonTag.getAttribute("scaleH").value);
-            common.pages = Integer.parseInt(commonTag.getAttribute("pages").value);
-            common.packed = Integer.parseInt(commonTag.getAttribute("packed").value);
-            common.alphaChnl = Integer.parseInt(commonTag.getAttribute("alphaChnl").value);
-            common.redChnl = Integer.parseInt(commonTag.getAttribute("redChnl").value);
-            common.greenChnl = Integer.parseInt(commonTag.getAttribute("greenChnl").value);
-            common.blueChnl = Integer.parseInt(commonTag.getAttribute("blueChnl").value);
-
-            BitmapFont bitmapFont = new BitmapFont(info, common);
-
-            XmlTag charsTag = font.getTagsByName("chars").get(0);
-
-            for (XmlTag charTag : charsTag.children)
+            try
             {
-                Char fChar = new Char();
-
-                fChar.id = Integer.parseInt(charTag.getAttribute("id").value);
-                fChar.x = Integer.parseInt(charTag.getAttribute("x").value);
-                fChar.y = Integer.parseInt(charTag.getAttribute("y").value);
-                fChar.height = Integer.parseInt(charTag.getAttribute("height").value);
-                fChar.width = Integer.parseInt(charTag.getAttribute("width").value);
-                fChar.xOffset = Integer.parseInt(charTag.getAttribute("xoffset").value);
-                fChar.yOffset = Integer.parseInt(charTag.getAttribute("yoffset").value);
-                fChar.xAdvance = Integer.parseInt(charTag.getAttribute("xadvance").value);
-                fChar.page = Integer.parseInt(charTag.getAttribute("page").value);
-                fChar.chnl = Integer.parseInt(charTag.getAttribute("chnl").value);
-
-                bitmapFont.chars.put(fChar.id, fChar);
+                parse(fontDesc, xmlString, spread, downscale, callback, onError);
             }
-
-            List<XmlTag> kerningTags = font.getTagsByName("kernings");
-            if (kerningTags.size() == 1)
+            catch (Throwable e)
             {
-                // There is kerning support for this font.
-                bitmapFont.hadKerning = true;
+                onError.invoke(e);
+            }
+        }, onError);
+    }
 
-                // Initialize kerning pairs
-                for (Char a : bitmapFont.chars.values())
-                {
-                    bitmapFont.kerningPairs.put(a, new HashMap<>());
+    private static void parse(FilePath fontDesc, String xmlString, float spread, int downscale,
+                              UniCallback<BitmapFont> callback, UniCallback<Throwable> onError)
+    {
+        XmlTag font = Xml.parse(xmlString);
+
+        Info info = new Info();
+        XmlTag infoTag = font.getTagsByName("info").get(0);
+
+        info.face = infoTag.getAttribute("face").value;
+        info.size = Integer.parseInt(infoTag.getAttribute("size").value);
+        info.bold = Boolean.parseBoolean(infoTag.getAttribute("bold").value);
+        info.italic = Boolean.parseBoolean(infoTag.getAttribute("italic").value);
+        info.charset = infoTag.getAttribute("charset").value;
+        info.unicode = Boolean.parseBoolean(infoTag.getAttribute("unicode").value);
+        info.stretchH = Double.parseDouble(infoTag.getAttribute("stretchH").value);
+        info.smooth = Boolean.parseBoolean(infoTag.getAttribute("smooth").value);
+        info.aa = Integer.parseInt(infoTag.getAttribute("aa").value);
+
+        String[] padding = infoTag.getAttribute("padding").value.split(",");
+        String[] spacing = infoTag.getAttribute("spacing").value.split(",");
+
+        info.padding.set(
+                Float.parseFloat(padding[0]),
+                Float.parseFloat(padding[1]),
+                Float.parseFloat(padding[2]),
+                Float.parseFloat(padding[3])
+        );
+
+        info.spacing.set(
+                Float.parseFloat(spacing[0]),
+                Float.parseFloat(spacing[1])
+        );
+
+        info.outline = Integer.parseInt(infoTag.getAttribute("outline").value);
+
+        Common common = new Common();
+        XmlTag commonTag = font.getTagsByName("common").get(0);
+
+        common.lineHeight = Integer.parseInt(commonTag.getAttribute("lineHeight").value);
+        common.base = Integer.parseInt(commonTag.getAttribute("base").value);
+        common.scaleW = Integer.parseInt(commonTag.getAttribute("scaleW").value);
+        common.scaleH = Integer.parseInt(commonTag.getAttribute("scaleH").value);
+        common.pages = Integer.parseInt(commonTag.getAttribute("pages").value);
+        common.packed = Integer.parseInt(commonTag.getAttribute("packed").value);
+        common.alphaChnl = Integer.parseInt(commonTag.getAttribute("alphaChnl").value);
+        common.redChnl = Integer.parseInt(commonTag.getAttribute("redChnl").value);
+        common.greenChnl = Integer.parseInt(commonTag.getAttribute("greenChnl").value);
+        common.blueChnl = Integer.parseInt(commonTag.getAttribute("blueChnl").value);
+
+        BitmapFont bitmapFont = new BitmapFont(info, common);
+        bitmapFont.distanceFieldSpread = spread;
+
+        XmlTag charsTag = font.getTagsByName("chars").get(0);
+
+        for (XmlTag charTag : charsTag.children)
+        {
+            Char fChar = new Char();
+
+            fChar.id = Integer.parseInt(charTag.getAttribute("id").value);
+            fChar.x = Integer.parseInt(charTag.getAttribute("x").value);
+            fChar.y = Integer.parseInt(charTag.getAttribute("y").value);
+            fChar.height = Integer.parseInt(charTag.getAttribute("height").value);
+            fChar.width = Integer.parseInt(charTag.getAttribute("width").value);
+            fChar.xOffset = Integer.parseInt(charTag.getAttribute("xoffset").value);
+            fChar.yOffset = Integer.parseInt(charTag.getAttribute("yoffset").value);
+            fChar.xAdvance = Integer.parseInt(charTag.getAttribute("xadvance").value);
+            fChar.page = Integer.parseInt(charTag.getAttribute("page").value);
+            fChar.chnl = Integer.parseInt(charTag.getAttribute("chnl").value);
+
+            bitmapFont.chars.put(fChar.id, fChar);
+        }
 
-                    for (Char b : bitmapFont.chars.values())
-                        bitmapFont.kerningPairs.get(a).put(b, 0);
-                }
+        bitmapFont.indexChars();
 
-                for (XmlTag kerningTag : kerningTags.get(0).children)
-                {
-                    int first = Integer.parseInt(kerningTag.getAttribute("first").value);
-                    int second = Integer.parseInt(kerningTag.getAttribute("second").value);
-                    int amount = Integer.parseInt(kerningTag.getAttribute("amount").value);
+        List<XmlTag> kerningTags = font.getTagsByName("kernings");
+        if (kerningTags.size() == 1)
+        {
+            // There is kerning support for this font.
+            List<XmlTag> kernings = kerningTags.get(0).children;
+            bitmapFont.initKerning(kernings.size());
 
-                    Char fChar = bitmapFont.chars.get(first);
-                    Char sChar = bitmapFont.chars.get(second);
+            for (XmlTag kerningTag : kernings)
+            {
+                int first = Integer.parseInt(kerningTag.getAttribute("first").value);
+                int second = Integer.parseInt(kerningTag.getAttribute("second").value);
+                int amount = Integer.parseInt(kerningTag.getAttribute("amount").value);
 
-                    bitmapFont.kerningPairs.get(fChar).put(sChar, amount);
-                }
+                bitmapFont.putKerning(first, second, amount);
             }
+        }
 
-            XmlTag pagesTag = font.getTagsByName("pages").get(0);
+        XmlTag pagesTag = font.getTagsByName("pages").get(0);
+
+        SimpleCallback loadingCallback = () -> callback.invoke(bitmapFont);
+
+        for (XmlTag page : pagesTag.children)
+        {
+            int id = Integer.parseInt(page.getAttribute("id").value);
+            FilePath file = fontDesc.getParent().getChild(page.getAttribute("file").value);
 
-            SimpleCallback loadingCallback = () -> callback.invoke(bitmapFont);
+            // Just because variable used in lambda should be effectively final.
+            SimpleCallback finalLoadingCallback = loadingCallback;
 
-            for (XmlTag page : pagesTag.children)
+            // Reassign the loading callback so the callbacks stack up dynamically.
+            loadingCallback = () -> loadPage(file, spread, downscale, texture ->
             {
-                int id = Integer.parseInt(page.getAttribute("id").value);
-                FilePath file = fontDesc.getParent().getChild(page.getAttribute("file").value);
+                bitmapFont.pages.put(id, texture);
 
-                // Just because variable used in lambda should be effectively final.
-                SimpleCallback finalLoadingCallback = loadingCallback;
+                // Invoke the next callback
+                finalLoadingCallback.invoke();
+            }, onError);
+        }
 
-                // Reassign the loading callback so the callbacks stack up dynamically.
-                loadingCallback = () ->
-                        SilenceEngine.io.getImageReader().readImage(file, image ->
-                        {
-                            Texture texture = Texture.fromImage(image);
-                            bitmapFont.pages.put(id, texture);
+        loadingCallback.invoke();
+    }
 
-                            image.dispose();
+    private static void loadPage(FilePath file, float spread, int downscale, UniCallback<Texture> callback,
+                                 UniCallback<Throwable> onError)
+    {
+        if (ProcessedAssetCache.isEnabled())
+        {
+            // The distance field is the expensive part, so it is a part of the processed page
+            ProcessedAssetCache.process(file, "font-page-" + spread + "-" + downscale, PAGE_CACHE_VERSION,
+                    (source, onProcessed, onProcessError) ->
+                            SilenceEngine.io.getImageReader().readImage(source, image ->
+                            {
+                                Image pageImage = processPage(image, spread, downscale);
+                                onProcessed.invoke(Texture.toMipChain(pageImage));
+                                pageImage.dispose();
+                            }, onProcessError),
+                    chain -> callback.invoke(Texture.fromMipChain(chain)),
+                    onError);
+
+            return;
+        }
 
-                            // Invoke the next callback
-                            finalLoadingCallback.invoke();
-                        });
-            }
+        SilenceEngine.io.getImageReader().readImage(file, image ->
+        {
+            Image pageImage = processPage(image, spread, downscale);
+            Texture texture = Texture.fromImage(pageImage);
+            pageImage.dispose();
+
+            callback.invoke(texture);
+        }, onError);
+    }
+
+    private static Image processPage(Image image, float spread, int downscale)
+    {
+        if (spread <= 0)
+            return image;
+
+        Image distanceField = DistanceFieldGenerator.generate(image, spread, downscale);
+        image.dispose();
+
+        return distanceField;
+    }
 
-            loadingCallback.invoke();
-        });
+    private static long kerningKey(int first, int second)
+    {
+        return ((long) first << 32) | (second & 0xFFFFFFFFL);
+    }
+
+    private static int kerningSlot(long key, int mask)
+    {
+        // Mix the bits of both the ids, so that pairs with the same first char don't cluster
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void indexChars()
+    {
+        int maxID = -1;
+
+        for (Char fChar : chars.values())
+            if (fChar.id <= Character.MAX_VALUE)
+                maxID = Math.max(maxID, fChar.id);
+
+        charTable = new Char[maxID + 1];
+
+        for (Char fChar : chars.values())
+            if (fChar.id <= Character.MAX_VALUE)
+                charTable[fChar.id] = fChar;
+
+        defaultChar = getChar(' ');
+    }
+
+    private void initKerning(int numPairs)
+    {
+        // Keep the table at most half full, so that probes stay short
+        int capacity = 16;
+        while (capacity < numPairs * 2)
+            capacity <<= 1;
+
+        kerningKeys = new long[capacity];
+        kerningAmounts = new int[capacity];
+        kerningMask = capacity - 1;
+
+        for (int i = 0; i < capacity; i++)
+            kerningKeys[i] = EMPTY_KERNING_KEY;
+
+        hadKerning = true;
+    }
+
+    private void putKerning(int first, int second, int amount)
+    {
+        long key = kerningKey(first, second);
+        int slot = kerningSlot(key, kerningMask);
+
+        while (kerningKeys[slot] != EMPTY_KERNING_KEY && kerningKeys[slot] != key)
+            slot = (slot + 1) & kerningMask;
+
+        kerningKeys[slot] = key;
+        kerningAmounts[slot] = amount;
+    }
+
+    /**
+     * Looks up the metrics of a character in this font.
+     *
+     * @param id The code point of the character.
+     *
+     * @return The metrics of the character, or null if the font doesn't have it.
+     */
+    public Char getChar(int id)
+    {
+        if (id >= 0 && id < charTable.length)
+            return charTable[id];
+
+        return id > Character.MAX_VALUE ? chars.get(id) : null;
+    }
+
+    /**
+     * Looks up the metrics of a character in this font, falling back to the space character if the font doesn't have
+     * the character.
+     *
+     * @param id The code point of the character.
+     *
+     * @return The metrics of the character.
+     */
+    public Char getCharOrDefault(int id)
+    {
+        Char fChar = getChar(id);
+        return fChar == null ? defaultChar : fChar;
     }
 
     public int getKerning(Char first, Char second)
     {
-        return hadKerning ? kerningPairs.get(first).get(second) : 0;
+        return getKerning(first.id, second.id);
+    }
+
+    public int getKerning(int first, int second)
+    {
+        if (!hadKerning)
+            return 0;
+
+        long key = kerningKey(first, second);
+        int slot = kerningSlot(key, kerningMask);
+
+        while (kerningKeys[slot] != EMPTY_KERNING_KEY)
+        {
+            if (kerningKeys[slot] == key)
+                return kerningAmounts[slot];
+
+            slot = (slot + 1) & kerningMask;
+        }
+
+        return 0;
+    }
+
+    /**
+     * @return True if the pages of this font are signed distance field atlases.
+     */
+    public boolean isDistanceField()
+    {
+        return distanceFieldSpread > 0;
+    }
+
+    public float getDistanceFieldSpread()
+    {
+        return distanceFieldSpread;
+    }
+
+    /**
+     * Marks the pages of this font as distance field atlases, for fonts that are generated as distance fields by an
+     * offline tool. Fonts loaded with {@link #loadDistanceField(FilePath, float, int, UniCallback)} are marked already.
+     *
+     * @param spread The distance in pixels of the glyph metrics that the field covers on either side of the edges, or
+     *               zero to render the pages as plain coverage.
+     */
+    public void setDistanceFieldSpread(float spread)
+    {
+        this.distanceFieldSpread = spread;
     }
 
     public void dispose()
@@ -200,6 +439,56 @@ public class BitmapFont implements IFont
             page.dispose();
     }
 
+    /**
+     * Replaces the glyphs and the pages of this font with the ones of another font in place, so that everything that
+     * refers to this font sees the new glyphs. The pages of this font are disposed, and the other font is consumed and
+     * should not be used afterwards. This is used to reload fonts while the game is running.
+     *
+     * @param other The font to take the glyphs and the pages from.
+     */
+    public void swap(BitmapFont other)
+    {
+        dispose();
+
+        pages.clear();
+        pages.putAll(other.pages);
+        chars.clear();
+        chars.putAll(other.chars);
+
+        // The info and the common blocks are copied, since they may be held by the users of this font
+        info.set(other.info);
+        common.set(other.common);
+
+        charTable = other.charTable;
+        defaultChar = other.defaultChar;
+        kerningKeys = other.kerningKeys;
+        kerningAmounts = other.kerningAmounts;
+        kerningMask = other.kerningMask;
+        hadKerning = other.hadKerning;
+        distanceFieldSpread = other.distanceFieldSpread;
+
+        other.pages.clear();
+        version++;
+    }
+
+    public Info getInfo()
+    {
+        return info;
+    }
+
+    public Common getCommon()
+    {
+        return common;
+    }
+
+    /**
+     * @return The number of times this font is reloaded.
+     */
+    public int getVersion()
+    {
+        return version;
+    }
+
     @Override
     public float getWidth(String text)
     {
@@ -208,8 +497,10 @@ public class BitmapFont implements IFont
 
         Char last = null;
 
-        for (char ch : text.toCharArray())
+        for (int i = 0; i < text.length(); i++)
         {
+            char ch = text.charAt(i);
+
             if (ch == '\n')
             {
                 width = Math.max(x, width);
@@ -218,8 +509,7 @@ public class BitmapFont implements IFont
                 continue;
             }
 
-            Char curr = chars.get((int) ch);
-            curr = curr == null ? chars.get((int) ' ') : curr;
+            Char curr = getCharOrDefault(ch);
 
             x += curr.xAdvance;
 
@@ -253,6 +543,23 @@ public class BitmapFont implements IFont
         public boolean smooth;
         public int     aa;
         public int     outline;
+
+        private void set(Info other)
+        {
+            padding.set(other.padding);
+            spacing.set(other.spacing);
+
+            face = other.face;
+            size = other.size;
+            bold = other.bold;
+            italic = other.italic;
+            charset = other.charset;
+            unicode = other.unicode;
+            stretchH = other.stretchH;
+            smooth = other.smooth;
+            aa = other.aa;
+            outline = other.outline;
+        }
     }
 
     public static class Common
@@ -267,6 +574,20 @@ public class BitmapFont implements IFont
         public int redChnl;
         public int greenChnl;
         public int blueChnl;
+
+        private void set(Common other)
+        {
+            lineHeight = other.lineHeight;
+            base = other.base;
+            scaleW = other.scaleW;
+            scaleH = other.scaleH;
+            pages = other.pages;
+            packed = other.packed;
+            alphaChnl = other.alphaChnl;
+            redChnl = other.redChnl;
+            greenChnl = other.greenChnl;
+            blueChnl = other.blueChnl;
+        }
     }
 
     public static class Char
@@ -281,5 +602,10 @@ public class BitmapFont implements IFont
         public  int page;
         public  int chnl;
         private int id;
+
+        public int getID()
+        {
+            return id;
+        }
     }
 }
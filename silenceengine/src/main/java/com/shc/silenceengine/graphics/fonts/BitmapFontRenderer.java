@@ -27,7 +27,9 @@ package com.shc.silenceengine.graphics.fonts;
 import com.shc.silenceengine.graphics.Color;
 import com.shc.silenceengine.graphics.DynamicRenderer;
 import com.shc.silenceengine.graphics.opengl.Primitive;
+import com.shc.silenceengine.graphics.opengl.Texture;
 import com.shc.silenceengine.graphics.programs.FontProgram;
+import com.shc.silenceengine.graphics.programs.SdfFontProgram;
 import com.shc.silenceengine.math.Vector2;
 import com.shc.silenceengine.utils.functional.UniCallback;
 
@@ -36,10 +38,18 @@ import com.shc.silenceengine.utils.functional.UniCallback;
  */
 public class BitmapFontRenderer
 {
+    // Half the width of the anti-aliased edge of distance field glyphs, in pixels on the screen
+    private static final float EDGE_SMOOTHING = 0.5f;
+
     private DynamicRenderer renderer;
     private FontProgram     fontProgram;
+    private SdfFontProgram  sdfFontProgram;
     private boolean         ownsRenderer;
 
+    private TextLayout layout = new TextLayout();
+
+    private boolean distanceField;
+
     private BitmapFontRenderer()
     {
     }
@@ -56,24 +66,65 @@ public class BitmapFontRenderer
 
     private static void create(UniCallback<BitmapFontRenderer> callback, DynamicRenderer renderer, boolean ownsRenderer)
     {
-        FontProgram.create(fontProgram ->
+        FontProgram.create(fontProgram -> SdfFontProgram.createDistanceField(sdfFontProgram ->
         {
             BitmapFontRenderer fontRenderer = new BitmapFontRenderer();
             fontRenderer.renderer = renderer;
             fontRenderer.ownsRenderer = ownsRenderer;
             fontRenderer.fontProgram = fontProgram;
+            fontRenderer.sdfFontProgram = sdfFontProgram;
 
             callback.invoke(fontRenderer);
-        });
+        }));
     }
 
     public void begin()
     {
-        fontProgram.use();
-        fontProgram.applyToRenderer(renderer);
+        if (distanceField)
+        {
+            sdfFontProgram.use();
+            sdfFontProgram.applyToRenderer(renderer);
+        }
+        else
+        {
+            fontProgram.use();
+            fontProgram.applyToRenderer(renderer);
+        }
+
         renderer.begin(Primitive.TRIANGLES);
     }
 
+    /**
+     * Switches to the program that can render a font, and updates the edge smoothing of distance field fonts for the
+     * scale they are drawn at. The batch is only broken when something actually changes.
+     */
+    private void prepareFont(BitmapFont font, float scale)
+    {
+        boolean sdf = font.isDistanceField();
+
+        if (sdf != distanceField)
+        {
+            end();
+            distanceField = sdf;
+            begin();
+        }
+
+        if (!sdf)
+            return;
+
+        // One pixel on the screen covers 1 / scale pixels of the glyph metrics, and the field changes by
+        // 1 / (2 * spread) for every pixel of the glyph metrics
+        float value = EDGE_SMOOTHING / (2 * font.getDistanceFieldSpread() * scale);
+
+        // Ask the uniform instead of remembering the value here, since the uniform handles are created again when the
+        // program is relinked by the hot reloader
+        if (!sdfFontProgram.isSmoothing(value))
+        {
+            renderer.flush();
+            sdfFontProgram.setSmoothing(value);
+        }
+    }
+
     public void flush()
     {
         renderer.flush();
@@ -86,89 +137,114 @@ public class BitmapFontRenderer
 
     public void render(BitmapFont font, String text, float x, float y, Color color)
     {
-        final float startX = x;
-        final float startY = y;
+        render(layout.set(font, text), x, y, 1, color);
+    }
 
-        BitmapFont.Char last;
+    /**
+     * Renders text scaled around its top left corner. Fonts that are loaded as distance fields stay sharp at any scale,
+     * other fonts are scaled with bilinear filtering.
+     *
+     * @param font  The font to render the text with.
+     * @param text  The text to render.
+     * @param x     The x-coordinate of the top left of the text.
+     * @param y     The y-coordinate of the top left of the text.
+     * @param scale The scale of the text, compared to the size of the font.
+     * @param color The color of the text.
+     */
+    public void render(BitmapFont font, String text, float x, float y, float scale, Color color)
+    {
+        render(layout.set(font, text), x, y, scale, color);
+    }
 
-        for (int page : font.pages.keySet())
-        {
-            x = startX;
-            y = startY;
-            last = null;
+    /**
+     * Renders text that is already laid out. Only the pages of the font that the text uses are bound, and a page that
+     * is already bound doesn't break the batch.
+     *
+     * @param layout The layout of the text.
+     * @param x      The x-coordinate of the top left of the text.
+     * @param y      The y-coordinate of the top left of the text.
+     * @param scale  The scale of the text, compared to the size of the font.
+     * @param color  The color of the text.
+     */
+    public void render(TextLayout layout, float x, float y, float scale, Color color)
+    {
+        BitmapFont font = layout.getFont();
+        float[] glyphs = layout.getGlyphData();
 
-            end();
-            font.pages.get(page).bind(0);
-            begin();
+        prepareFont(font, scale);
+
+        for (int i = 0; i < layout.getNumUsedPages(); i++)
+        {
+            int page = layout.getUsedPage(i);
+            Texture texture = font.pages.get(page);
 
-            for (char ch : text.toCharArray())
+            if (Texture.CURRENT != texture)
             {
-                if (ch == '\n')
-                {
-                    x = startX;
-                    y += font.common.lineHeight;
+                end();
+                texture.bind(0);
+                begin();
+            }
 
+            for (int g = 0; g < layout.getNumGlyphs(); g++)
+            {
+                if (layout.getGlyphPage(g) != page)
                     continue;
-                }
 
-                BitmapFont.Char fChar = font.chars.get((int) ch);
-                fChar = fChar == null ? font.chars.get((int) ' ') : fChar;
+                int offset = g * TextLayout.FLOATS_PER_GLYPH;
 
-                if (last != null)
-                    x += font.getKerning(last, fChar);
+                float dLeft = x + glyphs[offset] * scale;
+                float dTop = y + glyphs[offset + 1] * scale;
+                float dRight = x + glyphs[offset + 2] * scale;
+                float dBot = y + glyphs[offset + 3] * scale;
 
-                if (page == fChar.page)
-                {
-                    float sLeft = fChar.x;
-                    float sTop = fChar.y;
-                    float sRight = fChar.x + fChar.width;
-                    float sBot = fChar.y + fChar.height;
+                float u1 = glyphs[offset + 4];
+                float v1 = glyphs[offset + 5];
+                float u2 = glyphs[offset + 6];
+                float v2 = glyphs[offset + 7];
 
-                    float dLeft = x + fChar.xOffset;
-                    float dTop = y + fChar.yOffset;
-                    float dRight = dLeft + fChar.width;
-                    float dBot = dTop + fChar.height;
+                renderer.flushOnOverflow(6);
 
-                    // Draw the character here
-                    float u1 = sLeft / font.common.scaleW;
-                    float v1 = sTop / font.common.scaleH;
-                    float u2 = sRight / font.common.scaleW;
-                    float v2 = sBot / font.common.scaleH;
+                renderer.vertex(dLeft, dTop);
+                renderer.texCoord(u1, v1);
+                renderer.color(color);
 
-                    renderer.flushOnOverflow(6);
+                renderer.vertex(dRight, dTop);
+                renderer.texCoord(u2, v1);
+                renderer.color(color);
 
-                    renderer.vertex(dLeft, dTop);
-                    renderer.texCoord(u1, v1);
-                    renderer.color(color);
+                renderer.vertex(dLeft, dBot);
+                renderer.texCoord(u1, v2);
+                renderer.color(color);
 
-                    renderer.vertex(dRight, dTop);
-                    renderer.texCoord(u2, v1);
-                    renderer.color(color);
+                renderer.vertex(dRight, dTop);
+                renderer.texCoord(u2, v1);
+                renderer.color(color);
 
-                    renderer.vertex(dLeft, dBot);
-                    renderer.texCoord(u1, v2);
-                    renderer.color(color);
+                renderer.vertex(dRight, dBot);
+                renderer.texCoord(u2, v2);
+                renderer.color(color);
 
-                    renderer.vertex(dRight, dTop);
-                    renderer.texCoord(u2, v1);
-                    renderer.color(color);
-
-                    renderer.vertex(dRight, dBot);
-                    renderer.texCoord(u2, v2);
-                    renderer.color(color);
-
-                    renderer.vertex(dLeft, dBot);
-                    renderer.texCoord(u1, v2);
-                    renderer.color(color);
-                }
-
-                x += fChar.xAdvance;
-
-                last = fChar;
+                renderer.vertex(dLeft, dBot);
+                renderer.texCoord(u1, v2);
+                renderer.color(color);
             }
         }
     }
 
+    /**
+     * Renders a static text from its cached mesh. The text that is batched so far is flushed first, so that the draw
+     * order is kept.
+     *
+     * @param text The static text to render.
+     */
+    public void render(StaticText text)
+    {
+        prepareFont(text.getFont(), text.getScale());
+
+        renderer.flush();
+        text.render(renderer);
+    }
+
     public void render(BitmapFont font, String text, Vector2 position, Color color)
     {
         render(font, text, position.x, position.y, color);
@@ -186,6 +262,9 @@ public class BitmapFontRenderer
 
     public void dispose()
     {
+        fontProgram.dispose();
+        sdfFontProgram.dispose();
+
         if (ownsRenderer)
             renderer.dispose();
     }
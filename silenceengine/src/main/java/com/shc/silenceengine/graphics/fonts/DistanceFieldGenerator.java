@@ -0,0 +1,191 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.graphics.fonts;
+
+import com.shc.silenceengine.graphics.Color;
+import com.shc.silenceengine.graphics.Image;
+
+/**
+ * Generates signed distance field atlases from the coverage atlases of bitmap fonts. Every pixel of the generated image
+ * stores the distance to the nearest edge of a glyph in its alpha, mapped so that the edge is at 0.5, the inside is
+ * above it and the outside is below it. Since the distance varies smoothly, the field can be stored at a fraction of the
+ * resolution of the source atlas and still be rendered sharply at any scale with the {@link
+ * com.shc.silenceengine.graphics.programs.SdfFontProgram}.
+ *
+ * <p>The distances are computed exactly with the linear time Euclidean distance transform of Felzenszwalb and
+ * Huttenlocher, once for the pixels inside the glyphs and once for the pixels outside.</p>
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public final class DistanceFieldGenerator
+{
+    private static final float INFINITY = 1e20f;
+
+    private DistanceFieldGenerator()
+    {
+    }
+
+    /**
+     * Generates a distance field from the alpha channel of an image.
+     *
+     * @param source    The coverage atlas. Pixels with an alpha of at least 0.5 are inside the glyphs.
+     * @param spread    The distance in pixels of the source atlas that the field covers on either side of the edges.
+     * @param downscale The factor to shrink the field by, compared to the source atlas.
+     *
+     * @return The distance field, as a white image with the distances stored in the alpha channel.
+     */
+    public static Image generate(Image source, float spread, int downscale)
+    {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int size = width * height;
+
+        float[] outside = new float[size];
+        float[] inside = new float[size];
+
+        Color pixel = Color.REUSABLE_STACK.pop();
+
+        for (int y = 0; y < height; y++)
+        {
+            for (int x = 0; x < width; x++)
+            {
+                boolean in = source.getPixel(x, y, pixel).a >= 0.5f;
+
+                outside[y * width + x] = in ? 0 : INFINITY;
+                inside[y * width + x] = in ? INFINITY : 0;
+            }
+        }
+
+        // Turn both the grids into squared distances to the nearest pixel of the other kind
+        int maxSide = Math.max(width, height);
+
+        float[] f = new float[maxSide];
+        float[] d = new float[maxSide];
+        float[] z = new float[maxSide + 1];
+        int[] v = new int[maxSide];
+
+        transform(outside, width, height, f, d, z, v);
+        transform(inside, width, height, f, d, z, v);
+
+        int fieldWidth = (width + downscale - 1) / downscale;
+        int fieldHeight = (height + downscale - 1) / downscale;
+
+        Image field = new Image(fieldWidth, fieldHeight,
+                (source.getOriginalWidth() + downscale - 1) / downscale,
+                (source.getOriginalHeight() + downscale - 1) / downscale);
+
+        for (int fy = 0; fy < fieldHeight; fy++)
+        {
+            for (int fx = 0; fx < fieldWidth; fx++)
+            {
+                // Average the signed distances of the block of source pixels that this field pixel covers
+                float sum = 0;
+                int count = 0;
+
+                for (int y = fy * downscale; y < Math.min((fy + 1) * downscale, height); y++)
+                {
+                    for (int x = fx * downscale; x < Math.min((fx + 1) * downscale, width); x++)
+                    {
+                        int i = y * width + x;
+                        sum += (float) (Math.sqrt(outside[i]) - Math.sqrt(inside[i]));
+                        count++;
+                    }
+                }
+
+                float distance = sum / count;
+                float value = Math.max(0, Math.min(1, 0.5f - distance / (2 * spread)));
+
+                field.setPixel(fx, fy, pixel.set(1, 1, 1, value));
+            }
+        }
+
+        Color.REUSABLE_STACK.push(pixel);
+
+        return field;
+    }
+
+    private static void transform(float[] grid, int width, int height, float[] f, float[] d, float[] z, int[] v)
+    {
+        for (int x = 0; x < width; x++)
+        {
+            for (int y = 0; y < height; y++)
+                f[y] = grid[y * width + x];
+
+            transform1D(f, height, d, z, v);
+
+            for (int y = 0; y < height; y++)
+                grid[y * width + x] = d[y];
+        }
+
+        for (int y = 0; y < height; y++)
+        {
+            System.arraycopy(grid, y * width, f, 0, width);
+            transform1D(f, width, d, z, v);
+            System.arraycopy(d, 0, grid, y * width, width);
+        }
+    }
+
+    private static void transform1D(float[] f, int n, float[] d, float[] z, int[] v)
+    {
+        // The lower envelope of the parabolas rooted at every sample
+        int k = 0;
+
+        v[0] = 0;
+        z[0] = -INFINITY;
+        z[1] = INFINITY;
+
+        for (int q = 1; q < n; q++)
+        {
+            float s = intersection(f, q, v[k]);
+
+            while (s <= z[k])
+            {
+                k--;
+                s = intersection(f, q, v[k]);
+            }
+
+            k++;
+            v[k] = q;
+            z[k] = s;
+            z[k + 1] = INFINITY;
+        }
+
+        k = 0;
+
+        for (int q = 0; q < n; q++)
+        {
+            while (z[k + 1] < q)
+                k++;
+
+            float dq = q - v[k];
+            d[q] = dq * dq + f[v[k]];
+        }
+    }
+
+    private static float intersection(float[] f, int q, int p)
+    {
+        return ((f[q] + q * q) - (f[p] + p * p)) / (2 * q - 2 * p);
+    }
+}
@@ -0,0 +1,336 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.graphics.fonts;
+
+import com.shc.silenceengine.core.IResource;
+import com.shc.silenceengine.core.SilenceEngine;
+import com.shc.silenceengine.graphics.Color;
+import com.shc.silenceengine.graphics.DynamicRenderer;
+import com.shc.silenceengine.graphics.opengl.BufferObject;
+import com.shc.silenceengine.graphics.opengl.GLContext;
+import com.shc.silenceengine.graphics.opengl.Primitive;
+import com.shc.silenceengine.graphics.opengl.Program;
+import com.shc.silenceengine.graphics.opengl.VertexArray;
+import com.shc.silenceengine.io.DirectBuffer;
+import com.shc.silenceengine.io.PrimitiveSize;
+
+import static com.shc.silenceengine.graphics.IGraphicsDevice.Constants.*;
+
+/**
+ * A string that is laid out once and kept on the GPU as a static mesh, for text that is drawn every frame but rarely
+ * changes, like the labels of a HUD. The mesh is only rebuilt when the text, font, color or position is changed, and
+ * drawing it is a single draw call for every page of the font the text uses. Draw it with {@link
+ * BitmapFontRenderer#render(StaticText)}, and dispose it when it is no longer needed.
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public class StaticText implements IResource
+{
+    private static final int NUM_COMPONENTS     = 2 + 4 + 2;
+    private static final int STRIDE             = NUM_COMPONENTS * PrimitiveSize.FLOAT;
+    private static final int VERTICES_PER_GLYPH = 6;
+
+    private TextLayout layout = new TextLayout();
+
+    private BitmapFont font;
+    private String     text;
+    private Color      color = new Color().set(Color.WHITE);
+    private float      x;
+    private float      y;
+    private float      scale = 1;
+
+    private boolean dirty = true;
+    private int     fontVersion;
+
+    private VertexArray  vao;
+    private BufferObject vbo;
+
+    private int[] pageFirstVertex = new int[4];
+    private int[] pageNumVertices = new int[4];
+
+    public StaticText(BitmapFont font, String text)
+    {
+        this.font = font;
+        this.text = text;
+    }
+
+    public StaticText(BitmapFont font, String text, float x, float y, Color color)
+    {
+        this(font, text);
+
+        this.x = x;
+        this.y = y;
+        this.color.set(color);
+    }
+
+    void render(DynamicRenderer renderer)
+    {
+        // The font is swapped in place when it is reloaded, which moves the glyphs and the pages
+        if (dirty || font.getVersion() != fontVersion)
+            build(renderer);
+
+        if (layout.getNumGlyphs() == 0)
+            return;
+
+        Program.CURRENT.prepareFrame();
+
+        for (int i = 0; i < layout.getNumUsedPages(); i++)
+        {
+            font.pages.get(layout.getUsedPage(i)).bind(0);
+            GLContext.drawArrays(vao, Primitive.TRIANGLES, pageFirstVertex[i], pageNumVertices[i]);
+        }
+    }
+
+    private void build(DynamicRenderer renderer)
+    {
+        dirty = false;
+        fontVersion = font.getVersion();
+        layout.set(font, text);
+
+        int numGlyphs = layout.getNumGlyphs();
+
+        if (numGlyphs == 0)
+            return;
+
+        if (vao == null)
+        {
+            vao = new VertexArray();
+            vbo = new BufferObject(BufferObject.Target.ARRAY_BUFFER);
+        }
+
+        int numPages = layout.getNumUsedPages();
+
+        if (pageFirstVertex.length < numPages)
+        {
+            pageFirstVertex = new int[numPages];
+            pageNumVertices = new int[numPages];
+        }
+
+        DirectBuffer data = SilenceEngine.io.create(numGlyphs * VERTICES_PER_GLYPH * STRIDE);
+        float[] glyphs = layout.getGlyphData();
+
+        int vertex = 0;
+
+        // The glyphs of each page are written together, so that every page is drawn from a single range
+        for (int i = 0; i < numPages; i++)
+        {
+            int page = layout.getUsedPage(i);
+            pageFirstVertex[i] = vertex;
+
+            for (int g = 0; g < numGlyphs; g++)
+            {
+                if (layout.getGlyphPage(g) != page)
+                    continue;
+
+                int offset = g * TextLayout.FLOATS_PER_GLYPH;
+
+                float left = x + glyphs[offset] * scale;
+                float top = y + glyphs[offset + 1] * scale;
+                float right = x + glyphs[offset + 2] * scale;
+                float bottom = y + glyphs[offset + 3] * scale;
+
+                float u1 = glyphs[offset + 4];
+                float v1 = glyphs[offset + 5];
+                float u2 = glyphs[offset + 6];
+                float v2 = glyphs[offset + 7];
+
+                writeVertex(data, vertex++, left, top, u1, v1);
+                writeVertex(data, vertex++, right, top, u2, v1);
+                writeVertex(data, vertex++, left, bottom, u1, v2);
+                writeVertex(data, vertex++, right, top, u2, v1);
+                writeVertex(data, vertex++, right, bottom, u2, v2);
+                writeVertex(data, vertex++, left, bottom, u1, v2);
+            }
+
+            pageNumVertices[i] = vertex - pageFirstVertex[i];
+        }
+
+        vbo.uploadData(data, BufferObject.Usage.STATIC_DRAW);
+        SilenceEngine.io.free(data);
+
+        vao.bind();
+
+        int vertexLocation = renderer.getVertexLocation();
+        int colorLocation = renderer.getColorLocation();
+        int texCoordLocation = renderer.getTexCoordLocation();
+
+        int attributes = 0;
+
+        if (vertexLocation != -1)
+        {
+            vao.pointAttribute(vertexLocation, 2, GL_FLOAT, false, STRIDE, 0, vbo);
+            attributes |= 1 << vertexLocation;
+        }
+
+        if (colorLocation != -1)
+        {
+            vao.pointAttribute(colorLocation, 4, GL_FLOAT, false, STRIDE, 2 * PrimitiveSize.FLOAT, vbo);
+            attributes |= 1 << colorLocation;
+        }
+
+        if (texCoordLocation != -1)
+        {
+            vao.pointAttribute(texCoordLocation, 2, GL_FLOAT, false, STRIDE, 6 * PrimitiveSize.FLOAT, vbo);
+            attributes |= 1 << texCoordLocation;
+        }
+
+        vao.setEnabledAttributeArrays(attributes);
+    }
+
+    private void writeVertex(DirectBuffer data, int vertex, float px, float py, float u, float v)
+    {
+        int offset = vertex * STRIDE;
+
+        data.writeFloat(offset, px)
+                .writeFloat(offset + 4, py)
+                .writeFloat(offset + 8, color.r)
+                .writeFloat(offset + 12, color.g)
+                .writeFloat(offset + 16, color.b)
+                .writeFloat(offset + 20, color.a)
+                .writeFloat(offset + 24, u)
+                .writeFloat(offset + 28, v);
+    }
+
+    public BitmapFont getFont()
+    {
+        return font;
+    }
+
+    public StaticText setFont(BitmapFont font)
+    {
+        if (this.font != font)
+        {
+            this.font = font;
+            dirty = true;
+        }
+
+        return this;
+    }
+
+    public String getText()
+    {
+        return text;
+    }
+
+    public StaticText setText(String text)
+    {
+        if (!this.text.equals(text))
+        {
+            this.text = text;
+            dirty = true;
+        }
+
+        return this;
+    }
+
+    /**
+     * @return A copy of the color of the text. Changing it does not change the text, use {@link #setColor(Color)}.
+     */
+    public Color getColor()
+    {
+        return color.copy();
+    }
+
+    public StaticText setColor(Color color)
+    {
+        if (!this.color.equals(color))
+        {
+            this.color.set(color);
+            dirty = true;
+        }
+
+        return this;
+    }
+
+    public float getX()
+    {
+        return x;
+    }
+
+    public float getY()
+    {
+        return y;
+    }
+
+    public StaticText setPosition(float x, float y)
+    {
+        if (this.x != x || this.y != y)
+        {
+            this.x = x;
+            this.y = y;
+            dirty = true;
+        }
+
+        return this;
+    }
+
+    public float getScale()
+    {
+        return scale;
+    }
+
+    /**
+     * Sets the scale of the text around its top left corner. Text in distance field fonts stays sharp at any scale.
+     *
+     * @param scale The scale of the text, compared to the size of the font.
+     *
+     * @return This static text, for chaining.
+     */
+    public StaticText setScale(float scale)
+    {
+        if (this.scale != scale)
+        {
+            this.scale = scale;
+            dirty = true;
+        }
+
+        return this;
+    }
+
+    public float getWidth()
+    {
+        return layout.set(font, text).getWidth() * scale;
+    }
+
+    public float getHeight()
+    {
+        return layout.set(font, text).getHeight() * scale;
+    }
+
+    @Override
+    public void dispose()
+    {
+        if (vao != null)
+        {
+            vao.dispose();
+            vbo.dispose();
+
+            vao = null;
+            vbo = null;
+        }
+
+        dirty = true;
+    }
+}
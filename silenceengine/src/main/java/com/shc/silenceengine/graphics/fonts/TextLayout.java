@@ -0,0 +1,221 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.graphics.fonts;
+
+/**
+ * The computed layout of a string in a {@link BitmapFont}. It stores a quad for every visible glyph, with positions
+ * relative to the top left of the text, along with the pages of the font that the glyphs are on. Setting the same font
+ * and text again doesn't redo the layout, so a layout can be kept around for strings that don't change often.
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public class TextLayout
+{
+    static final int FLOATS_PER_GLYPH = 8;
+
+    private BitmapFont font;
+    private String     text;
+    private int        fontVersion;
+
+    // The quads of the glyphs, as left, top, right, bottom, u1, v1, u2, v2
+    private float[] glyphs     = new float[16 * FLOATS_PER_GLYPH];
+    private int[]   glyphPages = new int[16];
+    private int     numGlyphs;
+
+    private int[] usedPages = new int[4];
+    private int   numUsedPages;
+
+    private float width;
+    private float height;
+
+    public TextLayout()
+    {
+    }
+
+    public TextLayout(BitmapFont font, String text)
+    {
+        set(font, text);
+    }
+
+    /**
+     * Lays out a string in a font, unless this layout already holds the same string in the same font.
+     *
+     * @param font The font to lay out the text in.
+     * @param text The text to lay out.
+     *
+     * @return This layout, for chaining.
+     */
+    public TextLayout set(BitmapFont font, String text)
+    {
+        if (font == this.font && font.getVersion() == fontVersion && text.equals(this.text))
+            return this;
+
+        this.font = font;
+        this.text = text;
+        fontVersion = font.getVersion();
+
+        numGlyphs = 0;
+        numUsedPages = 0;
+        width = 0;
+
+        float x = 0;
+        float y = 0;
+
+        BitmapFont.Char last = null;
+
+        for (int i = 0; i < text.length(); i++)
+        {
+            char ch = text.charAt(i);
+
+            if (ch == '\n')
+            {
+                width = Math.max(x, width);
+                x = 0;
+                y += font.common.lineHeight;
+                last = null;
+
+                continue;
+            }
+
+            BitmapFont.Char fChar = font.getCharOrDefault(ch);
+
+            if (last != null)
+                x += font.getKerning(last, fChar);
+
+            if (fChar.width > 0 && fChar.height > 0)
+                addGlyph(fChar, x, y);
+
+            x += fChar.xAdvance;
+            last = fChar;
+        }
+
+        width = Math.max(x, width);
+        height = y + font.common.lineHeight;
+
+        return this;
+    }
+
+    /**
+     * Forgets the current layout, so that the next call to {@link #set(BitmapFont, String)} lays out the text again.
+     */
+    public void invalidate()
+    {
+        font = null;
+        text = null;
+    }
+
+    private void addGlyph(BitmapFont.Char fChar, float x, float y)
+    {
+        if (numGlyphs == glyphPages.length)
+        {
+            float[] newGlyphs = new float[glyphs.length * 2];
+            int[] newGlyphPages = new int[glyphPages.length * 2];
+
+            System.arraycopy(glyphs, 0, newGlyphs, 0, glyphs.length);
+            System.arraycopy(glyphPages, 0, newGlyphPages, 0, glyphPages.length);
+
+            glyphs = newGlyphs;
+            glyphPages = newGlyphPages;
+        }
+
+        int offset = numGlyphs * FLOATS_PER_GLYPH;
+
+        float left = x + fChar.xOffset;
+        float top = y + fChar.yOffset;
+
+        glyphs[offset] = left;
+        glyphs[offset + 1] = top;
+        glyphs[offset + 2] = left + fChar.width;
+        glyphs[offset + 3] = top + fChar.height;
+
+        glyphs[offset + 4] = (float) fChar.x / font.common.scaleW;
+        glyphs[offset + 5] = (float) fChar.y / font.common.scaleH;
+        glyphs[offset + 6] = (float) (fChar.x + fChar.width) / font.common.scaleW;
+        glyphs[offset + 7] = (float) (fChar.y + fChar.height) / font.common.scaleH;
+
+        glyphPages[numGlyphs++] = fChar.page;
+
+        for (int i = 0; i < numUsedPages; i++)
+            if (usedPages[i] == fChar.page)
+                return;
+
+        if (numUsedPages == usedPages.length)
+        {
+            int[] newUsedPages = new int[usedPages.length * 2];
+            System.arraycopy(usedPages, 0, newUsedPages, 0, usedPages.length);
+            usedPages = newUsedPages;
+        }
+
+        usedPages[numUsedPages++] = fChar.page;
+    }
+
+    float[] getGlyphData()
+    {
+        return glyphs;
+    }
+
+    public BitmapFont getFont()
+    {
+        return font;
+    }
+
+    public String getText()
+    {
+        return text;
+    }
+
+    public int getNumGlyphs()
+    {
+        return numGlyphs;
+    }
+
+    public int getGlyphPage(int index)
+    {
+        return glyphPages[index];
+    }
+
+    /**
+     * @return The number of distinct pages of the font that the glyphs are on.
+     */
+    public int getNumUsedPages()
+    {
+        return numUsedPages;
+    }
+
+    public int getUsedPage(int index)
+    {
+        return usedPages[index];
+    }
+
+    public float getWidth()
+    {
+        return width;
+    }
+
+    public float getHeight()
+    {
+        return height;
+    }
+}
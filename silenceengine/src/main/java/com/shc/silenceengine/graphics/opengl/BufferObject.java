@@ -27,9 +27,6 @@ package com.shc.silenceengine.graphics.opengl;
 import com.shc.silenceengine.core.SilenceEngine;
 import com.shc.silenceengine.io.DirectBuffer;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import static com.shc.silenceengine.graphics.IGraphicsDevice.Constants.*;
 
 /**
@@ -43,8 +40,6 @@ import static com.shc.silenceengine.graphics.IGraphicsDevice.Constants.*;
  */
 public class BufferObject
 {
-    static Map<Integer, BufferObject> current = new HashMap<>();
-
     private int id;
     private int capacity;
 
@@ -100,13 +95,21 @@ public class BufferObject
             throw new GLException("BufferObject is already disposed!");
 
         // Prevent un-necessary bindings, they are costly
-        if (current.containsKey(target.getValue()) && current.get(target.getValue()) == this)
-            return;
+        GLStateCache.bindBuffer(target.getValue(), id);
+    }
 
-        SilenceEngine.graphics.glBindBuffer(target.getValue(), id);
-        current.put(target.getValue(), this);
+    /**
+     * Binds this BufferObject to an indexed binding point of its target, which also binds it to the generic binding
+     * point. This is only valid for indexed targets like {@code GL_UNIFORM_BUFFER}.
+     *
+     * @param index The index of the binding point.
+     */
+    public void bindBase(int index)
+    {
+        if (disposed)
+            throw new GLException("BufferObject is already disposed!");
 
-        GLError.check();
+        GLStateCache.bindBufferBase(target.getValue(), index, id);
     }
 
     /**
@@ -174,10 +177,9 @@ public class BufferObject
      */
     public void dispose()
     {
-        SilenceEngine.graphics.glBindBuffer(target.getValue(), 0);
-        GLError.check();
         SilenceEngine.graphics.glDeleteBuffers(id);
         GLError.check();
+        GLStateCache.bufferDeleted(id);
         disposed = true;
     }
 
@@ -222,7 +224,8 @@ public class BufferObject
     public enum Target
     {
         ARRAY_BUFFER(GL_ARRAY_BUFFER),
-        ELEMENT_ARRAY_BUFFER(GL_ELEMENT_ARRAY_BUFFER);
+        ELEMENT_ARRAY_BUFFER(GL_ELEMENT_ARRAY_BUFFER),
+        UNIFORM_BUFFER(GL_UNIFORM_BUFFER);
 
         int value;
 
@@ -98,14 +98,10 @@ public class Framebuffer
         if (disposed)
             throw new GLException("Cannot bind a disposed framebuffer");
 
-        if (!force && CURRENT == this)
+        if (!GLStateCache.bindFramebuffer(target.getValue(), id, force))
             return;
 
-        SilenceEngine.graphics.glBindFramebuffer(target.getValue(), id);
-        GLError.check();
-
-        SilenceEngine.graphics.glViewport(0, 0, SilenceEngine.display.getWidth(), SilenceEngine.display.getHeight());
-        GLError.check();
+        GLStateCache.viewport(0, 0, SilenceEngine.display.getWidth(), SilenceEngine.display.getHeight());
 
         SilenceEngine.graphics.glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
         GLError.check();
@@ -133,6 +129,7 @@ public class Framebuffer
 
         SilenceEngine.graphics.glDeleteFramebuffers(id);
         GLError.check();
+        GLStateCache.framebufferDeleted(id);
 
         disposed = true;
     }
@@ -40,20 +40,17 @@ public final class GLContext
 
     public static void enable(int capability)
     {
-        SilenceEngine.graphics.glEnable(capability);
-        GLError.check();
+        GLStateCache.enable(capability);
     }
 
     public static void blendFunc(int src, int dst)
     {
-        SilenceEngine.graphics.glBlendFunc(src, dst);
-        GLError.check();
+        GLStateCache.blendFunc(src, dst);
     }
 
     public static void disable(int capability)
     {
-        SilenceEngine.graphics.glDisable(capability);
-        GLError.check();
+        GLStateCache.disable(capability);
     }
 
     /**
@@ -126,9 +123,7 @@ public final class GLContext
     {
         if (vao == null)
         {
-            SilenceEngine.graphics.glBindVertexArray(0);
-            GLError.check();
-
+            GLStateCache.bindVertexArray(0, false);
             VertexArray.CURRENT = null;
             return;
         }
@@ -145,10 +140,7 @@ public final class GLContext
     {
         if (vbo == null)
         {
-            SilenceEngine.graphics.glBindBuffer(GL_ARRAY_BUFFER, 0);
-            GLError.check();
-
-            BufferObject.current.clear();
+            GLStateCache.bindBuffer(GL_ARRAY_BUFFER, 0);
             return;
         }
 
@@ -165,8 +157,7 @@ public final class GLContext
      */
     public static void viewport(int x, int y, int width, int height)
     {
-        SilenceEngine.graphics.glViewport(x, y, width, height);
-        GLError.check();
+        GLStateCache.viewport(x, y, width, height);
     }
 
     /**
@@ -176,19 +167,16 @@ public final class GLContext
      */
     public static void depthMask(boolean value)
     {
-        SilenceEngine.graphics.glDepthMask(value);
-        GLError.check();
+        GLStateCache.depthMask(value);
     }
 
     public static void depthFunc(int func)
     {
-        SilenceEngine.graphics.glDepthFunc(func);
-        GLError.check();
+        GLStateCache.depthFunc(func);
     }
 
     public static void cullFace(int mode)
     {
-        SilenceEngine.graphics.glCullFace(mode);
-        GLError.check();
+        GLStateCache.cullFace(mode);
     }
 }
@@ -0,0 +1,554 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.graphics.opengl;
+
+import com.shc.silenceengine.core.SilenceEngine;
+
+import static com.shc.silenceengine.graphics.IGraphicsDevice.Constants.*;
+
+/**
+ * A central cache of the OpenGL state that is set through the wrappers in this package. Every wrapper routes its
+ * binds and state changes through this class, and a call is only issued to the driver when the requested state
+ * differs from the one that is already known to be set. Any state that is not yet known is always issued.
+ *
+ * <p>If you call OpenGL functions directly through {@code SilenceEngine.graphics}, the cache can no longer trust what
+ * it knows, so call {@link #invalidate()} afterwards to make the next state changes reach the driver.</p>
+ *
+ * <p>The number of issued and skipped calls is counted per frame, and can be queried with {@link #getIssuedCalls()}
+ * and {@link #getSkippedCalls()} for the last completed frame. The uniform uploads skipped by the shadow values of
+ * {@link Uniform} are not state changes, so they are counted separately in {@link #getSkippedUniformCalls()}.</p>
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public final class GLStateCache
+{
+    private static final int UNKNOWN           = -1;
+    private static final int MAX_TEXTURE_UNITS = 32;
+
+    private static int program     = UNKNOWN;
+    private static int vertexArray = UNKNOWN;
+    private static int framebuffer = UNKNOWN;
+
+    private static int   activeTextureUnit = UNKNOWN;
+    private static int[] textures          = new int[MAX_TEXTURE_UNITS];
+
+    private static IntState buffers      = new IntState();
+    private static IntState capabilities = new IntState();
+
+    private static int blendSrc  = UNKNOWN;
+    private static int blendDst  = UNKNOWN;
+    private static int depthMask = UNKNOWN;
+    private static int depthFunc = UNKNOWN;
+    private static int cullFace  = UNKNOWN;
+
+    private static int viewportX      = UNKNOWN;
+    private static int viewportY      = UNKNOWN;
+    private static int viewportWidth  = UNKNOWN;
+    private static int viewportHeight = UNKNOWN;
+
+    private static int issuedCalls;
+    private static int skippedCalls;
+    private static int lastIssuedCalls;
+    private static int lastSkippedCalls;
+    private static int skippedUniformCalls;
+    private static int lastSkippedUniformCalls;
+
+    static
+    {
+        invalidate();
+    }
+
+    private GLStateCache()
+    {
+    }
+
+    /**
+     * Forgets all the cached state, so that every following state change is issued to the driver. Use this after
+     * making raw OpenGL calls that bypass the wrappers, or after the context has been lost and recreated.
+     */
+    public static void invalidate()
+    {
+        program = UNKNOWN;
+        vertexArray = UNKNOWN;
+        framebuffer = UNKNOWN;
+        activeTextureUnit = UNKNOWN;
+
+        for (int i = 0; i < MAX_TEXTURE_UNITS; i++)
+            textures[i] = UNKNOWN;
+
+        buffers.clear();
+        capabilities.clear();
+
+        blendSrc = blendDst = UNKNOWN;
+        depthMask = depthFunc = cullFace = UNKNOWN;
+        viewportX = viewportY = viewportWidth = viewportHeight = UNKNOWN;
+    }
+
+    /**
+     * Marks the beginning of a new frame. The counters of the frame that just completed are made available through
+     * {@link #getIssuedCalls()}, {@link #getSkippedCalls()} and {@link #getSkippedUniformCalls()}, and the counters
+     * are reset for the new frame.
+     */
+    public static void newFrame()
+    {
+        lastIssuedCalls = issuedCalls;
+        lastSkippedCalls = skippedCalls;
+        lastSkippedUniformCalls = skippedUniformCalls;
+
+        issuedCalls = 0;
+        skippedCalls = 0;
+        skippedUniformCalls = 0;
+    }
+
+    /**
+     * Uses the program with the given ID.
+     *
+     * @param id The ID of the program.
+     *
+     * @return True if the call was issued, false if the program is already in use.
+     */
+    public static boolean useProgram(int id)
+    {
+        if (program == id)
+            return skipped();
+
+        SilenceEngine.graphics.glUseProgram(id);
+        GLError.check();
+
+        program = id;
+        return issued();
+    }
+
+    /**
+     * Binds the vertex array with the given ID. Since the element array buffer binding is a part of the vertex array
+     * state, it is forgotten whenever a different vertex array is bound.
+     *
+     * @param id    The ID of the vertex array.
+     * @param force Whether to issue the call even if the vertex array is known to be bound.
+     *
+     * @return True if the call was issued, false if the vertex array is already bound.
+     */
+    public static boolean bindVertexArray(int id, boolean force)
+    {
+        if (!force && vertexArray == id)
+            return skipped();
+
+        SilenceEngine.graphics.glBindVertexArray(id);
+        GLError.check();
+
+        vertexArray = id;
+        buffers.put(GL_ELEMENT_ARRAY_BUFFER, UNKNOWN);
+
+        return issued();
+    }
+
+    /**
+     * Binds the buffer with the given ID to a target.
+     *
+     * @param target The binding target, like {@code GL_ARRAY_BUFFER}.
+     * @param id     The ID of the buffer.
+     *
+     * @return True if the call was issued, false if the buffer is already bound to that target.
+     */
+    public static boolean bindBuffer(int target, int id)
+    {
+        if (buffers.get(target) == id)
+            return skipped();
+
+        SilenceEngine.graphics.glBindBuffer(target, id);
+        GLError.check();
+
+        buffers.put(target, id);
+        return issued();
+    }
+
+    /**
+     * Binds the buffer with the given ID to an indexed binding point of a target. The indexed bindings are not
+     * tracked, so this call is always issued, but the generic binding of the target is updated to match.
+     *
+     * @param target The indexed binding target, like {@code GL_UNIFORM_BUFFER}.
+     * @param index  The index of the binding point.
+     * @param id     The ID of the buffer.
+     */
+    public static void bindBufferBase(int target, int index, int id)
+    {
+        SilenceEngine.graphics.glBindBufferBase(target, index, id);
+        GLError.check();
+
+        buffers.put(target, id);
+        issued();
+    }
+
+    /**
+     * Binds the framebuffer with the given ID to a target.
+     *
+     * @param target The binding target, like {@code GL_FRAMEBUFFER}.
+     * @param id     The ID of the framebuffer.
+     * @param force  Whether to issue the call even if the framebuffer is known to be bound.
+     *
+     * @return True if the call was issued, false if the framebuffer is already bound.
+     */
+    public static boolean bindFramebuffer(int target, int id, boolean force)
+    {
+        if (!force && framebuffer == id)
+            return skipped();
+
+        SilenceEngine.graphics.glBindFramebuffer(target, id);
+        GLError.check();
+
+        framebuffer = id;
+        return issued();
+    }
+
+    /**
+     * Selects the active texture unit.
+     *
+     * @param unit The index of the texture unit, starting from zero.
+     *
+     * @return True if the call was issued, false if the unit is already active.
+     */
+    public static boolean activeTexture(int unit)
+    {
+        if (activeTextureUnit == unit)
+            return skipped();
+
+        SilenceEngine.graphics.glActiveTexture(GL_TEXTURE0 + unit);
+        GLError.check();
+
+        activeTextureUnit = unit;
+        return issued();
+    }
+
+    /**
+     * Binds the 2D texture with the given ID to a texture unit, making that unit the active one.
+     *
+     * @param unit The index of the texture unit, starting from zero.
+     * @param id   The ID of the texture.
+     *
+     * @return True if the bind was issued, false if the texture is already bound to that unit.
+     */
+    public static boolean bindTexture(int unit, int id)
+    {
+        activeTexture(unit);
+
+        if (unit < MAX_TEXTURE_UNITS && textures[unit] == id)
+            return skipped();
+
+        SilenceEngine.graphics.glBindTexture(GL_TEXTURE_2D, id);
+        GLError.check();
+
+        if (unit < MAX_TEXTURE_UNITS)
+            textures[unit] = id;
+
+        return issued();
+    }
+
+    /**
+     * Enables an OpenGL capability.
+     *
+     * @param capability The capability, like {@code GL_BLEND}.
+     *
+     * @return True if the call was issued, false if the capability is already enabled.
+     */
+    public static boolean enable(int capability)
+    {
+        if (capabilities.get(capability) == 1)
+            return skipped();
+
+        SilenceEngine.graphics.glEnable(capability);
+        GLError.check();
+
+        capabilities.put(capability, 1);
+        return issued();
+    }
+
+    /**
+     * Disables an OpenGL capability.
+     *
+     * @param capability The capability, like {@code GL_BLEND}.
+     *
+     * @return True if the call was issued, false if the capability is already disabled.
+     */
+    public static boolean disable(int capability)
+    {
+        if (capabilities.get(capability) == 0)
+            return skipped();
+
+        SilenceEngine.graphics.glDisable(capability);
+        GLError.check();
+
+        capabilities.put(capability, 0);
+        return issued();
+    }
+
+    public static boolean blendFunc(int src, int dst)
+    {
+        if (blendSrc == src && blendDst == dst)
+            return skipped();
+
+        SilenceEngine.graphics.glBlendFunc(src, dst);
+        GLError.check();
+
+        blendSrc = src;
+        blendDst = dst;
+        return issued();
+    }
+
+    public static boolean depthMask(boolean value)
+    {
+        int mask = value ? 1 : 0;
+
+        if (depthMask == mask)
+            return skipped();
+
+        SilenceEngine.graphics.glDepthMask(value);
+        GLError.check();
+
+        depthMask = mask;
+        return issued();
+    }
+
+    public static boolean depthFunc(int func)
+    {
+        if (depthFunc == func)
+            return skipped();
+
+        SilenceEngine.graphics.glDepthFunc(func);
+        GLError.check();
+
+        depthFunc = func;
+        return issued();
+    }
+
+    public static boolean cullFace(int mode)
+    {
+        if (cullFace == mode)
+            return skipped();
+
+        SilenceEngine.graphics.glCullFace(mode);
+        GLError.check();
+
+        cullFace = mode;
+        return issued();
+    }
+
+    public static boolean viewport(int x, int y, int width, int height)
+    {
+        if (viewportX == x && viewportY == y && viewportWidth == width && viewportHeight == height)
+            return skipped();
+
+        SilenceEngine.graphics.glViewport(x, y, width, height);
+        GLError.check();
+
+        viewportX = x;
+        viewportY = y;
+        viewportWidth = width;
+        viewportHeight = height;
+        return issued();
+    }
+
+    /**
+     * Forgets the bindings of a program that is being deleted, since OpenGL no longer considers it bound.
+     */
+    static void programDeleted(int id)
+    {
+        if (program == id)
+            program = UNKNOWN;
+    }
+
+    static void vertexArrayDeleted(int id)
+    {
+        if (vertexArray == id)
+        {
+            vertexArray = 0;
+            buffers.put(GL_ELEMENT_ARRAY_BUFFER, UNKNOWN);
+        }
+    }
+
+    static void bufferDeleted(int id)
+    {
+        buffers.replace(id, 0);
+    }
+
+    static void framebufferDeleted(int id)
+    {
+        if (framebuffer == id)
+            framebuffer = 0;
+    }
+
+    static void textureDeleted(int id)
+    {
+        for (int i = 0; i < MAX_TEXTURE_UNITS; i++)
+            if (textures[i] == id)
+                textures[i] = 0;
+    }
+
+    static boolean issued()
+    {
+        issuedCalls++;
+        return true;
+    }
+
+    static boolean skipped()
+    {
+        skippedCalls++;
+        return false;
+    }
+
+    static boolean uniformSkipped()
+    {
+        skippedUniformCalls++;
+        return false;
+    }
+
+    public static int getProgram()
+    {
+        return program;
+    }
+
+    public static int getVertexArray()
+    {
+        return vertexArray;
+    }
+
+    public static int getBuffer(int target)
+    {
+        return buffers.get(target);
+    }
+
+    public static int getActiveTextureUnit()
+    {
+        return activeTextureUnit;
+    }
+
+    public static int getTexture(int unit)
+    {
+        return unit < MAX_TEXTURE_UNITS ? textures[unit] : UNKNOWN;
+    }
+
+    public static boolean isEnabled(int capability)
+    {
+        return capabilities.get(capability) == 1;
+    }
+
+    /**
+     * @return The number of calls that were issued to the driver in the last completed frame.
+     */
+    public static int getIssuedCalls()
+    {
+        return lastIssuedCalls;
+    }
+
+    /**
+     * @return The number of redundant calls that were skipped in the last completed frame.
+     */
+    public static int getSkippedCalls()
+    {
+        return lastSkippedCalls;
+    }
+
+    /**
+     * @return The number of uniform uploads that were skipped in the last completed frame, because the uniform
+     * already had the same value.
+     */
+    public static int getSkippedUniformCalls()
+    {
+        return lastSkippedUniformCalls;
+    }
+
+    public static int getIssuedCallsThisFrame()
+    {
+        return issuedCalls;
+    }
+
+    public static int getSkippedCallsThisFrame()
+    {
+        return skippedCalls;
+    }
+
+    public static int getSkippedUniformCallsThisFrame()
+    {
+        return skippedUniformCalls;
+    }
+
+    /**
+     * A tiny map from a GL enum to the value last set for it. There are only ever a handful of keys, so a linear
+     * search over primitive arrays is faster than boxing them into a HashMap.
+     */
+    private static final class IntState
+    {
+        private int[] keys   = new int[8];
+        private int[] values = new int[8];
+        private int   size;
+
+        int get(int key)
+        {
+            for (int i = 0; i < size; i++)
+                if (keys[i] == key)
+                    return values[i];
+
+            return UNKNOWN;
+        }
+
+        void put(int key, int value)
+        {
+            for (int i = 0; i < size; i++)
+            {
+                if (keys[i] == key)
+                {
+                    values[i] = value;
+                    return;
+                }
+            }
+
+            if (size == keys.length)
+            {
+                int[] newKeys = new int[size * 2];
+                int[] newValues = new int[size * 2];
+
+                System.arraycopy(keys, 0, newKeys, 0, size);
+                System.arraycopy(values, 0, newValues, 0, size);
+
+                keys = newKeys;
+                values = newValues;
+            }
+
+            keys[size] = key;
+            values[size++] = value;
+        }
+
+        void replace(int value, int replacement)
+        {
+            for (int i = 0; i < size; i++)
+                if (values[i] == value)
+                    values[i] = replacement;
+        }
+
+        void clear()
+        {
+            size = 0;
+        }
+    }
+}
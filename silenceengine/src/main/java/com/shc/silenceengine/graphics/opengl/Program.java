@@ -24,9 +24,9 @@
 
 package com.shc.silenceengine.graphics.opengl;
 
+import com.shc.silenceengine.core.HotReloader;
 import com.shc.silenceengine.core.SilenceEngine;
 import com.shc.silenceengine.graphics.Color;
-import com.shc.silenceengine.io.DirectFloatBuffer;
 import com.shc.silenceengine.math.Matrix3;
 import com.shc.silenceengine.math.Matrix4;
 import com.shc.silenceengine.math.Transform;
@@ -34,7 +34,10 @@ import com.shc.silenceengine.math.Vector2;
 import com.shc.silenceengine.math.Vector3;
 import com.shc.silenceengine.math.Vector4;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static com.shc.silenceengine.graphics.IGraphicsDevice.Constants.*;
@@ -44,30 +47,25 @@ import static com.shc.silenceengine.graphics.IGraphicsDevice.Constants.*;
  */
 public class Program
 {
-    private static DirectFloatBuffer m3Buffer;
-    private static DirectFloatBuffer m4Buffer;
-
     public static Program CURRENT;
 
     private int     id;
     private boolean disposed;
 
-    private Map<String, Integer> uniformLocations;
+    private Map<String, Uniform> uniforms;
+    private List<Uniform>        uniformList;
     private Map<String, Integer> attributeLocations;
 
+    private HotReloader.Watch[] watches;
+
     public Program()
     {
         id = SilenceEngine.graphics.glCreateProgram();
         GLError.check();
 
-        uniformLocations = new HashMap<>();
+        uniforms = new HashMap<>();
+        uniformList = new ArrayList<>();
         attributeLocations = new HashMap<>();
-
-        if (m3Buffer == null)
-            m3Buffer = new DirectFloatBuffer(9);
-
-        if (m4Buffer == null)
-            m4Buffer = new DirectFloatBuffer(16);
     }
 
     public void attach(Shader shader)
@@ -83,6 +81,106 @@ public class Program
 
         if (SilenceEngine.graphics.glGetProgrami(id, GL_LINK_STATUS) != GL_TRUE)
             throw new GLException("Unable to link program:\n" + getInfoLog());
+
+        resolveUniforms();
+    }
+
+    /**
+     * Replaces the shaders of this program in place, by linking them into a new OpenGL program. The old program is
+     * deleted only if the new one links successfully, otherwise this program is left as it was. The uniforms are
+     * resolved again, so the subclasses that keep uniform handles should look them up again in {@link #link()}. This is
+     * used to reload the shaders while the game is running.
+     *
+     * @param shaders The compiled shaders of the new program.
+     *
+     * @throws GLException If the new program could not be linked.
+     */
+    public void relink(Shader... shaders)
+    {
+        int oldID = id;
+
+        id = SilenceEngine.graphics.glCreateProgram();
+        GLError.check();
+
+        try
+        {
+            for (Shader shader : shaders)
+                attach(shader);
+
+            link();
+        }
+        catch (RuntimeException e)
+        {
+            SilenceEngine.graphics.glDeleteProgram(id);
+            id = oldID;
+
+            throw e;
+        }
+
+        SilenceEngine.graphics.glDeleteProgram(oldID);
+        GLError.check();
+        GLStateCache.programDeleted(oldID);
+
+        attributeLocations.clear();
+
+        if (CURRENT == this)
+            CURRENT = null;
+    }
+
+    /**
+     * Enumerates the active uniforms of this program after it is linked, and creates a handle for each of them. The
+     * elements of uniform arrays can be looked up both with and without the trailing {@code [0]} in their names.
+     */
+    private void resolveUniforms()
+    {
+        uniforms.clear();
+        uniformList.clear();
+
+        int count = SilenceEngine.graphics.glGetProgrami(id, GL_ACTIVE_UNIFORMS);
+        GLError.check();
+
+        int[] size = new int[1];
+        int[] type = new int[1];
+
+        for (int i = 0; i < count; i++)
+        {
+            String name = SilenceEngine.graphics.glGetActiveUniform(id, i, size, type);
+            GLError.check();
+
+            int location = SilenceEngine.graphics.glGetUniformLocation(id, name);
+            GLError.check();
+
+            Uniform uniform = new Uniform(this, name, location, type[0], size[0]);
+
+            uniforms.put(name, uniform);
+            uniformList.add(uniform);
+
+            if (name.endsWith("[0]"))
+                uniforms.put(name.substring(0, name.length() - 3), uniform);
+        }
+    }
+
+    /**
+     * Connects a uniform block of this program to a uniform buffer binding point. Programs that declare the block
+     * then read their values from the buffer bound at that point, instead of having them uploaded one by one.
+     *
+     * @param blockName    The name of the uniform block in the shader source.
+     * @param bindingPoint The index of the binding point.
+     *
+     * @return True if the block is declared in this program, false otherwise.
+     */
+    public boolean bindUniformBlock(String blockName, int bindingPoint)
+    {
+        int blockIndex = SilenceEngine.graphics.glGetUniformBlockIndex(id, blockName);
+        GLError.check();
+
+        if (blockIndex == GL_INVALID_INDEX)
+            return false;
+
+        SilenceEngine.graphics.glUniformBlockBinding(id, blockIndex, bindingPoint);
+        GLError.check();
+
+        return true;
     }
 
     public String getInfoLog()
@@ -106,14 +204,11 @@ public class Program
 
     public void use()
     {
-        if (CURRENT == this)
-            return;
-
         if (disposed)
             throw new GLException("Cannot use disposed Program");
 
-        SilenceEngine.graphics.glUseProgram(id);
-        GLError.check();
+        if (!GLStateCache.useProgram(id))
+            return;
 
         CURRENT = this;
 
@@ -124,138 +219,147 @@ public class Program
     {
     }
 
-    public int getUniform(String name)
+    /**
+     * Returns the handle to a uniform of this program. Uniforms that are not active in the program (they could have
+     * been optimized out by the driver) still get a handle with a location of -1, so setting them is harmless.
+     *
+     * @param name The name of the uniform in the shader source.
+     *
+     * @return The handle to the uniform.
+     */
+    public Uniform getUniformHandle(String name)
     {
-        use();
+        Uniform uniform = uniforms.get(name);
 
-        if (uniformLocations.containsKey(name))
-            return uniformLocations.get(name);
+        if (uniform == null)
+        {
+            int location = SilenceEngine.graphics.glGetUniformLocation(id, name);
+            GLError.check();
 
-        int location = SilenceEngine.graphics.glGetUniformLocation(id, name);
-        uniformLocations.put(name, location);
+            uniform = getUniformHandle(location);
+            uniforms.put(name, uniform);
+        }
 
-        GLError.check();
-        return location;
+        return uniform;
     }
 
-    public void setUniform(String name, boolean value)
+    /**
+     * Returns the handle to the uniform at a location, creating one if the location was not found by enumeration.
+     *
+     * @param location The location of the uniform.
+     *
+     * @return The handle to the uniform.
+     */
+    public Uniform getUniformHandle(int location)
     {
-        setUniform(getUniform(name), value);
+        // Programs only have a handful of uniforms, a linear search is cheaper than boxing the location
+        for (int i = 0; i < uniformList.size(); i++)
+        {
+            Uniform uniform = uniformList.get(i);
+
+            if (uniform.getLocation() == location)
+                return uniform;
+        }
+
+        Uniform uniform = new Uniform(this, null, location, 0, 1);
+        uniformList.add(uniform);
+
+        return uniform;
     }
 
-    public void setUniform(int location, boolean value)
+    /**
+     * @return The handles to all the uniforms of this program that are known so far.
+     */
+    public List<Uniform> getUniforms()
     {
-        use();
-        SilenceEngine.graphics.glUniform1i(location, value ? GL_TRUE : GL_FALSE);
-        GLError.check();
+        return Collections.unmodifiableList(uniformList);
     }
 
-    public void setUniform(int location, int... values)
+    /**
+     * Forgets the last uploaded values of all the uniforms, so that the next values set are always uploaded. Use this
+     * when the uniforms are changed with raw OpenGL calls.
+     */
+    public void invalidateUniforms()
     {
-        if (values.length > 4)
-            throw new GLException("Uniform component cannot have more than 4 components");
+        for (Uniform uniform : uniformList)
+            uniform.invalidate();
+    }
 
+    public int getUniform(String name)
+    {
+        // Callers of this method expect the program to be in use, so that they can upload the uniform right after
         use();
+        return getUniformHandle(name).getLocation();
+    }
 
-        switch (values.length)
-        {
-            case 1:
-                SilenceEngine.graphics.glUniform1i(location, values[0]);
-                break;
-
-            case 2:
-                SilenceEngine.graphics.glUniform2i(location, values[0], values[1]);
-                break;
-
-            case 3:
-                SilenceEngine.graphics.glUniform3i(location, values[0], values[1], values[2]);
-                break;
+    public void setUniform(String name, boolean value)
+    {
+        getUniformHandle(name).set(value);
+    }
 
-            case 4:
-                SilenceEngine.graphics.glUniform4i(location, values[0], values[1], values[2], values[3]);
-                break;
-        }
+    public void setUniform(int location, boolean value)
+    {
+        getUniformHandle(location).set(value);
+    }
 
-        GLError.check();
+    public void setUniform(int location, int... values)
+    {
+        getUniformHandle(location).set(values);
     }
 
     public void setUniform(String name, int... values)
     {
-        setUniform(getUniform(name), values);
+        getUniformHandle(name).set(values);
     }
 
     public void setUniform(String name, float... values)
     {
-        setUniform(getUniform(name), values);
+        getUniformHandle(name).set(values);
     }
 
     public void setUniform(int location, Vector2 value)
     {
-        setUniform(location, value.x, value.y);
+        getUniformHandle(location).set(value);
     }
 
     public void setUniform(int location, float... values)
     {
-        if (values.length > 4)
-            throw new GLException("Uniform component cannot have more than 4 components");
-
-        use();
-
-        switch (values.length)
-        {
-            case 1:
-                SilenceEngine.graphics.glUniform1f(location, values[0]);
-                break;
-
-            case 2:
-                SilenceEngine.graphics.glUniform2f(location, values[0], values[1]);
-                break;
-
-            case 3:
-                SilenceEngine.graphics.glUniform3f(location, values[0], values[1], values[2]);
-                break;
-
-            case 4:
-                SilenceEngine.graphics.glUniform4f(location, values[0], values[1], values[2], values[3]);
-                break;
-        }
-
-        GLError.check();
+        getUniformHandle(location).set(values);
     }
 
     public void setUniform(int location, Vector3 value)
     {
-        setUniform(location, value.x, value.y, value.z);
+        getUniformHandle(location).set(value);
     }
 
     public void setUniform(int location, Color value)
     {
-        setUniform(location, value.r, value.g, value.b, value.a);
+        getUniformHandle(location).set(value);
     }
 
     public void setUniform(int location, Vector4 value)
     {
-        setUniform(location, value.x, value.y, value.z, value.w);
+        getUniformHandle(location).set(value);
     }
 
     public void setUniform(String name, Vector2 value)
     {
-        setUniform(name, value.x, value.y);
+        getUniformHandle(name).set(value);
     }
 
     public void setUniform(String name, Vector3 value)
     {
-        setUniform(name, value.x, value.y, value.z);
+        getUniformHandle(name).set(value);
     }
 
     public void setUniform(String name, Vector4 value)
     {
-        setUniform(name, value.x, value.y, value.z, value.w);
+        getUniformHandle(name).set(value);
     }
 
     public void setUniform(String name, Color value)
     {
-        setUniform(name, value.r, value.g, value.b, value.a);
+        getUniformHandle(name).set(value);
     }
 
     public void setUniform(int location, Matrix3 value)
@@ -265,11 +369,7 @@ public class Program
 
     public void setUniform(int location, boolean transpose, Matrix3 value)
     {
-        use();
-
-        SilenceEngine.graphics.glUniformMatrix3fv(location, transpose, value.storeInto(m3Buffer));
-
-        GLError.check();
+        getUniformHandle(location).set(transpose, value);
     }
 
     public void setUniform(int location, Matrix4 value)
@@ -284,15 +384,12 @@ public class Program
 
     public void setUniform(int location, boolean transpose, Matrix4 value)
     {
-        use();
-
-        SilenceEngine.graphics.glUniformMatrix4fv(location, transpose, value.storeInto(m4Buffer));
-        GLError.check();
+        getUniformHandle(location).set(transpose, value);
     }
 
     public void setUniform(String name, boolean transpose, Matrix3 value)
     {
-        setUniform(getUniform(name), transpose, value);
+        getUniformHandle(name).set(transpose, value);
     }
 
     public void setUniform(String name, Matrix3 value)
@@ -302,7 +399,7 @@ public class Program
 
     public void setUniform(String name, boolean transpose, Matrix4 value)
     {
-        setUniform(getUniform(name), transpose, value);
+        getUniformHandle(name).set(transpose, value);
     }
 
     public void setUniform(String name, Matrix4 value)
@@ -315,11 +412,33 @@ public class Program
         setUniform(name, false, value.matrix);
     }
 
+    /**
+     * Sets the watches that reload the shaders of this program, so that they are removed when this program is disposed.
+     *
+     * @param watches The watches of the shader files.
+     */
+    public void setWatches(HotReloader.Watch... watches)
+    {
+        this.watches = watches;
+    }
+
     public void dispose()
     {
+        if (watches != null)
+        {
+            for (HotReloader.Watch watch : watches)
+                watch.remove();
+
+            watches = null;
+        }
+
         SilenceEngine.graphics.glDeleteProgram(id);
         GLError.check();
+        GLStateCache.programDeleted(id);
         disposed = true;
+
+        if (CURRENT == this)
+            CURRENT = null;
     }
 
     public int getId()
@@ -39,8 +39,15 @@ import static com.shc.silenceengine.graphics.IGraphicsDevice.Constants.*;
  */
 public class Texture implements IResource
 {
-    private static int activeUnit;
+    // The width, height, original width, original height and the number of levels of a mip chain payload
+    private static final int MIP_CHAIN_HEADER_SIZE = 20;
 
+    private static int       activeUnit;
+    private static Texture[] boundTextures = new Texture[32];
+
+    /**
+     * The texture that is bound to the active texture unit.
+     */
     public static Texture CURRENT;
     public static Texture EMPTY;
 
@@ -67,14 +74,10 @@ public class Texture implements IResource
 
     public static void setActiveUnit(int unit)
     {
-        if (unit == activeUnit)
-            return;
-
-        GLError.check();
-        SilenceEngine.graphics.glActiveTexture(GL_TEXTURE0 + unit);
-        GLError.check();
+        GLStateCache.activeTexture(unit);
 
         activeUnit = unit;
+        CURRENT = unit < boundTextures.length ? boundTextures[unit] : null;
     }
 
     public static Texture fromColor(Color c, int width, int height)
@@ -132,6 +135,152 @@ public class Texture implements IResource
         return texture;
     }
 
+    /**
+     * Converts an image into a mip chain payload, which holds the RGBA pixels of all the mip levels that the texture of
+     * the image needs. The payload is what the processed asset cache stores for textures, and it is uploaded with the
+     * {@link #fromMipChain(DirectBuffer)} method. Just like {@link #fromDirectBuffer(DirectBuffer, int, int, int)},
+     * only the images that are at least 128 pixels wide and high get mip levels.
+     *
+     * @param image The image to be converted.
+     *
+     * @return A new DirectBuffer with the mip chain payload.
+     */
+    public static DirectBuffer toMipChain(Image image)
+    {
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        int levels = 1;
+
+        if (width >= 128 && height >= 128)
+            while ((width >> levels) > 0 || (height >> levels) > 0)
+                levels++;
+
+        int size = MIP_CHAIN_HEADER_SIZE;
+
+        for (int level = 0; level < levels; level++)
+            size += Math.max(1, width >> level) * Math.max(1, height >> level) * 4;
+
+        DirectBuffer chain = SilenceEngine.io.create(size);
+        chain.writeInt(0, width)
+                .writeInt(4, height)
+                .writeInt(8, image.getOriginalWidth())
+                .writeInt(12, image.getOriginalHeight())
+                .writeInt(16, levels);
+
+        Color color = Color.REUSABLE_STACK.pop();
+
+        // Every row is built in an array and written at once, the backends copy the whole array natively
+        byte[] row = new byte[width * 4];
+        int index = MIP_CHAIN_HEADER_SIZE;
+
+        for (int y = 0; y < height; y++)
+        {
+            for (int x = 0, i = 0; x < width; x++)
+            {
+                image.getPixel(x, y, color);
+
+                row[i++] = (byte) (color.r * 255f);
+                row[i++] = (byte) (color.g * 255f);
+                row[i++] = (byte) (color.b * 255f);
+                row[i++] = (byte) (color.a * 255f);
+            }
+
+            chain.put(index, row, 0, row.length);
+            index += row.length;
+        }
+
+        Color.REUSABLE_STACK.push(color);
+
+        // Every level is the box filtered version of the previous level
+        byte[] row0 = new byte[width * 4];
+        byte[] row1 = new byte[width * 4];
+
+        int source = MIP_CHAIN_HEADER_SIZE;
+
+        for (int level = 1; level < levels; level++)
+        {
+            int srcWidth = Math.max(1, width >> (level - 1));
+            int srcHeight = Math.max(1, height >> (level - 1));
+            int dstWidth = Math.max(1, width >> level);
+            int dstHeight = Math.max(1, height >> level);
+
+            for (int y = 0; y < dstHeight; y++)
+            {
+                int y0 = Math.min(y * 2, srcHeight - 1);
+                int y1 = Math.min(y * 2 + 1, srcHeight - 1);
+
+                chain.get(source + y0 * srcWidth * 4, row0, 0, srcWidth * 4);
+                chain.get(source + y1 * srcWidth * 4, row1, 0, srcWidth * 4);
+
+                for (int x = 0, i = 0; x < dstWidth; x++)
+                {
+                    int x0 = Math.min(x * 2, srcWidth - 1) * 4;
+                    int x1 = Math.min(x * 2 + 1, srcWidth - 1) * 4;
+
+                    for (int c = 0; c < 4; c++)
+                    {
+                        int sum = (row0[x0 + c] & 0xFF) + (row0[x1 + c] & 0xFF)
+                                  + (row1[x0 + c] & 0xFF) + (row1[x1 + c] & 0xFF);
+
+                        row[i++] = (byte) ((sum + 2) / 4);
+                    }
+                }
+
+                chain.put(index, row, 0, dstWidth * 4);
+                index += dstWidth * 4;
+            }
+
+            source += srcWidth * srcHeight * 4;
+        }
+
+        return chain;
+    }
+
+    /**
+     * Creates a texture from a mip chain payload that is created by the {@link #toMipChain(Image)} method. All the mip
+     * levels are uploaded directly from the payload, without any conversion.
+     *
+     * @param chain The DirectBuffer with the mip chain payload.
+     *
+     * @return The created texture.
+     */
+    public static Texture fromMipChain(DirectBuffer chain)
+    {
+        int width = chain.readInt(0);
+        int height = chain.readInt(4);
+        int levels = chain.readInt(16);
+
+        Texture texture = new Texture();
+        texture.bind();
+
+        int offset = MIP_CHAIN_HEADER_SIZE;
+
+        for (int level = 0; level < levels; level++)
+        {
+            int levelWidth = Math.max(1, width >> level);
+            int levelHeight = Math.max(1, height >> level);
+            int size = levelWidth * levelHeight * 4;
+
+            DirectBuffer levelData = chain.slice(offset, size);
+            texture.image2d(levelData, level, GL_UNSIGNED_BYTE, GL_RGBA, levelWidth, levelHeight, GL_RGBA);
+            SilenceEngine.io.free(levelData);
+
+            offset += size;
+        }
+
+        // The chain always goes down to a single pixel, so the texture is mipmap complete
+        if (levels > 1)
+            texture.setFilter(GL_LINEAR_MIPMAP_LINEAR, GL_LINEAR);
+        else
+            texture.setFilter(GL_LINEAR, GL_LINEAR);
+
+        texture.width = chain.readInt(8);
+        texture.height = chain.readInt(12);
+
+        return texture;
+    }
+
     public static Texture fromDirectBuffer(DirectBuffer buffer, int width, int height, int components)
     {
         Texture texture = new Texture();
@@ -151,14 +300,13 @@ public class Texture implements IResource
 
     public void bind()
     {
-        if (CURRENT == this)
-            return;
-
         if (disposed)
             throw new GLException("Cannot bind a disposed texture!");
 
-        SilenceEngine.graphics.glBindTexture(GL_TEXTURE_2D, id);
-        GLError.check();
+        GLStateCache.bindTexture(activeUnit, id);
+
+        if (activeUnit < boundTextures.length)
+            boundTextures[activeUnit] = this;
 
         CURRENT = this;
     }
@@ -235,6 +383,36 @@ public class Texture implements IResource
         return new SubTexture(this, minU, minV, maxU, maxV, width, height);
     }
 
+    /**
+     * Replaces the image of this texture with the image of another texture in place, so that everything that refers to
+     * this texture (like the sub textures and the fonts) sees the new image. The other texture is consumed, and is
+     * disposed without deleting its image. This is used to reload textures while the game is running.
+     *
+     * @param other The texture to take the image from.
+     */
+    public void swap(Texture other)
+    {
+        if (isDisposed() || other.isDisposed())
+            throw new SilenceException("Unable to swap a disposed texture.");
+
+        SilenceEngine.graphics.glDeleteTextures(id);
+        GLError.check();
+        GLStateCache.textureDeleted(id);
+
+        id = other.id;
+        width = other.width;
+        height = other.height;
+
+        other.disposed = true;
+
+        for (int i = 0; i < boundTextures.length; i++)
+            if (boundTextures[i] == other)
+                boundTextures[i] = this;
+
+        if (CURRENT == other)
+            CURRENT = this;
+    }
+
     public void dispose()
     {
         if (isDisposed())
@@ -242,8 +420,13 @@ public class Texture implements IResource
 
         SilenceEngine.graphics.glDeleteTextures(id);
         GLError.check();
+        GLStateCache.textureDeleted(id);
         disposed = true;
 
+        for (int i = 0; i < boundTextures.length; i++)
+            if (boundTextures[i] == this)
+                boundTextures[i] = null;
+
         EMPTY.bind(activeUnit);
     }
 
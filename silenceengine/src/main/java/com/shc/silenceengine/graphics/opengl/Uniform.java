@@ -0,0 +1,412 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.graphics.opengl;
+
+import com.shc.silenceengine.core.SilenceEngine;
+import com.shc.silenceengine.graphics.Color;
+import com.shc.silenceengine.io.DirectFloatBuffer;
+import com.shc.silenceengine.math.Matrix3;
+import com.shc.silenceengine.math.Matrix4;
+import com.shc.silenceengine.math.Transform;
+import com.shc.silenceengine.math.Vector2;
+import com.shc.silenceengine.math.Vector3;
+import com.shc.silenceengine.math.Vector4;
+
+import static com.shc.silenceengine.graphics.IGraphicsDevice.Constants.*;
+
+/**
+ * A handle to a single uniform of a {@link Program}. Handles are resolved once when the program is linked, so setting
+ * a value through a handle needs no name lookups. Every handle also keeps a shadow copy of the value that was last
+ * uploaded, and the {@code glUniform*} call is skipped when the same value is set again.
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public class Uniform
+{
+    private static final int KIND_NONE  = 0;
+    private static final int KIND_FLOAT = 1;
+    private static final int KIND_INT   = 2;
+    private static final int KIND_MAT3  = 3;
+    private static final int KIND_MAT4  = 4;
+
+    private static DirectFloatBuffer m3Buffer;
+    private static DirectFloatBuffer m4Buffer;
+
+    private final Program program;
+    private final String  name;
+    private final int     location;
+    private final int     type;
+    private final int     size;
+
+    private final float[] floats = new float[16];
+    private final int[]   ints   = new int[4];
+
+    private int cachedKind;
+    private int cachedCount;
+
+    Uniform(Program program, String name, int location, int type, int size)
+    {
+        this.program = program;
+        this.name = name;
+        this.location = location;
+        this.type = type;
+        this.size = size;
+    }
+
+    public void set(boolean value)
+    {
+        set(value ? GL_TRUE : GL_FALSE);
+    }
+
+    public void set(int value)
+    {
+        if (isCached(KIND_INT, 1) && ints[0] == value)
+        {
+            GLStateCache.uniformSkipped();
+            return;
+        }
+
+        upload();
+        SilenceEngine.graphics.glUniform1i(location, value);
+        GLError.check();
+
+        ints[0] = value;
+        cache(KIND_INT, 1);
+    }
+
+    public void set(int... values)
+    {
+        if (values.length > 4)
+            throw new GLException("Uniform component cannot have more than 4 components");
+
+        if (isCached(KIND_INT, values.length) && equals(ints, values, values.length))
+        {
+            GLStateCache.uniformSkipped();
+            return;
+        }
+
+        upload();
+
+        switch (values.length)
+        {
+            case 1:
+                SilenceEngine.graphics.glUniform1i(location, values[0]);
+                break;
+
+            case 2:
+                SilenceEngine.graphics.glUniform2i(location, values[0], values[1]);
+                break;
+
+            case 3:
+                SilenceEngine.graphics.glUniform3i(location, values[0], values[1], values[2]);
+                break;
+
+            case 4:
+                SilenceEngine.graphics.glUniform4i(location, values[0], values[1], values[2], values[3]);
+                break;
+        }
+
+        GLError.check();
+
+        System.arraycopy(values, 0, ints, 0, values.length);
+        cache(KIND_INT, values.length);
+    }
+
+    public void set(float value)
+    {
+        if (isCached(KIND_FLOAT, 1) && floats[0] == value)
+        {
+            GLStateCache.uniformSkipped();
+            return;
+        }
+
+        upload();
+        SilenceEngine.graphics.glUniform1f(location, value);
+        GLError.check();
+
+        floats[0] = value;
+        cache(KIND_FLOAT, 1);
+    }
+
+    public void set(float x, float y)
+    {
+        if (isCached(KIND_FLOAT, 2) && floats[0] == x && floats[1] == y)
+        {
+            GLStateCache.uniformSkipped();
+            return;
+        }
+
+        upload();
+        SilenceEngine.graphics.glUniform2f(location, x, y);
+        GLError.check();
+
+        floats[0] = x;
+        floats[1] = y;
+        cache(KIND_FLOAT, 2);
+    }
+
+    public void set(float x, float y, float z)
+    {
+        if (isCached(KIND_FLOAT, 3) && floats[0] == x && floats[1] == y && floats[2] == z)
+        {
+            GLStateCache.uniformSkipped();
+            return;
+        }
+
+        upload();
+        SilenceEngine.graphics.glUniform3f(location, x, y, z);
+        GLError.check();
+
+        floats[0] = x;
+        floats[1] = y;
+        floats[2] = z;
+        cache(KIND_FLOAT, 3);
+    }
+
+    public void set(float x, float y, float z, float w)
+    {
+        if (isCached(KIND_FLOAT, 4) && floats[0] == x && floats[1] == y && floats[2] == z && floats[3] == w)
+        {
+            GLStateCache.uniformSkipped();
+            return;
+        }
+
+        upload();
+        SilenceEngine.graphics.glUniform4f(location, x, y, z, w);
+        GLError.check();
+
+        floats[0] = x;
+        floats[1] = y;
+        floats[2] = z;
+        floats[3] = w;
+        cache(KIND_FLOAT, 4);
+    }
+
+    public void set(float... values)
+    {
+        switch (values.length)
+        {
+            case 1:
+                set(values[0]);
+                break;
+
+            case 2:
+                set(values[0], values[1]);
+                break;
+
+            case 3:
+                set(values[0], values[1], values[2]);
+                break;
+
+            case 4:
+                set(values[0], values[1], values[2], values[3]);
+                break;
+
+            default:
+                throw new GLException("Uniform component cannot have more than 4 components");
+        }
+    }
+
+    public void set(Vector2 value)
+    {
+        set(value.x, value.y);
+    }
+
+    public void set(Vector3 value)
+    {
+        set(value.x, value.y, value.z);
+    }
+
+    public void set(Vector4 value)
+    {
+        set(value.x, value.y, value.z, value.w);
+    }
+
+    public void set(Color value)
+    {
+        set(value.r, value.g, value.b, value.a);
+    }
+
+    public void set(Matrix3 value)
+    {
+        set(false, value);
+    }
+
+    public void set(boolean transpose, Matrix3 value)
+    {
+        // The transpose flag is folded into the kind, so that a transposed upload never matches a regular one
+        int kind = transpose ? -KIND_MAT3 : KIND_MAT3;
+
+        if (isCached(kind, 9) && equals(floats, value.m, 3))
+        {
+            GLStateCache.uniformSkipped();
+            return;
+        }
+
+        if (m3Buffer == null)
+            m3Buffer = new DirectFloatBuffer(9);
+
+        upload();
+        SilenceEngine.graphics.glUniformMatrix3fv(location, transpose, value.storeInto(m3Buffer));
+        GLError.check();
+
+        store(floats, value.m, 3);
+        cache(kind, 9);
+    }
+
+    public void set(Matrix4 value)
+    {
+        set(false, value);
+    }
+
+    public void set(boolean transpose, Matrix4 value)
+    {
+        int kind = transpose ? -KIND_MAT4 : KIND_MAT4;
+
+        if (isCached(kind, 16) && equals(floats, value.m, 4))
+        {
+            GLStateCache.uniformSkipped();
+            return;
+        }
+
+        if (m4Buffer == null)
+            m4Buffer = new DirectFloatBuffer(16);
+
+        upload();
+        SilenceEngine.graphics.glUniformMatrix4fv(location, transpose, value.storeInto(m4Buffer));
+        GLError.check();
+
+        store(floats, value.m, 4);
+        cache(kind, 16);
+    }
+
+    public void set(Transform value)
+    {
+        set(false, value.matrix);
+    }
+
+    /**
+     * @param value A single float value.
+     *
+     * @return True if the shadow copy says that this value is already uploaded, so setting it would be skipped.
+     */
+    public boolean isUploaded(float value)
+    {
+        return isCached(KIND_FLOAT, 1) && floats[0] == value;
+    }
+
+    /**
+     * Forgets the shadow copy of the last uploaded value, so that the next value set is always uploaded.
+     */
+    public void invalidate()
+    {
+        cachedKind = KIND_NONE;
+        cachedCount = 0;
+    }
+
+    private boolean isCached(int kind, int count)
+    {
+        return cachedKind == kind && cachedCount == count;
+    }
+
+    private void cache(int kind, int count)
+    {
+        cachedKind = kind;
+        cachedCount = count;
+    }
+
+    private void upload()
+    {
+        program.use();
+    }
+
+    private static boolean equals(int[] cache, int[] values, int count)
+    {
+        for (int i = 0; i < count; i++)
+            if (cache[i] != values[i])
+                return false;
+
+        return true;
+    }
+
+    private static boolean equals(float[] cache, float[][] m, int order)
+    {
+        int index = 0;
+
+        for (int i = 0; i < order; i++)
+            for (int j = 0; j < order; j++)
+                if (cache[index++] != m[i][j])
+                    return false;
+
+        return true;
+    }
+
+    private static void store(float[] cache, float[][] m, int order)
+    {
+        int index = 0;
+
+        for (int i = 0; i < order; i++)
+            for (int j = 0; j < order; j++)
+                cache[index++] = m[i][j];
+    }
+
+    public Program getProgram()
+    {
+        return program;
+    }
+
+    /**
+     * @return The name of this uniform as reported by OpenGL, or null if it was not found by enumeration.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return The location of this uniform. A location of -1 means that the uniform is not active in the program,
+     * and the values set to it are silently ignored by OpenGL.
+     */
+    public int getLocation()
+    {
+        return location;
+    }
+
+    /**
+     * @return The GL type of this uniform, like {@code GL_FLOAT_MAT4}, or zero if it is not known.
+     */
+    public int getType()
+    {
+        return type;
+    }
+
+    /**
+     * @return The number of array elements in this uniform, which is one for uniforms that are not arrays.
+     */
+    public int getSize()
+    {
+        return size;
+    }
+}
@@ -38,6 +38,7 @@ public class VertexArray
     public static VertexArray CURRENT;
 
     private int     id;
+    private int     enabledAttributes;
     private boolean disposed;
 
     /**
@@ -62,8 +63,66 @@ public class VertexArray
     public void enableAttributeArray(int index)
     {
         bind();
+
+        // The enabled arrays are a part of the VAO state, so they are remembered here instead of the GLStateCache
+        if (isAttributeArrayEnabled(index))
+        {
+            GLStateCache.skipped();
+            return;
+        }
+
         SilenceEngine.graphics.glEnableVertexAttribArray(index);
         GLError.check();
+        GLStateCache.issued();
+
+        if (index < 32)
+            enabledAttributes |= 1 << index;
+    }
+
+    /**
+     * Enables the vertex attributes whose bits are set in a mask, and disables the ones that were enabled earlier but
+     * are no longer in the mask. Only the arrays whose state actually changes are issued to OpenGL.
+     *
+     * @param mask The bit mask of attribute indices to keep enabled. Bit {@code n} represents the attribute at index
+     *             {@code n}.
+     */
+    public void setEnabledAttributeArrays(int mask)
+    {
+        int changed = mask ^ enabledAttributes;
+
+        if (changed == 0)
+            return;
+
+        bind();
+
+        // Visit only the bits that differ, lowest index first
+        while (changed != 0)
+        {
+            int index = Integer.numberOfTrailingZeros(changed);
+            int bit = 1 << index;
+
+            if ((mask & bit) != 0)
+                SilenceEngine.graphics.glEnableVertexAttribArray(index);
+            else
+                SilenceEngine.graphics.glDisableVertexAttribArray(index);
+
+            GLError.check();
+            GLStateCache.issued();
+
+            changed &= ~bit;
+        }
+
+        enabledAttributes = mask;
+    }
+
+    /**
+     * @param index The index of the vertex attribute
+     *
+     * @return True if the attribute array is known to be enabled in this VertexArray.
+     */
+    public boolean isAttributeArrayEnabled(int index)
+    {
+        return index < 32 && (enabledAttributes & (1 << index)) != 0;
     }
 
     /**
@@ -84,13 +143,8 @@ public class VertexArray
         if (disposed)
             throw new GLException("VertexArray is disposed!");
 
-        if (force || CURRENT != this)
-        {
-            SilenceEngine.graphics.glBindVertexArray(id);
-            GLError.check();
-
-            CURRENT = this;
-        }
+        GLStateCache.bindVertexArray(id, force);
+        CURRENT = this;
     }
 
     /**
@@ -101,8 +155,19 @@ public class VertexArray
     public void disableAttributeArray(int index)
     {
         bind();
+
+        if (index < 32 && !isAttributeArrayEnabled(index))
+        {
+            GLStateCache.skipped();
+            return;
+        }
+
         SilenceEngine.graphics.glDisableVertexAttribArray(index);
         GLError.check();
+        GLStateCache.issued();
+
+        if (index < 32)
+            enabledAttributes &= ~(1 << index);
     }
 
     /**
@@ -161,11 +226,13 @@ public class VertexArray
      */
     public void dispose()
     {
-        SilenceEngine.graphics.glBindVertexArray(0);
-        GLError.check();
         SilenceEngine.graphics.glDeleteVertexArrays(id);
         GLError.check();
+        GLStateCache.vertexArrayDeleted(id);
         disposed = true;
+
+        if (CURRENT == this)
+            CURRENT = null;
     }
 
     public boolean isValid()
@@ -24,11 +24,14 @@
 
 package com.shc.silenceengine.graphics.programs;
 
+import com.shc.silenceengine.core.HotReloader;
 import com.shc.silenceengine.core.SilenceEngine;
 import com.shc.silenceengine.graphics.DynamicRenderer;
 import com.shc.silenceengine.graphics.cameras.Camera;
+import com.shc.silenceengine.graphics.cameras.CameraUniformBuffer;
 import com.shc.silenceengine.graphics.opengl.Program;
 import com.shc.silenceengine.graphics.opengl.Shader;
+import com.shc.silenceengine.graphics.opengl.Uniform;
 import com.shc.silenceengine.io.FilePath;
 import com.shc.silenceengine.io.FileReader;
 import com.shc.silenceengine.utils.functional.UniCallback;
@@ -42,12 +45,21 @@ public class DynamicProgram extends Program
     public static final String COLOR_ATTRIB    = "color";
     public static final String TEXCOORD_ATTRIB = "texCoords";
 
+    private Uniform proj;
+    private Uniform view;
+
+    private int     cameraVersion = -1;
+    private boolean cameraBlock;
+
     public static void create(UniCallback<DynamicProgram> uniCallback)
     {
         FileReader fileReader = SilenceEngine.io.getFileReader();
 
-        fileReader.readTextFile(FilePath.getResourceFile("engine_resources/shaders/dynamic.vert"), vSource ->
-                fileReader.readTextFile(FilePath.getResourceFile("engine_resources/shaders/dynamic.frag"), fSource ->
+        FilePath vertex = FilePath.getResourceFile("engine_resources/shaders/dynamic.vert");
+        FilePath fragment = FilePath.getResourceFile("engine_resources/shaders/dynamic.frag");
+
+        fileReader.readTextFile(vertex, vSource ->
+                fileReader.readTextFile(fragment, fSource ->
                 {
                     DynamicProgram program = new DynamicProgram();
 
@@ -66,6 +78,8 @@ public class DynamicProgram extends Program
                     vShader.dispose();
                     fShader.dispose();
 
+                    HotReloader.watchProgram(program, vertex, fragment);
+
                     uniCallback.invoke(program);
                 })
         );
@@ -79,12 +93,40 @@ public class DynamicProgram extends Program
         dynamicRenderer.setNormalLocation(-1);
     }
 
+    @Override
+    public void link()
+    {
+        super.link();
+
+        // The program could be linked again when it is reloaded, so the matrices have to be uploaded again
+        cameraVersion = -1;
+
+        cameraBlock = CameraUniformBuffer.bind(this);
+
+        proj = getUniformHandle("proj");
+        view = getUniformHandle("view");
+    }
+
     @Override
     public void prepareFrame()
     {
         use();
 
-        setUniform("proj", Camera.CURRENT.getProjection());
-        setUniform("view", Camera.CURRENT.getView());
+        // The camera block is shared by all programs, and is only uploaded when the camera changes
+        if (cameraBlock)
+            CameraUniformBuffer.update(Camera.CURRENT);
+        else
+        {
+            // Skip the matrix uploads entirely when the camera hasn't changed since the last frame
+            int version = Camera.CURRENT.getVersion();
+
+            if (version != cameraVersion)
+            {
+                proj.set(Camera.CURRENT.getProjection());
+                view.set(Camera.CURRENT.getView());
+
+                cameraVersion = version;
+            }
+        }
     }
 }
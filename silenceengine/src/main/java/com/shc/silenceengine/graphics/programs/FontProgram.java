@@ -24,13 +24,17 @@
 
 package com.shc.silenceengine.graphics.programs;
 
+import com.shc.silenceengine.core.HotReloader;
 import com.shc.silenceengine.core.SilenceEngine;
 import com.shc.silenceengine.graphics.DynamicRenderer;
 import com.shc.silenceengine.graphics.cameras.Camera;
+import com.shc.silenceengine.graphics.cameras.CameraUniformBuffer;
 import com.shc.silenceengine.graphics.opengl.Program;
 import com.shc.silenceengine.graphics.opengl.Shader;
+import com.shc.silenceengine.graphics.opengl.Uniform;
 import com.shc.silenceengine.io.FilePath;
 import com.shc.silenceengine.io.FileReader;
+import com.shc.silenceengine.utils.functional.Provider;
 import com.shc.silenceengine.utils.functional.UniCallback;
 
 /**
@@ -42,14 +46,38 @@ public class FontProgram extends Program
     public static final String COLOR_ATTRIB    = "color";
     public static final String TEXCOORD_ATTRIB = "texCoords";
 
+    private Uniform proj;
+    private Uniform view;
+    private Uniform tex;
+
+    private int     cameraVersion = -1;
+    private boolean cameraBlock;
+
     public static void create(UniCallback<FontProgram> uniCallback)
+    {
+        create(FilePath.getResourceFile("engine_resources/shaders/bitmapfont.frag"), FontProgram::new, uniCallback);
+    }
+
+    /**
+     * Creates a program that uses the vertex shader and the attributes of the font program, with another fragment
+     * shader. This is used by the font programs that shade the glyphs differently.
+     *
+     * @param fragment    The file of the fragment shader.
+     * @param constructor The constructor of the program.
+     * @param uniCallback The callback to receive the linked program.
+     * @param <T>         The type of the program.
+     */
+    protected static <T extends FontProgram> void create(FilePath fragment, Provider<T> constructor,
+                                                         UniCallback<T> uniCallback)
     {
         FileReader fileReader = SilenceEngine.io.getFileReader();
 
-        fileReader.readTextFile(FilePath.getResourceFile("engine_resources/shaders/bitmapfont.vert"), vSource ->
-                fileReader.readTextFile(FilePath.getResourceFile("engine_resources/shaders/bitmapfont.frag"), fSource ->
+        FilePath vertex = FilePath.getResourceFile("engine_resources/shaders/bitmapfont.vert");
+
+        fileReader.readTextFile(vertex, vSource ->
+                fileReader.readTextFile(fragment, fSource ->
                 {
-                    FontProgram program = new FontProgram();
+                    T program = constructor.provide();
 
                     Shader vShader = new Shader(Shader.Type.VERTEX_SHADER);
                     vShader.source(vSource);
@@ -66,6 +94,8 @@ public class FontProgram extends Program
                     vShader.dispose();
                     fShader.dispose();
 
+                    HotReloader.watchProgram(program, vertex, fragment);
+
                     uniCallback.invoke(program);
                 })
         );
@@ -79,13 +109,42 @@ public class FontProgram extends Program
         dynamicRenderer.setNormalLocation(-1);
     }
 
+    @Override
+    public void link()
+    {
+        super.link();
+
+        cameraVersion = -1;
+
+        cameraBlock = CameraUniformBuffer.bind(this);
+
+        proj = getUniformHandle("proj");
+        view = getUniformHandle("view");
+        tex = getUniformHandle("tex");
+    }
+
     @Override
     public void prepareFrame()
     {
         use();
 
-        setUniform("proj", Camera.CURRENT.getProjection());
-        setUniform("view", Camera.CURRENT.getView());
-        setUniform("tex", 0);
+        // The camera block is shared by all programs, and is only uploaded when the camera changes
+        if (cameraBlock)
+            CameraUniformBuffer.update(Camera.CURRENT);
+        else
+        {
+            // Skip the matrix uploads entirely when the camera hasn't changed since the last frame
+            int version = Camera.CURRENT.getVersion();
+
+            if (version != cameraVersion)
+            {
+                proj.set(Camera.CURRENT.getProjection());
+                view.set(Camera.CURRENT.getView());
+
+                cameraVersion = version;
+            }
+        }
+
+        tex.set(0);
     }
 }
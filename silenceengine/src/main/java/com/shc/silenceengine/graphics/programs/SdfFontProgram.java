@@ -0,0 +1,74 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.graphics.programs;
+
+import com.shc.silenceengine.graphics.opengl.Uniform;
+import com.shc.silenceengine.io.FilePath;
+import com.shc.silenceengine.utils.functional.UniCallback;
+
+/**
+ * The program that renders text from the distance field atlases of a {@link com.shc.silenceengine.graphics.fonts.BitmapFont}.
+ * It is a {@link FontProgram} with another fragment shader, which thresholds the distance stored in the atlas instead
+ * of sampling the coverage directly, so the text stays crisp at any scale.
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public class SdfFontProgram extends FontProgram
+{
+    private Uniform smoothing;
+
+    public static void createDistanceField(UniCallback<SdfFontProgram> uniCallback)
+    {
+        create(FilePath.getResourceFile("engine_resources/shaders/sdffont.frag"), SdfFontProgram::new, uniCallback);
+    }
+
+    @Override
+    public void link()
+    {
+        super.link();
+        smoothing = getUniformHandle("smoothing");
+    }
+
+    /**
+     * Sets the width of the anti-aliased edge of the glyphs, in units of the distance stored in the atlas. The value is
+     * only uploaded when it changes.
+     *
+     * @param smoothing Half the width of the edge, around the threshold of 0.5.
+     */
+    public void setSmoothing(float smoothing)
+    {
+        this.smoothing.set(smoothing);
+    }
+
+    /**
+     * @param smoothing The width of the edge, as passed to {@link #setSmoothing(float)}.
+     *
+     * @return True if the program is already using this smoothing, so setting it again would do nothing.
+     */
+    public boolean isSmoothing(float smoothing)
+    {
+        return this.smoothing.isUploaded(smoothing);
+    }
+}
@@ -0,0 +1,452 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.io;
+
+import com.shc.silenceengine.core.SilenceEngine;
+import com.shc.silenceengine.core.SilenceException;
+import com.shc.silenceengine.utils.functional.Promise;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>An AssetPack is a single file ({@code .sepak}) that packs many resources together, so that they can be served
+ * from one memory mapped region instead of looking them up and decompressing them from a JAR one by one. Packs are
+ * built with the {@code packAssets} Gradle task of the engine module, which uses the {@link AssetPackWriter}.</p>
+ *
+ * <p>All the values in the pack are little endian. The pack starts with a header with the magic {@code SEPK}, the
+ * version, the number of entries and the offset of the names table. It is followed by an index of entries sorted by
+ * the hash of their path. Every entry stores the hash, the offset and stored length of the data, the uncompressed
+ * length, the flags and the location of the path in the names table. Entries with the {@link #FLAG_LZ4} flag are
+ * compressed with {@link Lz4}, and the rest are served as slices of the pack without copying.</p>
+ *
+ * <p>Once a pack is mounted, {@link FilePath#getResourceFile(String)} resolves the paths that are in the pack to the
+ * entries of the pack, and the file readers read them from the pack.</p>
+ *
+ * <pre>
+ *     AssetPack.mount(FilePath.getExternalFile("resources.sepak")).then(pack -&gt; loadGame());
+ * </pre>
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public class AssetPack
+{
+    /**
+     * The magic number at the start of every pack, the characters {@code SEPK} in little endian.
+     */
+    public static final int MAGIC = 0x4B504553;
+
+    /**
+     * The version of the pack format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The size of the header in bytes.
+     */
+    public static final int HEADER_SIZE = 16;
+
+    /**
+     * The size of an entry in the index in bytes.
+     */
+    public static final int ENTRY_SIZE = 32;
+
+    /**
+     * The flag of entries that are compressed with LZ4.
+     */
+    public static final int FLAG_LZ4 = 1;
+
+    private static final List<AssetPack> mountedPacks = new ArrayList<>();
+
+    private DirectBuffer data;
+
+    private long[]   hashes;
+    private int[]    offsets;
+    private int[]    storedSizes;
+    private int[]    sizes;
+    private int[]    flags;
+    private String[] names;
+
+    private Map<String, List<String>> directories;
+
+    /**
+     * Constructs an AssetPack over the contents of a pack file. The entries are served directly from the buffer, so it
+     * should not be freed as long as the pack is in use.
+     *
+     * @param data The DirectBuffer with the contents of the pack file.
+     *
+     * @throws SilenceException If the data is not a valid pack.
+     */
+    public AssetPack(DirectBuffer data)
+    {
+        this.data = data;
+
+        if (data.sizeBytes() < HEADER_SIZE || readInt(0) != MAGIC)
+            throw new SilenceException("The data is not a SilenceEngine asset pack");
+
+        if (readInt(4) != VERSION)
+            throw new SilenceException("Unsupported asset pack version " + readInt(4));
+
+        int count = readInt(8);
+        int namesOffset = readInt(12);
+
+        hashes = new long[count];
+        offsets = new int[count];
+        storedSizes = new int[count];
+        sizes = new int[count];
+        flags = new int[count];
+        names = new String[count];
+
+        directories = new HashMap<>();
+
+        for (int i = 0; i < count; i++)
+        {
+            int entry = HEADER_SIZE + i * ENTRY_SIZE;
+
+            hashes[i] = (readInt(entry) & 0xFFFFFFFFL) | ((long) readInt(entry + 4) << 32);
+            offsets[i] = readInt(entry + 8);
+            storedSizes[i] = readInt(entry + 12);
+            sizes[i] = readInt(entry + 16);
+            flags[i] = readInt(entry + 20);
+            names[i] = readName(namesOffset + readInt(entry + 24), readInt(entry + 28));
+
+            addToParent(names[i]);
+        }
+    }
+
+    /**
+     * Mounts a pack file, so that the resource files in it are served from the pack. The file is memory mapped on
+     * backends that support it, and read completely otherwise.
+     *
+     * @param file The path to the pack file.
+     *
+     * @return A promise that is resolved with the mounted pack.
+     */
+    public static Promise<AssetPack> mount(FilePath file)
+    {
+        return new Promise<>((resolve, reject) ->
+                SilenceEngine.io.getFileReader().mapBinaryFile(file, data ->
+                {
+                    AssetPack pack;
+
+                    try
+                    {
+                        pack = new AssetPack(data);
+                    }
+                    catch (Throwable e)
+                    {
+                        reject.invoke(e);
+                        return;
+                    }
+
+                    mount(pack);
+                    resolve.invoke(pack);
+                }, reject));
+    }
+
+    /**
+     * Mounts a pack, so that the resource files in it are served from the pack. Packs that are mounted later take
+     * precedence over the earlier ones.
+     *
+     * @param pack The pack to be mounted.
+     */
+    public static void mount(AssetPack pack)
+    {
+        synchronized (mountedPacks)
+        {
+            mountedPacks.add(0, pack);
+        }
+    }
+
+    /**
+     * Unmounts a pack, so that its files are no longer resolved by the resource file paths.
+     *
+     * @param pack The pack to be unmounted.
+     */
+    public static void unmount(AssetPack pack)
+    {
+        synchronized (mountedPacks)
+        {
+            mountedPacks.remove(pack);
+        }
+    }
+
+    /**
+     * Finds the most recently mounted pack that contains a file or directory.
+     *
+     * @param path The path of the file or directory, relative to the root of the resources.
+     *
+     * @return The pack that contains the path, or null if no mounted pack contains it.
+     */
+    public static AssetPack find(String path)
+    {
+        synchronized (mountedPacks)
+        {
+            for (AssetPack pack : mountedPacks)
+                if (pack.contains(path))
+                    return pack;
+        }
+
+        return null;
+    }
+
+    /**
+     * Resolves a resource path to an entry of a mounted pack.
+     *
+     * @return The FilePath of the pack entry, or null if the path is not in any of the mounted packs.
+     */
+    static FilePath resolve(String path)
+    {
+        if (mountedPacks.isEmpty())
+            return null;
+
+        AssetPackFilePath filePath = new AssetPackFilePath(path, null);
+        filePath.pack = find(filePath.getPath());
+
+        return filePath.pack == null ? null : filePath;
+    }
+
+    /**
+     * Computes the 64-bit FNV-1a hash of the UTF-8 bytes of a path, which is used to index the entries of a pack.
+     *
+     * @param path The path to be hashed.
+     *
+     * @return The hash of the path.
+     */
+    public static long hash(String path)
+    {
+        long hash = 0xCBF29CE484222325L;
+
+        for (byte b : toUTF8(path))
+        {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+
+        return hash;
+    }
+
+    static byte[] toUTF8(String string)
+    {
+        try
+        {
+            return string.getBytes("UTF-8");
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw new SilenceException(e);
+        }
+    }
+
+    /**
+     * @param path The path of a file, relative to the root of the resources.
+     *
+     * @return True if there is a file or a directory with this path in the pack, else false.
+     */
+    public boolean contains(String path)
+    {
+        return indexOf(path) >= 0 || directories.containsKey(path);
+    }
+
+    /**
+     * @param path The path of a file, relative to the root of the resources.
+     *
+     * @return True if the path is a directory of files in this pack, else false.
+     */
+    public boolean isDirectory(String path)
+    {
+        return directories.containsKey(path);
+    }
+
+    /**
+     * @param path The path of a file, relative to the root of the resources.
+     *
+     * @return True if the path is compressed in this pack, else false.
+     */
+    public boolean isCompressed(String path)
+    {
+        int index = indexOf(path);
+        return index >= 0 && (flags[index] & FLAG_LZ4) != 0;
+    }
+
+    /**
+     * Gets the uncompressed size of a file, or the sum of the sizes of all the files in a directory.
+     *
+     * @param path The path of a file or directory, relative to the root of the resources.
+     *
+     * @return The size in bytes, or -1 if the path is not in this pack.
+     */
+    public long getSize(String path)
+    {
+        int index = indexOf(path);
+
+        if (index >= 0)
+            return sizes[index];
+
+        List<String> children = directories.get(path);
+
+        if (children == null)
+            return -1;
+
+        long size = 0;
+
+        for (String child : children)
+            size += getSize(child);
+
+        return size;
+    }
+
+    /**
+     * Lists the paths of the files and directories that are immediate children of a directory.
+     *
+     * @param path The path of the directory, relative to the root of the resources.
+     *
+     * @return An un-modifiable list of the paths of the children.
+     *
+     * @throws SilenceException If the path is not a directory in this pack.
+     */
+    public List<String> list(String path)
+    {
+        List<String> children = directories.get(path);
+
+        if (children == null)
+            throw new SilenceException("Cannot list files in a path which is not a directory: " + path);
+
+        return Collections.unmodifiableList(children);
+    }
+
+    /**
+     * Reads the contents of a file in this pack. Files that are stored without compression are returned as slices of
+     * the pack, which share the memory with the pack wherever the backend supports it. Compressed files are
+     * decompressed into a new DirectBuffer.
+     *
+     * @param path The path of the file, relative to the root of the resources.
+     *
+     * @return The DirectBuffer with the contents of the file.
+     *
+     * @throws SilenceException If the file is not in this pack.
+     */
+    public DirectBuffer read(String path)
+    {
+        int index = indexOf(path);
+
+        if (index < 0)
+            throw new SilenceException("The file " + path + " is not in the asset pack");
+
+        if ((flags[index] & FLAG_LZ4) == 0)
+            return data.slice(offsets[index], sizes[index]);
+
+        DirectBuffer buffer = DirectBuffer.create(sizes[index]);
+        int size = Lz4.decompress(data, offsets[index], storedSizes[index], buffer, 0, sizes[index]);
+
+        if (size != sizes[index])
+            throw new SilenceException("The file " + path + " is corrupted in the asset pack");
+
+        return buffer;
+    }
+
+    /**
+     * @return The number of files in this pack.
+     */
+    public int getFileCount()
+    {
+        return names.length;
+    }
+
+    private int indexOf(String path)
+    {
+        long hash = hash(path);
+
+        int low = 0;
+        int high = hashes.length - 1;
+
+        while (low <= high)
+        {
+            int mid = (low + high) >>> 1;
+
+            if (hashes[mid] < hash)
+                low = mid + 1;
+            else if (hashes[mid] > hash)
+                high = mid - 1;
+            else
+            {
+                // Walk back to the first entry with this hash, and compare the names to resolve collisions
+                while (mid > 0 && hashes[mid - 1] == hash)
+                    mid--;
+
+                for (; mid < hashes.length && hashes[mid] == hash; mid++)
+                    if (names[mid].equals(path))
+                        return mid;
+
+                return -1;
+            }
+        }
+
+        return -1;
+    }
+
+    private void addToParent(String path)
+    {
+        int slash = path.lastIndexOf(FilePath.SEPARATOR);
+        String parent = slash < 0 ? "" : path.substring(0, slash);
+
+        List<String> children = directories.get(parent);
+        boolean newParent = children == null;
+
+        if (newParent)
+            directories.put(parent, children = new ArrayList<>());
+
+        children.add(path);
+
+        if (newParent && slash >= 0)
+            addToParent(parent);
+    }
+
+    private String readName(int offset, int length)
+    {
+        byte[] bytes = new byte[length];
+        data.get(offset, bytes, 0, length);
+
+        try
+        {
+            return new String(bytes, "UTF-8");
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw new SilenceException(e);
+        }
+    }
+
+    private int readInt(int offset)
+    {
+        // The pack is little endian regardless of the byte order of the buffer
+        return (data.readByte(offset) & 0xFF) | (data.readByte(offset + 1) & 0xFF) << 8 |
+               (data.readByte(offset + 2) & 0xFF) << 16 | (data.readByte(offset + 3) & 0xFF) << 24;
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.io;
+
+import com.shc.silenceengine.core.SilenceEngine;
+import com.shc.silenceengine.core.SilenceException;
+import com.shc.silenceengine.utils.TaskManager;
+import com.shc.silenceengine.utils.functional.Promise;
+import com.shc.silenceengine.utils.functional.UniCallback;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A resource FilePath that resolves to a file or directory in a mounted {@link AssetPack}. Instances are created by
+ * {@link FilePath#getResourceFile(String)} when the path is present in a mounted pack. The pack is read only, so the
+ * operations that modify the file are rejected.
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public class AssetPackFilePath extends FilePath
+{
+    AssetPack pack;
+
+    AssetPackFilePath(String path, AssetPack pack)
+    {
+        super(path, Type.RESOURCE);
+        this.pack = pack;
+    }
+
+    /**
+     * @return The AssetPack that contains this file.
+     */
+    public AssetPack getPack()
+    {
+        return pack;
+    }
+
+    /**
+     * Reads the contents of this file from the pack. The callback is invoked on the next update, just like the other
+     * file readers do.
+     *
+     * @param onComplete The callback to receive the contents of the file.
+     * @param onError    The callback to receive the error, if any.
+     */
+    public void read(UniCallback<DirectBuffer> onComplete, UniCallback<Throwable> onError)
+    {
+        DirectBuffer data;
+
+        try
+        {
+            data = pack.read(getPath());
+        }
+        catch (Throwable e)
+        {
+            onError.invoke(e);
+            return;
+        }
+
+        TaskManager.runOnUpdate(() -> onComplete.invoke(data));
+    }
+
+    /**
+     * Reads the contents of this file from the pack as UTF-8 text. The callback is invoked on the next update, just
+     * like the other file readers do.
+     *
+     * @param onComplete The callback to receive the text in the file.
+     * @param onError    The callback to receive the error, if any.
+     */
+    public void readText(UniCallback<String> onComplete, UniCallback<Throwable> onError)
+    {
+        String text;
+
+        try
+        {
+            DirectBuffer data = pack.read(getPath());
+            byte[] bytes = new byte[data.sizeBytes()];
+            data.get(0, bytes, 0, bytes.length);
+
+            if (pack.isCompressed(getPath()))
+                DirectBuffer.free(data);
+
+            text = new String(bytes, "UTF-8");
+        }
+        catch (Throwable e)
+        {
+            onError.invoke(e);
+            return;
+        }
+
+        TaskManager.runOnUpdate(() -> onComplete.invoke(text));
+    }
+
+    @Override
+    public Promise<Boolean> exists()
+    {
+        return new Promise<>((resolve, reject) -> resolve.invoke(pack.contains(getPath())));
+    }
+
+    @Override
+    public Promise<Boolean> isDirectory()
+    {
+        return new Promise<>((resolve, reject) -> resolve.invoke(pack.isDirectory(getPath())));
+    }
+
+    @Override
+    public Promise<Boolean> isFile()
+    {
+        return new Promise<>((resolve, reject) -> resolve.invoke(!pack.isDirectory(getPath())));
+    }
+
+    @Override
+    public Promise<Void> copyTo(FilePath path)
+    {
+        return new Promise<>((resolve, reject) ->
+        {
+            if (pack.isDirectory(getPath()))
+            {
+                reject.invoke(new SilenceException("Cannot copy a directory from an asset pack."));
+                return;
+            }
+
+            read(data -> SilenceEngine.io.getFileWriter().write(data, path, false, () -> resolve.invoke(null), reject), reject);
+        });
+    }
+
+    @Override
+    public Promise<Void> moveTo(FilePath path)
+    {
+        return new Promise<>((resolve, reject) -> reject.invoke(new SilenceException("Cannot move an asset pack entry.")));
+    }
+
+    @Override
+    public Promise<Void> mkdirs()
+    {
+        return new Promise<>((resolve, reject) -> reject.invoke(new SilenceException("Cannot create a directory inside an asset pack.")));
+    }
+
+    @Override
+    public Promise<Void> createFile()
+    {
+        return new Promise<>((resolve, reject) -> reject.invoke(new SilenceException("Cannot create a file inside an asset pack.")));
+    }
+
+    @Override
+    public Promise<Boolean> delete()
+    {
+        return new Promise<>((resolve, reject) -> reject.invoke(new SilenceException("Cannot delete an asset pack entry.")));
+    }
+
+    @Override
+    public void deleteOnExit()
+    {
+        throw new SilenceException("Cannot delete an asset pack entry upon exit.");
+    }
+
+    @Override
+    public Promise<Long> sizeInBytes()
+    {
+        return new Promise<>((resolve, reject) -> resolve.invoke(pack.getSize(getPath())));
+    }
+
+    @Override
+    public Promise<List<FilePath>> listFiles()
+    {
+        return new Promise<>((resolve, reject) ->
+        {
+            List<FilePath> filePaths = new ArrayList<>();
+
+            try
+            {
+                for (String child : pack.list(getPath()))
+                    filePaths.add(new AssetPackFilePath(child, pack));
+            }
+            catch (Throwable e)
+            {
+                reject.invoke(e);
+                return;
+            }
+
+            resolve.invoke(Collections.unmodifiableList(filePaths));
+        });
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.io;
+
+import com.shc.silenceengine.core.SilenceException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Builds the contents of an {@link AssetPack}. The writer works on byte arrays, so the tools that use it are free to
+ * read the files and write the pack in whatever way suits them, like the {@code packAssets} Gradle task does.
+ *
+ * <pre>
+ *     byte[] pack = new AssetPackWriter()
+ *             .add("resources/logo.png", logoBytes)
+ *             .add("resources/level.tmx", levelBytes)
+ *             .write();
+ * </pre>
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public class AssetPackWriter
+{
+    // The data of an entry is aligned, so that the slices can be read as larger primitives
+    private static final int DATA_ALIGNMENT = 8;
+
+    private List<Entry> entries = new ArrayList<>();
+    private Set<String> paths   = new HashSet<>();
+
+    private boolean compression = true;
+
+    /**
+     * Adds a file to the pack.
+     *
+     * @param path The path of the file, relative to the root of the resources.
+     * @param data The contents of the file.
+     *
+     * @return This writer, for chaining.
+     *
+     * @throws SilenceException If a file with the same path is already added.
+     */
+    public AssetPackWriter add(String path, byte[] data)
+    {
+        path = path.replace('\\', FilePath.SEPARATOR);
+
+        while (path.startsWith("" + FilePath.SEPARATOR))
+            path = path.substring(1);
+
+        if (!paths.add(path))
+            throw new SilenceException("The file " + path + " is already added to the pack");
+
+        Entry entry = new Entry();
+        entry.hash = AssetPack.hash(path);
+        entry.name = AssetPack.toUTF8(path);
+        entry.size = data.length;
+        entry.stored = data;
+
+        if (compression)
+        {
+            byte[] compressed = Lz4.compress(data, 0, data.length);
+
+            // Only keep the compressed data if it saves at least an eighth, already compressed formats don't
+            if (compressed.length < data.length - data.length / 8)
+            {
+                entry.stored = compressed;
+                entry.flags |= AssetPack.FLAG_LZ4;
+            }
+        }
+
+        entries.add(entry);
+        return this;
+    }
+
+    /**
+     * Sets whether the files added after this call are compressed with LZ4 when that makes them smaller. Compression
+     * is enabled by default.
+     *
+     * @param compression Whether to compress the files.
+     *
+     * @return This writer, for chaining.
+     */
+    public AssetPackWriter setCompression(boolean compression)
+    {
+        this.compression = compression;
+        return this;
+    }
+
+    /**
+     * Writes the pack with all the files that are added.
+     *
+     * @return The contents of the pack file.
+     */
+    public byte[] write()
+    {
+        List<Entry> sorted = new ArrayList<>(entries);
+        Collections.sort(sorted, (a, b) -> Long.compare(a.hash, b.hash));
+
+        int namesOffset = AssetPack.HEADER_SIZE + sorted.size() * AssetPack.ENTRY_SIZE;
+        int namesSize = 0;
+
+        for (Entry entry : sorted)
+        {
+            entry.nameOffset = namesSize;
+            namesSize += entry.name.length;
+        }
+
+        int dataOffset = align(namesOffset + namesSize);
+
+        for (Entry entry : sorted)
+        {
+            entry.offset = dataOffset;
+            dataOffset = align(dataOffset + entry.stored.length);
+        }
+
+        byte[] pack = new byte[dataOffset];
+
+        writeInt(pack, 0, AssetPack.MAGIC);
+        writeInt(pack, 4, AssetPack.VERSION);
+        writeInt(pack, 8, sorted.size());
+        writeInt(pack, 12, namesOffset);
+
+        for (int i = 0; i < sorted.size(); i++)
+        {
+            Entry entry = sorted.get(i);
+            int position = AssetPack.HEADER_SIZE + i * AssetPack.ENTRY_SIZE;
+
+            writeInt(pack, position, (int) entry.hash);
+            writeInt(pack, position + 4, (int) (entry.hash >>> 32));
+            writeInt(pack, position + 8, entry.offset);
+            writeInt(pack, position + 12, entry.stored.length);
+            writeInt(pack, position + 16, entry.size);
+            writeInt(pack, position + 20, entry.flags);
+            writeInt(pack, position + 24, entry.nameOffset);
+            writeInt(pack, position + 28, entry.name.length);
+
+            System.arraycopy(entry.name, 0, pack, namesOffset + entry.nameOffset, entry.name.length);
+            System.arraycopy(entry.stored, 0, pack, entry.offset, entry.stored.length);
+        }
+
+        return pack;
+    }
+
+    private static int align(int offset)
+    {
+        return (offset + DATA_ALIGNMENT - 1) / DATA_ALIGNMENT * DATA_ALIGNMENT;
+    }
+
+    private static void writeInt(byte[] data, int index, int value)
+    {
+        data[index] = (byte) value;
+        data[index + 1] = (byte) (value >>> 8);
+        data[index + 2] = (byte) (value >>> 16);
+        data[index + 3] = (byte) (value >>> 24);
+    }
+
+    private static class Entry
+    {
+        private long   hash;
+        private byte[] name;
+        private byte[] stored;
+        private int    size;
+        private int    flags;
+        private int    offset;
+        private int    nameOffset;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.io;
+
+import com.shc.silenceengine.core.SilenceException;
+
+/**
+ * A decoder for Base64 encoded data, as used by the TMX maps and other text based formats to embed binary data. It is
+ * written in plain Java, so it works the same on all the backends. Whitespace in the encoded text is ignored.
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public final class Base64
+{
+    private static final int[] DECODE_TABLE = new int[128];
+
+    static
+    {
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+
+        for (int i = 0; i < DECODE_TABLE.length; i++)
+            DECODE_TABLE[i] = -1;
+
+        for (int i = 0; i < alphabet.length(); i++)
+            DECODE_TABLE[alphabet.charAt(i)] = i;
+    }
+
+    private Base64()
+    {
+    }
+
+    /**
+     * Decodes a Base64 encoded string into bytes.
+     *
+     * @param text The Base64 encoded text.
+     *
+     * @return The decoded bytes.
+     */
+    public static byte[] decode(CharSequence text)
+    {
+        return decode(text, 0, text.length());
+    }
+
+    /**
+     * Decodes a range of a Base64 encoded string into bytes.
+     *
+     * @param text  The text that contains the Base64 encoded data.
+     * @param start The index of the first character to decode.
+     * @param end   The index after the last character to decode.
+     *
+     * @return The decoded bytes.
+     */
+    public static byte[] decode(CharSequence text, int start, int end)
+    {
+        byte[] result = new byte[(end - start) * 3 / 4];
+        int length = 0;
+
+        int bits = 0;
+        int numBits = 0;
+
+        for (int i = start; i < end; i++)
+        {
+            char c = text.charAt(i);
+
+            if (c == '=')
+                break;
+
+            if (c == ' ' || c == '\n' || c == '\r' || c == '\t')
+                continue;
+
+            int value = c < DECODE_TABLE.length ? DECODE_TABLE[c] : -1;
+
+            if (value == -1)
+                throw new SilenceException("Invalid character '" + c + "' in Base64 data");
+
+            bits = (bits << 6) | value;
+            numBits += 6;
+
+            if (numBits >= 8)
+            {
+                numBits -= 8;
+                result[length++] = (byte) (bits >> numBits);
+            }
+        }
+
+        if (length == result.length)
+            return result;
+
+        byte[] trimmed = new byte[length];
+        System.arraycopy(result, 0, trimmed, 0, length);
+        return trimmed;
+    }
+}
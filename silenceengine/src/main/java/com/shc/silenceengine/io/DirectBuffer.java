@@ -40,42 +40,22 @@ public abstract class DirectBuffer
 
     public static DirectBuffer wrap(byte... data)
     {
-        DirectBuffer buffer = create(data.length);
-
-        for (int i = 0; i < data.length; i++)
-            buffer.writeByte(i, data[i]);
-
-        return buffer;
+        return create(data.length).put(0, data, 0, data.length);
     }
 
     public static DirectBuffer wrap(short... data)
     {
-        DirectBuffer buffer = create(data.length * PrimitiveSize.SHORT);
-
-        for (int i = 0; i < data.length; i++)
-            buffer.writeShort(i * PrimitiveSize.SHORT, data[i]);
-
-        return buffer;
+        return create(data.length * PrimitiveSize.SHORT).put(0, data, 0, data.length);
     }
 
     public static DirectBuffer wrap(int... data)
     {
-        DirectBuffer buffer = create(data.length * PrimitiveSize.INT);
-
-        for (int i = 0; i < data.length; i++)
-            buffer.writeInt(i * PrimitiveSize.INT, data[i]);
-
-        return buffer;
+        return create(data.length * PrimitiveSize.INT).put(0, data, 0, data.length);
     }
 
     public static DirectBuffer wrap(float... data)
     {
-        DirectBuffer buffer = create(data.length * PrimitiveSize.FLOAT);
-
-        for (int i = 0; i < data.length; i++)
-            buffer.writeFloat(i * PrimitiveSize.FLOAT, data[i]);
-
-        return buffer;
+        return create(data.length * PrimitiveSize.FLOAT).put(0, data, 0, data.length);
     }
 
     public static DirectBuffer wrap(long... data)
@@ -136,6 +116,142 @@ public abstract class DirectBuffer
 
     public abstract DirectBuffer clear();
 
+    /**
+     * Writes a range of bytes from an array into this buffer. The default implementation writes them one at a time,
+     * the backends override this with a single copy.
+     *
+     * @param byteIndex The index of the byte in this buffer to start writing at.
+     * @param src       The array to read the bytes from.
+     * @param offset    The index of the first element in the array.
+     * @param length    The number of elements to write.
+     *
+     * @return This buffer, so that calls can be chained.
+     */
+    public DirectBuffer put(int byteIndex, byte[] src, int offset, int length)
+    {
+        for (int i = 0; i < length; i++)
+            writeByte(byteIndex + i, src[offset + i]);
+
+        return this;
+    }
+
+    public DirectBuffer put(int byteIndex, short[] src, int offset, int length)
+    {
+        for (int i = 0; i < length; i++)
+            writeShort(byteIndex + i * PrimitiveSize.SHORT, src[offset + i]);
+
+        return this;
+    }
+
+    public DirectBuffer put(int byteIndex, int[] src, int offset, int length)
+    {
+        for (int i = 0; i < length; i++)
+            writeInt(byteIndex + i * PrimitiveSize.INT, src[offset + i]);
+
+        return this;
+    }
+
+    public DirectBuffer put(int byteIndex, float[] src, int offset, int length)
+    {
+        for (int i = 0; i < length; i++)
+            writeFloat(byteIndex + i * PrimitiveSize.FLOAT, src[offset + i]);
+
+        return this;
+    }
+
+    /**
+     * Reads a range of bytes from this buffer into an array. Like the puts, the backends override this to copy the
+     * whole range at once.
+     *
+     * @param byteIndex The index of the byte in this buffer to start reading from.
+     * @param dst       The array to store the bytes in.
+     * @param offset    The index in the array to store the first element at.
+     * @param length    The number of elements to read.
+     *
+     * @return This buffer, so that calls can be chained.
+     */
+    public DirectBuffer get(int byteIndex, byte[] dst, int offset, int length)
+    {
+        for (int i = 0; i < length; i++)
+            dst[offset + i] = readByte(byteIndex + i);
+
+        return this;
+    }
+
+    public DirectBuffer get(int byteIndex, short[] dst, int offset, int length)
+    {
+        for (int i = 0; i < length; i++)
+            dst[offset + i] = readShort(byteIndex + i * PrimitiveSize.SHORT);
+
+        return this;
+    }
+
+    public DirectBuffer get(int byteIndex, int[] dst, int offset, int length)
+    {
+        for (int i = 0; i < length; i++)
+            dst[offset + i] = readInt(byteIndex + i * PrimitiveSize.INT);
+
+        return this;
+    }
+
+    public DirectBuffer get(int byteIndex, float[] dst, int offset, int length)
+    {
+        for (int i = 0; i < length; i++)
+            dst[offset + i] = readFloat(byteIndex + i * PrimitiveSize.FLOAT);
+
+        return this;
+    }
+
+    /**
+     * Copies a range of bytes from another buffer into this buffer. When both the buffers belong to the same backend,
+     * the copy is done natively. If the source is this buffer, the ranges should not overlap.
+     *
+     * @param byteIndex    The index of the byte in this buffer to start writing at.
+     * @param src          The buffer to copy the bytes from.
+     * @param srcByteIndex The index of the first byte to copy in the source buffer.
+     * @param length       The number of bytes to copy.
+     *
+     * @return This buffer, so that calls can be chained.
+     */
+    public DirectBuffer copyFrom(int byteIndex, DirectBuffer src, int srcByteIndex, int length)
+    {
+        for (int i = 0; i < length; i++)
+            writeByte(byteIndex + i, src.readByte(srcByteIndex + i));
+
+        return this;
+    }
+
+    /**
+     * @return A view of this buffer that is indexed by floats instead of bytes.
+     */
+    public DirectFloatBuffer asFloatBuffer()
+    {
+        return new DirectFloatBuffer(this);
+    }
+
+    /**
+     * @return A view of this buffer that is indexed by ints instead of bytes.
+     */
+    public DirectIntBuffer asIntBuffer()
+    {
+        return new DirectIntBuffer(this);
+    }
+
+    /**
+     * Creates a DirectBuffer for a range of bytes in this buffer. Backends that can share the memory return a view of
+     * this buffer, so writes through the slice are visible in this buffer and vice versa. The default implementation
+     * copies the range into a new buffer.
+     *
+     * @param byteOffset The offset of the first byte of the slice.
+     * @param length     The number of bytes in the slice.
+     *
+     * @return A DirectBuffer with the bytes of the range.
+     */
+    public DirectBuffer slice(int byteOffset, int length)
+    {
+        return create(length).copyFrom(0, this, byteOffset, length);
+    }
+
     public int sizeBytes()
     {
         return sizeInBytes;
@@ -52,6 +52,23 @@ public class DirectFloatBuffer
         return directBuffer.readFloat(index * PrimitiveSize.FLOAT);
     }
 
+    public DirectFloatBuffer write(int index, float[] src, int offset, int length)
+    {
+        directBuffer.put(index * PrimitiveSize.FLOAT, src, offset, length);
+        return this;
+    }
+
+    public DirectFloatBuffer read(int index, float[] dst, int offset, int length)
+    {
+        directBuffer.get(index * PrimitiveSize.FLOAT, dst, offset, length);
+        return this;
+    }
+
+    public int size()
+    {
+        return directBuffer.sizeBytes() / PrimitiveSize.FLOAT;
+    }
+
     public DirectBuffer getDirectBuffer()
     {
         return directBuffer;
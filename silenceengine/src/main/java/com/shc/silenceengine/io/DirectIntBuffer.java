@@ -52,6 +52,23 @@ public class DirectIntBuffer
         return directBuffer.readInt(index * PrimitiveSize.INT);
     }
 
+    public DirectIntBuffer write(int index, int[] src, int offset, int length)
+    {
+        directBuffer.put(index * PrimitiveSize.INT, src, offset, length);
+        return this;
+    }
+
+    public DirectIntBuffer read(int index, int[] dst, int offset, int length)
+    {
+        directBuffer.get(index * PrimitiveSize.INT, dst, offset, length);
+        return this;
+    }
+
+    public int size()
+    {
+        return directBuffer.sizeBytes() / PrimitiveSize.INT;
+    }
+
     public DirectBuffer getDirectBuffer()
     {
         return directBuffer;
@@ -96,12 +96,20 @@ public abstract class FilePath
      * source directory in case of running from the IDE, or from the root of the JAR file when running from executable
      * JAR file.
      *
+     * <p>If the path is present in a mounted {@link AssetPack}, the returned FilePath resolves to the entry in the
+     * pack instead of the classpath.</p>
+     *
      * @param path The path string that specifies the location of the file or directory.
      *
      * @return The FilePath instance that can be used to handle a resource file, which will be packed into the JAR.
      */
     public static FilePath getResourceFile(String path)
     {
+        FilePath packed = AssetPack.resolve(path);
+
+        if (packed != null)
+            return packed;
+
         return SilenceEngine.io.createResourceFilePath(path);
     }
 
@@ -165,7 +173,7 @@ public abstract class FilePath
         for (int i = 1; i < parts.length - 1; i++)
             path += SEPARATOR + parts[i] + SEPARATOR;
 
-        return type == Type.RESOURCE ? SilenceEngine.io.createResourceFilePath(path + SEPARATOR)
+        return type == Type.RESOURCE ? getResourceFile(path + SEPARATOR)
                                      : SilenceEngine.io.createExternalFilePath(path + SEPARATOR);
     }
 
@@ -195,7 +203,7 @@ public abstract class FilePath
      */
     public FilePath getChild(String path)
     {
-        return type == Type.RESOURCE ? SilenceEngine.io.createResourceFilePath(this.path + SEPARATOR + path)
+        return type == Type.RESOURCE ? getResourceFile(this.path + SEPARATOR + path)
                                      : SilenceEngine.io.createExternalFilePath(this.path + SEPARATOR + path);
     }
 
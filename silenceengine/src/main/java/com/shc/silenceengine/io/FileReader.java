@@ -56,4 +56,52 @@ public abstract class FileReader
     public abstract void readBinaryFile(FilePath file, UniCallback<DirectBuffer> uniCallback, UniCallback<Throwable> error);
 
     public abstract void readTextFile(FilePath file, UniCallback<String> uniCallback, UniCallback<Throwable> error);
+
+    public Promise<DirectBuffer> mapBinaryFile(FilePath file)
+    {
+        return new Promise<>((resolve, reject) -> mapBinaryFile(file, resolve, reject));
+    }
+
+    /**
+     * Maps a binary file into memory without copying it, on the backends that support memory mapped files. The
+     * returned buffer is read only and is released when it is garbage collected, so it should not be freed. Backends
+     * that cannot map files read the file completely instead.
+     *
+     * @param file        The file to be mapped.
+     * @param uniCallback The callback to receive the buffer with the contents of the file.
+     * @param error       The callback to receive the error, if any.
+     */
+    public void mapBinaryFile(FilePath file, UniCallback<DirectBuffer> uniCallback, UniCallback<Throwable> error)
+    {
+        readBinaryFile(file, uniCallback, error);
+    }
+
+    /**
+     * Reads a file from the mounted asset pack that it resolves to. Backends call this first when reading a binary file.
+     *
+     * @return True if the file is read from an asset pack, or false if the backend should read the file itself.
+     */
+    protected boolean readBinaryFromPack(FilePath file, UniCallback<DirectBuffer> uniCallback, UniCallback<Throwable> error)
+    {
+        if (!(file instanceof AssetPackFilePath))
+            return false;
+
+        ((AssetPackFilePath) file).read(uniCallback, error);
+        return true;
+    }
+
+    /**
+     * Reads a text file from the mounted asset pack that it resolves to. Backends call this first when reading a text
+     * file.
+     *
+     * @return True if the file is read from an asset pack, or false if the backend should read the file itself.
+     */
+    protected boolean readTextFromPack(FilePath file, UniCallback<String> uniCallback, UniCallback<Throwable> error)
+    {
+        if (!(file instanceof AssetPackFilePath))
+            return false;
+
+        ((AssetPackFilePath) file).readText(uniCallback, error);
+        return true;
+    }
 }
@@ -0,0 +1,92 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.io;
+
+import com.shc.silenceengine.utils.TimeUtils;
+import com.shc.silenceengine.utils.functional.SimpleCallback;
+
+/**
+ * <p>A file watcher notifies when files change on the disk. It is meant to be used during development, to reload the
+ * assets while the game is running. Editors usually save a file in several writes, so the changes are debounced, and
+ * the callback is invoked on the update thread only once the file is quiet for the debounce time.</p>
+ *
+ * <p>This implementation does not watch anything, and is used by the backends that can not watch files (like the
+ * ones where the files are packaged with the game). The backends that can watch files override it.</p>
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public class FileWatcher
+{
+    protected double debounceTime = TimeUtils.convert(250, TimeUtils.Unit.MILLIS, TimeUtils.getDefaultTimeUnit());
+
+    /**
+     * @param file The file to check.
+     *
+     * @return True if changes to the file can be watched, else false.
+     */
+    public boolean isSupported(FilePath file)
+    {
+        return false;
+    }
+
+    /**
+     * Starts watching a file for changes.
+     *
+     * @param file      The file to watch.
+     * @param onChanged The callback to be invoked on the update thread when the file changes.
+     *
+     * @return True if the file is being watched, false if it can not be watched.
+     */
+    public boolean watch(FilePath file, SimpleCallback onChanged)
+    {
+        return false;
+    }
+
+    /**
+     * Stops invoking a callback when a file changes.
+     *
+     * @param file      The file being watched.
+     * @param onChanged The callback that was passed to {@link #watch(FilePath, SimpleCallback)}.
+     */
+    public void unwatch(FilePath file, SimpleCallback onChanged)
+    {
+    }
+
+    /**
+     * Sets the time a file has to be left unchanged after a change, before the change is notified.
+     *
+     * @param time The debounce time.
+     * @param unit The unit of the time specified.
+     */
+    public void setDebounceTime(double time, TimeUtils.Unit unit)
+    {
+        debounceTime = TimeUtils.convert(time, unit, TimeUtils.getDefaultTimeUnit());
+    }
+
+    public double getDebounceTime(TimeUtils.Unit unit)
+    {
+        return TimeUtils.convert(debounceTime, TimeUtils.getDefaultTimeUnit(), unit);
+    }
+}
@@ -34,6 +34,33 @@ import com.shc.silenceengine.utils.functional.UniCallback;
  */
 public abstract class FileWriter
 {
+    private boolean writeBehind;
+
+    /**
+     * Sets whether the writes are deferred. In the write-behind mode, the writes are queued and done in the background
+     * by a single writer, and a queued write to a file is merged with the newer writes to the same file, so only the
+     * latest contents are written. Writers that do not support this mode ignore it and write immediately.
+     *
+     * @param writeBehind True to queue the writes, false to start each write immediately.
+     */
+    public void setWriteBehind(boolean writeBehind)
+    {
+        this.writeBehind = writeBehind;
+    }
+
+    public boolean isWriteBehind()
+    {
+        return writeBehind;
+    }
+
+    /**
+     * Blocks until all the queued writes are done. Call this before exiting, so that no write is lost. Writers that do
+     * not queue the writes have nothing to wait for.
+     */
+    public void flush()
+    {
+    }
+
     public Promise<Void> write(String text, FilePath file, boolean append)
     {
         return new Promise<>((resolve, reject) -> write(text, file, append, () -> resolve.invoke(null), reject));
@@ -0,0 +1,121 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.io;
+
+import com.shc.silenceengine.core.SilenceEngine;
+import com.shc.silenceengine.core.SilenceException;
+import com.shc.silenceengine.utils.functional.Provider;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>An arena for the transient buffers that are only needed for the current frame, like the buffers used to stage the
+ * data that is uploaded to the GPU. The buffers allocated from the arena need not be freed, they are all freed together
+ * at the end of the frame, after all the render handlers are run.</p>
+ *
+ * <p>The arena is only meant to be used on the render thread, and the buffers must not be kept beyond the frame in which
+ * they are allocated. A game loop that runs the updates on another thread sets a check with {@link
+ * #setRenderThreadCheck(Provider)}, so that using the arena from the wrong thread fails instead of racing the reset at
+ * the end of the frame.</p>
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public final class FrameArena
+{
+    private static final List<DirectBuffer> buffers = new ArrayList<>();
+
+    private static boolean initialized;
+
+    private static Provider<Boolean> renderThreadCheck;
+
+    private FrameArena()
+    {
+    }
+
+    /**
+     * Allocates a buffer that lives until the end of the current frame.
+     *
+     * @param sizeInBytes The size of the buffer in bytes.
+     *
+     * @return The buffer, which is freed automatically at the end of the frame.
+     */
+    public static DirectBuffer allocate(int sizeInBytes)
+    {
+        checkRenderThread();
+
+        if (!initialized)
+        {
+            // Run after all the other render handlers, which could still be using the buffers
+            SilenceEngine.eventManager.addRenderHandler(delta -> reset(), Integer.MAX_VALUE);
+            initialized = true;
+        }
+
+        DirectBuffer buffer = DirectBuffer.create(sizeInBytes);
+        buffers.add(buffer);
+
+        return buffer;
+    }
+
+    /**
+     * @return The number of buffers that are allocated in the current frame.
+     */
+    public static int getAllocationCount()
+    {
+        return buffers.size();
+    }
+
+    /**
+     * Frees all the buffers that are allocated from the arena. This is done automatically at the end of every frame.
+     */
+    public static void reset()
+    {
+        checkRenderThread();
+
+        for (DirectBuffer buffer : buffers)
+            DirectBuffer.free(buffer);
+
+        buffers.clear();
+    }
+
+    /**
+     * Sets the check which tells whether the current thread is the render thread. There is no check by default, since
+     * the update and the render handlers are run on the same thread unless the game loop says otherwise.
+     *
+     * @param renderThreadCheck The check, or null to allow any thread.
+     */
+    public static void setRenderThreadCheck(Provider<Boolean> renderThreadCheck)
+    {
+        FrameArena.renderThreadCheck = renderThreadCheck;
+    }
+
+    private static void checkRenderThread()
+    {
+        Provider<Boolean> check = renderThreadCheck;
+
+        if (check != null && !check.provide())
+            throw new SilenceException("The frame arena can only be used on the render thread");
+    }
+}
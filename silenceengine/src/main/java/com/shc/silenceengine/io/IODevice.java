@@ -45,6 +45,8 @@ public interface IODevice
 
     FileWriter getFileWriter();
 
+    FileWatcher getFileWatcher();
+
     JSONObject getPreferences(String name);
 
     void savePreferences(String name, JSONObject preferences);
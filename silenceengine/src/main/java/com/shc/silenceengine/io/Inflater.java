@@ -0,0 +1,457 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.io;
+
+import com.shc.silenceengine.core.SilenceException;
+
+/**
+ * A decoder for DEFLATE compressed data (RFC 1951), with support for the ZLIB (RFC 1950) and GZIP (RFC 1952) formats
+ * that wrap it. The decoder is written in plain Java instead of using the {@code java.util.zip} package, which is not
+ * available on all the backends.
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public final class Inflater
+{
+    private static final int MAX_BITS = 15;
+
+    private static final int[] LENGTH_BASE  = {
+            3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31,
+            35, 43, 51, 59, 67, 83, 99, 115, 131, 163, 195, 227, 258
+    };
+    private static final int[] LENGTH_EXTRA = {
+            0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2,
+            3, 3, 3, 3, 4, 4, 4, 4, 5, 5, 5, 5, 0
+    };
+    private static final int[] DIST_BASE    = {
+            1, 2, 3, 4, 5, 7, 9, 13, 17, 25, 33, 49, 65, 97, 129, 193,
+            257, 385, 513, 769, 1025, 1537, 2049, 3073, 4097, 6145, 8193, 12289, 16385, 24577
+    };
+    private static final int[] DIST_EXTRA   = {
+            0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6,
+            7, 7, 8, 8, 9, 9, 10, 10, 11, 11, 12, 12, 13, 13
+    };
+
+    private static final int[] CODE_LENGTH_ORDER = {
+            16, 17, 18, 0, 8, 7, 9, 6, 10, 5, 11, 4, 12, 3, 13, 2, 14, 1, 15
+    };
+
+    private static Huffman fixedLengthCodes;
+    private static Huffman fixedDistanceCodes;
+
+    private byte[] input;
+    private int    position;
+    private int    end;
+    private int    bitBuffer;
+    private int    bitCount;
+
+    private byte[] output;
+    private int    outputSize;
+
+    private Inflater(byte[] input, int offset, int length, int expectedSize)
+    {
+        this.input = input;
+        this.position = offset;
+        this.end = offset + length;
+
+        output = new byte[Math.max(expectedSize > 0 ? expectedSize : length * 4, 64)];
+    }
+
+    /**
+     * Decompresses data in the ZLIB format.
+     *
+     * @param data         The compressed data, including the ZLIB header and checksum.
+     * @param expectedSize The size of the decompressed data if it is known in advance, or zero. It is only used as a
+     *                     hint to avoid growing the output while decoding.
+     *
+     * @return The decompressed data.
+     */
+    public static byte[] inflateZlib(byte[] data, int expectedSize)
+    {
+        if (data.length < 6)
+            throw new SilenceException("Invalid ZLIB data: the stream is too short");
+
+        int cmf = data[0] & 0xFF;
+        int flg = data[1] & 0xFF;
+
+        if ((cmf & 0x0F) != 8 || ((cmf << 8) | flg) % 31 != 0)
+            throw new SilenceException("Invalid ZLIB data: unknown header");
+
+        if ((flg & 0x20) != 0)
+            throw new SilenceException("ZLIB streams with a preset dictionary are unsupported");
+
+        byte[] result = inflate(data, 2, data.length - 6, expectedSize);
+
+        int checksum = ((data[data.length - 4] & 0xFF) << 24) | ((data[data.length - 3] & 0xFF) << 16)
+                       | ((data[data.length - 2] & 0xFF) << 8) | (data[data.length - 1] & 0xFF);
+
+        if (checksum != adler32(result))
+            throw new SilenceException("Invalid ZLIB data: checksum mismatch");
+
+        return result;
+    }
+
+    /**
+     * Decompresses data in the GZIP format. Only the first member of the stream is decoded.
+     *
+     * @param data         The compressed data, including the GZIP header and trailer.
+     * @param expectedSize The size of the decompressed data if it is known in advance, or zero. It is only used as a
+     *                     hint to avoid growing the output while decoding.
+     *
+     * @return The decompressed data.
+     */
+    public static byte[] inflateGzip(byte[] data, int expectedSize)
+    {
+        if (data.length < 18 || (data[0] & 0xFF) != 0x1F || (data[1] & 0xFF) != 0x8B || data[2] != 8)
+            throw new SilenceException("Invalid GZIP data: unknown header");
+
+        int flags = data[3] & 0xFF;
+        int offset = 10;
+
+        // FEXTRA
+        if ((flags & 0x04) != 0)
+            offset += 2 + ((data[offset] & 0xFF) | ((data[offset + 1] & 0xFF) << 8));
+
+        // FNAME and FCOMMENT are zero terminated strings
+        if ((flags & 0x08) != 0)
+            while (data[offset++] != 0) ;
+
+        if ((flags & 0x10) != 0)
+            while (data[offset++] != 0) ;
+
+        // FHCRC
+        if ((flags & 0x02) != 0)
+            offset += 2;
+
+        return inflate(data, offset, data.length - offset - 8, expectedSize);
+    }
+
+    /**
+     * Decompresses raw DEFLATE data, without any header or trailer.
+     *
+     * @param data         The array that contains the compressed data.
+     * @param offset       The offset of the compressed data in the array.
+     * @param length       The number of bytes of compressed data.
+     * @param expectedSize The size of the decompressed data if it is known in advance, or zero.
+     *
+     * @return The decompressed data.
+     */
+    public static byte[] inflate(byte[] data, int offset, int length, int expectedSize)
+    {
+        Inflater inflater = new Inflater(data, offset, length, expectedSize);
+        inflater.decodeBlocks();
+
+        if (inflater.outputSize == inflater.output.length)
+            return inflater.output;
+
+        byte[] result = new byte[inflater.outputSize];
+        System.arraycopy(inflater.output, 0, result, 0, inflater.outputSize);
+        return result;
+    }
+
+    private static int adler32(byte[] data)
+    {
+        int a = 1;
+        int b = 0;
+
+        for (int i = 0; i < data.length; )
+        {
+            // Sum blocks that are small enough to never overflow a signed int before taking the modulus
+            int blockEnd = Math.min(i + 2048, data.length);
+
+            for (; i < blockEnd; i++)
+            {
+                a += data[i] & 0xFF;
+                b += a;
+            }
+
+            a %= 65521;
+            b %= 65521;
+        }
+
+        return (b << 16) | a;
+    }
+
+    private static synchronized void createFixedCodes()
+    {
+        if (fixedLengthCodes != null)
+            return;
+
+        int[] lengths = new int[288];
+
+        for (int i = 0; i < 144; i++) lengths[i] = 8;
+        for (int i = 144; i < 256; i++) lengths[i] = 9;
+        for (int i = 256; i < 280; i++) lengths[i] = 7;
+        for (int i = 280; i < 288; i++) lengths[i] = 8;
+
+        Huffman lengthCodes = new Huffman(lengths, 0, 288);
+
+        for (int i = 0; i < 30; i++) lengths[i] = 5;
+
+        fixedDistanceCodes = new Huffman(lengths, 0, 30);
+        fixedLengthCodes = lengthCodes;
+    }
+
+    private void decodeBlocks()
+    {
+        boolean last;
+
+        do
+        {
+            last = bits(1) == 1;
+
+            switch (bits(2))
+            {
+                case 0:
+                    decodeStored();
+                    break;
+
+                case 1:
+                    createFixedCodes();
+                    decodeCodes(fixedLengthCodes, fixedDistanceCodes);
+                    break;
+
+                case 2:
+                    decodeDynamic();
+                    break;
+
+                default:
+                    throw new SilenceException("Invalid DEFLATE data: unknown block type");
+            }
+        }
+        while (!last);
+    }
+
+    private void decodeStored()
+    {
+        // Stored blocks start at a byte boundary
+        bitBuffer = 0;
+        bitCount = 0;
+
+        if (position + 4 > end)
+            throw new SilenceException("Invalid DEFLATE data: unexpected end of stream");
+
+        int length = (input[position] & 0xFF) | ((input[position + 1] & 0xFF) << 8);
+        int complement = (input[position + 2] & 0xFF) | ((input[position + 3] & 0xFF) << 8);
+        position += 4;
+
+        if (length != (~complement & 0xFFFF))
+            throw new SilenceException("Invalid DEFLATE data: stored block length mismatch");
+
+        if (position + length > end)
+            throw new SilenceException("Invalid DEFLATE data: unexpected end of stream");
+
+        ensureCapacity(length);
+        System.arraycopy(input, position, output, outputSize, length);
+
+        position += length;
+        outputSize += length;
+    }
+
+    private void decodeDynamic()
+    {
+        int numLengthCodes = bits(5) + 257;
+        int numDistanceCodes = bits(5) + 1;
+        int numCodeLengthCodes = bits(4) + 4;
+
+        if (numLengthCodes > 286 || numDistanceCodes > 30)
+            throw new SilenceException("Invalid DEFLATE data: too many codes");
+
+        int[] lengths = new int[320];
+
+        for (int i = 0; i < numCodeLengthCodes; i++)
+            lengths[CODE_LENGTH_ORDER[i]] = bits(3);
+
+        Huffman codeLengthCodes = new Huffman(lengths, 0, 19);
+
+        int index = 0;
+        int total = numLengthCodes + numDistanceCodes;
+
+        while (index < total)
+        {
+            int symbol = codeLengthCodes.decode(this);
+
+            if (symbol < 16)
+            {
+                lengths[index++] = symbol;
+                continue;
+            }
+
+            int length = 0;
+            int repeat;
+
+            if (symbol == 16)
+            {
+                if (index == 0)
+                    throw new SilenceException("Invalid DEFLATE data: repeat with no previous length");
+
+                length = lengths[index - 1];
+                repeat = 3 + bits(2);
+            }
+            else if (symbol == 17)
+                repeat = 3 + bits(3);
+            else
+                repeat = 11 + bits(7);
+
+            if (index + repeat > total)
+                throw new SilenceException("Invalid DEFLATE data: too many code lengths");
+
+            while (repeat-- > 0)
+                lengths[index++] = length;
+        }
+
+        if (lengths[256] == 0)
+            throw new SilenceException("Invalid DEFLATE data: missing end of block code");
+
+        Huffman lengthCodes = new Huffman(lengths, 0, numLengthCodes);
+        Huffman distanceCodes = new Huffman(lengths, numLengthCodes, numDistanceCodes);
+
+        decodeCodes(lengthCodes, distanceCodes);
+    }
+
+    private void decodeCodes(Huffman lengthCodes, Huffman distanceCodes)
+    {
+        int symbol;
+
+        do
+        {
+            symbol = lengthCodes.decode(this);
+
+            if (symbol < 256)
+            {
+                ensureCapacity(1);
+                output[outputSize++] = (byte) symbol;
+            }
+            else if (symbol > 256)
+            {
+                symbol -= 257;
+
+                if (symbol >= 29)
+                    throw new SilenceException("Invalid DEFLATE data: bad length symbol");
+
+                int length = LENGTH_BASE[symbol] + bits(LENGTH_EXTRA[symbol]);
+
+                symbol = distanceCodes.decode(this);
+
+                if (symbol >= 30)
+                    throw new SilenceException("Invalid DEFLATE data: bad distance symbol");
+
+                int distance = DIST_BASE[symbol] + bits(DIST_EXTRA[symbol]);
+
+                if (distance > outputSize)
+                    throw new SilenceException("Invalid DEFLATE data: distance too far back");
+
+                ensureCapacity(length);
+
+                // The source and destination can overlap, so the bytes are copied one at a time
+                for (int from = outputSize - distance; length > 0; length--)
+                    output[outputSize++] = output[from++];
+
+                symbol = 0;
+            }
+        }
+        while (symbol != 256);
+    }
+
+    private int bits(int count)
+    {
+        int value = bitBuffer;
+
+        while (bitCount < count)
+        {
+            if (position >= end)
+                throw new SilenceException("Invalid DEFLATE data: unexpected end of stream");
+
+            value |= (input[position++] & 0xFF) << bitCount;
+            bitCount += 8;
+        }
+
+        bitBuffer = value >>> count;
+        bitCount -= count;
+
+        return value & ((1 << count) - 1);
+    }
+
+    private void ensureCapacity(int count)
+    {
+        if (outputSize + count <= output.length)
+            return;
+
+        byte[] grown = new byte[Math.max(output.length * 2, outputSize + count)];
+        System.arraycopy(output, 0, grown, 0, outputSize);
+        output = grown;
+    }
+
+    /**
+     * A canonical Huffman code, stored as the number of codes of each length and the symbols ordered by their codes.
+     */
+    private static class Huffman
+    {
+        private int[] counts;
+        private int[] symbols;
+
+        Huffman(int[] lengths, int offset, int numSymbols)
+        {
+            counts = new int[MAX_BITS + 1];
+            symbols = new int[numSymbols];
+
+            for (int i = 0; i < numSymbols; i++)
+                counts[lengths[offset + i]]++;
+
+            int[] offsets = new int[MAX_BITS + 1];
+
+            for (int length = 1; length < MAX_BITS; length++)
+                offsets[length + 1] = offsets[length] + counts[length];
+
+            for (int i = 0; i < numSymbols; i++)
+                if (lengths[offset + i] != 0)
+                    symbols[offsets[lengths[offset + i]]++] = i;
+        }
+
+        int decode(Inflater inflater)
+        {
+            int code = 0;
+            int first = 0;
+            int index = 0;
+
+            for (int length = 1; length <= MAX_BITS; length++)
+            {
+                code |= inflater.bits(1);
+
+                int count = counts[length];
+
+                if (code - count < first)
+                    return symbols[index + (code - first)];
+
+                index += count;
+                first += count;
+                first <<= 1;
+                code <<= 1;
+            }
+
+            throw new SilenceException("Invalid DEFLATE data: bad Huffman code");
+        }
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.io;
+
+import com.shc.silenceengine.core.SilenceException;
+
+import java.util.Arrays;
+
+/**
+ * A codec for the LZ4 block format. LZ4 trades compression ratio for a decoder that is only a little slower than a
+ * plain copy, which makes it a good fit for assets that are decompressed every time they are loaded. The codec is
+ * written in plain Java so that it is available on all the backends.
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public final class Lz4
+{
+    private static final int MIN_MATCH     = 4;
+    private static final int LAST_LITERALS = 5;
+    private static final int MF_LIMIT      = 12;
+    private static final int MAX_DISTANCE  = 0xFFFF;
+    private static final int HASH_LOG      = 16;
+
+    private Lz4()
+    {
+    }
+
+    /**
+     * Computes the worst case size of the compressed data, which happens when the input is not compressible.
+     *
+     * @param length The length of the uncompressed data.
+     *
+     * @return The maximum number of bytes that the compressed data can take.
+     */
+    public static int maxCompressedLength(int length)
+    {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Compresses a range of bytes into a LZ4 block.
+     *
+     * @param src    The array with the data to be compressed.
+     * @param offset The offset of the first byte to compress.
+     * @param length The number of bytes to compress.
+     *
+     * @return A new array with the compressed block.
+     */
+    public static byte[] compress(byte[] src, int offset, int length)
+    {
+        byte[] dst = new byte[maxCompressedLength(length)];
+        int[] table = new int[1 << HASH_LOG];
+        Arrays.fill(table, -1);
+
+        int end = offset + length;
+        int matchLimit = end - LAST_LITERALS;
+        int mfLimit = end - MF_LIMIT;
+
+        int anchor = offset;
+        int ip = offset;
+        int op = 0;
+
+        while (ip < mfLimit)
+        {
+            int sequence = readIntLE(src, ip);
+            int hash = (sequence * -1640531535) >>> (32 - HASH_LOG);
+
+            int ref = table[hash];
+            table[hash] = ip;
+
+            if (ref < 0 || ip - ref > MAX_DISTANCE || readIntLE(src, ref) != sequence)
+            {
+                ip++;
+                continue;
+            }
+
+            // Extend the match backwards into the pending literals
+            while (ip > anchor && ref > offset && src[ip - 1] == src[ref - 1])
+            {
+                ip--;
+                ref--;
+            }
+
+            int matchLength = MIN_MATCH;
+
+            while (ip + matchLength < matchLimit && src[ip + matchLength] == src[ref + matchLength])
+                matchLength++;
+
+            op = writeSequence(src, anchor, ip - anchor, ip - ref, matchLength, dst, op);
+
+            ip += matchLength;
+            anchor = ip;
+        }
+
+        op = writeSequence(src, anchor, end - anchor, 0, 0, dst, op);
+
+        return Arrays.copyOf(dst, op);
+    }
+
+    /**
+     * Decompresses a LZ4 block from one DirectBuffer into another.
+     *
+     * @param src       The DirectBuffer containing the compressed block.
+     * @param srcOffset The offset of the compressed block in the source buffer.
+     * @param srcLength The length of the compressed block.
+     * @param dst       The DirectBuffer to write the decompressed data into.
+     * @param dstOffset The offset in the destination buffer to start writing at.
+     * @param dstLength The maximum number of bytes that can be written into the destination.
+     *
+     * @return The number of decompressed bytes.
+     *
+     * @throws SilenceException If the block is malformed, or does not fit in the destination.
+     */
+    public static int decompress(DirectBuffer src, int srcOffset, int srcLength,
+                                 DirectBuffer dst, int dstOffset, int dstLength)
+    {
+        int ip = srcOffset;
+        int srcEnd = srcOffset + srcLength;
+
+        int op = dstOffset;
+        int dstEnd = dstOffset + dstLength;
+
+        while (ip < srcEnd)
+        {
+            int token = src.readByte(ip++) & 0xFF;
+
+            // Copy the literals
+            int literals = token >>> 4;
+
+            if (literals == 15)
+            {
+                int b;
+
+                do
+                {
+                    b = src.readByte(ip++) & 0xFF;
+                    literals += b;
+                }
+                while (b == 255);
+            }
+
+            if (ip + literals > srcEnd || op + literals > dstEnd)
+                throw new SilenceException("Malformed LZ4 block: literals out of bounds");
+
+            dst.copyFrom(op, src, ip, literals);
+            op += literals;
+            ip += literals;
+
+            // The last sequence only has literals
+            if (ip >= srcEnd)
+                break;
+
+            int distance = (src.readByte(ip) & 0xFF) | ((src.readByte(ip + 1) & 0xFF) << 8);
+            ip += 2;
+
+            int matchLength = token & 0x0F;
+
+            if (matchLength == 15)
+            {
+                int b;
+
+                do
+                {
+                    b = src.readByte(ip++) & 0xFF;
+                    matchLength += b;
+                }
+                while (b == 255);
+            }
+
+            matchLength += MIN_MATCH;
+
+            if (distance == 0 || op - distance < dstOffset || op + matchLength > dstEnd)
+                throw new SilenceException("Malformed LZ4 block: match out of bounds");
+
+            if (distance >= matchLength)
+            {
+                dst.copyFrom(op, dst, op - distance, matchLength);
+                op += matchLength;
+            }
+            else
+            {
+                // Byte by byte, since the match overlaps the bytes it is producing
+                for (int i = 0; i < matchLength; i++, op++)
+                    dst.writeByte(op, dst.readByte(op - distance));
+            }
+        }
+
+        return op - dstOffset;
+    }
+
+    private static int writeSequence(byte[] src, int literalStart, int literals, int distance, int matchLength,
+                                     byte[] dst, int op)
+    {
+        int tokenPos = op++;
+        int token = Math.min(literals, 15) << 4;
+
+        op = writeLength(literals, dst, op);
+        System.arraycopy(src, literalStart, dst, op, literals);
+        op += literals;
+
+        if (matchLength > 0)
+        {
+            dst[op++] = (byte) distance;
+            dst[op++] = (byte) (distance >>> 8);
+
+            matchLength -= MIN_MATCH;
+            token |= Math.min(matchLength, 15);
+            op = writeLength(matchLength, dst, op);
+        }
+
+        dst[tokenPos] = (byte) token;
+        return op;
+    }
+
+    private static int writeLength(int length, byte[] dst, int op)
+    {
+        if (length < 15)
+            return op;
+
+        length -= 15;
+
+        while (length >= 255)
+        {
+            dst[op++] = (byte) 255;
+            length -= 255;
+        }
+
+        dst[op++] = (byte) length;
+        return op;
+    }
+
+    private static int readIntLE(byte[] data, int index)
+    {
+        return (data[index] & 0xFF) | (data[index + 1] & 0xFF) << 8 |
+               (data[index + 2] & 0xFF) << 16 | (data[index + 3] & 0xFF) << 24;
+    }
+}
@@ -0,0 +1,320 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.io;
+
+import com.shc.silenceengine.core.SilenceEngine;
+import com.shc.silenceengine.utils.functional.UniCallback;
+
+/**
+ * <p>A cache of processed assets on the disk, which lets the game skip decoding its assets on every launch. The result
+ * of processing an asset, like the pixels of a decoded image or the samples of a decoded sound, is stored in the cache
+ * directory under a key made of the hash of the source bytes, the name of the processor and its version. On the next
+ * launch, the processed data is memory mapped from the cache instead of being processed again.</p>
+ *
+ * <p>Every entry starts with a small header that has a magic number, the length of the processed data and a checksum
+ * of it. Entries are written to a temporary file that is then moved over the entry, so a crash while writing can never
+ * leave a half written entry behind. Because of that, the checksum only has to catch entries that were truncated or
+ * overwritten by something else, and it is computed from a few blocks spread over the data instead of all of it, so a
+ * hit costs about the same for every size. Entries whose header does not match their data are deleted, and the asset
+ * is processed again.</p>
+ *
+ * <p>The cache is disabled until a directory is set, and it is only useful on the backends that can write files.
+ * Bumping the version of a processor invalidates all the entries it stored before, since they no longer match the
+ * keys.</p>
+ *
+ * <pre>
+ *     ProcessedAssetCache.setDirectory(FilePath.getExternalFile(".cache"));
+ * </pre>
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public final class ProcessedAssetCache
+{
+    // "SEPA" in ASCII and the version of the layout, followed by the length and the checksum of the processed data.
+    // The header is a multiple of eight bytes, so that the data after it stays aligned.
+    private static final int MAGIC           = 0x53455041;
+    private static final int FORMAT          = 2;
+    private static final int LENGTH_OFFSET   = 2 * PrimitiveSize.INT;
+    private static final int CHECKSUM_OFFSET = LENGTH_OFFSET + PrimitiveSize.LONG;
+    private static final int HEADER_SIZE     = CHECKSUM_OFFSET + PrimitiveSize.LONG;
+
+    // The checksum hashes this many blocks of this size, evenly spread from the first to the last byte of the data
+    private static final int SAMPLE_COUNT = 16;
+    private static final int SAMPLE_SIZE  = 1024;
+
+    private static FilePath directory;
+
+    private ProcessedAssetCache()
+    {
+    }
+
+    /**
+     * @return The directory where the processed assets are stored, or null if the cache is disabled.
+     */
+    public static FilePath getDirectory()
+    {
+        return directory;
+    }
+
+    /**
+     * Sets the directory where the processed assets are stored. The directory is created when the first entry is
+     * stored.
+     *
+     * @param directory The external directory for the cache, or null to disable the cache.
+     */
+    public static void setDirectory(FilePath directory)
+    {
+        ProcessedAssetCache.directory = directory;
+    }
+
+    /**
+     * @return True if a cache directory is set, else false.
+     */
+    public static boolean isEnabled()
+    {
+        return directory != null;
+    }
+
+    /**
+     * Computes the key of a processed asset. The key is the name of the file in the cache directory.
+     *
+     * @param processor The name of the processor that processes the source.
+     * @param version   The version of the processor, which should be changed whenever its output changes.
+     * @param source    The source bytes of the asset.
+     *
+     * @return The key of the processed asset.
+     */
+    public static String key(String processor, int version, DirectBuffer source)
+    {
+        int size = source.sizeBytes();
+        long hash = hash(source, 0, size);
+
+        return processor + "-v" + version + "-" + Long.toHexString(hash) + "-" + Integer.toHexString(size) + ".bin";
+    }
+
+    /**
+     * Computes a 64-bit FNV-1a hash of a range of bytes in a buffer. The bytes are mixed in an int at a time, which is
+     * read in bulk from the buffer, and only the bytes after the last whole int are mixed in one by one.
+     */
+    private static long hash(DirectBuffer buffer, int offset, int size)
+    {
+        long hash = 0xCBF29CE484222325L;
+
+        int words = size / PrimitiveSize.INT;
+        int[] chunk = new int[Math.min(words, 1024)];
+
+        for (int i = 0; i < words; i += chunk.length)
+        {
+            int length = Math.min(chunk.length, words - i);
+            buffer.get(offset + i * PrimitiveSize.INT, chunk, 0, length);
+
+            for (int j = 0; j < length; j++)
+            {
+                hash ^= chunk[j] & 0xFFFFFFFFL;
+                hash *= 0x100000001B3L;
+            }
+        }
+
+        for (int i = words * PrimitiveSize.INT; i < size; i++)
+        {
+            hash ^= buffer.readByte(offset + i) & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+
+        return hash;
+    }
+
+    /**
+     * Computes the checksum of the processed data in an entry. Small data is hashed completely, larger data only has
+     * its sample blocks hashed, along with its size.
+     */
+    private static long checksum(DirectBuffer buffer, int offset, int size)
+    {
+        if (size <= SAMPLE_COUNT * SAMPLE_SIZE)
+            return hash(buffer, offset, size);
+
+        long checksum = size;
+        int stride = (size - SAMPLE_SIZE) / (SAMPLE_COUNT - 1);
+
+        for (int i = 0; i < SAMPLE_COUNT; i++)
+            checksum = checksum * 31 + hash(buffer, offset + i * stride, SAMPLE_SIZE);
+
+        return checksum;
+    }
+
+    /**
+     * Processes an asset through the cache. The source file is read and hashed, and if the cache has the processed
+     * data for it, that data is memory mapped and handed over. Otherwise, the processor is invoked to process the
+     * source, and the result is handed over and stored in the cache. The processed data is freed once the callback
+     * returns (and it is written to the cache), so the callback must not keep it around.
+     *
+     * @param file      The source file of the asset.
+     * @param name      The name of the processor.
+     * @param version   The version of the processor.
+     * @param processor The processor that turns the source bytes into the processed data.
+     * @param onLoaded  The callback to receive the processed data.
+     * @param onError   The callback to receive the error, if any.
+     */
+    public static void process(FilePath file, String name, int version, IProcessor processor,
+                               UniCallback<DirectBuffer> onLoaded, UniCallback<Throwable> onError)
+    {
+        SilenceEngine.io.getFileReader().readBinaryFile(file, source ->
+        {
+            if (!isEnabled())
+            {
+                processor.process(source, processed ->
+                {
+                    DirectBuffer.free(source);
+                    onLoaded.invoke(processed);
+                    DirectBuffer.free(processed);
+                }, onError);
+
+                return;
+            }
+
+            String key = key(name, version, source);
+            FilePath entry = directory.getChild(key);
+
+            entry.exists().then(exists ->
+            {
+                if (!exists)
+                {
+                    processAndStore(entry, source, processor, onLoaded, onError);
+                    return;
+                }
+
+                SilenceEngine.io.getFileReader().mapBinaryFile(entry, cached ->
+                {
+                    if (!isValid(cached))
+                    {
+                        DirectBuffer.free(cached);
+                        discard(entry, "its header does not match the data");
+                        processAndStore(entry, source, processor, onLoaded, onError);
+                        return;
+                    }
+
+                    DirectBuffer.free(source);
+
+                    DirectBuffer data = cached.slice(HEADER_SIZE, cached.sizeBytes() - HEADER_SIZE);
+                    onLoaded.invoke(data);
+
+                    DirectBuffer.free(data);
+                    DirectBuffer.free(cached);
+                }, e ->
+                {
+                    discard(entry, e.toString());
+                    processAndStore(entry, source, processor, onLoaded, onError);
+                });
+            }, onError);
+        }, onError);
+    }
+
+    private static void processAndStore(FilePath entry, DirectBuffer source, IProcessor processor,
+                                        UniCallback<DirectBuffer> onLoaded, UniCallback<Throwable> onError)
+    {
+        processor.process(source, processed ->
+        {
+            DirectBuffer.free(source);
+            onLoaded.invoke(processed);
+
+            store(entry, processed);
+        }, onError);
+    }
+
+    private static boolean isValid(DirectBuffer cached)
+    {
+        if (cached.sizeBytes() < HEADER_SIZE)
+            return false;
+
+        if (cached.readInt(0) != MAGIC || cached.readInt(PrimitiveSize.INT) != FORMAT)
+            return false;
+
+        long length = cached.readLong(LENGTH_OFFSET);
+
+        if (length != cached.sizeBytes() - HEADER_SIZE)
+            return false;
+
+        return cached.readLong(CHECKSUM_OFFSET) == checksum(cached, HEADER_SIZE, (int) length);
+    }
+
+    private static void discard(FilePath entry, String reason)
+    {
+        SilenceEngine.log.getRootLogger().warn("Discarding the cached " + entry.getName() + ", " + reason);
+
+        entry.delete().then(deleted ->
+        {
+        }, e -> SilenceEngine.log.getRootLogger().warn("Unable to delete " + entry.getName() + ": " + e));
+    }
+
+    private static void store(FilePath entry, DirectBuffer processed)
+    {
+        int size = processed.sizeBytes();
+
+        DirectBuffer data = DirectBuffer.create(HEADER_SIZE + size);
+        data.writeInt(0, MAGIC)
+                .writeInt(PrimitiveSize.INT, FORMAT)
+                .writeLong(LENGTH_OFFSET, size)
+                .writeLong(CHECKSUM_OFFSET, checksum(processed, 0, size))
+                .copyFrom(HEADER_SIZE, processed, 0, size);
+
+        DirectBuffer.free(processed);
+
+        FilePath temp = directory.getChild(entry.getName() + ".tmp");
+
+        UniCallback<Throwable> onError = e ->
+        {
+            // A failure to cache is not fatal, the asset is just processed again on the next launch
+            SilenceEngine.log.getRootLogger().warn("Unable to cache " + entry.getName() + ": " + e);
+            DirectBuffer.free(data);
+        };
+
+        // The entry only appears once it is completely written, by moving the temporary file over it
+        directory.mkdirs().then(created ->
+                SilenceEngine.io.getFileWriter().write(data, temp, false, () ->
+                {
+                    DirectBuffer.free(data);
+
+                    temp.moveTo(entry).then(moved ->
+                    {
+                    }, e -> SilenceEngine.log.getRootLogger().warn("Unable to cache " + entry.getName() + ": " + e));
+                }, onError), onError);
+    }
+
+    /**
+     * A processor turns the source bytes of an asset into processed data that is ready to be used.
+     */
+    @FunctionalInterface
+    public interface IProcessor
+    {
+        /**
+         * Processes the source bytes of an asset. The source buffer is freed after the processor hands over the result.
+         *
+         * @param source      The source bytes of the asset.
+         * @param onProcessed The callback to hand over the processed data.
+         * @param onError     The callback to report an error.
+         */
+        void process(DirectBuffer source, UniCallback<DirectBuffer> onProcessed, UniCallback<Throwable> onError);
+    }
+}
@@ -27,12 +27,22 @@ package com.shc.silenceengine.logging;
 import com.shc.silenceengine.core.SilenceEngine;
 
 /**
+ * A named logger. Messages below the level of the logger are discarded before they are formatted, so a disabled
+ * message only costs a comparison. Besides the plain messages, the loggers accept parameterized messages in which every
+ * {@code {}} is replaced with the next argument, like {@code logger.infof("Loaded {} in {} ms", path, time)}. These
+ * are only formatted when the level is enabled. The parameterized methods have their own names, so that the existing
+ * calls like {@code logger.info("a", b)} keep logging every argument as a separate message.
+ *
  * @author Sri Harsha Chilakapati
  */
 public abstract class Logger
 {
+    private static Level defaultLevel = Level.INFO;
+
     public final String name;
 
+    private Level level = defaultLevel;
+
     public Logger(String name)
     {
         this.name = name;
@@ -43,34 +53,148 @@ public abstract class Logger
         return SilenceEngine.log.getLogger(name);
     }
 
-    public abstract void info(Object... messages);
-
-    public abstract void warn(Object... messages);
+    /**
+     * Sets the level that the loggers created from now on start with. Existing loggers keep their level.
+     *
+     * @param level The minimum level of the messages to log.
+     */
+    public static void setDefaultLevel(Level level)
+    {
+        defaultLevel = level;
+    }
 
-    public abstract void error(Object... messages);
+    public static Level getDefaultLevel()
+    {
+        return defaultLevel;
+    }
 
-    public void log(Level level, Object... messages)
+    /**
+     * Replaces each {@code {}} in the format with the string value of the next argument. Arguments without a
+     * placeholder are appended at the end, separated by spaces, so that they are not lost.
+     *
+     * @param format The message with the placeholders.
+     * @param args   The values for the placeholders.
+     *
+     * @return The formatted message.
+     */
+    public static String format(String format, Object... args)
     {
-        switch (level)
+        StringBuilder builder = new StringBuilder(format.length() + 16 * args.length);
+
+        int start = 0;
+        int arg = 0;
+
+        while (arg < args.length)
         {
-            case INFO:
-                info(messages);
-                break;
+            int placeholder = format.indexOf("{}", start);
 
-            case WARNING:
-                warn(messages);
+            if (placeholder < 0)
                 break;
 
-            case ERROR:
-                error(messages);
-                break;
+            builder.append(format, start, placeholder).append(args[arg++]);
+            start = placeholder + 2;
         }
+
+        builder.append(format, start, format.length());
+
+        while (arg < args.length)
+            builder.append(' ').append(args[arg++]);
+
+        return builder.toString();
+    }
+
+    public void setLevel(Level level)
+    {
+        this.level = level;
     }
 
+    public Level getLevel()
+    {
+        return level;
+    }
+
+    public boolean isEnabled(Level level)
+    {
+        return level != Level.OFF && level.ordinal() >= this.level.ordinal();
+    }
+
+    public void info(Object... messages)
+    {
+        log(Level.INFO, messages);
+    }
+
+    public void infof(String format, Object arg)
+    {
+        if (isEnabled(Level.INFO))
+            write(Level.INFO, format(format, arg));
+    }
+
+    public void infof(String format, Object arg1, Object arg2)
+    {
+        if (isEnabled(Level.INFO))
+            write(Level.INFO, format(format, arg1, arg2));
+    }
+
+    public void warn(Object... messages)
+    {
+        log(Level.WARNING, messages);
+    }
+
+    public void warnf(String format, Object arg)
+    {
+        if (isEnabled(Level.WARNING))
+            write(Level.WARNING, format(format, arg));
+    }
+
+    public void warnf(String format, Object arg1, Object arg2)
+    {
+        if (isEnabled(Level.WARNING))
+            write(Level.WARNING, format(format, arg1, arg2));
+    }
+
+    public void error(Object... messages)
+    {
+        log(Level.ERROR, messages);
+    }
+
+    public void errorf(String format, Object arg)
+    {
+        if (isEnabled(Level.ERROR))
+            write(Level.ERROR, format(format, arg));
+    }
+
+    public void errorf(String format, Object arg1, Object arg2)
+    {
+        if (isEnabled(Level.ERROR))
+            write(Level.ERROR, format(format, arg1, arg2));
+    }
+
+    public void log(Level level, Object... messages)
+    {
+        if (!isEnabled(level))
+            return;
+
+        for (Object message : messages)
+            write(level, String.valueOf(message));
+    }
+
+    /**
+     * Writes a message that has passed the level check to the output of the backend.
+     *
+     * @param level   The level of the message, one of INFO, WARNING or ERROR.
+     * @param message The formatted message.
+     */
+    protected abstract void write(Level level, String message);
+
     public enum Level
     {
         INFO,
         WARNING,
-        ERROR
+        ERROR,
+
+        /**
+         * Not a level of messages, setting this as the level of a logger turns it off.
+         */
+        OFF
     }
 }
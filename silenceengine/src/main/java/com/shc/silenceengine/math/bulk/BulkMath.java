@@ -0,0 +1,212 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.math.bulk;
+
+import com.shc.silenceengine.math.Matrix4;
+import com.shc.silenceengine.math.Vector2;
+import com.shc.silenceengine.math.Vector3;
+
+import java.util.List;
+
+/**
+ * <p>Bulk math operations on packed float arrays of vectors. This is the entry point for the kernels, which are
+ * delegated to the current {@link IBulkKernels} implementation. All the offsets and strides are in floats, and all the
+ * counts are in vectors.</p>
+ *
+ * <pre>
+ *     float[] points = BulkMath.pack3(polyhedron.getVertices(), null, 3);
+ *     BulkMath.transformPoints(transform.matrix, points, 0, points, 0, polyhedron.vertexCount(), 3);
+ * </pre>
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public final class BulkMath
+{
+    private static IBulkKernels kernels = new ScalarBulkKernels();
+
+    private BulkMath()
+    {
+    }
+
+    /**
+     * @return The kernels that are currently in use.
+     */
+    public static IBulkKernels getKernels()
+    {
+        return kernels;
+    }
+
+    /**
+     * Replaces the kernels with another implementation, usually by a backend that detected a faster implementation is
+     * available at runtime. Passing null restores the default {@link ScalarBulkKernels}.
+     *
+     * @param kernels The kernels to use from now on.
+     */
+    public static void setKernels(IBulkKernels kernels)
+    {
+        BulkMath.kernels = kernels == null ? new ScalarBulkKernels() : kernels;
+    }
+
+    public static void transformPoints(Matrix4 matrix, float[] src, int srcOffset, float[] dest, int destOffset,
+                                       int count, int stride)
+    {
+        kernels.transform(matrix, 1, src, srcOffset, dest, destOffset, count, stride);
+    }
+
+    public static void transformDirections(Matrix4 matrix, float[] src, int srcOffset, float[] dest, int destOffset,
+                                           int count, int stride)
+    {
+        kernels.transform(matrix, 0, src, srcOffset, dest, destOffset, count, stride);
+    }
+
+    public static void normalize(float[] data, int offset, int count, int stride)
+    {
+        kernels.normalize(data, offset, count, stride);
+    }
+
+    public static void dot(float[] a, int aOffset, float[] b, int bOffset, float[] dest, int destOffset, int count,
+                           int stride)
+    {
+        kernels.dot(a, aOffset, b, bOffset, dest, destOffset, count, stride);
+    }
+
+    public static void cross(float[] a, int aOffset, float[] b, int bOffset, float[] dest, int destOffset, int count,
+                             int stride)
+    {
+        kernels.cross(a, aOffset, b, bOffset, dest, destOffset, count, stride);
+    }
+
+    /**
+     * Computes the bounds of 2D vectors into the destination as minX, minY, maxX, maxY.
+     */
+    public static float[] bounds2(float[] data, int offset, int count, int stride, float[] dest)
+    {
+        if (dest == null)
+            dest = new float[4];
+
+        kernels.bounds(data, offset, count, stride, 2, dest);
+        return dest;
+    }
+
+    /**
+     * Computes the bounds of 3D vectors into the destination as minX, minY, minZ, maxX, maxY, maxZ.
+     */
+    public static float[] bounds3(float[] data, int offset, int count, int stride, float[] dest)
+    {
+        if (dest == null)
+            dest = new float[6];
+
+        kernels.bounds(data, offset, count, stride, 3, dest);
+        return dest;
+    }
+
+    public static float[] project2(float[] data, int offset, int count, int stride, float[] axes, int axisCount,
+                                   float[] dest)
+    {
+        if (dest == null)
+            dest = new float[axisCount * 2];
+
+        kernels.project(data, offset, count, stride, 2, axes, axisCount, dest);
+        return dest;
+    }
+
+    public static float[] project3(float[] data, int offset, int count, int stride, float[] axes, int axisCount,
+                                   float[] dest)
+    {
+        if (dest == null)
+            dest = new float[axisCount * 2];
+
+        kernels.project(data, offset, count, stride, 3, axes, axisCount, dest);
+        return dest;
+    }
+
+    /**
+     * Checks whether the projections of two shapes onto the same axes overlap on every axis, that is, whether there is
+     * no separating axis among them.
+     *
+     * @param a         The projections of the first shape, as computed by project2 or project3.
+     * @param b         The projections of the second shape onto the same axes.
+     * @param axisCount The number of axes.
+     *
+     * @return True if the projections overlap on all the axes.
+     */
+    public static boolean overlaps(float[] a, float[] b, int axisCount)
+    {
+        for (int i = 0; i < axisCount * 2; i += 2)
+            if (a[i] > b[i + 1] || b[i] > a[i + 1])
+                return false;
+
+        return true;
+    }
+
+    public static float[] pack3(List<Vector3> vectors, float[] dest, int stride)
+    {
+        int size = vectors.size();
+
+        if (dest == null || dest.length < size * stride)
+            dest = new float[size * stride];
+
+        for (int i = 0, o = 0; i < size; i++, o += stride)
+        {
+            Vector3 v = vectors.get(i);
+
+            dest[o] = v.x;
+            dest[o + 1] = v.y;
+            dest[o + 2] = v.z;
+        }
+
+        return dest;
+    }
+
+    public static float[] pack2(List<Vector2> vectors, float[] dest, int stride)
+    {
+        int size = vectors.size();
+
+        if (dest == null || dest.length < size * stride)
+            dest = new float[size * stride];
+
+        for (int i = 0, o = 0; i < size; i++, o += stride)
+        {
+            Vector2 v = vectors.get(i);
+
+            dest[o] = v.x;
+            dest[o + 1] = v.y;
+        }
+
+        return dest;
+    }
+
+    public static void unpack3(float[] src, int stride, List<Vector3> dest)
+    {
+        for (int i = 0, o = 0; i < dest.size(); i++, o += stride)
+            dest.get(i).set(src[o], src[o + 1], src[o + 2]);
+    }
+
+    public static void unpack2(float[] src, int stride, List<Vector2> dest)
+    {
+        for (int i = 0, o = 0; i < dest.size(); i++, o += stride)
+            dest.get(i).set(src[o], src[o + 1]);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.math.bulk;
+
+import com.shc.silenceengine.math.Matrix4;
+
+/**
+ * The kernels that are used by {@link BulkMath}. All the offsets and strides are in floats, and the counts are in
+ * vectors. The default implementation is {@link ScalarBulkKernels}, and a platform can provide an implementation that
+ * uses the SIMD instructions directly if they are available at runtime.
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public interface IBulkKernels
+{
+    /**
+     * Transforms the XYZ components of the vectors with a matrix. The vectors are considered to have the given W
+     * component, that is 1 for points and 0 for directions. If the stride is at least four, the W component of the
+     * result is also written.
+     */
+    void transform(Matrix4 matrix, float w, float[] src, int srcOffset, float[] dest, int destOffset, int count,
+                   int stride);
+
+    /**
+     * Normalizes the XYZ components of the vectors in place. Vectors of zero length are left untouched.
+     */
+    void normalize(float[] data, int offset, int count, int stride);
+
+    /**
+     * Computes the dot products of the XYZ components of the pairs of vectors. The results are stored tightly packed in
+     * the destination array, one float per pair.
+     */
+    void dot(float[] a, int aOffset, float[] b, int bOffset, float[] dest, int destOffset, int count, int stride);
+
+    /**
+     * Computes the cross products of the XYZ components of the pairs of vectors. The results are stored with the same
+     * stride as the input.
+     */
+    void cross(float[] a, int aOffset, float[] b, int bOffset, float[] dest, int destOffset, int count, int stride);
+
+    /**
+     * Computes the axis aligned bounds of the vectors. The minimum of each component is stored first in the destination,
+     * followed by the maximum of each component.
+     *
+     * @param components The number of components in each vector to consider, either 2 or 3.
+     */
+    void bounds(float[] data, int offset, int count, int stride, int components, float[] dest);
+
+    /**
+     * Projects all the vectors onto each of the axes, which is the core of the separating axis test. For each axis, the
+     * minimum and the maximum of the projections are stored in the destination one after the other.
+     *
+     * @param components The number of components in each vector and each axis, either 2 or 3.
+     * @param axes       The tightly packed axes to project onto.
+     * @param axisCount  The number of axes.
+     */
+    void project(float[] data, int offset, int count, int stride, int components, float[] axes, int axisCount,
+                 float[] dest);
+}
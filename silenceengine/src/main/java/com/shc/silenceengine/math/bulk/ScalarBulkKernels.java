@@ -0,0 +1,200 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.math.bulk;
+
+import com.shc.silenceengine.math.Matrix4;
+
+/**
+ * The default implementation of the bulk kernels in plain Java. Every kernel copies what it needs into locals and runs
+ * a single counted loop over the arrays with no calls or allocations inside, which is the shape of code that the
+ * HotSpot C2 compiler unrolls and vectorizes.
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public class ScalarBulkKernels implements IBulkKernels
+{
+    @Override
+    public void transform(Matrix4 matrix, float w, float[] src, int srcOffset, float[] dest, int destOffset, int count,
+                          int stride)
+    {
+        final float[][] m = matrix.m;
+
+        final float m00 = m[0][0], m01 = m[0][1], m02 = m[0][2], m03 = m[0][3];
+        final float m10 = m[1][0], m11 = m[1][1], m12 = m[1][2], m13 = m[1][3];
+        final float m20 = m[2][0], m21 = m[2][1], m22 = m[2][2], m23 = m[2][3];
+        final float m30 = m[3][0] * w, m31 = m[3][1] * w, m32 = m[3][2] * w, m33 = m[3][3] * w;
+
+        final boolean writeW = stride >= 4;
+
+        for (int i = 0, s = srcOffset, d = destOffset; i < count; i++, s += stride, d += stride)
+        {
+            final float x = src[s];
+            final float y = src[s + 1];
+            final float z = src[s + 2];
+
+            dest[d] = m00 * x + m10 * y + m20 * z + m30;
+            dest[d + 1] = m01 * x + m11 * y + m21 * z + m31;
+            dest[d + 2] = m02 * x + m12 * y + m22 * z + m32;
+
+            if (writeW)
+                dest[d + 3] = m03 * x + m13 * y + m23 * z + m33;
+        }
+    }
+
+    @Override
+    public void normalize(float[] data, int offset, int count, int stride)
+    {
+        for (int i = 0, o = offset; i < count; i++, o += stride)
+        {
+            final float x = data[o];
+            final float y = data[o + 1];
+            final float z = data[o + 2];
+
+            final float lengthSquared = x * x + y * y + z * z;
+
+            if (lengthSquared == 0)
+                continue;
+
+            final float inverseLength = (float) (1.0 / Math.sqrt(lengthSquared));
+
+            data[o] = x * inverseLength;
+            data[o + 1] = y * inverseLength;
+            data[o + 2] = z * inverseLength;
+        }
+    }
+
+    @Override
+    public void dot(float[] a, int aOffset, float[] b, int bOffset, float[] dest, int destOffset, int count, int stride)
+    {
+        for (int i = 0, oa = aOffset, ob = bOffset; i < count; i++, oa += stride, ob += stride)
+            dest[destOffset + i] = a[oa] * b[ob] + a[oa + 1] * b[ob + 1] + a[oa + 2] * b[ob + 2];
+    }
+
+    @Override
+    public void cross(float[] a, int aOffset, float[] b, int bOffset, float[] dest, int destOffset, int count,
+                      int stride)
+    {
+        for (int i = 0, oa = aOffset, ob = bOffset, d = destOffset; i < count;
+             i++, oa += stride, ob += stride, d += stride)
+        {
+            final float ax = a[oa], ay = a[oa + 1], az = a[oa + 2];
+            final float bx = b[ob], by = b[ob + 1], bz = b[ob + 2];
+
+            dest[d] = ay * bz - az * by;
+            dest[d + 1] = az * bx - ax * bz;
+            dest[d + 2] = ax * by - ay * bx;
+        }
+    }
+
+    @Override
+    public void bounds(float[] data, int offset, int count, int stride, int components, float[] dest)
+    {
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+
+        if (components == 2)
+        {
+            for (int i = 0, o = offset; i < count; i++, o += stride)
+            {
+                final float x = data[o];
+                final float y = data[o + 1];
+
+                minX = Math.min(minX, x);
+                minY = Math.min(minY, y);
+                maxX = Math.max(maxX, x);
+                maxY = Math.max(maxY, y);
+            }
+
+            dest[0] = minX;
+            dest[1] = minY;
+            dest[2] = maxX;
+            dest[3] = maxY;
+        }
+        else
+        {
+            for (int i = 0, o = offset; i < count; i++, o += stride)
+            {
+                final float x = data[o];
+                final float y = data[o + 1];
+                final float z = data[o + 2];
+
+                minX = Math.min(minX, x);
+                minY = Math.min(minY, y);
+                minZ = Math.min(minZ, z);
+                maxX = Math.max(maxX, x);
+                maxY = Math.max(maxY, y);
+                maxZ = Math.max(maxZ, z);
+            }
+
+            dest[0] = minX;
+            dest[1] = minY;
+            dest[2] = minZ;
+            dest[3] = maxX;
+            dest[4] = maxY;
+            dest[5] = maxZ;
+        }
+    }
+
+    @Override
+    public void project(float[] data, int offset, int count, int stride, int components, float[] axes, int axisCount,
+                        float[] dest)
+    {
+        for (int axis = 0; axis < axisCount; axis++)
+        {
+            final int a = axis * components;
+
+            final float ax = axes[a];
+            final float ay = axes[a + 1];
+            final float az = components == 2 ? 0 : axes[a + 2];
+
+            float min = Float.POSITIVE_INFINITY;
+            float max = Float.NEGATIVE_INFINITY;
+
+            if (components == 2)
+            {
+                for (int i = 0, o = offset; i < count; i++, o += stride)
+                {
+                    final float p = data[o] * ax + data[o + 1] * ay;
+
+                    min = Math.min(min, p);
+                    max = Math.max(max, p);
+                }
+            }
+            else
+            {
+                for (int i = 0, o = offset; i < count; i++, o += stride)
+                {
+                    final float p = data[o] * ax + data[o + 1] * ay + data[o + 2] * az;
+
+                    min = Math.min(min, p);
+                    max = Math.max(max, p);
+                }
+            }
+
+            dest[axis * 2] = min;
+            dest[axis * 2 + 1] = max;
+        }
+    }
+}
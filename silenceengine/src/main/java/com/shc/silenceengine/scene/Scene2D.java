@@ -24,19 +24,42 @@
 
 package com.shc.silenceengine.scene;
 
+import com.shc.silenceengine.collision.broadphase.BoundsTree2D;
+import com.shc.silenceengine.graphics.cameras.Camera;
+import com.shc.silenceengine.graphics.cameras.OrthoCam;
+import com.shc.silenceengine.math.geom2d.Rectangle;
+import com.shc.silenceengine.scene.components.BoundsComponent2D;
+import com.shc.silenceengine.scene.components.CollisionComponent2D;
 import com.shc.silenceengine.scene.entity.Entity2D;
 import com.shc.silenceengine.utils.TaskManager;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
+ * A scene of 2D entities. The scene keeps the world bounds of the entities in a spatial index, and when the current
+ * camera is an {@link OrthoCam}, only the entities whose bounds intersect the view rectangle of the camera are rendered.
+ * The bounds of an entity are taken from its {@link BoundsComponent2D} if it has one, or from the polygon of its
+ * {@link CollisionComponent2D}. Entities without bounds are always rendered.
+ *
  * @author Sri Harsha Chilakapati
  */
 public class Scene2D
 {
     private List<Entity2D> entities = new ArrayList<>();
 
+    private BoundsTree2D<Entity2D> boundsTree       = new BoundsTree2D<>();
+    private Set<Entity2D>          visibleEntities  = new HashSet<>();
+    private List<Entity2D>         entitiesToRender = new ArrayList<>();
+    private Rectangle              viewRectangle    = new Rectangle();
+
+    private boolean cullingEnabled = true;
+
+    private int renderedEntities;
+    private int culledEntities;
+
     public void update(float deltaTime)
     {
         for (Entity2D entity : entities)
@@ -46,11 +69,85 @@ public class Scene2D
             else
                 removeEntity(entity);
         }
+
+        // The bounds tree is read by the render, which can run on another thread with a threaded game loop. Only the
+        // bounds are updated with it locked, so that the render is not kept waiting for the game logic.
+        synchronized (boundsTree)
+        {
+            for (Entity2D entity : entities)
+                if (!entity.isDestroyed())
+                    updateBounds(entity);
+        }
+    }
+
+    private void updateBounds(Entity2D entity)
+    {
+        boolean indexed = boundsTree.contains(entity);
+
+        // The bounds only change when the entity is transformed
+        if (indexed && !entity.transformComponent.transformed)
+            return;
+
+        Rectangle bounds = getBounds(entity);
+
+        if (bounds != null)
+            boundsTree.update(entity, bounds);
+        else if (indexed)
+            boundsTree.remove(entity);
+    }
+
+    private Rectangle getBounds(Entity2D entity)
+    {
+        BoundsComponent2D boundsComponent = entity.getComponent(BoundsComponent2D.class);
+
+        if (boundsComponent != null)
+            return boundsComponent.getBounds();
+
+        CollisionComponent2D collisionComponent = entity.getComponent(CollisionComponent2D.class);
+
+        if (collisionComponent != null && collisionComponent.polygon != null)
+            return collisionComponent.polygon.getBounds();
+
+        return null;
     }
 
     public void render(float deltaTime)
     {
-        for (Entity2D entity : entities) entity.render(deltaTime);
+        Camera camera = Camera.CURRENT;
+
+        if (!cullingEnabled || !(camera instanceof OrthoCam))
+        {
+            for (Entity2D entity : entities) entity.render(deltaTime);
+
+            renderedEntities = entities.size();
+            culledEntities = 0;
+            return;
+        }
+
+        ((OrthoCam) camera).getViewRectangle(viewRectangle);
+
+        renderedEntities = culledEntities = 0;
+        entitiesToRender.clear();
+
+        // Only the culling is done with the bounds tree locked, the entities are rendered after it is released
+        synchronized (boundsTree)
+        {
+            visibleEntities.clear();
+            visibleEntities.addAll(boundsTree.retrieve(viewRectangle));
+
+            for (Entity2D entity : entities)
+            {
+                if (!boundsTree.contains(entity) || visibleEntities.contains(entity))
+                    entitiesToRender.add(entity);
+                else
+                    culledEntities++;
+            }
+        }
+
+        for (Entity2D entity : entitiesToRender)
+            entity.render(deltaTime);
+
+        renderedEntities = entitiesToRender.size();
     }
 
     public int numEntities()
@@ -76,9 +173,40 @@ public class Scene2D
                 entity.destroy();
 
             entities.remove(entity);
+
+            synchronized (boundsTree)
+            {
+                boundsTree.remove(entity);
+            }
         });
     }
 
+    /**
+     * @return The number of the top level entities that were rendered in the last frame.
+     */
+    public int getRenderedEntities()
+    {
+        return renderedEntities;
+    }
+
+    /**
+     * @return The number of the top level entities that were culled in the last frame.
+     */
+    public int getCulledEntities()
+    {
+        return culledEntities;
+    }
+
+    public boolean isCullingEnabled()
+    {
+        return cullingEnabled;
+    }
+
+    public void setCullingEnabled(boolean cullingEnabled)
+    {
+        this.cullingEnabled = cullingEnabled;
+    }
+
     public List<Entity2D> getEntities()
     {
         return entities;
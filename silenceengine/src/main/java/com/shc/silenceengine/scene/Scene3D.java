@@ -24,19 +24,42 @@
 
 package com.shc.silenceengine.scene;
 
+import com.shc.silenceengine.collision.broadphase.BoundsTree3D;
+import com.shc.silenceengine.graphics.cameras.Camera;
+import com.shc.silenceengine.math.Frustum;
+import com.shc.silenceengine.math.geom3d.Cuboid;
+import com.shc.silenceengine.scene.components.BoundsComponent3D;
+import com.shc.silenceengine.scene.components.CollisionComponent3D;
 import com.shc.silenceengine.scene.entity.Entity3D;
 import com.shc.silenceengine.utils.TaskManager;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
+ * A scene of 3D entities. The scene keeps the world bounds of the entities in a spatial index, and only the entities
+ * whose bounds intersect the frustum of the current camera are rendered. The bounds of an entity are taken from its
+ * {@link BoundsComponent3D} if it has one, or from the polyhedron of its {@link CollisionComponent3D}. Entities without
+ * bounds are always rendered.
+ *
  * @author Sri Harsha Chilakapati
  */
 public class Scene3D
 {
     private List<Entity3D> entities = new ArrayList<>();
 
+    private BoundsTree3D<Entity3D> boundsTree       = new BoundsTree3D<>();
+    private Set<Entity3D>          visibleEntities  = new HashSet<>();
+    private List<Entity3D>         entitiesToRender = new ArrayList<>();
+    private Frustum                frustum          = new Frustum();
+
+    private boolean cullingEnabled = true;
+
+    private int renderedEntities;
+    private int culledEntities;
+
     public void update(float deltaTime)
     {
         for (Entity3D entity : entities)
@@ -46,11 +69,85 @@ public class Scene3D
             else
                 removeEntity(entity);
         }
+
+        // The bounds tree is read by the render, which can run on another thread with a threaded game loop. Only the
+        // bounds are updated with it locked, so that the render is not kept waiting for the game logic.
+        synchronized (boundsTree)
+        {
+            for (Entity3D entity : entities)
+                if (!entity.isDestroyed())
+                    updateBounds(entity);
+        }
+    }
+
+    private void updateBounds(Entity3D entity)
+    {
+        boolean indexed = boundsTree.contains(entity);
+
+        // The bounds only change when the entity is transformed
+        if (indexed && !entity.transformComponent.transformed)
+            return;
+
+        Cuboid bounds = getBounds(entity);
+
+        if (bounds != null)
+            boundsTree.update(entity, bounds);
+        else if (indexed)
+            boundsTree.remove(entity);
+    }
+
+    private Cuboid getBounds(Entity3D entity)
+    {
+        BoundsComponent3D boundsComponent = entity.getComponent(BoundsComponent3D.class);
+
+        if (boundsComponent != null)
+            return boundsComponent.getBounds();
+
+        CollisionComponent3D collisionComponent = entity.getComponent(CollisionComponent3D.class);
+
+        if (collisionComponent != null && collisionComponent.polyhedron != null)
+            return collisionComponent.polyhedron.getBounds();
+
+        return null;
     }
 
     public void render(float deltaTime)
     {
-        for (Entity3D entity : entities) entity.render(deltaTime);
+        Camera camera = Camera.CURRENT;
+
+        if (!cullingEnabled || camera == null)
+        {
+            for (Entity3D entity : entities) entity.render(deltaTime);
+
+            renderedEntities = entities.size();
+            culledEntities = 0;
+            return;
+        }
+
+        frustum.update(camera);
+
+        renderedEntities = culledEntities = 0;
+        entitiesToRender.clear();
+
+        // Only the culling is done with the bounds tree locked, the entities are rendered after it is released
+        synchronized (boundsTree)
+        {
+            visibleEntities.clear();
+            visibleEntities.addAll(boundsTree.retrieve(frustum));
+
+            for (Entity3D entity : entities)
+            {
+                if (!boundsTree.contains(entity) || visibleEntities.contains(entity))
+                    entitiesToRender.add(entity);
+                else
+                    culledEntities++;
+            }
+        }
+
+        for (Entity3D entity : entitiesToRender)
+            entity.render(deltaTime);
+
+        renderedEntities = entitiesToRender.size();
     }
 
     public int numEntities()
@@ -76,9 +173,40 @@ public class Scene3D
                 entity.destroy();
 
             entities.remove(entity);
+
+            synchronized (boundsTree)
+            {
+                boundsTree.remove(entity);
+            }
         });
     }
 
+    /**
+     * @return The number of the top level entities that were rendered in the last frame.
+     */
+    public int getRenderedEntities()
+    {
+        return renderedEntities;
+    }
+
+    /**
+     * @return The number of the top level entities that were culled in the last frame.
+     */
+    public int getCulledEntities()
+    {
+        return culledEntities;
+    }
+
+    public boolean isCullingEnabled()
+    {
+        return cullingEnabled;
+    }
+
+    public void setCullingEnabled(boolean cullingEnabled)
+    {
+        this.cullingEnabled = cullingEnabled;
+    }
+
     public List<Entity3D> getEntities()
     {
         return entities;
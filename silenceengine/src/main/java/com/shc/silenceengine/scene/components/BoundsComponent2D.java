@@ -0,0 +1,82 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.scene.components;
+
+import com.shc.silenceengine.math.Matrix4;
+import com.shc.silenceengine.math.geom2d.Rectangle;
+
+/**
+ * Specifies the bounds of an entity explicitly, to be used by the {@link com.shc.silenceengine.scene.Scene2D} for view
+ * culling. The local bounds are specified relative to the origin of the entity, and the world bounds are computed by
+ * transforming the corners of the local bounds with the transform of the entity. Entities that have neither this nor
+ * a {@link CollisionComponent2D} are never culled. The bounds should also cover the children of the entity, since the
+ * children are rendered along with their parent.
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public class BoundsComponent2D extends Component2D
+{
+    public final Rectangle localBounds;
+
+    private final Rectangle bounds = new Rectangle();
+
+    public BoundsComponent2D(float width, float height)
+    {
+        this(new Rectangle(-width / 2, -height / 2, width, height));
+    }
+
+    public BoundsComponent2D(Rectangle localBounds)
+    {
+        this.localBounds = localBounds;
+    }
+
+    /**
+     * @return The axis aligned bounds of the entity in the world space.
+     */
+    public Rectangle getBounds()
+    {
+        Matrix4 m = entity.transformComponent.transform.matrix;
+
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < 4; i++)
+        {
+            float x = localBounds.x + ((i & 1) == 0 ? 0 : localBounds.width);
+            float y = localBounds.y + ((i & 2) == 0 ? 0 : localBounds.height);
+
+            float tx = m.m[0][0] * x + m.m[1][0] * y + m.m[3][0];
+            float ty = m.m[0][1] * x + m.m[1][1] * y + m.m[3][1];
+
+            minX = Math.min(minX, tx);
+            minY = Math.min(minY, ty);
+            maxX = Math.max(maxX, tx);
+            maxY = Math.max(maxY, ty);
+        }
+
+        bounds.set(minX, minY, maxX - minX, maxY - minY);
+        return bounds;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.scene.components;
+
+import com.shc.silenceengine.math.Matrix4;
+import com.shc.silenceengine.math.Vector3;
+import com.shc.silenceengine.math.geom3d.Cuboid;
+
+/**
+ * Specifies the bounds of an entity explicitly, to be used by the {@link com.shc.silenceengine.scene.Scene3D} for
+ * frustum culling. The local bounds are specified relative to the origin of the entity, and the world bounds are
+ * computed by transforming the corners of the local bounds with the transform of the entity. Entities that have neither
+ * this nor a {@link CollisionComponent3D} are never culled. The bounds should also cover the children of the entity,
+ * since the children are rendered along with their parent.
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public class BoundsComponent3D extends Component3D
+{
+    public final Cuboid localBounds;
+
+    private final Cuboid bounds = new Cuboid();
+
+    public BoundsComponent3D(float width, float height, float thickness)
+    {
+        this(new Cuboid(Vector3.ZERO, width, height, thickness));
+    }
+
+    public BoundsComponent3D(Cuboid localBounds)
+    {
+        this.localBounds = localBounds;
+    }
+
+    /**
+     * @return The axis aligned bounds of the entity in the world space.
+     */
+    public Cuboid getBounds()
+    {
+        Matrix4 m = entity.transformComponent.transform.matrix;
+
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < 8; i++)
+        {
+            float x = localBounds.position.x + ((i & 1) == 0 ? -0.5f : 0.5f) * localBounds.width;
+            float y = localBounds.position.y + ((i & 2) == 0 ? -0.5f : 0.5f) * localBounds.height;
+            float z = localBounds.position.z + ((i & 4) == 0 ? -0.5f : 0.5f) * localBounds.thickness;
+
+            float tx = m.m[0][0] * x + m.m[1][0] * y + m.m[2][0] * z + m.m[3][0];
+            float ty = m.m[0][1] * x + m.m[1][1] * y + m.m[2][1] * z + m.m[3][1];
+            float tz = m.m[0][2] * x + m.m[1][2] * y + m.m[2][2] * z + m.m[3][2];
+
+            minX = Math.min(minX, tx);
+            minY = Math.min(minY, ty);
+            minZ = Math.min(minZ, tz);
+            maxX = Math.max(maxX, tx);
+            maxY = Math.max(maxY, ty);
+            maxZ = Math.max(maxZ, tz);
+        }
+
+        bounds.width = maxX - minX;
+        bounds.height = maxY - minY;
+        bounds.thickness = maxZ - minZ;
+        bounds.position.set(minX + bounds.width / 2, minY + bounds.height / 2, minZ + bounds.thickness / 2);
+
+        return bounds;
+    }
+}
@@ -63,6 +63,6 @@ public class SpriteComponent extends Component2D
     @Override
     public void render(float deltaTime)
     {
-        spriteBatch.render(sprite, transformComponent.transform, tint, opacity, layer);
+        spriteBatch.render(sprite, transformComponent.getRenderTransform(), tint, opacity, layer);
     }
 }
@@ -37,6 +37,8 @@ public class TransformComponent2D extends Component2D
     public Transform transform;
     public boolean   transformed;
 
+    private TransformSnapshot snapshot = new TransformSnapshot();
+
     private float   oldRotation;
     private Vector2 oldScale;
     private Vector2 oldPosition;
@@ -50,6 +52,21 @@ public class TransformComponent2D extends Component2D
 
     @Override
     public void update(float deltaTime)
+    {
+        updateTransform();
+        snapshot.capture(transform);
+    }
+
+    /**
+     * @return The transform to be used while rendering. When the game loop is interpolating, this is the transform
+     * interpolated between the last two update ticks, otherwise it is the same as {@link #transform}.
+     */
+    public Transform getRenderTransform()
+    {
+        return snapshot.interpolate(transform);
+    }
+
+    private void updateTransform()
     {
         transformed = false;
 
@@ -36,6 +36,8 @@ public class TransformComponent3D extends Component3D
     public Transform transform;
     public boolean   transformed;
 
+    private TransformSnapshot snapshot = new TransformSnapshot();
+
     private Vector3 oldPosition;
     private Vector3 oldRotation;
     private Vector3 oldScale;
@@ -50,6 +52,21 @@ public class TransformComponent3D extends Component3D
 
     @Override
     public void update(float deltaTime)
+    {
+        updateTransform();
+        snapshot.capture(transform);
+    }
+
+    /**
+     * @return The transform to be used while rendering. When the game loop is interpolating, this is the transform
+     * interpolated between the last two update ticks, otherwise it is the same as {@link #transform}.
+     */
+    public Transform getRenderTransform()
+    {
+        return snapshot.interpolate(transform);
+    }
+
+    private void updateTransform()
     {
         transformed = false;
 
@@ -0,0 +1,245 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.scene.components;
+
+import com.shc.silenceengine.core.IGameLoop;
+import com.shc.silenceengine.core.SilenceEngine;
+import com.shc.silenceengine.math.Matrix4;
+import com.shc.silenceengine.math.Quaternion;
+import com.shc.silenceengine.math.Transform;
+import com.shc.silenceengine.math.Transforms;
+import com.shc.silenceengine.math.Vector3;
+
+/**
+ * <p>Keeps the snapshots of a transform taken at the end of the update ticks, so that the renderer can interpolate
+ * between the last two completed ticks when the game loop is interpolating. The snapshots are kept in three slots that
+ * are indexed by the tick number, the update writes the slot of the current tick while the render reads the slots of
+ * the last two completed ticks, so the render never reads a slot that is being written, even if the update is running
+ * on a different thread.</p>
+ *
+ * <p>Every snapshot is decomposed into a position, a rotation and a scale. The positions and the scales are linearly
+ * interpolated and the rotations are spherically interpolated, and the matrix is rebuilt from them, since lerping the
+ * matrices directly would shear and shrink the rotations. Matrices that cannot be decomposed (one of the X or Y axes
+ * is scaled to zero) are not interpolated.</p>
+ *
+ * <p>When the game loop is not interpolating, nothing is captured and the transform is rendered as is.</p>
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public class TransformSnapshot
+{
+    private static final int   SLOTS   = 3;
+    private static final float EPSILON = 1e-6f;
+
+    private final Matrix4[]    matrices     = new Matrix4[SLOTS];
+    private final Vector3[]    positions    = new Vector3[SLOTS];
+    private final Quaternion[] rotations    = new Quaternion[SLOTS];
+    private final Vector3[]    scales       = new Vector3[SLOTS];
+    private final boolean[]    decomposable = new boolean[SLOTS];
+    private final long[]       slotTicks    = new long[SLOTS];
+
+    private final Transform  interpolated = new Transform();
+    private final Vector3    position     = new Vector3();
+    private final Quaternion rotation     = new Quaternion();
+    private final Vector3    scale        = new Vector3();
+
+    public TransformSnapshot()
+    {
+        for (int i = 0; i < SLOTS; i++)
+        {
+            matrices[i] = new Matrix4();
+            positions[i] = new Vector3();
+            rotations[i] = new Quaternion();
+            scales[i] = new Vector3();
+            slotTicks[i] = -1;
+        }
+    }
+
+    /**
+     * Captures the transform for the update tick that is currently being simulated. Called from the update thread.
+     *
+     * @param transform The transform as computed in this update tick.
+     */
+    public void capture(Transform transform)
+    {
+        IGameLoop loop = SilenceEngine.gameLoop;
+
+        if (!loop.isInterpolating())
+            return;
+
+        long tick = loop.getUpdateTick();
+        int slot = (int) (tick % SLOTS);
+
+        matrices[slot].set(transform.matrix);
+        decomposable[slot] = decompose(transform.matrix, positions[slot], rotations[slot], scales[slot]);
+        slotTicks[slot] = tick;
+    }
+
+    /**
+     * Computes the transform to be rendered in this frame. Called from the render thread.
+     *
+     * @param transform The transform to be returned if the game loop is not interpolating, or if there are no
+     *                  snapshots yet.
+     *
+     * @return The transform interpolated between the last two completed update ticks.
+     */
+    public Transform interpolate(Transform transform)
+    {
+        IGameLoop loop = SilenceEngine.gameLoop;
+
+        if (!loop.isInterpolating())
+            return transform;
+
+        long tick = loop.getRenderTick();
+        int current = (int) (tick % SLOTS);
+        int previous = (int) ((tick + SLOTS - 1) % SLOTS);
+
+        if (slotTicks[current] == tick)
+        {
+            if (slotTicks[previous] == tick - 1 && decomposable[previous] && decomposable[current])
+            {
+                float alpha = loop.getInterpolationAlpha();
+
+                position.set(positions[previous]).lerp(positions[current], alpha);
+                rotation.set(rotations[previous]).slerp(rotations[current], alpha);
+                scale.set(scales[previous]).lerp(scales[current], alpha);
+
+                compose(position, rotation, scale, interpolated.matrix);
+            }
+            else
+                interpolated.matrix.set(matrices[current]);
+
+            return interpolated;
+        }
+
+        // Not captured in the last tick (the entity was not updated), so use the latest snapshot that is complete
+        int latest = -1;
+
+        for (int i = 0; i < SLOTS; i++)
+            if (slotTicks[i] >= 0 && slotTicks[i] <= tick && (latest < 0 || slotTicks[i] > slotTicks[latest]))
+                latest = i;
+
+        if (latest < 0)
+            return transform;
+
+        interpolated.matrix.set(matrices[latest]);
+        return interpolated;
+    }
+
+    private static boolean decompose(Matrix4 matrix, Vector3 position, Quaternion rotation, Vector3 scale)
+    {
+        float[][] m = matrix.m;
+
+        position.set(m[3][0], m[3][1], m[3][2]);
+
+        float sx = length(m[0]);
+        float sy = length(m[1]);
+        float sz = length(m[2]);
+
+        if (sx < EPSILON || sy < EPSILON)
+            return false;
+
+        // The columns of the rotation part, the matrices are stored as m[column][row]
+        float r00 = m[0][0] / sx, r10 = m[0][1] / sx, r20 = m[0][2] / sx;
+        float r01 = m[1][0] / sy, r11 = m[1][1] / sy, r21 = m[1][2] / sy;
+        float r02, r12, r22;
+
+        if (sz < EPSILON)
+        {
+            // Flattened on Z (like the 2D transforms), so the Z axis is the cross product of the other two
+            r02 = r10 * r21 - r20 * r11;
+            r12 = r20 * r01 - r00 * r21;
+            r22 = r00 * r11 - r10 * r01;
+        }
+        else
+        {
+            r02 = m[2][0] / sz;
+            r12 = m[2][1] / sz;
+            r22 = m[2][2] / sz;
+        }
+
+        // A negative determinant means a reflection, which is kept in the scale of the X axis
+        float det = r00 * (r11 * r22 - r21 * r12) - r01 * (r10 * r22 - r20 * r12) + r02 * (r10 * r21 - r20 * r11);
+
+        if (det < 0)
+        {
+            sx = -sx;
+            r00 = -r00;
+            r10 = -r10;
+            r20 = -r20;
+        }
+
+        scale.set(sx, sy, sz);
+
+        float trace = r00 + r11 + r22;
+
+        if (trace > 0)
+        {
+            float s = 0.5f / (float) Math.sqrt(trace + 1.0f);
+            rotation.set((r21 - r12) * s, (r02 - r20) * s, (r10 - r01) * s, 0.25f / s);
+        }
+        else if (r00 > r11 && r00 > r22)
+        {
+            float s = 2.0f * (float) Math.sqrt(1.0f + r00 - r11 - r22);
+            rotation.set(0.25f * s, (r01 + r10) / s, (r02 + r20) / s, (r21 - r12) / s);
+        }
+        else if (r11 > r22)
+        {
+            float s = 2.0f * (float) Math.sqrt(1.0f + r11 - r00 - r22);
+            rotation.set((r01 + r10) / s, 0.25f * s, (r12 + r21) / s, (r02 - r20) / s);
+        }
+        else
+        {
+            float s = 2.0f * (float) Math.sqrt(1.0f + r22 - r00 - r11);
+            rotation.set((r02 + r20) / s, (r12 + r21) / s, 0.25f * s, (r10 - r01) / s);
+        }
+
+        rotation.normalize();
+        return true;
+    }
+
+    private static void compose(Vector3 position, Quaternion rotation, Vector3 scale, Matrix4 dest)
+    {
+        Transforms.createRotation(rotation, dest);
+
+        float[][] m = dest.m;
+
+        for (int r = 0; r < 3; r++)
+        {
+            m[0][r] *= scale.x;
+            m[1][r] *= scale.y;
+            m[2][r] *= scale.z;
+        }
+
+        m[3][0] = position.x;
+        m[3][1] = position.y;
+        m[3][2] = position.z;
+    }
+
+    private static float length(float[] column)
+    {
+        return (float) Math.sqrt(column[0] * column[0] + column[1] * column[1] + column[2] * column[2]);
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.scene.tiled;
+
+import com.shc.silenceengine.math.geom2d.Rectangle;
+import com.shc.silenceengine.scene.tiled.layers.TmxTileChunk;
+import com.shc.silenceengine.scene.tiled.layers.TmxTileLayer;
+import com.shc.silenceengine.scene.tiled.renderers.TmxIsometricMapRenderer;
+import com.shc.silenceengine.utils.AsyncExecutor;
+import com.shc.silenceengine.utils.TaskManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Streams the chunks of the tile layers of an infinite map around a view. Every time it is updated, the chunks that are
+ * near the view are queued to be decoded on the {@link AsyncExecutor#getShared() shared executor} of the backend, and
+ * the decoded tiles are handed back to the chunks on the update thread. On backends without threads, the chunks are
+ * decoded on the update tasks of the {@link TaskManager} instead, so setting a time budget with {@link
+ * TaskManager#setUpdateTimeBudget} spreads the decoding over several frames. When the decoded chunks take more memory
+ * than the budget, the chunks that have been away from the view the longest are unloaded again.
+ *
+ * <pre>
+ *     streamer = new TmxChunkStreamer(map, 16 * 1024 * 1024);
+ *
+ *     // Every frame
+ *     streamer.update(camera.getViewRectangle(viewRectangle));
+ * </pre>
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public class TmxChunkStreamer
+{
+    private TmxMap map;
+
+    private long memoryBudget;
+    private int  preloadDistance;
+    private long frame;
+
+    private Set<TmxTileChunk>  pending    = new HashSet<>();
+    private List<TmxTileChunk> nearChunks = new ArrayList<>();
+    private List<TmxTileChunk> candidates = new ArrayList<>();
+
+    private Rectangle tileRectangle = new Rectangle();
+
+    /**
+     * Creates a streamer for the chunks of an infinite map.
+     *
+     * @param map          The map to stream the chunks of.
+     * @param memoryBudget The number of bytes that the decoded chunks can take before the far ones are unloaded.
+     */
+    public TmxChunkStreamer(TmxMap map, long memoryBudget)
+    {
+        this.map = map;
+        this.memoryBudget = memoryBudget;
+
+        preloadDistance = 16;
+    }
+
+    /**
+     * Queues the chunks that are near the view to be decoded, and unloads far chunks if the memory budget is exceeded.
+     * This is meant to be called once every frame.
+     *
+     * @param view The rectangle that is visible, in the coordinates that the map is rendered in. For isometric maps,
+     *             this is mapped back to the tiles through the isometric projection.
+     */
+    public void update(Rectangle view)
+    {
+        frame++;
+
+        Rectangle tiles;
+
+        // The view is in the coordinates the map is rendered in, which are projected for the isometric maps
+        if (map.getOrientation() == TmxMap.Orientation.ISOMETRIC)
+            tiles = TmxIsometricMapRenderer.getTilesIn(map, view, tileRectangle);
+        else
+        {
+            tiles = tileRectangle;
+            tiles.set(view.x / map.getTileWidth(), view.y / map.getTileHeight(),
+                    view.width / map.getTileWidth(), view.height / map.getTileHeight());
+        }
+
+        int minX = (int) Math.floor(tiles.x) - preloadDistance;
+        int minY = (int) Math.floor(tiles.y) - preloadDistance;
+        int maxX = (int) Math.floor(tiles.x + tiles.width) + preloadDistance;
+        int maxY = (int) Math.floor(tiles.y + tiles.height) + preloadDistance;
+
+        AsyncExecutor executor = AsyncExecutor.getShared();
+
+        for (TmxTileLayer tileLayer : map.getTileLayers())
+        {
+            if (!tileLayer.isInfinite())
+                continue;
+
+            nearChunks.clear();
+            tileLayer.getChunksIn(minX, minY, maxX, maxY, nearChunks);
+
+            for (TmxTileChunk chunk : nearChunks)
+            {
+                chunk.setLastUsed(frame);
+
+                if (chunk.isLoaded() || !pending.add(chunk))
+                    continue;
+
+                if (executor != null)
+                    chunk.loadAsync(executor, () -> pending.remove(chunk));
+                else
+                    TaskManager.runOnUpdate(() ->
+                    {
+                        pending.remove(chunk);
+                        chunk.load();
+                    });
+            }
+        }
+
+        evictChunks();
+    }
+
+    private void evictChunks()
+    {
+        long loadedBytes = getLoadedBytes();
+
+        if (loadedBytes <= memoryBudget)
+            return;
+
+        candidates.clear();
+
+        for (TmxTileLayer tileLayer : map.getTileLayers())
+            for (TmxTileChunk chunk : tileLayer.getChunks())
+                if (chunk.isLoaded() && chunk.isUnloadable() && chunk.getLastUsed() < frame)
+                    candidates.add(chunk);
+
+        Collections.sort(candidates, (a, b) -> Long.compare(a.getLastUsed(), b.getLastUsed()));
+
+        for (TmxTileChunk chunk : candidates)
+        {
+            if (loadedBytes <= memoryBudget)
+                break;
+
+            loadedBytes -= chunk.getSizeInBytes();
+            chunk.unload();
+        }
+    }
+
+    /**
+     * @return The number of bytes taken by the decoded chunks of all the tile layers of the map.
+     */
+    public long getLoadedBytes()
+    {
+        long loadedBytes = 0;
+
+        for (TmxTileLayer tileLayer : map.getTileLayers())
+            loadedBytes += tileLayer.getLoadedChunkBytes();
+
+        return loadedBytes;
+    }
+
+    public TmxMap getMap()
+    {
+        return map;
+    }
+
+    public long getMemoryBudget()
+    {
+        return memoryBudget;
+    }
+
+    public void setMemoryBudget(long memoryBudget)
+    {
+        this.memoryBudget = memoryBudget;
+    }
+
+    public int getPreloadDistance()
+    {
+        return preloadDistance;
+    }
+
+    /**
+     * Sets how far around the view the chunks are decoded ahead of time.
+     *
+     * @param preloadDistance The distance in tiles.
+     */
+    public void setPreloadDistance(int preloadDistance)
+    {
+        this.preloadDistance = preloadDistance;
+    }
+}
@@ -25,7 +25,6 @@
 package com.shc.silenceengine.scene.tiled;
 
 import com.shc.easyxml.Xml;
-import com.shc.easyxml.XmlTag;
 import com.shc.silenceengine.core.SilenceEngine;
 import com.shc.silenceengine.core.SilenceException;
 import com.shc.silenceengine.graphics.Color;
@@ -67,6 +66,8 @@ public class TmxMap
     private int nextObjectID;
     private int hexSideLength;
 
+    private boolean infinite;
+
     private List<TmxMapLayer>    layers;
     private List<TmxTileLayer>   tileLayers;
     private List<TmxImageLayer>  imageLayers;
@@ -106,12 +107,12 @@ public class TmxMap
         {
             try
             {
-                XmlTag mapNode = Xml.parse(xml);
+                TmxPullParser parser = new TmxPullParser(xml);
 
-                if (!mapNode.name.equals("map"))
+                if (parser.nextTag() != TmxPullParser.START_TAG || !parser.getName().equals("map"))
                     throw new SilenceException("Invalid TMX map file. The first child must be a <map> element.");
 
-                map.parse(mapNode);
+                map.parse(parser);
 
                 callback.invoke(map);
             }
@@ -188,6 +189,15 @@ public class TmxMap
         return hexSideLength;
     }
 
+    /**
+     * @return True if this map is made in the infinite mode of Tiled, in which case the tile layers are stored in
+     * chunks. The width and height of the map are meaningless for infinite maps.
+     */
+    public boolean isInfinite()
+    {
+        return infinite;
+    }
+
     public TmxMapLayer getLayer(int index)
     {
         return layers.get(index);
@@ -292,29 +302,29 @@ public class TmxMap
         return properties;
     }
 
-    private void parse(XmlTag element)
+    private void parse(TmxPullParser parser)
     {
-        version = Double.parseDouble(element.getAttribute("version").value);
-        width = Integer.parseInt(element.getAttribute("width").value);
-        height = Integer.parseInt(element.getAttribute("height").value);
-        tileWidth = Integer.parseInt(element.getAttribute("tilewidth").value);
-        tileHeight = Integer.parseInt(element.getAttribute("tileheight").value);
-        nextObjectID = Integer.parseInt(element.getAttribute("nextobjectid").value);
+        version = Double.parseDouble(parser.getAttribute("version"));
+        width = Integer.parseInt(parser.getAttribute("width"));
+        height = Integer.parseInt(parser.getAttribute("height"));
+        tileWidth = Integer.parseInt(parser.getAttribute("tilewidth"));
+        tileHeight = Integer.parseInt(parser.getAttribute("tileheight"));
+        nextObjectID = Integer.parseInt(parser.getAttribute("nextobjectid"));
 
-        if (element.getAttribute("background") != null)
+        if (parser.getAttribute("background") != null)
         {
-            String hexColor = element.getAttribute("background").value.trim();
+            String hexColor = parser.getAttribute("background").trim();
             if (hexColor.startsWith("#"))
                 hexColor = hexColor.substring(1);
 
             backgroundColor = new Color(Integer.parseInt(hexColor, 16));
         }
 
-        orientation = Orientation.valueOf(element.getAttribute("orientation").value.trim().toUpperCase());
+        orientation = Orientation.valueOf(parser.getAttribute("orientation").trim().toUpperCase());
 
-        if (element.getAttribute("renderorder") != null)
+        if (parser.getAttribute("renderorder") != null)
         {
-            switch (element.getAttribute("renderorder").value.trim().toLowerCase())
+            switch (parser.getAttribute("renderorder").trim().toLowerCase())
             {
                 case "right-down":
                     renderOrder = RenderOrder.RIGHT_DOWN;
@@ -331,9 +341,9 @@ public class TmxMap
             }
         }
 
-        if (element.getAttribute("staggeraxis") != null)
+        if (parser.getAttribute("staggeraxis") != null)
         {
-            switch (element.getAttribute("staggeraxis").value.trim().toLowerCase())
+            switch (parser.getAttribute("staggeraxis").trim().toLowerCase())
             {
                 case "x":
                     staggerAxis = StaggerAxis.AXIS_X;
@@ -344,9 +354,9 @@ public class TmxMap
             }
         }
 
-        if (element.getAttribute("staggerindex") != null)
+        if (parser.getAttribute("staggerindex") != null)
         {
-            switch (element.getAttribute("staggerindex").value.trim().toLowerCase())
+            switch (parser.getAttribute("staggerindex").trim().toLowerCase())
             {
                 case "even":
                     staggerIndex = StaggerIndex.EVEN;
@@ -357,41 +367,47 @@ public class TmxMap
             }
         }
 
-        if (element.getAttribute("hexsidelength") != null)
-            hexSideLength = Integer.parseInt(element.getAttribute("hexsidelength").value);
+        infinite = "1".equals(parser.getAttribute("infinite"));
 
-        // Read all other elements
-        for (XmlTag child : element.children)
+        if (parser.getAttribute("hexsidelength") != null)
+            hexSideLength = Integer.parseInt(parser.getAttribute("hexsidelength"));
+
+        // Read all other elements. The tile layers are decoded straight from the parser, and the other elements are
+        // small enough to be parsed into a tree of tags.
+        while (parser.nextTag() == TmxPullParser.START_TAG)
         {
-            switch (child.name.trim().toLowerCase())
+            switch (parser.getName().trim().toLowerCase())
             {
                 case "properties":
-                    properties.parse(child);
+                    properties.parse(Xml.parse(parser.readElement()));
                     break;
 
                 case "tileset":
                     TmxTileSet tileSet = new TmxTileSet();
-                    tileSet.parse(child, filePath);
+                    tileSet.parse(Xml.parse(parser.readElement()), filePath);
                     tileSets.add(tileSet);
                     break;
 
                 case "layer":
                     TmxTileLayer tileLayer = new TmxTileLayer(this);
-                    tileLayer.parse(child);
+                    tileLayer.parse(parser);
                     tileLayers.add(tileLayer);
                     break;
 
                 case "imagelayer":
                     TmxImageLayer imageLayer = new TmxImageLayer(this);
-                    imageLayer.parse(child);
+                    imageLayer.parse(Xml.parse(parser.readElement()));
                     imageLayers.add(imageLayer);
                     break;
 
                 case "objectgroup":
                     TmxObjectLayer objectLayer = new TmxObjectLayer(this);
-                    objectLayer.parse(child);
+                    objectLayer.parse(Xml.parse(parser.readElement()));
                     objectLayers.add(objectLayer);
                     break;
+
+                default:
+                    parser.skipElement();
             }
         }
 
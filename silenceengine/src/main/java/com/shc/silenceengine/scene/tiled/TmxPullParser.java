@@ -0,0 +1,466 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.scene.tiled;
+
+import com.shc.silenceengine.core.SilenceException;
+
+/**
+ * A small forward only pull parser for the XML in TMX files. Unlike a DOM parser, it doesn't build a tree of the whole
+ * document, so the tile data of large maps can be decoded straight from the text. Elements that are small and hold
+ * structured data can still be read as raw XML with {@link #readElement()} and handed to a DOM parser.
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public final class TmxPullParser
+{
+    public static final int START_TAG    = 0;
+    public static final int END_TAG      = 1;
+    public static final int TEXT         = 2;
+    public static final int END_DOCUMENT = 3;
+
+    private String xml;
+    private int    position;
+
+    private int     event;
+    private int     depth;
+    private String  name;
+    private boolean emptyElement;
+    private boolean pendingEndTag;
+    private int     elementStart;
+
+    private int     textStart;
+    private int     textEnd;
+    private boolean cdata;
+
+    private String[] attributeNames  = new String[8];
+    private String[] attributeValues = new String[8];
+    private int      numAttributes;
+
+    public TmxPullParser(String xml)
+    {
+        this.xml = xml;
+        event = -1;
+    }
+
+    /**
+     * Moves the parser to the next event in the document. Comments, processing instructions, declarations and text
+     * that is only whitespace are skipped. Empty elements like {@code <tile/>} produce both a start and an end tag.
+     *
+     * @return The type of the event, one of {@link #START_TAG}, {@link #END_TAG}, {@link #TEXT} or {@link
+     * #END_DOCUMENT}.
+     */
+    public int next()
+    {
+        if (pendingEndTag)
+        {
+            pendingEndTag = false;
+            numAttributes = 0;
+            depth--;
+            return event = END_TAG;
+        }
+
+        int length = xml.length();
+
+        while (position < length)
+        {
+            if (xml.charAt(position) != '<')
+            {
+                int start = position;
+                position = xml.indexOf('<', position);
+
+                if (position == -1)
+                    position = length;
+
+                if (!isWhitespace(start, position))
+                {
+                    textStart = start;
+                    textEnd = position;
+                    cdata = false;
+                    return event = TEXT;
+                }
+            }
+            else if (xml.startsWith("<!--", position))
+                position = find("-->", position + 4) + 3;
+
+            else if (xml.startsWith("<![CDATA[", position))
+            {
+                textStart = position + 9;
+                textEnd = find("]]>", textStart);
+                position = textEnd + 3;
+                cdata = true;
+                return event = TEXT;
+            }
+            else if (xml.startsWith("<?", position))
+                position = find("?>", position + 2) + 2;
+
+            else if (xml.startsWith("<!", position))
+                position = find(">", position + 2) + 1;
+
+            else if (xml.startsWith("</", position))
+            {
+                int tagEnd = find(">", position + 2);
+                name = xml.substring(position + 2, tagEnd).trim();
+                position = tagEnd + 1;
+                numAttributes = 0;
+                depth--;
+                return event = END_TAG;
+            }
+            else
+            {
+                readStartTag();
+                return event = START_TAG;
+            }
+        }
+
+        return event = END_DOCUMENT;
+    }
+
+    /**
+     * Moves the parser to the next start tag, end tag or the end of the document, skipping over any text.
+     *
+     * @return The type of the event, one of {@link #START_TAG}, {@link #END_TAG} or {@link #END_DOCUMENT}.
+     */
+    public int nextTag()
+    {
+        int event;
+
+        do
+            event = next();
+        while (event == TEXT);
+
+        return event;
+    }
+
+    /**
+     * Reads the text content of the current element, concatenating all the text and CDATA sections in it and skipping
+     * any child elements. The parser must be positioned at a start tag, and is left at the matching end tag.
+     *
+     * @return The text content of the element, or an empty string if there is none.
+     */
+    public String readText()
+    {
+        checkStartTag();
+
+        String text = "";
+
+        while (true)
+        {
+            switch (next())
+            {
+                case TEXT:
+                    text = text.isEmpty() ? getText() : text + getText();
+                    break;
+
+                case START_TAG:
+                    skipElement();
+                    break;
+
+                case END_TAG:
+                    return text;
+
+                default:
+                    throw new SilenceException("Unexpected end of the XML document");
+            }
+        }
+    }
+
+    /**
+     * Reads the whole current element, including its children, as raw XML. The parser must be positioned at a start
+     * tag, and is left at the matching end tag.
+     *
+     * @return The XML source of the current element.
+     */
+    public String readElement()
+    {
+        checkStartTag();
+
+        int start = elementStart;
+        skipElement();
+
+        return xml.substring(start, position);
+    }
+
+    /**
+     * Skips the current element and all of its children. The parser must be positioned at a start tag, and is left at
+     * the matching end tag.
+     */
+    public void skipElement()
+    {
+        checkStartTag();
+
+        int targetDepth = depth - 1;
+
+        while (true)
+        {
+            int event = next();
+
+            if (event == END_TAG && depth == targetDepth)
+                return;
+
+            if (event == END_DOCUMENT)
+                throw new SilenceException("Unexpected end of the XML document");
+        }
+    }
+
+    public int getEvent()
+    {
+        return event;
+    }
+
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public boolean isEmptyElement()
+    {
+        return emptyElement;
+    }
+
+    public String getText()
+    {
+        String text = xml.substring(textStart, textEnd);
+        return cdata ? text : decodeEntities(text);
+    }
+
+    public int getAttributeCount()
+    {
+        return numAttributes;
+    }
+
+    public String getAttributeName(int index)
+    {
+        return attributeNames[index];
+    }
+
+    public String getAttributeValue(int index)
+    {
+        return attributeValues[index];
+    }
+
+    public String getAttribute(String name)
+    {
+        for (int i = 0; i < numAttributes; i++)
+            if (attributeNames[i].equals(name))
+                return attributeValues[i];
+
+        return null;
+    }
+
+    public String getAttribute(String name, String defaultValue)
+    {
+        String value = getAttribute(name);
+        return value == null ? defaultValue : value;
+    }
+
+    public int getIntAttribute(String name, int defaultValue)
+    {
+        String value = getAttribute(name);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    public float getFloatAttribute(String name, float defaultValue)
+    {
+        String value = getAttribute(name);
+        return value == null ? defaultValue : Float.parseFloat(value.trim());
+    }
+
+    private void readStartTag()
+    {
+        elementStart = position++;
+
+        int nameStart = position;
+        while (!isNameEnd(charAt(position)))
+            position++;
+
+        name = xml.substring(nameStart, position);
+        numAttributes = 0;
+
+        while (true)
+        {
+            skipWhitespace();
+            char c = charAt(position);
+
+            if (c == '/')
+            {
+                position = find(">", position) + 1;
+                emptyElement = true;
+                pendingEndTag = true;
+                break;
+            }
+
+            if (c == '>')
+            {
+                position++;
+                emptyElement = false;
+                break;
+            }
+
+            int attributeStart = position;
+            while (!isNameEnd(charAt(position)) && charAt(position) != '=')
+                position++;
+
+            String attributeName = xml.substring(attributeStart, position);
+
+            skipWhitespace();
+            if (charAt(position) != '=')
+                throw new SilenceException("Expected '=' after the attribute " + attributeName + " in <" + name + ">");
+
+            position++;
+            skipWhitespace();
+
+            char quote = charAt(position);
+            if (quote != '"' && quote != '\'')
+                throw new SilenceException("Expected a quoted value for the attribute " + attributeName);
+
+            int valueEnd = find(String.valueOf(quote), position + 1);
+            addAttribute(attributeName, decodeEntities(xml.substring(position + 1, valueEnd)));
+            position = valueEnd + 1;
+        }
+
+        depth++;
+    }
+
+    private void addAttribute(String name, String value)
+    {
+        if (numAttributes == attributeNames.length)
+        {
+            String[] names = new String[numAttributes * 2];
+            String[] values = new String[numAttributes * 2];
+
+            System.arraycopy(attributeNames, 0, names, 0, numAttributes);
+            System.arraycopy(attributeValues, 0, values, 0, numAttributes);
+
+            attributeNames = names;
+            attributeValues = values;
+        }
+
+        attributeNames[numAttributes] = name;
+        attributeValues[numAttributes] = value;
+        numAttributes++;
+    }
+
+    private void checkStartTag()
+    {
+        if (event != START_TAG)
+            throw new SilenceException("The parser is not positioned at a start tag");
+    }
+
+    private int find(String text, int from)
+    {
+        int index = xml.indexOf(text, from);
+
+        if (index == -1)
+            throw new SilenceException("Unexpected end of the XML document");
+
+        return index;
+    }
+
+    private char charAt(int index)
+    {
+        if (index >= xml.length())
+            throw new SilenceException("Unexpected end of the XML document");
+
+        return xml.charAt(index);
+    }
+
+    private void skipWhitespace()
+    {
+        while (Character.isWhitespace(charAt(position)))
+            position++;
+    }
+
+    private boolean isWhitespace(int start, int end)
+    {
+        for (int i = start; i < end; i++)
+            if (!Character.isWhitespace(xml.charAt(i)))
+                return false;
+
+        return true;
+    }
+
+    private static boolean isNameEnd(char c)
+    {
+        return c == '>' || c == '/' || Character.isWhitespace(c);
+    }
+
+    private static String decodeEntities(String text)
+    {
+        if (text.indexOf('&') == -1)
+            return text;
+
+        StringBuilder builder = new StringBuilder(text.length());
+
+        for (int i = 0; i < text.length(); i++)
+        {
+            char c = text.charAt(i);
+            int end;
+
+            if (c != '&' || (end = text.indexOf(';', i)) == -1)
+            {
+                builder.append(c);
+                continue;
+            }
+
+            String entity = text.substring(i + 1, end);
+
+            switch (entity)
+            {
+                case "amp":
+                    builder.append('&');
+                    break;
+                case "lt":
+                    builder.append('<');
+                    break;
+                case "gt":
+                    builder.append('>');
+                    break;
+                case "quot":
+                    builder.append('"');
+                    break;
+                case "apos":
+                    builder.append('\'');
+                    break;
+
+                default:
+                    if (entity.startsWith("#x"))
+                        builder.append((char) Integer.parseInt(entity.substring(2), 16));
+                    else if (entity.startsWith("#"))
+                        builder.append((char) Integer.parseInt(entity.substring(1)));
+                    else
+                        builder.append('&').append(entity).append(';');
+            }
+
+            i = end;
+        }
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.scene.tiled.layers;
+
+import com.shc.silenceengine.io.PrimitiveSize;
+import com.shc.silenceengine.utils.AsyncExecutor;
+import com.shc.silenceengine.utils.TaskManager;
+import com.shc.silenceengine.utils.functional.SimpleCallback;
+
+/**
+ * A chunk of tiles in a tile layer of an infinite map. The chunk keeps the encoded tile data from the TMX file, and only
+ * decodes it when the tiles are first used. Decoded chunks can be unloaded again to save memory, in which case they are
+ * decoded again the next time they are used. Chunks that are edited, or that are stored as XML elements in the file,
+ * are never unloaded.
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public class TmxTileChunk
+{
+    private TmxTileLayer tileLayer;
+
+    private int x;
+    private int y;
+    private int width;
+    private int height;
+
+    private String data;
+    private int[]  tiles;
+    private long   lastUsed;
+
+    TmxTileChunk(TmxTileLayer tileLayer, int x, int y, int width, int height, String data, int[] tiles)
+    {
+        this.tileLayer = tileLayer;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.data = data;
+        this.tiles = tiles;
+    }
+
+    /**
+     * Decodes the tiles of this chunk, if they are not already decoded.
+     */
+    public void load()
+    {
+        if (tiles != null)
+            return;
+
+        tiles = new int[width * height];
+        tileLayer.decode(data, tiles);
+        tileLayer.chunkLoaded(this);
+    }
+
+    /**
+     * Decodes the tiles of this chunk on a background executor, and installs them on the update thread once they are
+     * decoded. If the chunk is loaded in the meantime, or edited, the decoded tiles are thrown away. Called from the
+     * update thread.
+     *
+     * @param executor The executor to decode the tiles on.
+     * @param onDone   The callback that is invoked on the update thread when the chunk is loaded, or when it failed to
+     *                 decode, in which case it is decoded again the next time it is used.
+     */
+    public void loadAsync(AsyncExecutor executor, SimpleCallback onDone)
+    {
+        final String encoded = data;
+
+        if (tiles != null || encoded == null)
+        {
+            load();
+            onDone.invoke();
+            return;
+        }
+
+        executor.execute(() ->
+        {
+            int[] decoded = new int[width * height];
+
+            try
+            {
+                tileLayer.decode(encoded, decoded);
+            }
+            catch (Throwable e)
+            {
+                decoded = null;
+            }
+
+            final int[] result = decoded;
+
+            TaskManager.runOnUpdate(() ->
+            {
+                if (result != null && tiles == null && data == encoded)
+                {
+                    tiles = result;
+                    tileLayer.chunkLoaded(this);
+                }
+
+                onDone.invoke();
+            });
+        });
+    }
+
+    /**
+     * Frees the decoded tiles of this chunk, if the chunk can be decoded again from the data in the file.
+     *
+     * @return True if the chunk is unloaded, false if it is not loaded or cannot be unloaded.
+     */
+    public boolean unload()
+    {
+        if (tiles == null || !isUnloadable())
+            return false;
+
+        tiles = null;
+        tileLayer.chunkUnloaded(this);
+
+        return true;
+    }
+
+    int getRawTileGID(int localX, int localY)
+    {
+        load();
+        return tiles[localY * width + localX];
+    }
+
+    void setTile(int localX, int localY, int gid)
+    {
+        load();
+        tiles[localY * width + localX] = gid;
+
+        // The tiles no longer match the data in the file, so this chunk has to stay in memory
+        data = null;
+    }
+
+    public boolean isLoaded()
+    {
+        return tiles != null;
+    }
+
+    public boolean isUnloadable()
+    {
+        return data != null;
+    }
+
+    /**
+     * @return The number of bytes taken by the decoded tiles of this chunk.
+     */
+    public int getSizeInBytes()
+    {
+        return width * height * PrimitiveSize.INT;
+    }
+
+    public long getLastUsed()
+    {
+        return lastUsed;
+    }
+
+    public void setLastUsed(long lastUsed)
+    {
+        this.lastUsed = lastUsed;
+    }
+
+    public TmxTileLayer getTileLayer()
+    {
+        return tileLayer;
+    }
+
+    public int getX()
+    {
+        return x;
+    }
+
+    public int getY()
+    {
+        return y;
+    }
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    public int getHeight()
+    {
+        return height;
+    }
+}
@@ -24,20 +24,47 @@
 
 package com.shc.silenceengine.scene.tiled.layers;
 
+import com.shc.easyxml.Xml;
 import com.shc.easyxml.XmlTag;
 import com.shc.silenceengine.core.SilenceException;
+import com.shc.silenceengine.io.Base64;
+import com.shc.silenceengine.io.Inflater;
+import com.shc.silenceengine.io.PrimitiveSize;
 import com.shc.silenceengine.scene.tiled.TmxMap;
-import com.shc.silenceengine.scene.tiled.TmxTileSet;
+import com.shc.silenceengine.scene.tiled.TmxPullParser;
 import com.shc.silenceengine.scene.tiled.tiles.TmxMapTile;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+
+import static com.shc.silenceengine.scene.tiled.TmxMap.*;
 
 /**
+ * A layer of tiles in a TMX map. The tiles are stored as a compact array of GIDs, with the flip flags kept in the high
+ * bits like they are in the TMX file. {@link TmxMapTile} views of the tiles are only created when they are asked for.
+ *
+ * <p>In infinite maps, the tiles are stored in a sparse index of {@link TmxTileChunk}s instead, which are only decoded
+ * when they are used. The tiles are still addressed from zero, relative to the top left corner of the bounds of all the
+ * chunks, which is given by {@link #getOriginX()} and {@link #getOriginY()} in the tile coordinates of the map.</p>
+ *
  * @author Sri Harsha Chilakapati
  */
 public class TmxTileLayer extends TmxMapLayer
 {
-    private TmxMapTile[] tileMap;
+    private static final int FLIP_FLAGS = FLIPPED_HORIZONTALLY_FLAG | FLIPPED_VERTICALLY_FLAG | FLIPPED_DIAGONALLY_FLAG;
+
+    private int[] tiles;
+
+    private Map<Long, TmxTileChunk> chunks;
+
+    private int  chunkWidth;
+    private int  chunkHeight;
+    private int  originX;
+    private int  originY;
+    private long loadedChunkBytes;
 
     private Encoding    encoding;
     private Compression compression;
@@ -46,10 +73,30 @@ public class TmxTileLayer extends TmxMapLayer
     {
         super(map, "", 0, 0, map.getWidth(), map.getHeight(), 1.0f, true, TmxLayerType.TILE);
 
+        if (map.isInfinite())
+            chunks = new HashMap<>();
+        else
+            tiles = new int[width * height];
+
         encoding = Encoding.XML;
         compression = Compression.NONE;
     }
 
+    private static long chunkKey(int chunkX, int chunkY)
+    {
+        return ((long) chunkY << 32) | (chunkX & 0xFFFFFFFFL);
+    }
+
+    private static int floorDiv(int x, int y)
+    {
+        int result = x / y;
+
+        if ((x % y != 0) && ((x < 0) != (y < 0)))
+            result--;
+
+        return result;
+    }
+
     public void parse(XmlTag element)
     {
         name = element.getAttribute("name").value;
@@ -64,134 +111,526 @@ public class TmxTileLayer extends TmxMapLayer
         if (nodes.size() > 0)
             properties.parse(nodes.get(0));
 
-        tileMap = new TmxMapTile[width * height];
-
         XmlTag dataElement = element.getTagsByName("data").get(0);
 
-        if (dataElement.getAttribute("encoding") != null)
+        encoding = parseEncoding(dataElement.getAttribute("encoding") == null ? null
+                                                                             : dataElement.getAttribute("encoding").value);
+        compression = parseCompression(dataElement.getAttribute("compression") == null ? null
+                                                                                       : dataElement.getAttribute("compression").value);
+
+        if (chunks == null)
+        {
+            if (encoding == Encoding.XML)
+                decodeXML(dataElement, tiles);
+            else
+                decode(dataElement.text, tiles);
+
+            return;
+        }
+
+        for (XmlTag chunkElement : dataElement.children)
         {
-            switch (dataElement.getAttribute("encoding").value.trim().toLowerCase())
+            if (!chunkElement.name.equals("chunk"))
+                continue;
+
+            int chunkX = Integer.parseInt(chunkElement.getAttribute("x").value);
+            int chunkY = Integer.parseInt(chunkElement.getAttribute("y").value);
+            int width = Integer.parseInt(chunkElement.getAttribute("width").value);
+            int height = Integer.parseInt(chunkElement.getAttribute("height").value);
+
+            if (encoding == Encoding.XML)
             {
-                case "base64":
-                    encoding = Encoding.BASE64;
+                int[] chunkTiles = new int[width * height];
+                decodeXML(chunkElement, chunkTiles);
+                addChunk(new TmxTileChunk(this, chunkX, chunkY, width, height, null, chunkTiles));
+            }
+            else
+                addChunk(new TmxTileChunk(this, chunkX, chunkY, width, height, chunkElement.text, null));
+        }
+
+        computeBounds();
+    }
+
+    /**
+     * Parses this layer from a pull parser that is positioned at the start tag of a {@code <layer>} element. The tile
+     * data is decoded directly into the tiles of this layer, without building a tree of the elements. The parser is left
+     * at the matching end tag.
+     *
+     * @param parser The parser that is reading the TMX file.
+     */
+    public void parse(TmxPullParser parser)
+    {
+        name = parser.getAttribute("name", "");
+
+        x = parser.getIntAttribute("x", 0);
+        y = parser.getIntAttribute("y", 0);
+
+        opacity = parser.getFloatAttribute("opacity", 1.0f);
+        visible = Boolean.parseBoolean(parser.getAttribute("visible", "true"));
+
+        while (parser.nextTag() == TmxPullParser.START_TAG)
+        {
+            switch (parser.getName())
+            {
+                case "properties":
+                    properties.parse(Xml.parse(parser.readElement()));
                     break;
-                case "csv":
-                    encoding = Encoding.CSV;
+
+                case "data":
+                    parseData(parser);
                     break;
 
                 default:
-                    encoding = Encoding.XML;
+                    parser.skipElement();
             }
         }
 
-        if (dataElement.getAttribute("compression") != null)
+        if (chunks != null)
+            computeBounds();
+    }
+
+    private void parseData(TmxPullParser parser)
+    {
+        encoding = parseEncoding(parser.getAttribute("encoding"));
+        compression = parseCompression(parser.getAttribute("compression"));
+
+        if (chunks == null)
+        {
+            if (encoding == Encoding.XML)
+                decodeXML(parser, tiles);
+            else
+                decode(parser.readText(), tiles);
+
+            return;
+        }
+
+        while (parser.nextTag() == TmxPullParser.START_TAG)
         {
-            switch (dataElement.getAttribute("compression").value.trim().toLowerCase())
+            if (!parser.getName().equals("chunk"))
             {
-                case "gzip":
-                    compression = Compression.GZIP;
-                    break;
-                case "zlib":
-                    compression = Compression.ZLIB;
-                    break;
+                parser.skipElement();
+                continue;
+            }
 
-                default:
-                    compression = Compression.NONE;
+            int chunkX = parser.getIntAttribute("x", 0);
+            int chunkY = parser.getIntAttribute("y", 0);
+            int width = parser.getIntAttribute("width", 0);
+            int height = parser.getIntAttribute("height", 0);
+
+            // Only the encoded text is kept, the chunk is decoded when it is first used
+            if (encoding == Encoding.XML)
+            {
+                int[] chunkTiles = new int[width * height];
+                decodeXML(parser, chunkTiles);
+                addChunk(new TmxTileChunk(this, chunkX, chunkY, width, height, null, chunkTiles));
             }
+            else
+                addChunk(new TmxTileChunk(this, chunkX, chunkY, width, height, parser.readText(), null));
+        }
+    }
+
+    private void addChunk(TmxTileChunk chunk)
+    {
+        if (chunks.isEmpty())
+        {
+            chunkWidth = chunk.getWidth();
+            chunkHeight = chunk.getHeight();
+        }
+        else if (chunk.getWidth() != chunkWidth || chunk.getHeight() != chunkHeight)
+            throw new SilenceException("All the chunks in the tile layer " + name + " must have the same size");
+
+        chunks.put(chunkKey(floorDiv(chunk.getX(), chunkWidth), floorDiv(chunk.getY(), chunkHeight)), chunk);
+
+        if (chunk.isLoaded())
+            chunkLoaded(chunk);
+    }
+
+    private void computeBounds()
+    {
+        if (chunks.isEmpty())
+        {
+            originX = originY = width = height = 0;
+            return;
+        }
+
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+
+        for (TmxTileChunk chunk : chunks.values())
+        {
+            minX = Math.min(minX, chunk.getX());
+            minY = Math.min(minY, chunk.getY());
+            maxX = Math.max(maxX, chunk.getX() + chunk.getWidth());
+            maxY = Math.max(maxY, chunk.getY() + chunk.getHeight());
+        }
+
+        originX = minX;
+        originY = minY;
+        width = maxX - minX;
+        height = maxY - minY;
+    }
+
+    private void decodeXML(XmlTag element, int[] dest)
+    {
+        int tileCount = 0;
+
+        for (XmlTag tileElement : element.children)
+        {
+            if (!tileElement.name.equals("tile") || tileCount == dest.length)
+                continue;
+
+            dest[tileCount++] = parseGID(tileElement.getAttribute("gid") == null ? null
+                                                                                 : tileElement.getAttribute("gid").value);
+        }
+    }
+
+    private void decodeXML(TmxPullParser parser, int[] dest)
+    {
+        int tileCount = 0;
+
+        while (parser.nextTag() == TmxPullParser.START_TAG)
+        {
+            if (parser.getName().equals("tile") && tileCount < dest.length)
+                dest[tileCount++] = parseGID(parser.getAttribute("gid"));
+
+            parser.skipElement();
         }
+    }
 
+    void decode(String data, int[] dest)
+    {
         switch (encoding)
         {
-            case XML:
-                parseXML(dataElement);
+            case CSV:
+                decodeCSV(data, dest);
                 break;
 
             case BASE64:
-                throw new SilenceException("Compressed maps are unsupported.");
-
-            case CSV:
-                parseCSV(dataElement.text);
+                decodeBase64(data, dest);
                 break;
         }
     }
 
-    private void parseXML(XmlTag node)
+    private void decodeCSV(String csv, int[] dest)
     {
-        List<XmlTag> nodes = node.getTagsByName("tile");
+        int tileCount = 0;
+        long gid = 0;
+        boolean hasDigits = false;
 
-        for (int tileCount = 0; tileCount < nodes.size(); tileCount++)
+        // The GIDs are unsigned 32-bit values, so they are accumulated as longs and then truncated to keep the flags
+        for (int i = 0; i < csv.length() && tileCount < dest.length; i++)
         {
-            XmlTag tileElement = nodes.get(tileCount);
-
-            int gid = (int) Long.parseLong((tileElement.getAttribute("gid").value)) & 0xff;
-            int tileSetIndex = map.findTileSetIndex(gid);
+            char c = csv.charAt(i);
 
-            if (tileSetIndex != -1)
+            if (c >= '0' && c <= '9')
             {
-                TmxTileSet tileSet = map.getTileset(tileSetIndex);
-                tileMap[tileCount] = new TmxMapTile(gid, tileSet.getFirstGID(), tileSetIndex);
+                gid = gid * 10 + (c - '0');
+                hasDigits = true;
             }
-            else
-                tileMap[tileCount] = new TmxMapTile(gid, 0, -1);
+            else if (c == ',')
+            {
+                dest[tileCount++] = (int) gid;
+                gid = 0;
+                hasDigits = false;
+            }
+        }
+
+        if (hasDigits && tileCount < dest.length)
+            dest[tileCount] = (int) gid;
+    }
+
+    private void decodeBase64(String data, int[] dest)
+    {
+        byte[] bytes = Base64.decode(data);
+        int expectedSize = dest.length * PrimitiveSize.INT;
+
+        switch (compression)
+        {
+            case GZIP:
+                bytes = Inflater.inflateGzip(bytes, expectedSize);
+                break;
+
+            case ZLIB:
+                bytes = Inflater.inflateZlib(bytes, expectedSize);
+                break;
+        }
+
+        int numTiles = Math.min(dest.length, bytes.length / PrimitiveSize.INT);
+
+        // The GIDs are stored as little endian unsigned integers
+        for (int i = 0, b = 0; i < numTiles; i++, b += PrimitiveSize.INT)
+        {
+            dest[i] = (bytes[b] & 0xFF)
+                      | (bytes[b + 1] & 0xFF) << 8
+                      | (bytes[b + 2] & 0xFF) << 16
+                      | (bytes[b + 3] & 0xFF) << 24;
         }
     }
 
-    private void parseCSV(String csv)
+    private static int parseGID(String value)
     {
-        String[] tokens = csv.split(",");
-        int tileCount = 0;
+        return value == null ? 0 : (int) Long.parseLong(value.trim());
+    }
+
+    private static Encoding parseEncoding(String value)
+    {
+        if (value == null)
+            return Encoding.XML;
 
-        for (String token : tokens)
+        switch (value.trim().toLowerCase())
         {
-            int gid = (int) (Long.parseLong(token.trim()) & 0xFF);
+            case "base64":
+                return Encoding.BASE64;
+            case "csv":
+                return Encoding.CSV;
+
+            default:
+                return Encoding.XML;
+        }
+    }
 
-            int tileSetIndex = map.findTileSetIndex(gid);
+    private static Compression parseCompression(String value)
+    {
+        if (value == null || value.trim().isEmpty())
+            return Compression.NONE;
 
-            if (tileSetIndex != -1)
-            {
-                TmxTileSet tileSet = map.getTileset(tileSetIndex);
-                tileMap[tileCount] = new TmxMapTile(gid, tileSet.getFirstGID(), tileSetIndex);
-            }
-            else
-                tileMap[tileCount] = new TmxMapTile(gid, 0, -1);
+        switch (value.trim().toLowerCase())
+        {
+            case "gzip":
+                return Compression.GZIP;
+            case "zlib":
+                return Compression.ZLIB;
 
-            tileCount++;
+            default:
+                throw new SilenceException("Unsupported TMX tile layer compression: " + value);
         }
     }
 
+    void chunkLoaded(TmxTileChunk chunk)
+    {
+        loadedChunkBytes += chunk.getSizeInBytes();
+    }
+
+    void chunkUnloaded(TmxTileChunk chunk)
+    {
+        loadedChunkBytes -= chunk.getSizeInBytes();
+    }
+
+    private int rawTileAt(int x, int y)
+    {
+        if (chunks == null)
+            return tiles[y * width + x];
+
+        x += originX;
+        y += originY;
+
+        TmxTileChunk chunk = chunks.get(chunkKey(floorDiv(x, chunkWidth), floorDiv(y, chunkHeight)));
+
+        return chunk == null ? 0 : chunk.getRawTileGID(x - chunk.getX(), y - chunk.getY());
+    }
+
     public int getTileID(int x, int y)
     {
-        return tileMap[y * width + x].getID();
+        int gid = getTileGID(x, y);
+        int tileSetIndex = map.findTileSetIndex(gid);
+
+        return tileSetIndex == -1 ? gid : gid - map.getTileset(tileSetIndex).getFirstGID();
     }
 
     public int getTileGID(int x, int y)
     {
-        return tileMap[y * width + x].getGID();
+        return rawTileAt(x, y) & ~FLIP_FLAGS;
+    }
+
+    /**
+     * @return The GID of the tile at a location, with the flip flags in the high bits.
+     */
+    public int getRawTileGID(int x, int y)
+    {
+        return rawTileAt(x, y);
+    }
+
+    /**
+     * Replaces the tile at a location. Renderers that cache the layer have to be told about the change, for example
+     * with {@link com.shc.silenceengine.scene.tiled.renderers.TmxOrthogonalMapRenderer#invalidateTile}. In infinite
+     * maps, the location must be inside an existing chunk.
+     *
+     * @param x   The column of the tile.
+     * @param y   The row of the tile.
+     * @param gid The GID of the new tile, with the flip flags in the high bits.
+     */
+    public void setTile(int x, int y, int gid)
+    {
+        if (chunks == null)
+        {
+            tiles[y * width + x] = gid;
+            return;
+        }
+
+        x += originX;
+        y += originY;
+
+        TmxTileChunk chunk = chunks.get(chunkKey(floorDiv(x, chunkWidth), floorDiv(y, chunkHeight)));
+
+        if (chunk == null)
+            throw new SilenceException("There is no chunk at the tile " + x + ", " + y + " in the layer " + name);
+
+        chunk.setTile(x - chunk.getX(), y - chunk.getY(), gid);
     }
 
     public int getTileTileSetIndex(int x, int y)
     {
-        return tileMap[y * width + x].getTileSetID();
+        return map.findTileSetIndex(getTileGID(x, y));
     }
 
     public boolean isTileFlippedHorizontally(int x, int y)
     {
-        return tileMap[y * width + x].isFlippedHorizontally();
+        return (rawTileAt(x, y) & FLIPPED_HORIZONTALLY_FLAG) != 0;
     }
 
     public boolean isTileFlippedVertically(int x, int y)
     {
-        return tileMap[y * width + x].isFlippedVertically();
+        return (rawTileAt(x, y) & FLIPPED_VERTICALLY_FLAG) != 0;
     }
 
     public boolean isTileFlippedDiagonally(int x, int y)
     {
-        return tileMap[y * width + x].isFlippedDiagonally();
+        return (rawTileAt(x, y) & FLIPPED_DIAGONALLY_FLAG) != 0;
     }
 
     public TmxMapTile getTile(int x, int y)
     {
-        return tileMap[y * width + x];
+        return getTile(x, y, new TmxMapTile());
+    }
+
+    /**
+     * Points a reusable view at the tile at a location, instead of creating a new one.
+     *
+     * @param x    The column of the tile.
+     * @param y    The row of the tile.
+     * @param dest The view to store the tile in.
+     *
+     * @return The view that is passed in.
+     */
+    public TmxMapTile getTile(int x, int y, TmxMapTile dest)
+    {
+        int gid = rawTileAt(x, y);
+        int tileSetIndex = map.findTileSetIndex(gid);
+
+        return dest.set(gid, tileSetIndex == -1 ? 0 : map.getTileset(tileSetIndex).getFirstGID(), tileSetIndex);
+    }
+
+    /**
+     * @return True if the tiles of this layer are stored in chunks, as they are in infinite maps.
+     */
+    public boolean isInfinite()
+    {
+        return chunks != null;
+    }
+
+    /**
+     * Finds the chunk that contains a tile, in the tile coordinates of the map.
+     *
+     * @param tileX The column of the tile in the map.
+     * @param tileY The row of the tile in the map.
+     *
+     * @return The chunk that contains the tile, or null if there is none.
+     */
+    public TmxTileChunk getChunkAt(int tileX, int tileY)
+    {
+        if (chunks == null || chunks.isEmpty())
+            return null;
+
+        return chunks.get(chunkKey(floorDiv(tileX, chunkWidth), floorDiv(tileY, chunkHeight)));
+    }
+
+    /**
+     * Finds all the chunks that overlap a rectangle of tiles, in the tile coordinates of the map.
+     *
+     * @param minTileX The first column of the rectangle.
+     * @param minTileY The first row of the rectangle.
+     * @param maxTileX The last column of the rectangle.
+     * @param maxTileY The last row of the rectangle.
+     * @param dest     The list to add the chunks to.
+     *
+     * @return The list that is passed in.
+     */
+    public List<TmxTileChunk> getChunksIn(int minTileX, int minTileY, int maxTileX, int maxTileY, List<TmxTileChunk> dest)
+    {
+        if (chunks == null || chunks.isEmpty())
+            return dest;
+
+        int minChunkX = floorDiv(minTileX, chunkWidth);
+        int minChunkY = floorDiv(minTileY, chunkHeight);
+        int maxChunkX = floorDiv(maxTileX, chunkWidth);
+        int maxChunkY = floorDiv(maxTileY, chunkHeight);
+
+        // Walk the index instead of the rectangle when the rectangle covers more cells than there are chunks
+        if ((long) (maxChunkX - minChunkX + 1) * (maxChunkY - minChunkY + 1) > chunks.size())
+        {
+            for (TmxTileChunk chunk : chunks.values())
+            {
+                int chunkX = floorDiv(chunk.getX(), chunkWidth);
+                int chunkY = floorDiv(chunk.getY(), chunkHeight);
+
+                if (chunkX >= minChunkX && chunkX <= maxChunkX && chunkY >= minChunkY && chunkY <= maxChunkY)
+                    dest.add(chunk);
+            }
+
+            return dest;
+        }
+
+        for (int chunkY = minChunkY; chunkY <= maxChunkY; chunkY++)
+        {
+            for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++)
+            {
+                TmxTileChunk chunk = chunks.get(chunkKey(chunkX, chunkY));
+
+                if (chunk != null)
+                    dest.add(chunk);
+            }
+        }
+
+        return dest;
+    }
+
+    public Collection<TmxTileChunk> getChunks()
+    {
+        return chunks == null ? Collections.emptyList() : Collections.unmodifiableCollection(chunks.values());
+    }
+
+    public int getChunkWidth()
+    {
+        return chunkWidth;
+    }
+
+    public int getChunkHeight()
+    {
+        return chunkHeight;
+    }
+
+    /**
+     * @return The column of the map where the first column of this layer is. Always zero for finite maps.
+     */
+    public int getOriginX()
+    {
+        return originX;
+    }
+
+    /**
+     * @return The row of the map where the first row of this layer is. Always zero for finite maps.
+     */
+    public int getOriginY()
+    {
+        return originY;
+    }
+
+    /**
+     * @return The number of bytes taken by the decoded chunks of this layer.
+     */
+    public long getLoadedChunkBytes()
+    {
+        return loadedChunkBytes;
     }
 
     public Encoding getEncoding()
@@ -25,23 +25,50 @@
 package com.shc.silenceengine.scene.tiled.renderers;
 
 import com.shc.silenceengine.graphics.DynamicRenderer;
+import com.shc.silenceengine.graphics.cameras.Camera;
+import com.shc.silenceengine.graphics.cameras.OrthoCam;
 import com.shc.silenceengine.graphics.opengl.Primitive;
 import com.shc.silenceengine.graphics.opengl.Texture;
 import com.shc.silenceengine.math.Vector2;
+import com.shc.silenceengine.math.geom2d.Rectangle;
 import com.shc.silenceengine.scene.tiled.TmxMap;
 import com.shc.silenceengine.scene.tiled.TmxTileSet;
 import com.shc.silenceengine.scene.tiled.layers.TmxImageLayer;
+import com.shc.silenceengine.scene.tiled.layers.TmxTileChunk;
 import com.shc.silenceengine.scene.tiled.layers.TmxTileLayer;
 import com.shc.silenceengine.scene.tiled.tiles.TmxMapTile;
 import com.shc.silenceengine.scene.tiled.tiles.TmxTile;
 import com.shc.silenceengine.utils.functional.UniCallback;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
+ * Renders isometric maps. When the current camera is an {@link OrthoCam}, only the tiles whose diamonds can be in the
+ * view rectangle are drawn, and in infinite maps only the chunks of the layer that overlap them are visited, so that
+ * the chunks far from the view are never decoded by the renderer.
+ *
  * @author Sri Harsha Chilakapati
  */
 public class TmxIsometricMapRenderer extends TmxMapRenderer
 {
-    private Vector2 tempVector = new Vector2();
+    // Extra tiles drawn around the view, for the tiles of tile sets that are taller than the tiles of the map
+    private static final int VIEW_MARGIN = 2;
+
+    private Vector2    tempVector = new Vector2();
+    private TmxMapTile tileView   = new TmxMapTile();
+
+    private Rectangle          viewRectangle = new Rectangle();
+    private Rectangle          tileRectangle = new Rectangle();
+    private List<TmxTileChunk> visibleChunks = new ArrayList<>();
+
+    private Texture current;
+
+    // The visible range of tiles in the layer that is being rendered, in the coordinates of the layer
+    private int minTileX;
+    private int minTileY;
+    private int maxTileX;
+    private int maxTileY;
 
     public static void create(TmxMap map, UniCallback<TmxMapRenderer> callback)
     {
@@ -118,109 +145,199 @@ public class TmxIsometricMapRenderer extends TmxMapRenderer
         if (!tileLayer.isVisible())
             return;
 
+        if (!findVisibleTiles(tileLayer))
+            return;
+
         Texture original = Texture.CURRENT;
-        Texture current = textureMap.get(map.getTileset(0).getImage().getSource().getAbsolutePath());
+        current = textureMap.get(map.getTileset(0).getImage().getSource().getAbsolutePath());
         current.bind();
 
         renderer.begin(Primitive.TRIANGLES);
         {
-            for (int x = 0; x < tileLayer.getWidth(); x++)
+            if (tileLayer.isInfinite())
             {
-                for (int y = 0; y < tileLayer.getHeight(); y++)
+                int originX = tileLayer.getOriginX();
+                int originY = tileLayer.getOriginY();
+
+                visibleChunks.clear();
+                tileLayer.getChunksIn(minTileX + originX, minTileY + originY, maxTileX + originX, maxTileY + originY,
+                        visibleChunks);
+
+                for (TmxTileChunk chunk : visibleChunks)
                 {
-                    TmxMapTile mapTile = tileLayer.getTile(x, y);
+                    int chunkX = chunk.getX() - originX;
+                    int chunkY = chunk.getY() - originY;
 
-                    if (mapTile.getTileSetID() == -1)
-                        continue;
+                    renderTiles(renderer, tileLayer,
+                            Math.max(minTileX, chunkX), Math.max(minTileY, chunkY),
+                            Math.min(maxTileX, chunkX + chunk.getWidth() - 1),
+                            Math.min(maxTileY, chunkY + chunk.getHeight() - 1));
+                }
+            }
+            else
+                renderTiles(renderer, tileLayer, minTileX, minTileY, maxTileX, maxTileY);
+        }
+        renderer.end();
 
-                    TmxTileSet tileSet = map.getTileset(mapTile.getTileSetID());
-                    TmxTile tile = tileSet.getTile(mapTile.getGID() - tileSet.getFirstGID());
+        original.bind();
+    }
 
-                    Texture texture = textureMap.get(tileSet.getImage().getSource().getAbsolutePath());
+    /**
+     * Finds the range of tiles of a layer that can be visible, from the view rectangle of the current camera.
+     *
+     * @return False if none of the tiles of the layer are visible.
+     */
+    private boolean findVisibleTiles(TmxTileLayer tileLayer)
+    {
+        minTileX = 0;
+        minTileY = 0;
+        maxTileX = tileLayer.getWidth() - 1;
+        maxTileY = tileLayer.getHeight() - 1;
 
-                    if (texture.getID() != current.getID())
-                    {
-                        renderer.end();
-                        current = texture;
-                        texture.bind();
-                        renderer.begin(Primitive.TRIANGLES);
-                    }
+        if (!(Camera.CURRENT instanceof OrthoCam))
+            return maxTileX >= 0 && maxTileY >= 0;
 
-                    long tileID = mapTile.getGID() - tileSet.getFirstGID();
-                    if (tile.isAnimated())
-                        tileID = tileAnimators.get(tile).getCurrentFrame().getTileID();
+        Rectangle view = ((OrthoCam) Camera.CURRENT).getViewRectangle(viewRectangle);
+        Rectangle tiles = getTilesIn(map, view, tileRectangle);
 
-                    int numColsPerRow = tileSet.getImage().getWidth() / tileSet.getTileWidth();
+        int originX = tileLayer.getOriginX();
+        int originY = tileLayer.getOriginY();
 
-                    long tileSetCol = tileID % numColsPerRow;
-                    long tileSetRow = tileID / numColsPerRow;
+        minTileX = Math.max(minTileX, (int) Math.floor(tiles.x) - VIEW_MARGIN - originX);
+        maxTileX = Math.min(maxTileX, (int) Math.ceil(tiles.x + tiles.width) + VIEW_MARGIN - originX);
+        minTileY = Math.max(minTileY, (int) Math.floor(tiles.y) - VIEW_MARGIN - originY);
+        maxTileY = Math.min(maxTileY, (int) Math.ceil(tiles.y + tiles.height) + VIEW_MARGIN - originY);
 
-                    float tileWidth = tileSet.getTileWidth();
-                    float tileHeight = tileSet.getTileHeight();
+        return minTileX <= maxTileX && minTileY <= maxTileY;
+    }
 
-                    // The clip space of the tile in the texture
-                    float clipX = (tileSet.getMargin() + (tileSet.getTileWidth() + tileSet.getSpacing()) * tileSetCol);
-                    float clipY = (tileSet.getMargin() + (tileSet.getTileHeight() + tileSet.getSpacing()) * tileSetRow);
+    /**
+     * Finds the range of the tiles of an isometric map that a rectangle of the screen covers, by inverting the
+     * isometric projection of the renderer. The range is in the tile coordinates of the map, so the origin of an
+     * infinite layer has to be subtracted to get the coordinates in the layer.
+     *
+     * @param map  The isometric map.
+     * @param view The rectangle of the screen, in the coordinates that the map is rendered in.
+     * @param dest The rectangle to store the range of the tiles in.
+     *
+     * @return The dest rectangle, for chaining.
+     */
+    public static Rectangle getTilesIn(TmxMap map, Rectangle view, Rectangle dest)
+    {
+        // Invert orthoToIso, where the screen X gives the difference of the map coordinates and Y gives their sum
+        float halfWidth = map.getTileWidth() / 2f;
+        float halfHeight = map.getTileHeight() / 2f;
 
-                    // The texture coordinates of the tile
-                    float minU = clipX / tileSet.getImage().getWidth();
-                    float maxU = (clipX + tileWidth) / tileSet.getImage().getWidth();
-                    float minV = clipY / tileSet.getImage().getHeight();
-                    float maxV = (clipY + tileHeight) / tileSet.getImage().getHeight();
+        float minDiff = (view.x - map.getWidth() * map.getTileWidth() / 2) / halfWidth;
+        float maxDiff = (view.x + view.width - map.getWidth() * map.getTileWidth() / 2) / halfWidth;
+        float minSum = view.y / halfHeight;
+        float maxSum = (view.y + view.height) / halfHeight;
 
-                    // Flip the texture coordinates to flip the tile
-                    boolean flipX = mapTile.isFlippedHorizontally();
-                    boolean flipY = mapTile.isFlippedVertically();
-                    boolean flipZ = mapTile.isFlippedDiagonally();
+        float minX = (minSum + minDiff) / 2;
+        float minY = (minSum - maxDiff) / 2;
 
-                    if (flipZ)
-                    {
-                        flipX = !flipX;
-                        flipY = !flipY;
-                    }
+        dest.set(minX, minY, (maxSum + maxDiff) / 2 - minX, (maxSum - minDiff) / 2 - minY);
+        return dest;
+    }
 
-                    if (flipX)
-                    {
-                        float temp = minU;
-                        minU = maxU;
-                        maxU = temp;
-                    }
+    private void renderTiles(DynamicRenderer renderer, TmxTileLayer tileLayer, int minX, int minY, int maxX, int maxY)
+    {
+        for (int x = minX; x <= maxX; x++)
+        {
+            for (int y = minY; y <= maxY; y++)
+            {
+                TmxMapTile mapTile = tileLayer.getTile(x, y, tileView);
 
-                    if (flipY)
-                    {
-                        float temp = minV;
-                        minV = maxV;
-                        maxV = temp;
-                    }
+                int mapX = x + tileLayer.getOriginX();
+                int mapY = y + tileLayer.getOriginY();
 
-                    float uvCorrectionX = (0.5f / tileSet.getImage().getWidth());
-                    float uvCorrectionY = (0.5f / tileSet.getImage().getHeight());
+                if (mapTile.getTileSetID() == -1)
+                    continue;
 
-                    renderer.flushOnOverflow(6);
+                TmxTileSet tileSet = map.getTileset(mapTile.getTileSetID());
+                TmxTile tile = tileSet.getTile(mapTile.getGID() - tileSet.getFirstGID());
 
-                    // Draw the tile
-                    renderer.vertex(orthoToIso(x, y).add(-tileWidth / 2, 0).add(0, 0));
-                    renderer.texCoord(minU + uvCorrectionX, minV + uvCorrectionY);
+                Texture texture = textureMap.get(tileSet.getImage().getSource().getAbsolutePath());
 
-                    renderer.vertex(orthoToIso(x, y).add(-tileWidth / 2, 0).add(flipZ ? 0 : tileWidth, flipZ ? tileHeight : 0));
-                    renderer.texCoord(maxU - uvCorrectionX, minV + uvCorrectionY);
+                if (texture.getID() != current.getID())
+                {
+                    renderer.end();
+                    current = texture;
+                    texture.bind();
+                    renderer.begin(Primitive.TRIANGLES);
+                }
+
+                long tileID = mapTile.getGID() - tileSet.getFirstGID();
+                if (tile.isAnimated())
+                    tileID = tileAnimators.get(tile).getCurrentFrame().getTileID();
+
+                int numColsPerRow = tileSet.getImage().getWidth() / tileSet.getTileWidth();
+
+                long tileSetCol = tileID % numColsPerRow;
+                long tileSetRow = tileID / numColsPerRow;
+
+                float tileWidth = tileSet.getTileWidth();
+                float tileHeight = tileSet.getTileHeight();
+
+                // The clip space of the tile in the texture
+                float clipX = (tileSet.getMargin() + (tileSet.getTileWidth() + tileSet.getSpacing()) * tileSetCol);
+                float clipY = (tileSet.getMargin() + (tileSet.getTileHeight() + tileSet.getSpacing()) * tileSetRow);
 
-                    renderer.vertex(orthoToIso(x, y).add(-tileWidth / 2, 0).add(flipZ ? tileWidth : 0, flipZ ? 0 : tileHeight));
-                    renderer.texCoord(minU + uvCorrectionX, maxV - uvCorrectionY);
+                // The texture coordinates of the tile
+                float minU = clipX / tileSet.getImage().getWidth();
+                float maxU = (clipX + tileWidth) / tileSet.getImage().getWidth();
+                float minV = clipY / tileSet.getImage().getHeight();
+                float maxV = (clipY + tileHeight) / tileSet.getImage().getHeight();
 
-                    renderer.vertex(orthoToIso(x, y).add(-tileWidth / 2, 0).add(flipZ ? 0 : tileWidth, flipZ ? tileHeight : 0));
-                    renderer.texCoord(maxU - uvCorrectionX, minV + uvCorrectionY);
+                // Flip the texture coordinates to flip the tile
+                boolean flipX = mapTile.isFlippedHorizontally();
+                boolean flipY = mapTile.isFlippedVertically();
+                boolean flipZ = mapTile.isFlippedDiagonally();
 
-                    renderer.vertex(orthoToIso(x, y).add(-tileWidth / 2, 0).add(tileWidth, tileHeight));
-                    renderer.texCoord(maxU - uvCorrectionX, maxV - uvCorrectionY);
+                if (flipZ)
+                {
+                    flipX = !flipX;
+                    flipY = !flipY;
+                }
+
+                if (flipX)
+                {
+                    float temp = minU;
+                    minU = maxU;
+                    maxU = temp;
+                }
 
-                    renderer.vertex(orthoToIso(x, y).add(-tileWidth / 2, 0).add(flipZ ? tileWidth : 0, flipZ ? 0 : tileHeight));
-                    renderer.texCoord(minU + uvCorrectionX, maxV - uvCorrectionY);
+                if (flipY)
+                {
+                    float temp = minV;
+                    minV = maxV;
+                    maxV = temp;
                 }
+
+                float uvCorrectionX = (0.5f / tileSet.getImage().getWidth());
+                float uvCorrectionY = (0.5f / tileSet.getImage().getHeight());
+
+                renderer.flushOnOverflow(6);
+
+                // Draw the tile
+                renderer.vertex(orthoToIso(mapX, mapY).add(-tileWidth / 2, 0).add(0, 0));
+                renderer.texCoord(minU + uvCorrectionX, minV + uvCorrectionY);
+
+                renderer.vertex(orthoToIso(mapX, mapY).add(-tileWidth / 2, 0).add(flipZ ? 0 : tileWidth, flipZ ? tileHeight : 0));
+                renderer.texCoord(maxU - uvCorrectionX, minV + uvCorrectionY);
+
+                renderer.vertex(orthoToIso(mapX, mapY).add(-tileWidth / 2, 0).add(flipZ ? tileWidth : 0, flipZ ? 0 : tileHeight));
+                renderer.texCoord(minU + uvCorrectionX, maxV - uvCorrectionY);
+
+                renderer.vertex(orthoToIso(mapX, mapY).add(-tileWidth / 2, 0).add(flipZ ? 0 : tileWidth, flipZ ? tileHeight : 0));
+                renderer.texCoord(maxU - uvCorrectionX, minV + uvCorrectionY);
+
+                renderer.vertex(orthoToIso(mapX, mapY).add(-tileWidth / 2, 0).add(tileWidth, tileHeight));
+                renderer.texCoord(maxU - uvCorrectionX, maxV - uvCorrectionY);
+
+                renderer.vertex(orthoToIso(mapX, mapY).add(-tileWidth / 2, 0).add(flipZ ? tileWidth : 0, flipZ ? 0 : tileHeight));
+                renderer.texCoord(minU + uvCorrectionX, maxV - uvCorrectionY);
             }
         }
-        renderer.end();
-
-        original.bind();
     }
 }
@@ -223,6 +223,16 @@ public abstract class TmxMapRenderer
             texture.dispose();
     }
 
+    /**
+     * @param tileSet The tile set of this map.
+     *
+     * @return The texture that is created from the image of the tile set.
+     */
+    protected Texture getTexture(TmxTileSet tileSet)
+    {
+        return textureMap.get(tileSet.getImage().getSource().getAbsolutePath());
+    }
+
     public TmxMap getMap()
     {
         return map;
@@ -25,8 +25,12 @@
 package com.shc.silenceengine.scene.tiled.renderers;
 
 import com.shc.silenceengine.graphics.DynamicRenderer;
+import com.shc.silenceengine.graphics.cameras.Camera;
+import com.shc.silenceengine.graphics.cameras.OrthoCam;
+import com.shc.silenceengine.graphics.opengl.BufferObject;
 import com.shc.silenceengine.graphics.opengl.Primitive;
 import com.shc.silenceengine.graphics.opengl.Texture;
+import com.shc.silenceengine.math.geom2d.Rectangle;
 import com.shc.silenceengine.scene.tiled.TmxMap;
 import com.shc.silenceengine.scene.tiled.TmxTileSet;
 import com.shc.silenceengine.scene.tiled.layers.TmxImageLayer;
@@ -35,11 +39,19 @@ import com.shc.silenceengine.scene.tiled.tiles.TmxMapTile;
 import com.shc.silenceengine.scene.tiled.tiles.TmxTile;
 import com.shc.silenceengine.utils.functional.UniCallback;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * @author Sri Harsha Chilakapati
  */
 public class TmxOrthogonalMapRenderer extends TmxMapRenderer
 {
+    private Map<TmxTileLayer, TmxTileLayerChunks> layerChunks = new HashMap<>();
+
+    private BufferObject indexBuffer;
+    private Rectangle    viewRectangle = new Rectangle();
+
     public static void create(TmxMap map, UniCallback<TmxMapRenderer> callback)
     {
         TmxOrthogonalMapRenderer renderer = new TmxOrthogonalMapRenderer();
@@ -78,113 +90,159 @@ public class TmxOrthogonalMapRenderer extends TmxMapRenderer
         if (!tileLayer.isVisible())
             return;
 
+        if (indexBuffer == null)
+            indexBuffer = TmxTileLayerChunks.createIndexBuffer();
+
+        TmxTileLayerChunks chunks = layerChunks.get(tileLayer);
+
+        if (chunks == null)
+        {
+            chunks = new TmxTileLayerChunks(this, tileLayer, indexBuffer);
+            layerChunks.put(tileLayer, chunks);
+        }
+
+        // Only the chunks that intersect the view of an orthographic camera need to be drawn
+        Rectangle view = null;
+
+        if (Camera.CURRENT instanceof OrthoCam)
+            view = ((OrthoCam) Camera.CURRENT).getViewRectangle(viewRectangle);
+
         Texture original = Texture.CURRENT;
-        Texture current = textureMap.get(map.getTileset(0).getImage().getSource().getAbsolutePath());
-        current.bind();
 
-        renderer.begin(Primitive.TRIANGLES);
+        chunks.render(renderer, view);
+
+        if (original != null)
+            original.bind();
+    }
+
+    /**
+     * Marks the tile at a location as changed, so that the chunk that contains it is rebuilt before it is drawn again.
+     * Call this after editing the tiles of a layer.
+     *
+     * @param tileLayer The tile layer that is edited.
+     * @param x         The column of the tile.
+     * @param y         The row of the tile.
+     */
+    public void invalidateTile(TmxTileLayer tileLayer, int x, int y)
+    {
+        TmxTileLayerChunks chunks = layerChunks.get(tileLayer);
+
+        if (chunks != null)
+            chunks.invalidate(x, y);
+    }
+
+    /**
+     * Marks all the tiles of a layer as changed, so that all its chunks are rebuilt before they are drawn again.
+     *
+     * @param tileLayer The tile layer that is edited.
+     */
+    public void invalidateLayer(TmxTileLayer tileLayer)
+    {
+        TmxTileLayerChunks chunks = layerChunks.get(tileLayer);
+
+        if (chunks != null)
+            chunks.invalidateAll();
+    }
+
+    /**
+     * Computes the four corners of the quad of a tile. The corners are stored as {@code x, y, u, v} in the order
+     * top-left, top-right, bottom-left and bottom-right, with the positions swapped accordingly for tiles that are
+     * flipped diagonally.
+     *
+     * @param mapTile The tile in the layer.
+     * @param x       The column of the tile in the map.
+     * @param y       The row of the tile in the map.
+     * @param dest    The array of at least 16 floats to store the corners in.
+     */
+    void computeTileQuad(TmxMapTile mapTile, int x, int y, float[] dest)
+    {
+        TmxTileSet tileSet = map.getTileset(mapTile.getTileSetID());
+        TmxTile tile = tileSet.getTile(mapTile.getGID() - tileSet.getFirstGID());
+
+        int tileID = mapTile.getGID() - tileSet.getFirstGID();
+        if (tile != null && tile.isAnimated())
+            tileID = tileAnimators.get(tile).getCurrentFrame().getTileID();
+
+        int numColsPerRow = tileSet.getImage().getWidth() / tileSet.getTileWidth();
+
+        int tileSetCol = tileID % numColsPerRow;
+        int tileSetRow = tileID / numColsPerRow;
+
+        float tileWidth = map.getTileWidth();
+        float tileHeight = map.getTileHeight();
+
+        // The position of the tile in the world
+        float posX = x * tileWidth;
+        float posY = y * tileHeight;
+
+        // The clip space of the tile in the texture
+        float clipX = (tileSet.getMargin() + (tileSet.getTileWidth() + tileSet.getSpacing()) * tileSetCol);
+        float clipY = (tileSet.getMargin() + (tileSet.getTileHeight() + tileSet.getSpacing()) * tileSetRow);
+
+        // The texture coordinates of the tile
+        float minU = clipX / tileSet.getImage().getWidth();
+        float maxU = (clipX + tileWidth) / tileSet.getImage().getWidth();
+        float minV = clipY / tileSet.getImage().getHeight();
+        float maxV = (clipY + tileHeight) / tileSet.getImage().getHeight();
+
+        // Flip the texture coordinates to flip the tile
+        boolean flipX = mapTile.isFlippedHorizontally();
+        boolean flipY = mapTile.isFlippedVertically();
+        boolean flipZ = mapTile.isFlippedDiagonally();
+
+        if (flipZ)
         {
-            for (int x = 0; x < tileLayer.getWidth(); x++)
-            {
-                for (int y = 0; y < tileLayer.getHeight(); y++)
-                {
-                    TmxMapTile mapTile = tileLayer.getTile(x, y);
-
-                    if (mapTile.getTileSetID() == -1)
-                        continue;
-
-                    TmxTileSet tileSet = map.getTileset(mapTile.getTileSetID());
-                    TmxTile tile = tileSet.getTile(mapTile.getGID() - tileSet.getFirstGID());
-
-                    Texture texture = textureMap.get(tileSet.getImage().getSource().getAbsolutePath());
-
-                    if (texture.getID() != current.getID())
-                    {
-                        renderer.end();
-                        current = texture;
-                        texture.bind();
-                        renderer.begin(Primitive.TRIANGLES);
-                    }
-
-                    int tileID = mapTile.getGID() - tileSet.getFirstGID();
-                    if (tile.isAnimated())
-                        tileID = tileAnimators.get(tile).getCurrentFrame().getTileID();
-
-                    int numColsPerRow = tileSet.getImage().getWidth() / tileSet.getTileWidth();
-
-                    int tileSetCol = tileID % numColsPerRow;
-                    int tileSetRow = tileID / numColsPerRow;
-
-                    float tileWidth = map.getTileWidth();
-                    float tileHeight = map.getTileHeight();
-
-                    // The position of the tile in the world
-                    float posX = x * tileWidth;
-                    float posY = y * tileWidth;
-
-                    // The clip space of the tile in the texture
-                    float clipX = (tileSet.getMargin() + (tileSet.getTileWidth() + tileSet.getSpacing()) * tileSetCol);
-                    float clipY = (tileSet.getMargin() + (tileSet.getTileHeight() + tileSet.getSpacing()) * tileSetRow);
-
-                    // The texture coordinates of the tile
-                    float minU = clipX / tileSet.getImage().getWidth();
-                    float maxU = (clipX + tileWidth) / tileSet.getImage().getWidth();
-                    float minV = clipY / tileSet.getImage().getHeight();
-                    float maxV = (clipY + tileHeight) / tileSet.getImage().getHeight();
-
-                    // Flip the texture coordinates to flip the tile
-                    boolean flipX = mapTile.isFlippedHorizontally();
-                    boolean flipY = mapTile.isFlippedVertically();
-                    boolean flipZ = mapTile.isFlippedDiagonally();
-
-                    if (flipZ)
-                    {
-                        flipX = !flipX;
-                        flipY = !flipY;
-                    }
-
-                    if (flipX)
-                    {
-                        float temp = minU;
-                        minU = maxU;
-                        maxU = temp;
-                    }
-
-                    if (flipY)
-                    {
-                        float temp = minV;
-                        minV = maxV;
-                        maxV = temp;
-                    }
-
-                    float uvCorrectionX = (0.2f / tileSet.getImage().getWidth());
-                    float uvCorrectionY = (0.2f / tileSet.getImage().getHeight());
-
-                    renderer.flushOnOverflow(6);
-
-                    // Draw the tile
-                    renderer.vertex(posX, posY);
-                    renderer.texCoord(minU + uvCorrectionX, minV + uvCorrectionY);
-
-                    renderer.vertex(flipZ ? posX : posX + tileWidth, flipZ ? posY + tileHeight : posY);
-                    renderer.texCoord(maxU - uvCorrectionX, minV + uvCorrectionY);
-
-                    renderer.vertex(flipZ ? posX + tileWidth : posX, flipZ ? posY : posY + tileHeight);
-                    renderer.texCoord(minU + uvCorrectionX, maxV - uvCorrectionY);
-
-                    renderer.vertex(flipZ ? posX : posX + tileWidth, flipZ ? posY + tileHeight : posY);
-                    renderer.texCoord(maxU - uvCorrectionX, minV + uvCorrectionY);
-
-                    renderer.vertex(posX + tileWidth, posY + tileHeight);
-                    renderer.texCoord(maxU - uvCorrectionX, maxV - uvCorrectionY);
-
-                    renderer.vertex(flipZ ? posX + tileWidth : posX, flipZ ? posY : posY + tileHeight);
-                    renderer.texCoord(minU + uvCorrectionX, maxV - uvCorrectionY);
-                }
-            }
+            flipX = !flipX;
+            flipY = !flipY;
         }
-        renderer.end();
 
-        original.bind();
+        if (flipX)
+        {
+            float temp = minU;
+            minU = maxU;
+            maxU = temp;
+        }
+
+        if (flipY)
+        {
+            float temp = minV;
+            minV = maxV;
+            maxV = temp;
+        }
+
+        float uvCorrectionX = (0.2f / tileSet.getImage().getWidth());
+        float uvCorrectionY = (0.2f / tileSet.getImage().getHeight());
+
+        minU += uvCorrectionX;
+        maxU -= uvCorrectionX;
+        minV += uvCorrectionY;
+        maxV -= uvCorrectionY;
+
+        putCorner(dest, 0, posX, posY, minU, minV);
+        putCorner(dest, 1, flipZ ? posX : posX + tileWidth, flipZ ? posY + tileHeight : posY, maxU, minV);
+        putCorner(dest, 2, flipZ ? posX + tileWidth : posX, flipZ ? posY : posY + tileHeight, minU, maxV);
+        putCorner(dest, 3, posX + tileWidth, posY + tileHeight, maxU, maxV);
+    }
+
+    private static void putCorner(float[] dest, int corner, float x, float y, float u, float v)
+    {
+        dest[corner * 4] = x;
+        dest[corner * 4 + 1] = y;
+        dest[corner * 4 + 2] = u;
+        dest[corner * 4 + 3] = v;
+    }
+
+    @Override
+    public void dispose()
+    {
+        for (TmxTileLayerChunks chunks : layerChunks.values())
+            chunks.dispose();
+
+        layerChunks.clear();
+
+        if (indexBuffer != null)
+            indexBuffer.dispose();
+
+        super.dispose();
     }
 }
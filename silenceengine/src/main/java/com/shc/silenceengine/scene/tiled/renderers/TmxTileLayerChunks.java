@@ -0,0 +1,491 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.scene.tiled.renderers;
+
+import com.shc.silenceengine.core.SilenceEngine;
+import com.shc.silenceengine.graphics.DynamicRenderer;
+import com.shc.silenceengine.graphics.opengl.BufferObject;
+import com.shc.silenceengine.graphics.opengl.GLContext;
+import com.shc.silenceengine.graphics.opengl.Primitive;
+import com.shc.silenceengine.graphics.opengl.Program;
+import com.shc.silenceengine.graphics.opengl.Texture;
+import com.shc.silenceengine.graphics.opengl.VertexArray;
+import com.shc.silenceengine.io.DirectBuffer;
+import com.shc.silenceengine.io.PrimitiveSize;
+import com.shc.silenceengine.math.geom2d.Rectangle;
+import com.shc.silenceengine.scene.tiled.TmxTileSet;
+import com.shc.silenceengine.scene.tiled.layers.TmxTileChunk;
+import com.shc.silenceengine.scene.tiled.layers.TmxTileLayer;
+import com.shc.silenceengine.scene.tiled.tiles.TmxMapTile;
+import com.shc.silenceengine.scene.tiled.tiles.TmxTile;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.shc.silenceengine.graphics.IGraphicsDevice.Constants.*;
+
+/**
+ * The static geometry of a tile layer, baked into fixed size chunks of tiles that live on the GPU. A chunk is built
+ * the first time it is visible, and is only rebuilt when it is invalidated, so the cost of rendering a layer depends
+ * on the number of visible chunks instead of the size of the map. Animated tiles are left out of the static meshes,
+ * and are streamed through the {@link DynamicRenderer} every frame instead.
+ *
+ * <p>The chunks are kept in a map by their coordinates, and only the chunks that have tiles are created, so that the
+ * sparse layers of infinite maps do not pay for the empty space in their bounds.</p>
+ *
+ * @author Sri Harsha Chilakapati
+ */
+class TmxTileLayerChunks
+{
+    static final int CHUNK_SIZE = 32;
+
+    // Every tile is a quad of four vertices, each with a position, a color and a texture coordinate
+    private static final int NUM_COMPONENTS   = 2 + 4 + 2;
+    private static final int STRIDE           = NUM_COMPONENTS * PrimitiveSize.FLOAT;
+    private static final int QUAD_SIZE        = 4 * STRIDE;
+    private static final int INDICES_PER_TILE = 6;
+
+    private TmxOrthogonalMapRenderer mapRenderer;
+    private TmxTileLayer             tileLayer;
+
+    private BufferObject indexBuffer;
+
+    private Map<Long, Chunk> chunks;
+    private List<Chunk>      visibleChunks = new ArrayList<>();
+
+    private int chunksX;
+    private int chunksY;
+
+    private float[]    quad     = new float[16];
+    private TmxMapTile tileView = new TmxMapTile();
+
+    TmxTileLayerChunks(TmxOrthogonalMapRenderer mapRenderer, TmxTileLayer tileLayer, BufferObject indexBuffer)
+    {
+        this.mapRenderer = mapRenderer;
+        this.tileLayer = tileLayer;
+        this.indexBuffer = indexBuffer;
+
+        chunksX = (tileLayer.getWidth() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        chunksY = (tileLayer.getHeight() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+
+        chunks = new HashMap<>();
+
+        if (!tileLayer.isInfinite())
+        {
+            for (int cy = 0; cy < chunksY; cy++)
+                for (int cx = 0; cx < chunksX; cx++)
+                    chunks.put(chunkKey(cx, cy), new Chunk(cx, cy));
+
+            return;
+        }
+
+        // Only create the chunks that overlap the chunks of the layer, the rest of the bounds has no tiles
+        for (TmxTileChunk tileChunk : tileLayer.getChunks())
+        {
+            int minCX = (tileChunk.getX() - tileLayer.getOriginX()) / CHUNK_SIZE;
+            int minCY = (tileChunk.getY() - tileLayer.getOriginY()) / CHUNK_SIZE;
+            int maxCX = (tileChunk.getX() - tileLayer.getOriginX() + tileChunk.getWidth() - 1) / CHUNK_SIZE;
+            int maxCY = (tileChunk.getY() - tileLayer.getOriginY() + tileChunk.getHeight() - 1) / CHUNK_SIZE;
+
+            for (int cy = minCY; cy <= maxCY; cy++)
+                for (int cx = minCX; cx <= maxCX; cx++)
+                    if (!chunks.containsKey(chunkKey(cx, cy)))
+                        chunks.put(chunkKey(cx, cy), new Chunk(cx, cy));
+        }
+    }
+
+    private static long chunkKey(int cx, int cy)
+    {
+        return ((long) cy << 32) | (cx & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Creates the index buffer shared by all the chunks. Since every tile is a quad, the indices of a chunk never
+     * change, and one buffer can serve every chunk of every layer.
+     */
+    static BufferObject createIndexBuffer()
+    {
+        int numTiles = CHUNK_SIZE * CHUNK_SIZE;
+
+        DirectBuffer indices = SilenceEngine.io.create(numTiles * INDICES_PER_TILE * PrimitiveSize.SHORT);
+
+        for (int i = 0, offset = 0; i < numTiles; i++)
+        {
+            int base = i * 4;
+
+            indices.writeShort(offset, (short) base)
+                    .writeShort(offset + 2, (short) (base + 1))
+                    .writeShort(offset + 4, (short) (base + 2))
+                    .writeShort(offset + 6, (short) (base + 1))
+                    .writeShort(offset + 8, (short) (base + 3))
+                    .writeShort(offset + 10, (short) (base + 2));
+
+            offset += INDICES_PER_TILE * PrimitiveSize.SHORT;
+        }
+
+        BufferObject buffer = new BufferObject(BufferObject.Target.ELEMENT_ARRAY_BUFFER);
+        buffer.uploadData(indices, BufferObject.Usage.STATIC_DRAW);
+
+        SilenceEngine.io.free(indices);
+        return buffer;
+    }
+
+    void render(DynamicRenderer renderer, Rectangle view)
+    {
+        int minCX = 0, minCY = 0;
+        int maxCX = chunksX - 1, maxCY = chunksY - 1;
+
+        if (view != null)
+        {
+            float chunkWidth = CHUNK_SIZE * mapRenderer.getMap().getTileWidth();
+            float chunkHeight = CHUNK_SIZE * mapRenderer.getMap().getTileHeight();
+
+            // Layers of infinite maps can start anywhere, even at negative coordinates
+            float viewX = view.x - tileLayer.getOriginX() * mapRenderer.getMap().getTileWidth();
+            float viewY = view.y - tileLayer.getOriginY() * mapRenderer.getMap().getTileHeight();
+
+            minCX = Math.max(minCX, (int) Math.floor(viewX / chunkWidth));
+            minCY = Math.max(minCY, (int) Math.floor(viewY / chunkHeight));
+            maxCX = Math.min(maxCX, (int) Math.floor((viewX + view.width) / chunkWidth));
+            maxCY = Math.min(maxCY, (int) Math.floor((viewY + view.height) / chunkHeight));
+        }
+
+        findVisibleChunks(minCX, minCY, maxCX, maxCY);
+
+        // The static meshes are drawn with the program of the dynamic renderer, so make sure it is up to date
+        Program.CURRENT.prepareFrame();
+
+        for (Chunk chunk : visibleChunks)
+        {
+            if (chunk.dirty)
+                chunk.build(renderer);
+
+            chunk.render();
+        }
+
+        // The animated tiles of all the visible chunks are streamed in one go
+        Texture current = null;
+        renderer.begin(Primitive.TRIANGLES);
+
+        for (Chunk chunk : visibleChunks)
+        {
+            for (int i = 0; i < chunk.numAnimatedTiles; i++)
+            {
+                int index = chunk.animatedTiles[i];
+                int x = index % tileLayer.getWidth();
+                int y = index / tileLayer.getWidth();
+
+                TmxMapTile mapTile = tileLayer.getTile(x, y, tileView);
+                TmxTileSet tileSet = mapRenderer.getMap().getTileset(mapTile.getTileSetID());
+                Texture texture = mapRenderer.getTexture(tileSet);
+
+                if (texture != current)
+                {
+                    renderer.end();
+                    texture.bind();
+                    current = texture;
+                    renderer.begin(Primitive.TRIANGLES);
+                }
+
+                mapRenderer.computeTileQuad(mapTile, x + tileLayer.getOriginX(), y + tileLayer.getOriginY(), quad);
+
+                renderer.flushOnOverflow(6);
+
+                emitVertex(renderer, 0);
+                emitVertex(renderer, 1);
+                emitVertex(renderer, 2);
+                emitVertex(renderer, 1);
+                emitVertex(renderer, 3);
+                emitVertex(renderer, 2);
+            }
+        }
+
+        renderer.end();
+    }
+
+    private void findVisibleChunks(int minCX, int minCY, int maxCX, int maxCY)
+    {
+        visibleChunks.clear();
+
+        if (minCX > maxCX || minCY > maxCY)
+            return;
+
+        // Walk the map instead of the range when the range covers more cells than there are chunks
+        if ((long) (maxCX - minCX + 1) * (maxCY - minCY + 1) > chunks.size())
+        {
+            for (Chunk chunk : chunks.values())
+                if (chunk.cx >= minCX && chunk.cx <= maxCX && chunk.cy >= minCY && chunk.cy <= maxCY)
+                    visibleChunks.add(chunk);
+
+            return;
+        }
+
+        for (int cy = minCY; cy <= maxCY; cy++)
+        {
+            for (int cx = minCX; cx <= maxCX; cx++)
+            {
+                Chunk chunk = chunks.get(chunkKey(cx, cy));
+
+                if (chunk != null)
+                    visibleChunks.add(chunk);
+            }
+        }
+    }
+
+    private void emitVertex(DynamicRenderer renderer, int corner)
+    {
+        renderer.vertex(quad[corner * 4], quad[corner * 4 + 1]);
+        renderer.texCoord(quad[corner * 4 + 2], quad[corner * 4 + 3]);
+        renderer.color(0, 0, 0, tileLayer.getOpacity());
+    }
+
+    void invalidate(int x, int y)
+    {
+        if (x < 0 || y < 0 || x >= tileLayer.getWidth() || y >= tileLayer.getHeight())
+            return;
+
+        Chunk chunk = chunks.get(chunkKey(x / CHUNK_SIZE, y / CHUNK_SIZE));
+
+        if (chunk != null)
+            chunk.dirty = true;
+    }
+
+    void invalidateAll()
+    {
+        for (Chunk chunk : chunks.values())
+            chunk.dirty = true;
+    }
+
+    void dispose()
+    {
+        for (Chunk chunk : chunks.values())
+            chunk.disposeBatches();
+    }
+
+    /**
+     * A square of tiles of a layer, with one static mesh per tile set that is used in it.
+     */
+    private class Chunk
+    {
+        private int cx;
+        private int cy;
+
+        private boolean     dirty = true;
+        private List<Batch> batches;
+
+        private int[] animatedTiles;
+        private int   numAnimatedTiles;
+
+        Chunk(int cx, int cy)
+        {
+            this.cx = cx;
+            this.cy = cy;
+
+            batches = new ArrayList<>();
+        }
+
+        void build(DynamicRenderer renderer)
+        {
+            disposeBatches();
+
+            int startX = cx * CHUNK_SIZE;
+            int startY = cy * CHUNK_SIZE;
+            int endX = Math.min(startX + CHUNK_SIZE, tileLayer.getWidth());
+            int endY = Math.min(startY + CHUNK_SIZE, tileLayer.getHeight());
+
+            int numTileSets = mapRenderer.getMap().getNumTileSets();
+
+            // Count the tiles of each tile set first, so that every mesh is written in a single buffer
+            int[] counts = new int[numTileSets];
+            numAnimatedTiles = 0;
+
+            for (int y = startY; y < endY; y++)
+            {
+                for (int x = startX; x < endX; x++)
+                {
+                    TmxMapTile mapTile = tileLayer.getTile(x, y, tileView);
+
+                    if (mapTile == null || mapTile.getTileSetID() == -1)
+                        continue;
+
+                    if (isAnimated(mapTile))
+                        numAnimatedTiles++;
+                    else
+                        counts[mapTile.getTileSetID()]++;
+                }
+            }
+
+            animatedTiles = new int[numAnimatedTiles];
+            numAnimatedTiles = 0;
+
+            DirectBuffer[] data = new DirectBuffer[numTileSets];
+            int[] quads = new int[numTileSets];
+
+            for (int i = 0; i < numTileSets; i++)
+                if (counts[i] > 0)
+                    data[i] = SilenceEngine.io.create(counts[i] * QUAD_SIZE);
+
+            float alpha = tileLayer.getOpacity();
+
+            for (int y = startY; y < endY; y++)
+            {
+                for (int x = startX; x < endX; x++)
+                {
+                    TmxMapTile mapTile = tileLayer.getTile(x, y, tileView);
+
+                    if (mapTile == null || mapTile.getTileSetID() == -1)
+                        continue;
+
+                    if (isAnimated(mapTile))
+                    {
+                        animatedTiles[numAnimatedTiles++] = y * tileLayer.getWidth() + x;
+                        continue;
+                    }
+
+                    int tileSetID = mapTile.getTileSetID();
+                    mapRenderer.computeTileQuad(mapTile, x + tileLayer.getOriginX(), y + tileLayer.getOriginY(), quad);
+
+                    DirectBuffer buffer = data[tileSetID];
+                    int offset = quads[tileSetID]++ * QUAD_SIZE;
+
+                    for (int corner = 0; corner < 4; corner++)
+                    {
+                        buffer.writeFloat(offset, quad[corner * 4])
+                                .writeFloat(offset + 4, quad[corner * 4 + 1])
+                                .writeFloat(offset + 8, 0)
+                                .writeFloat(offset + 12, 0)
+                                .writeFloat(offset + 16, 0)
+                                .writeFloat(offset + 20, alpha)
+                                .writeFloat(offset + 24, quad[corner * 4 + 2])
+                                .writeFloat(offset + 28, quad[corner * 4 + 3]);
+
+                        offset += STRIDE;
+                    }
+                }
+            }
+
+            for (int i = 0; i < numTileSets; i++)
+            {
+                if (data[i] == null)
+                    continue;
+
+                batches.add(new Batch(renderer, mapRenderer.getTexture(mapRenderer.getMap().getTileset(i)),
+                        data[i], quads[i]));
+
+                SilenceEngine.io.free(data[i]);
+            }
+
+            dirty = false;
+        }
+
+        boolean isAnimated(TmxMapTile mapTile)
+        {
+            TmxTileSet tileSet = mapRenderer.getMap().getTileset(mapTile.getTileSetID());
+            TmxTile tile = tileSet.getTile(mapTile.getGID() - tileSet.getFirstGID());
+
+            return tile != null && tile.isAnimated();
+        }
+
+        void render()
+        {
+            for (Batch batch : batches)
+                batch.render();
+        }
+
+        void disposeBatches()
+        {
+            for (Batch batch : batches)
+                batch.dispose();
+
+            batches.clear();
+        }
+    }
+
+    /**
+     * A static mesh of the tiles of a chunk that all come from the same tile set.
+     */
+    private class Batch
+    {
+        private Texture      texture;
+        private VertexArray  vao;
+        private BufferObject vbo;
+        private int          numTiles;
+
+        Batch(DynamicRenderer renderer, Texture texture, DirectBuffer data, int numTiles)
+        {
+            this.texture = texture;
+            this.numTiles = numTiles;
+
+            vbo = new BufferObject(BufferObject.Target.ARRAY_BUFFER);
+            vbo.uploadData(data, BufferObject.Usage.STATIC_DRAW);
+
+            vao = new VertexArray();
+            vao.bind();
+
+            // The element array binding is a part of the VAO state, so it only needs to be bound once
+            indexBuffer.bind();
+
+            int vertexLocation = renderer.getVertexLocation();
+            int colorLocation = renderer.getColorLocation();
+            int texCoordLocation = renderer.getTexCoordLocation();
+
+            int attributes = 0;
+
+            if (vertexLocation != -1)
+            {
+                vao.pointAttribute(vertexLocation, 2, GL_FLOAT, false, STRIDE, 0, vbo);
+                attributes |= 1 << vertexLocation;
+            }
+
+            if (colorLocation != -1)
+            {
+                vao.pointAttribute(colorLocation, 4, GL_FLOAT, false, STRIDE, 2 * PrimitiveSize.FLOAT, vbo);
+                attributes |= 1 << colorLocation;
+            }
+
+            if (texCoordLocation != -1)
+            {
+                vao.pointAttribute(texCoordLocation, 2, GL_FLOAT, false, STRIDE, 6 * PrimitiveSize.FLOAT, vbo);
+                attributes |= 1 << texCoordLocation;
+            }
+
+            vao.setEnabledAttributeArrays(attributes);
+        }
+
+        void render()
+        {
+            texture.bind();
+            GLContext.drawElements(vao, Primitive.TRIANGLES, 0, numTiles * INDICES_PER_TILE, GL_UNSIGNED_SHORT);
+        }
+
+        void dispose()
+        {
+            vao.dispose();
+            vbo.dispose();
+        }
+    }
+}
@@ -27,6 +27,9 @@ package com.shc.silenceengine.scene.tiled.tiles;
 import static com.shc.silenceengine.scene.tiled.TmxMap.*;
 
 /**
+ * A view of a single tile in a tile layer. The layers store their tiles as packed GIDs, and the views are created on
+ * demand, so a view can be reused with {@link #set(int, int, int)} while iterating over many tiles.
+ *
  * @author Sri Harsha Chilakapati
  */
 public class TmxMapTile
@@ -39,7 +42,26 @@ public class TmxMapTile
     private boolean flippedVertically;
     private boolean flippedDiagonally;
 
+    public TmxMapTile()
+    {
+        tileSetID = -1;
+    }
+
     public TmxMapTile(int gid, int tileSetFirstID, int tileSetID)
+    {
+        set(gid, tileSetFirstID, tileSetID);
+    }
+
+    /**
+     * Points this view at another tile.
+     *
+     * @param gid            The GID of the tile, with the flip flags in the high bits.
+     * @param tileSetFirstID The first GID of the tile set of this tile.
+     * @param tileSetID      The index of the tile set in the map, or -1 for an empty tile.
+     *
+     * @return This view, for chaining.
+     */
+    public TmxMapTile set(int gid, int tileSetFirstID, int tileSetID)
     {
         this.tileSetID = tileSetID;
 
@@ -48,7 +70,9 @@ public class TmxMapTile
         flippedDiagonally = (gid & FLIPPED_DIAGONALLY_FLAG) != 0;
 
         this.gid = gid & ~(FLIPPED_HORIZONTALLY_FLAG | FLIPPED_VERTICALLY_FLAG | FLIPPED_DIAGONALLY_FLAG);
-        this.id = gid - tileSetFirstID;
+        this.id = this.gid - tileSetFirstID;
+
+        return this;
     }
 
     public int getTileSetID()
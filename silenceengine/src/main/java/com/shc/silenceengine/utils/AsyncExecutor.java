@@ -0,0 +1,117 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.utils;
+
+import com.shc.silenceengine.utils.functional.SimpleCallback;
+
+/**
+ * Runs tasks in the background, the ones with a higher priority first. The backends that have threads run the loads of
+ * their file, image and audio readers through one, so that a few busy workers serve all the loads instead of a thread
+ * or an AsyncTask per file.
+ * <p>
+ * The readers do not take a priority themselves. Instead, code on the update thread can set the priority of the loads
+ * it starts with {@link #runWithPriority(int, SimpleCallback)}, which is how the {@link
+ * com.shc.silenceengine.core.ResourceLoader} passes the priorities of its resources down to the backend.
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public abstract class AsyncExecutor
+{
+    public static final int DEFAULT_PRIORITY = 0;
+
+    private static int priority = DEFAULT_PRIORITY;
+
+    private static AsyncExecutor shared;
+
+    /**
+     * Invokes a callback with the priority of the background tasks set to the given value, and restores the previous
+     * priority after. Only the tasks started directly by the callback on the same thread get this priority.
+     *
+     * @param priority The priority of the tasks started by the callback.
+     * @param callback The callback that starts the tasks.
+     */
+    public static void runWithPriority(int priority, SimpleCallback callback)
+    {
+        int previous = AsyncExecutor.priority;
+        AsyncExecutor.priority = priority;
+
+        try
+        {
+            callback.invoke();
+        }
+        finally
+        {
+            AsyncExecutor.priority = previous;
+        }
+    }
+
+    public static int getPriority()
+    {
+        return priority;
+    }
+
+    /**
+     * @return The executor of the backend that engine code can use for its own background work, or null if the
+     * backend has no threads (like GWT), in which case the work has to be done on the update thread.
+     */
+    public static AsyncExecutor getShared()
+    {
+        return shared;
+    }
+
+    /**
+     * Sets the executor returned by {@link #getShared()}. This is called by the backends that have threads.
+     *
+     * @param executor The executor of the backend.
+     */
+    public static void setShared(AsyncExecutor executor)
+    {
+        shared = executor;
+    }
+
+    public void execute(SimpleCallback task)
+    {
+        execute(task, getPriority());
+    }
+
+    /**
+     * Queues a task to run in the background. Among the queued tasks, the ones with a higher priority are run first,
+     * and the ones with the same priority are run in the order they are queued.
+     *
+     * @param task     The task to run.
+     * @param priority The priority of the task.
+     */
+    public abstract void execute(SimpleCallback task, int priority);
+
+    /**
+     * Discards the tasks that have not started yet. The tasks that are already running are left to finish.
+     */
+    public abstract void cancelAll();
+
+    /**
+     * @return The number of tasks that are queued and not yet started.
+     */
+    public abstract int getQueuedCount();
+}
@@ -25,6 +25,7 @@
 package com.shc.silenceengine.utils;
 
 import com.shc.silenceengine.core.SilenceEngine;
+import com.shc.silenceengine.graphics.cameras.CameraUniformBuffer;
 import com.shc.silenceengine.graphics.opengl.Shader;
 
 /**
@@ -51,6 +52,9 @@ public class ShaderTranslator
             {
                 sb.append("#version ").append(version).append("\n");
 
+                if (CameraUniformBuffer.isSupported())
+                    sb.append("#define ").append(CameraUniformBuffer.SUPPORTED_DEFINE).append("\n");
+
                 if (type == Shader.Type.FRAGMENT_SHADER)
                     sb.append("out vec4 g_FragColor;\n");
             }
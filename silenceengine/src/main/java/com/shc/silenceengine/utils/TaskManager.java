@@ -27,87 +27,150 @@ package com.shc.silenceengine.utils;
 import com.shc.silenceengine.core.SilenceEngine;
 import com.shc.silenceengine.utils.functional.SimpleCallback;
 
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
+ * A task manager that runs tasks on the update or render thread. Tasks can be posted from any thread without blocking,
+ * and are run in the order they are posted. Optionally, a time budget can be set per frame, in which case a long list of
+ * pending tasks is spread over the next frames instead of running all at once.
+ *
  * @author Sri Harsha Chilakapati
  */
 public final class TaskManager
 {
-    private static Queue<SimpleCallback> updateTasks = new LinkedList<>();
-    private static Queue<SimpleCallback> renderTasks = new LinkedList<>();
+    private static final TaskQueue updateTasks = new TaskQueue();
+    private static final TaskQueue renderTasks = new TaskQueue();
 
-    private static boolean initialized = false;
+    private static final AtomicBoolean initialized = new AtomicBoolean();
 
-    private final static Object updateTasksLock = new Object();
-    private final static Object renderTasksLock = new Object();
+    private static double updateTimeBudget;
+    private static double renderTimeBudget;
 
-    public static void runOnUpdate(SimpleCallback task)
+    private static volatile boolean drainedByGameLoop;
+
+    private TaskManager()
     {
-        synchronized (updateTasksLock)
-        {
-            updateTasks.add(task);
-        }
+    }
 
+    public static void runOnUpdate(SimpleCallback task)
+    {
+        updateTasks.add(task);
         checkInitialized();
     }
 
     public static void runOnRender(SimpleCallback task)
     {
-        synchronized (renderTasksLock)
-        {
-            renderTasks.add(task);
-        }
-
+        renderTasks.add(task);
         checkInitialized();
     }
 
     public static void clearUpdateTasks()
     {
-        synchronized (updateTasksLock)
-        {
-            updateTasks.clear();
-        }
+        updateTasks.clear();
     }
 
     public static void clearRenderTasks()
     {
-        synchronized (renderTasksLock)
-        {
-            renderTasks.clear();
-        }
+        renderTasks.clear();
     }
 
     public static void forceUpdateTasks(float deltaTime)
     {
-        synchronized (updateTasksLock)
-        {
-            SimpleCallback task;
-
-            while ((task = updateTasks.poll()) != null)
-                task.invoke();
-        }
+        updateTasks.drain(updateTimeBudget);
     }
 
     public static void forceRenderTasks(float delta)
     {
-        synchronized (renderTasksLock)
-        {
-            SimpleCallback task;
+        renderTasks.drain(renderTimeBudget);
+    }
 
-            while ((task = renderTasks.poll()) != null)
-                task.invoke();
-        }
+    /**
+     * Sets whether the game loop runs the tasks itself. By default, the update tasks are run by an update handler and
+     * the render tasks by a render handler. A game loop that raises the update events on a thread without the OpenGL
+     * context sets this, and calls {@link #forceUpdateTasks(float)} and {@link #forceRenderTasks(float)} on the context
+     * thread instead, since the tasks posted by the loaders upload to the GPU.
+     *
+     * @param drainedByGameLoop True if the game loop runs the tasks, false to run them from the event handlers.
+     */
+    public static void setDrainedByGameLoop(boolean drainedByGameLoop)
+    {
+        TaskManager.drainedByGameLoop = drainedByGameLoop;
+    }
+
+    public static boolean isDrainedByGameLoop()
+    {
+        return drainedByGameLoop;
+    }
+
+    /**
+     * Sets the maximum time that can be spent running the update tasks in a single frame. The tasks which could not be
+     * run within this time are run in the next frame. A time of zero means there is no limit (the default).
+     *
+     * @param time The time budget for the update tasks per frame.
+     * @param unit The unit of the time specified.
+     */
+    public static void setUpdateTimeBudget(double time, TimeUtils.Unit unit)
+    {
+        updateTimeBudget = TimeUtils.convert(time, unit, TimeUtils.getDefaultTimeUnit());
+    }
+
+    /**
+     * Sets the maximum time that can be spent running the render tasks in a single frame. The tasks which could not be
+     * run within this time are run in the next frame. A time of zero means there is no limit (the default).
+     *
+     * @param time The time budget for the render tasks per frame.
+     * @param unit The unit of the time specified.
+     */
+    public static void setRenderTimeBudget(double time, TimeUtils.Unit unit)
+    {
+        renderTimeBudget = TimeUtils.convert(time, unit, TimeUtils.getDefaultTimeUnit());
+    }
+
+    public static int getPendingUpdateTasks()
+    {
+        return updateTasks.size();
+    }
+
+    public static int getPendingRenderTasks()
+    {
+        return renderTasks.size();
+    }
+
+    public static double getLastUpdateDrainTime(TimeUtils.Unit unit)
+    {
+        return TimeUtils.convert(updateTasks.getLastDrainTime(), TimeUtils.getDefaultTimeUnit(), unit);
+    }
+
+    public static double getLastRenderDrainTime(TimeUtils.Unit unit)
+    {
+        return TimeUtils.convert(renderTasks.getLastDrainTime(), TimeUtils.getDefaultTimeUnit(), unit);
+    }
+
+    public static int getLastUpdateDrainCount()
+    {
+        return updateTasks.getLastDrainCount();
+    }
+
+    public static int getLastRenderDrainCount()
+    {
+        return renderTasks.getLastDrainCount();
     }
 
     private static void checkInitialized()
     {
-        if (!initialized)
+        if (!initialized.get() && initialized.compareAndSet(false, true))
         {
-            SilenceEngine.eventManager.addUpdateHandler(TaskManager::forceUpdateTasks);
-            SilenceEngine.eventManager.addRenderHandler(TaskManager::forceRenderTasks);
-            initialized = true;
+            SilenceEngine.eventManager.addUpdateHandler(delta ->
+            {
+                if (!drainedByGameLoop)
+                    forceUpdateTasks(delta);
+            });
+
+            SilenceEngine.eventManager.addRenderHandler(delta ->
+            {
+                if (!drainedByGameLoop)
+                    forceRenderTasks(delta);
+            });
         }
     }
 }
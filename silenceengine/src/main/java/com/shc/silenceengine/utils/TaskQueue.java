@@ -0,0 +1,196 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.utils;
+
+import com.shc.silenceengine.utils.functional.SimpleCallback;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>A lock-free, multiple producer single consumer queue of tasks. Any thread can add tasks to this queue without ever
+ * blocking, and a single consumer thread (the update or the render thread) drains it. Producers push tasks onto an
+ * atomic stack, and the consumer swaps the whole stack out in one atomic operation, reverses it into a local batch and
+ * runs the tasks from there in the order they were added.</p>
+ *
+ * <p>The consumer can also specify a time budget while draining the queue. When the budget is exceeded, the remaining
+ * tasks of the current batch are kept aside and are run first on the next drain, so that a long backlog of tasks is
+ * spread over multiple frames instead of causing a hitch.</p>
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public final class TaskQueue
+{
+    // The stack of tasks pushed by the producers, latest task on the top
+    private final AtomicReference<Node> head = new AtomicReference<>();
+
+    // The number of tasks that are added but not yet run
+    private final AtomicInteger size = new AtomicInteger();
+
+    // The batch owned by the consumer, in FIFO order. Only touched by the consumer thread
+    private Node batch;
+
+    private double lastDrainTime;
+    private int    lastDrainCount;
+
+    /**
+     * Adds a task to this queue. This method never blocks, and is safe to be called from any thread.
+     *
+     * @param task The task to be run by the consumer when this queue is drained next.
+     */
+    public void add(SimpleCallback task)
+    {
+        Node node = new Node(task);
+        Node top;
+
+        do
+        {
+            top = head.get();
+            node.next = top;
+        }
+        while (!head.compareAndSet(top, node));
+
+        size.incrementAndGet();
+    }
+
+    /**
+     * Runs all the tasks that are currently in this queue. Tasks that are added while draining are run on the next call.
+     * This method should only be called from the consumer thread.
+     */
+    public void drain()
+    {
+        drain(0);
+    }
+
+    /**
+     * Runs the tasks that are currently in this queue until the time budget is exceeded. At least one task is always
+     * run if there are any pending tasks, so that the queue always makes progress. This method should only be called
+     * from the consumer thread.
+     *
+     * @param budget The maximum time to be spent running tasks, in the default time unit. Zero or less means that
+     *               there is no limit, and all the tasks are run.
+     */
+    public void drain(double budget)
+    {
+        double startTime = TimeUtils.currentTime();
+        int count = 0;
+
+        if (batch == null)
+            batch = swapBatch();
+
+        try
+        {
+            while (batch != null)
+            {
+                Node node = batch;
+                batch = node.next;
+                size.decrementAndGet();
+                count++;
+
+                node.task.invoke();
+
+                if (budget > 0 && batch != null && TimeUtils.currentTime() - startTime >= budget)
+                    break;
+            }
+        }
+        finally
+        {
+            lastDrainCount = count;
+            lastDrainTime = TimeUtils.currentTime() - startTime;
+        }
+    }
+
+    /**
+     * Removes all the tasks in this queue without running them. Like draining, this should only be called from the
+     * consumer thread.
+     */
+    public void clear()
+    {
+        int removed = 0;
+
+        for (Node node = batch; node != null; node = node.next)
+            removed++;
+
+        // Take the stack atomically, tasks pushed after this are kept and stay counted
+        for (Node node = head.getAndSet(null); node != null; node = node.next)
+            removed++;
+
+        batch = null;
+        size.addAndGet(-removed);
+    }
+
+    /**
+     * @return The number of tasks that are waiting to be run, including any tasks that spilled over from the previous
+     * drain because of the time budget.
+     */
+    public int size()
+    {
+        return size.get();
+    }
+
+    /**
+     * @return The time spent running tasks in the last drain, in the default time unit.
+     */
+    public double getLastDrainTime()
+    {
+        return lastDrainTime;
+    }
+
+    /**
+     * @return The number of tasks that were run in the last drain.
+     */
+    public int getLastDrainCount()
+    {
+        return lastDrainCount;
+    }
+
+    private Node swapBatch()
+    {
+        // Take the whole stack in one go, and reverse it so the tasks are run in the order they are added
+        Node node = head.getAndSet(null);
+        Node reversed = null;
+
+        while (node != null)
+        {
+            Node next = node.next;
+            node.next = reversed;
+            reversed = node;
+            node = next;
+        }
+
+        return reversed;
+    }
+
+    private static class Node
+    {
+        final SimpleCallback task;
+        Node next;
+
+        Node(SimpleCallback task)
+        {
+            this.task = task;
+        }
+    }
+}
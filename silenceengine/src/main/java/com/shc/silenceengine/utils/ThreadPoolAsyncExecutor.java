@@ -0,0 +1,146 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.utils;
+
+import com.shc.silenceengine.core.SilenceEngine;
+import com.shc.silenceengine.utils.functional.SimpleCallback;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An AsyncExecutor with a fixed number of daemon worker threads, shared by the LWJGL and the Android backends. This
+ * class uses threads, so it is excluded from the GWT module, the web backend relies on the browser for asynchronous
+ * loading.
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public class ThreadPoolAsyncExecutor extends AsyncExecutor
+{
+    private final PriorityBlockingQueue<Runnable> queue = new PriorityBlockingQueue<>();
+    private final ThreadPoolExecutor              executor;
+
+    // Breaks the ties between the tasks of the same priority, so that they run in the order they are queued
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Constructs an executor with the given number of workers. The workers are started as the tasks come in, and are
+     * stopped after they are idle for a while.
+     *
+     * @param name    The name of the worker threads, which is numbered for each thread.
+     * @param threads The maximum number of tasks that run at the same time.
+     */
+    public ThreadPoolAsyncExecutor(String name, int threads)
+    {
+        AtomicInteger count = new AtomicInteger();
+
+        executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, queue, runnable ->
+        {
+            Thread thread = new Thread(runnable, name + " " + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return The number of workers to use for loading, one less than the number of processors so that the game
+     * thread keeps a core, but at least two so that a slow read does not stall all the other loads.
+     */
+    public static int getDefaultThreadCount()
+    {
+        return Math.max(2, Runtime.getRuntime().availableProcessors() - 1);
+    }
+
+    @Override
+    public void execute(SimpleCallback task, int priority)
+    {
+        // Tasks are queued with execute rather than submit, so that the queue orders them and not their futures
+        executor.execute(new Task(task, priority, sequence.getAndIncrement()));
+    }
+
+    @Override
+    public void cancelAll()
+    {
+        queue.clear();
+    }
+
+    @Override
+    public int getQueuedCount()
+    {
+        return queue.size();
+    }
+
+    public void shutdown()
+    {
+        executor.shutdownNow();
+    }
+
+    private static class Task implements Runnable, Comparable<Task>
+    {
+        private final SimpleCallback callback;
+        private final int            priority;
+        private final long           sequence;
+
+        Task(SimpleCallback callback, int priority, long sequence)
+        {
+            this.callback = callback;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                callback.invoke();
+            }
+            catch (Throwable e)
+            {
+                // The tasks report their own errors, anything that escapes would otherwise kill the worker silently
+                StringWriter trace = new StringWriter();
+                e.printStackTrace(new PrintWriter(trace));
+
+                SilenceEngine.log.getRootLogger().error("Uncaught error in a background task: " + trace);
+            }
+        }
+
+        @Override
+        public int compareTo(Task other)
+        {
+            if (priority != other.priority)
+                return Integer.compare(other.priority, priority);
+
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
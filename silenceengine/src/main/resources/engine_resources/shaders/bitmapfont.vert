@@ -1,5 +1,13 @@
+#ifdef SE_CAMERA_UBO
+layout(std140) uniform Camera
+{
+    mat4 proj;
+    mat4 view;
+};
+#else
 uniform mat4 proj;
 uniform mat4 view;
+#endif
 
 in vec4 position;
 in vec4 color;
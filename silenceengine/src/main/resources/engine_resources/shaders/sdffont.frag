@@ -0,0 +1,14 @@
+uniform sampler2D tex;
+uniform float smoothing;
+
+in vec4 vColor;
+in vec2 vTexCoords;
+
+void main()
+{
+    // The alpha of the atlas is the distance to the edge of the glyph, with the edge at 0.5
+    float distance = texture(tex, vTexCoords).a;
+    float alpha = smoothstep(0.5 - smoothing, 0.5 + smoothing, distance);
+
+    g_FragColor = vec4(vColor.rgb, vColor.a * alpha);
+}
\ No newline at end of file
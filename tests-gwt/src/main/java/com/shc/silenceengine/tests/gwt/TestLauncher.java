@@ -104,6 +104,7 @@ public class TestLauncher implements EntryPoint
         tests.put("ControllerTest", ControllerTest::new);
         tests.put("DialogsTest", DialogsTest::new);
         tests.put("PreferencesTest", PreferencesTest::new);
+        tests.put("BulkMathTest", BulkMathTest::new);
     }
 
     @FunctionalInterface
@@ -0,0 +1,186 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-2017 Sri Harsha Chilakapati
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.shc.silenceengine.tests;
+
+import com.shc.silenceengine.core.SilenceEngine;
+import com.shc.silenceengine.graphics.Color;
+import com.shc.silenceengine.graphics.IGraphicsDevice;
+import com.shc.silenceengine.graphics.cameras.OrthoCam;
+import com.shc.silenceengine.graphics.fonts.BitmapFont;
+import com.shc.silenceengine.graphics.fonts.BitmapFontRenderer;
+import com.shc.silenceengine.graphics.opengl.GLContext;
+import com.shc.silenceengine.input.Keyboard;
+import com.shc.silenceengine.io.FilePath;
+import com.shc.silenceengine.math.Matrix4;
+import com.shc.silenceengine.math.Transforms;
+import com.shc.silenceengine.math.Vector3;
+import com.shc.silenceengine.math.bulk.BulkMath;
+import com.shc.silenceengine.utils.TimeUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmarks the bulk math kernels against the same operations done one Vector3 object at a time, and checks that
+ * both of them compute the same vectors and bounds.
+ *
+ * @author Sri Harsha Chilakapati
+ */
+public class BulkMathTest extends SilenceTest
+{
+    private static final int   VECTORS    = 100000;
+    private static final int   ITERATIONS = 10;
+    private static final float TOLERANCE  = 1e-4f;
+
+    private BitmapFont bitmapFont;
+    private OrthoCam   camera;
+
+    private List<Vector3> vectors;
+    private float[]       packed;
+    private float[]       bounds;
+
+    private Matrix4 matrix;
+
+    private String results = "Running...";
+    private float  elapsed = 1;
+
+    @Override
+    public void init()
+    {
+        SilenceEngine.display.setTitle("BulkMathTest");
+
+        BitmapFont.load(FilePath.getResourceFile("/engine_resources/fonts/roboto32px.fnt"), font ->
+                bitmapFont = font);
+
+        camera = new OrthoCam(SilenceEngine.display.getWidth(), SilenceEngine.display.getHeight());
+        camera.apply();
+
+        vectors = new ArrayList<>();
+
+        for (int i = 0; i < VECTORS; i++)
+            vectors.add(new Vector3(i % 100, i % 37, i % 11));
+
+        packed = BulkMath.pack3(vectors, null, 3);
+        bounds = new float[6];
+
+        matrix = Transforms.createRotation(Vector3.AXIS_Y, 0.001f, new Matrix4());
+    }
+
+    @Override
+    public void update(float deltaTime)
+    {
+        if (Keyboard.isKeyTapped(Keyboard.KEY_ESCAPE))
+            SilenceEngine.display.close();
+
+        elapsed += deltaTime;
+
+        // Run the benchmark once every second
+        if (elapsed < 1)
+            return;
+
+        elapsed = 0;
+
+        Vector3 min = new Vector3();
+        Vector3 max = new Vector3();
+
+        double start = TimeUtils.currentTime(TimeUtils.Unit.MILLIS);
+
+        for (int i = 0; i < ITERATIONS; i++)
+        {
+            min.set(Float.POSITIVE_INFINITY);
+            max.set(Float.NEGATIVE_INFINITY);
+
+            for (Vector3 v : vectors)
+            {
+                v.multiply(matrix).normalize();
+
+                min.set(Math.min(min.x, v.x), Math.min(min.y, v.y), Math.min(min.z, v.z));
+                max.set(Math.max(max.x, v.x), Math.max(max.y, v.y), Math.max(max.z, v.z));
+            }
+        }
+
+        double perObject = TimeUtils.currentTime(TimeUtils.Unit.MILLIS) - start;
+
+        start = TimeUtils.currentTime(TimeUtils.Unit.MILLIS);
+
+        for (int i = 0; i < ITERATIONS; i++)
+        {
+            BulkMath.transformPoints(matrix, packed, 0, packed, 0, VECTORS, 3);
+            BulkMath.normalize(packed, 0, VECTORS, 3);
+            BulkMath.bounds3(packed, 0, VECTORS, 3, bounds);
+        }
+
+        double bulk = TimeUtils.currentTime(TimeUtils.Unit.MILLIS) - start;
+
+        // Compare the results of both the paths, and start the next run from the same vectors again
+        float error = Math.max(maxError(min, bounds, 0), maxError(max, bounds, 3));
+
+        for (int i = 0; i < VECTORS; i++)
+            error = Math.max(error, maxError(vectors.get(i), packed, i * 3));
+
+        BulkMath.pack3(vectors, packed, 3);
+
+        results = "Per object: " + (int) perObject + " ms\nBulk: " + (int) bulk + " ms\n"
+                  + (error <= TOLERANCE ? "Results match" : "Results differ by " + error);
+        SilenceEngine.log.getRootLogger().info(results.replace('\n', ' '));
+    }
+
+    private static float maxError(Vector3 v, float[] data, int offset)
+    {
+        return Math.max(Math.abs(v.x - data[offset]),
+                Math.max(Math.abs(v.y - data[offset + 1]), Math.abs(v.z - data[offset + 2])));
+    }
+
+    @Override
+    public void render(float delta)
+    {
+        if (bitmapFont == null)
+            return;
+
+        BitmapFontRenderer fontRenderer = IGraphicsDevice.Renderers.bitmapFont;
+
+        fontRenderer.begin();
+        {
+            fontRenderer.render(bitmapFont, results, 10, 10, Color.WHITE);
+        }
+        fontRenderer.end();
+    }
+
+    @Override
+    public void resized()
+    {
+        camera.initProjection(SilenceEngine.display.getWidth(), SilenceEngine.display.getHeight());
+        camera.apply();
+
+        GLContext.viewport(0, 0, SilenceEngine.display.getWidth(), SilenceEngine.display.getHeight());
+    }
+
+    @Override
+    public void dispose()
+    {
+        if (bitmapFont != null)
+            bitmapFont.dispose();
+    }
+}
@@ -30,6 +30,7 @@ import com.shc.silenceengine.graphics.IGraphicsDevice;
 import com.shc.silenceengine.graphics.cameras.OrthoCam;
 import com.shc.silenceengine.graphics.fonts.BitmapFont;
 import com.shc.silenceengine.graphics.fonts.BitmapFontRenderer;
+import com.shc.silenceengine.graphics.fonts.StaticText;
 import com.shc.silenceengine.graphics.opengl.GLContext;
 import com.shc.silenceengine.input.Keyboard;
 import com.shc.silenceengine.io.FilePath;
@@ -40,6 +41,8 @@ import com.shc.silenceengine.io.FilePath;
 public class FontRendererTest extends SilenceTest
 {
     private BitmapFont bitmapFont;
+    private BitmapFont distanceFieldFont;
+    private StaticText staticText;
     private OrthoCam   camera;
 
     @Override
@@ -48,7 +51,13 @@ public class FontRendererTest extends SilenceTest
         SilenceEngine.display.setTitle("FontRendererTest");
 
         BitmapFont.load(FilePath.getResourceFile("/engine_resources/fonts/roboto32px.fnt"), font ->
-                bitmapFont = font);
+        {
+            bitmapFont = font;
+            staticText = new StaticText(font, "This line is a static mesh", 10, 170, Color.CORN_FLOWER_BLUE);
+        });
+
+        BitmapFont.loadDistanceField(FilePath.getResourceFile("/engine_resources/fonts/roboto32px.fnt"), 4, 2, font ->
+                distanceFieldFont = font);
 
         camera = new OrthoCam(SilenceEngine.display.getWidth(), SilenceEngine.display.getHeight());
         camera.apply();
@@ -75,6 +84,10 @@ public class FontRendererTest extends SilenceTest
             fontRenderer.render(bitmapFont, "\nFPS: " + SilenceEngine.gameLoop.getFPS(), 10, 10);
             fontRenderer.render(bitmapFont, "\n\nUPS: " + SilenceEngine.gameLoop.getUPS(), 10, 10);
             fontRenderer.render(bitmapFont, "\n\n\nRC: " + IGraphicsDevice.Data.renderCallsThisFrame, 10, 10);
+            fontRenderer.render(staticText);
+
+            if (distanceFieldFont != null)
+                fontRenderer.render(distanceFieldFont, "Distance field x3", 10, 220, 3, Color.WHITE);
         }
         fontRenderer.end();
     }
@@ -92,6 +105,12 @@ public class FontRendererTest extends SilenceTest
     public void dispose()
     {
         if (bitmapFont != null)
+        {
+            staticText.dispose();
             bitmapFont.dispose();
+        }
+
+        if (distanceFieldFont != null)
+            distanceFieldFont.dispose();
     }
 }
@@ -25,6 +25,7 @@
 package com.shc.silenceengine.tests;
 
 import com.shc.silenceengine.audio.AudioDevice;
+import com.shc.silenceengine.audio.Music;
 import com.shc.silenceengine.audio.Sound;
 import com.shc.silenceengine.core.SilenceEngine;
 import com.shc.silenceengine.input.Keyboard;
@@ -38,6 +39,7 @@ public class SoundTest extends SilenceTest
 {
     private Sound sound1;
     private Sound sound2;
+    private Music music;
 
     private boolean playS1;
 
@@ -51,6 +53,11 @@ public class SoundTest extends SilenceTest
         SilenceEngine.io.getFileReader().readBinaryFile(FilePath.getResourceFile("test_resources/siren.ogg"), data ->
                 SilenceEngine.audio.readToALBuffer(AudioDevice.AudioFormat.OGG, data, buffer ->
                         sound2 = new Sound(buffer)));
+
+        // The music keeps the compressed data, and decodes it while playing
+        SilenceEngine.io.getFileReader().readBinaryFile(FilePath.getResourceFile("test_resources/siren.ogg"), data ->
+                SilenceEngine.audio.readToMusic(AudioDevice.AudioFormat.OGG, data, music ->
+                        this.music = music));
     }
 
     @Override
@@ -66,6 +73,14 @@ public class SoundTest extends SilenceTest
             if (sound != null)
                 sound.play();
         }
+
+        if (Keyboard.isKeyTapped(Keyboard.KEY_M) && music != null)
+        {
+            if (music.isPlaying())
+                music.pause();
+            else
+                music.play(true);
+        }
     }
 
     @Override
@@ -76,5 +91,8 @@ public class SoundTest extends SilenceTest
 
         if (sound2 != null)
             sound2.buffer.dispose();
+
+        if (music != null)
+            music.dispose();
     }
 }